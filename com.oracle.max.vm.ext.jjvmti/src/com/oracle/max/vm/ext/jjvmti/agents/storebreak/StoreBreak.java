@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.oracle.max.vm.ext.jjvmti.agents.storebreak;
+
+import static com.oracle.max.vm.ext.jvmti.JVMTIConstants.*;
+import static com.oracle.max.vm.ext.jvmti.JVMTIEvents.*;
+
+import java.util.*;
+
+import com.oracle.max.vm.ext.jjvmti.agents.util.*;
+import com.oracle.max.vm.ext.jvmti.*;
+import com.sun.cri.bytecode.*;
+import com.sun.max.vm.*;
+import com.sun.max.vm.actor.holder.*;
+import com.sun.max.vm.actor.member.*;
+import com.sun.max.vm.classfile.constant.*;
+
+/**
+ * A {@link JJVMTI Java JVMTI agent} that checks that setting breakpoints on local variable stores does not change the
+ * values a baseline compiled method computes. {@link #compute} is run once without breakpoints and then again with a
+ * breakpoint on every store it contains, set while a frame of the method is live. The agent exits the VM with a
+ * non-zero status if the results differ or no breakpoint was hit.
+ */
+public class StoreBreak extends NullJJVMTICallbacks {
+    private static StoreBreak storeBreak;
+
+    static {
+        storeBreak = (StoreBreak) JJVMTIAgentAdapter.register(new StoreBreak());
+    }
+
+    private static final int ITERATIONS = 1000;
+    private static final int ARM_ITERATION = ITERATIONS / 2;
+
+    private static boolean armed;
+    private static int breakpointsHit;
+
+    /***
+     * VM extension entry point.
+     * @param args
+     */
+    public static void onLoad(String agentArgs) {
+        storeBreak.onBoot();
+    }
+
+    /**
+     * Boot image entry point.
+     */
+    @Override
+    public void onBoot() {
+        storeBreak.setEventNotificationMode(JVMTI_ENABLE, E.VM_INIT, null);
+    }
+
+    @Override
+    public void vmInit() {
+        try {
+            storeBreak.addCapabilities(EnumSet.of(JVMTICapabilities.E.CAN_GENERATE_BREAKPOINT_EVENTS));
+            storeBreak.setEventNotificationMode(JVMTI_ENABLE, E.BREAKPOINT, null);
+        } catch (JJVMTIException ex) {
+            fail("initialization error: " + JVMTIError.getName(ex.error));
+        }
+        final long expected = compute(ITERATIONS);
+        armed = true;
+        final long actual = compute(ITERATIONS);
+        if (breakpointsHit == 0) {
+            fail("no breakpoints hit");
+        }
+        if (actual != expected) {
+            fail("result with breakpoints " + actual + " differs from result without breakpoints " + expected);
+        }
+        System.out.printf("storebreak: %d breakpoints hit, result %d%n", breakpointsHit, actual);
+    }
+
+    @Override
+    public void breakpoint(Thread thread, MethodActor method, long location) {
+        breakpointsHit++;
+    }
+
+    /**
+     * Mixes loads, stores, constants and arithmetic so that values are held in the operand stack cache when the
+     * breakpoints are set part way through the second run.
+     */
+    private static long compute(int n) {
+        long sum = 0;
+        int a = 1;
+        for (int i = 0; i < n; i++) {
+            int b = a * 3 + i;
+            int c = b ^ (i << 2);
+            long d = (long) c << 7;
+            sum += d - b;
+            a = c & 0xffff;
+            if (i == ARM_ITERATION) {
+                arm();
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Sets a breakpoint on every local variable store in {@link #compute}, once.
+     */
+    private static void arm() {
+        if (!armed) {
+            return;
+        }
+        armed = false;
+        try {
+            ClassMethodActor method = ClassActor.fromJava(StoreBreak.class).findLocalStaticMethodActor(SymbolTable.makeSymbol("compute"));
+            BytecodeStream stream = new BytecodeStream(storeBreak.getBytecodes(method));
+            while (stream.currentBC() != Bytecodes.END) {
+                if (Bytecodes.isStore(stream.currentBC())) {
+                    storeBreak.setBreakpoint(method, stream.currentBCI());
+                }
+                stream.next();
+            }
+        } catch (JJVMTIException ex) {
+            fail("breakpoint error: " + JVMTIError.getName(ex.error));
+        }
+    }
+
+    private static void fail(String message) {
+        Log.println(message);
+        MaxineVM.exit(-1);
+    }
+
+}
@@ -173,6 +173,12 @@ public class JVMTI_AMD64T1XCompilation extends AMD64T1XCompilation {
                 eventSettings = DEBUG_EVENTS;
             }
         }
+
+        if ((eventSettings & DEBUG_EVENTS) != 0) {
+            // A breakpoint or single-step event is emitted after the position of its bytecode has been
+            // recorded, so the operand stack must be in memory at the start of every bytecode
+            cacheTopOfStack = false;
+        }
     }
 
     /**
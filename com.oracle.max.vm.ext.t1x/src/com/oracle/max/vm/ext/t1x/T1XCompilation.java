@@ -267,6 +267,54 @@ public abstract class T1XCompilation {
      */
     CiExceptionHandler[] handlers;
 
+    /**
+     * The BCIs that are the target of a branch, switch or exception handler. Only computed
+     * if {@link #cacheTopOfStack} is enabled.
+     */
+    boolean[] jumpTargetBCIs;
+
+    /**
+     * Specifies if the top values of the operand stack are kept in the {@linkplain #topOfStackRegisters() top of
+     * stack registers} for the current compilation. A subclass may clear this in {@link #initCompile} if it
+     * instruments the code in a way that needs the operand stack in memory at every bytecode.
+     * <p>
+     * Values are only held in registers between bytecodes that contain no safepoint: local variable loads and
+     * stores, constants, {@code iinc}, forward {@code int} branches and the arithmetic templates accepted by
+     * {@link #canConsumeCachedValues(T1XTemplate)}. The cache is written back to the operand stack before every other
+     * bytecode and at every jump target, in both cases before the bytecode's entry in {@link #bciToPos} is recorded.
+     * This keeps the operand stack in memory at every position described by a reference map and at every position at
+     * which execution can enter the method other than by falling through. The latter includes the positions at which a
+     * deoptimized frame resumes: C1X only records a frame state at a jump target, before a trapping or calling
+     * bytecode, or after a bytecode with side effects, and none of these positions can follow a bytecode that leaves a
+     * value in the cache.
+     */
+    protected boolean cacheTopOfStack;
+
+    /**
+     * The registers that hold the cached top of stack values, indexed by position in the cache.
+     */
+    private final CiRegister[] cacheRegisters = topOfStackRegisters();
+
+    /**
+     * The kinds of the cached top of stack values, from the deepest to the topmost.
+     */
+    private final Kind[] cachedKinds = new Kind[cacheRegisters == null ? 0 : cacheRegisters.length];
+
+    /**
+     * The number of operand stack values currently held in {@link #cacheRegisters} instead of in their stack slots.
+     */
+    private int cachedValues;
+
+    /**
+     * The number of operand stack slots consumed from the cache by the template currently being emitted.
+     */
+    private int consumedCachedSlots;
+
+    /**
+     * Specifies if the result of the template currently being emitted is kept in the cache.
+     */
+    private boolean cacheTemplateResult;
+
     protected MethodProfile.Builder methodProfileBuilder;
 
     /**
@@ -330,6 +378,11 @@ public abstract class T1XCompilation {
         initFrame(method, codeAttribute);
 
         initHandlers(method, code);
+
+        cacheTopOfStack = T1XOptions.CacheTopOfStack && cacheRegisters != null;
+        if (cacheTopOfStack) {
+            initJumpTargets(code);
+        }
     }
 
     static void startTimer(T1XTimer timer) {
@@ -356,6 +409,29 @@ public abstract class T1XCompilation {
         }
     }
 
+    void initJumpTargets(byte[] code) {
+        jumpTargetBCIs = new boolean[code.length];
+        if (handlerBCIs != null) {
+            System.arraycopy(handlerBCIs, 0, jumpTargetBCIs, 0, code.length);
+        }
+        BytecodeStream s = new BytecodeStream(code);
+        while (s.currentBCI() < s.endBCI()) {
+            int opcode = s.currentBC();
+            if (opcode == Bytecodes.GOTO_W || opcode == Bytecodes.JSR_W) {
+                jumpTargetBCIs[s.readFarBranchDest()] = true;
+            } else if (Bytecodes.isBranch(opcode)) {
+                jumpTargetBCIs[s.readBranchDest()] = true;
+            } else if (opcode == Bytecodes.TABLESWITCH || opcode == Bytecodes.LOOKUPSWITCH) {
+                BytecodeSwitch sw = opcode == Bytecodes.TABLESWITCH ? new BytecodeTableSwitch(s, s.currentBCI()) : new BytecodeLookupSwitch(s, s.currentBCI());
+                jumpTargetBCIs[sw.defaultTarget()] = true;
+                for (int i = 0; i < sw.numberOfCases(); i++) {
+                    jumpTargetBCIs[sw.targetAt(i)] = true;
+                }
+            }
+            s.next();
+        }
+    }
+
     /**
      * Initializes {@link #frame} and {@link #synchronizedReceiver}.
      */
@@ -374,6 +450,8 @@ public abstract class T1XCompilation {
         stream = null;
         handlerBCIs = null;
         handlers = null;
+        jumpTargetBCIs = null;
+        cachedValues = 0;
         syncHandlerStartPos = -1;
         syncHandlerEndPos = -1;
         syncRefMapStartPos = -1;
@@ -532,6 +610,7 @@ public abstract class T1XCompilation {
             stream.next();
             bci = stream.currentBCI();
         }
+        assert cachedValues == 0 : "operand stack values left in registers at end of method";
 
         int endPos = buf.position();
         fixup();
@@ -558,6 +637,9 @@ public abstract class T1XCompilation {
     }
 
     protected void beginBytecode(int representativeOpcode) {
+        if (cachedValues != 0 && (jumpTargetBCIs[stream.currentBCI()] || !canUseCachedValues(representativeOpcode))) {
+            flushTopOfStack();
+        }
         int bci = stream.currentBCI();
         int pos = buf.position();
 
@@ -611,11 +693,19 @@ public abstract class T1XCompilation {
         this.template = startTemplate;
         initializedArgs = 0;
         Sig sig = template.sig;
+        boolean useCache = cacheTopOfStack && canConsumeCachedValues(template);
+        if (!useCache) {
+            flushTopOfStack();
+        }
         if (sig.stackArgs != 0) {
             for (int i = 0; i < sig.in.length; i++) {
                 Arg a = sig.in[i];
                 if (a.isStack()) {
                     initializedArgs |= 1 << i;
+                    if (useCache) {
+                        peekOperand(a.reg, a.kind, a.slot);
+                        continue;
+                    }
                     switch (a.kind.asEnum) {
                         case INT:
                             peekInt(a.reg, a.slot);
@@ -641,6 +731,11 @@ public abstract class T1XCompilation {
                 }
             }
         }
+        if (useCache) {
+            consumedCachedSlots = cachedSlots();
+            cachedValues = 0;
+            cacheTemplateResult = sig.out.isStack();
+        }
     }
 
     /**
@@ -661,12 +756,17 @@ public abstract class T1XCompilation {
         }
 
         // Adjust the stack to model the net effect of the template including
-        // the slot for the value pushed (if any) by the template.
+        // the slot for the value pushed (if any) by the template. Operands taken
+        // from the cache and a result kept in the cache do not occupy stack slots.
         Sig sig = template.sig;
-        if (sig.stackDelta < 0) {
-            decStack(-sig.stackDelta);
-        } else if (sig.stackDelta > 0) {
-            incStack(sig.stackDelta);
+        int stackDelta = sig.stackDelta + consumedCachedSlots;
+        if (cacheTemplateResult) {
+            stackDelta -= sig.out.stackSlots();
+        }
+        if (stackDelta < 0) {
+            decStack(-stackDelta);
+        } else if (stackDelta > 0) {
+            incStack(stackDelta);
         }
 
         // The stack parameters to an invoke are popped by the callee so they should not also be
@@ -674,7 +774,11 @@ public abstract class T1XCompilation {
         assert sig.stackArgs == 0 || template.tag == null || !Bytecodes.isInvoke(template.tag.opcode) : template + ": invoke templates should not use @" + Slot.class.getSimpleName() + " annotation";
 
         // Push the result of the template (if any)
-        if (sig.out.isStack()) {
+        if (cacheTemplateResult) {
+            assignWordReg(cacheRegisters[0], sig.out.reg);
+            cachedKinds[0] = sig.out.kind;
+            cachedValues = 1;
+        } else if (sig.out.isStack()) {
             Arg out = sig.out;
             switch (out.kind.asEnum) {
                 case INT:
@@ -701,6 +805,8 @@ public abstract class T1XCompilation {
         }
         template = null;
         initializedArgs = 0;
+        consumedCachedSlots = 0;
+        cacheTemplateResult = false;
         if (debugMarkers) {
             assignInt(scratch, 0xdeadd00d);
         }
@@ -1847,52 +1953,209 @@ public abstract class T1XCompilation {
         }
     }
 
-    protected void do_oconst(Object value) {
-        assignObject(scratch, value);
-        incStack(1);
-        pokeObject(scratch, 0);
+    /**
+     * Gets the registers that can hold the top values of the operand stack between bytecodes. These must not be used
+     * by the code emitted for local variable loads and stores, constants, {@code iinc} and branches, and must not be
+     * parameter registers of any template.
+     *
+     * @return the registers or {@code null} if this platform does not cache the top of the operand stack
+     */
+    protected CiRegister[] topOfStackRegisters() {
+        return null;
     }
 
-    protected void do_iconst(int value) {
-        assignInt(scratch, value);
-        incStack(1);
-        pokeInt(scratch, 0);
+    /**
+     * Determines if the bytecode about to be translated can start with values of the operand stack held in
+     * {@link #cacheRegisters}. Otherwise the cache is {@linkplain #flushTopOfStack() flushed} first.
+     */
+    protected boolean canUseCachedValues(int opcode) {
+        switch (opcode) {
+            case Bytecodes.ILOAD:
+            case Bytecodes.ILOAD_0:
+            case Bytecodes.ILOAD_1:
+            case Bytecodes.ILOAD_2:
+            case Bytecodes.ILOAD_3:
+            case Bytecodes.LLOAD:
+            case Bytecodes.LLOAD_0:
+            case Bytecodes.LLOAD_1:
+            case Bytecodes.LLOAD_2:
+            case Bytecodes.LLOAD_3:
+            case Bytecodes.FLOAD:
+            case Bytecodes.FLOAD_0:
+            case Bytecodes.FLOAD_1:
+            case Bytecodes.FLOAD_2:
+            case Bytecodes.FLOAD_3:
+            case Bytecodes.DLOAD:
+            case Bytecodes.DLOAD_0:
+            case Bytecodes.DLOAD_1:
+            case Bytecodes.DLOAD_2:
+            case Bytecodes.DLOAD_3:
+            case Bytecodes.ALOAD:
+            case Bytecodes.ALOAD_0:
+            case Bytecodes.ALOAD_1:
+            case Bytecodes.ALOAD_2:
+            case Bytecodes.ALOAD_3:
+            case Bytecodes.ACONST_NULL:
+            case Bytecodes.ICONST_M1:
+            case Bytecodes.ICONST_0:
+            case Bytecodes.ICONST_1:
+            case Bytecodes.ICONST_2:
+            case Bytecodes.ICONST_3:
+            case Bytecodes.ICONST_4:
+            case Bytecodes.ICONST_5:
+            case Bytecodes.LCONST_0:
+            case Bytecodes.LCONST_1:
+            case Bytecodes.FCONST_0:
+            case Bytecodes.FCONST_1:
+            case Bytecodes.FCONST_2:
+            case Bytecodes.DCONST_0:
+            case Bytecodes.DCONST_1:
+            case Bytecodes.BIPUSH:
+            case Bytecodes.SIPUSH:
+                return cachedValues < cacheRegisters.length;
+            case Bytecodes.IINC:
+                return true;
+            case Bytecodes.IFEQ:
+            case Bytecodes.IFNE:
+            case Bytecodes.IFLT:
+            case Bytecodes.IFGE:
+            case Bytecodes.IFGT:
+            case Bytecodes.IFLE:
+                // A backward branch is a safepoint whose frame state is the one before the branch
+                return cachedValues <= 1 && stream.readBranchDest() > stream.currentBCI();
+            case Bytecodes.IF_ICMPEQ:
+            case Bytecodes.IF_ICMPNE:
+            case Bytecodes.IF_ICMPLT:
+            case Bytecodes.IF_ICMPGE:
+            case Bytecodes.IF_ICMPGT:
+            case Bytecodes.IF_ICMPLE:
+                return cachedValues <= 2 && stream.readBranchDest() > stream.currentBCI();
+            default:
+                return Bytecodes.isStore(opcode) || cachedValues <= arithmeticOperands(opcode);
+        }
     }
 
-    protected void do_dconst(double value) {
-        assignLong(scratch, Double.doubleToRawLongBits(value));
-        incStack(2);
-        pokeLong(scratch, 0);
+    /**
+     * Gets the number of values popped by a bytecode whose template may take its operands from the cache.
+     *
+     * @return the number of operands or -1 if {@code opcode} is not such a bytecode
+     */
+    private static int arithmeticOperands(int opcode) {
+        switch (opcode) {
+            case Bytecodes.IADD:
+            case Bytecodes.ISUB:
+            case Bytecodes.IMUL:
+            case Bytecodes.IAND:
+            case Bytecodes.IOR:
+            case Bytecodes.IXOR:
+            case Bytecodes.ISHL:
+            case Bytecodes.ISHR:
+            case Bytecodes.IUSHR:
+            case Bytecodes.LADD:
+            case Bytecodes.LSUB:
+            case Bytecodes.LMUL:
+            case Bytecodes.LAND:
+            case Bytecodes.LOR:
+            case Bytecodes.LXOR:
+            case Bytecodes.LSHL:
+            case Bytecodes.LSHR:
+            case Bytecodes.LUSHR:
+                return 2;
+            case Bytecodes.INEG:
+            case Bytecodes.LNEG:
+            case Bytecodes.I2L:
+            case Bytecodes.L2I:
+            case Bytecodes.I2B:
+            case Bytecodes.I2C:
+            case Bytecodes.I2S:
+                return 1;
+            default:
+                return -1;
+        }
     }
 
-    protected void do_fconst(float value) {
-        assignInt(scratch, Float.floatToRawIntBits(value));
-        incStack(1);
-        pokeInt(scratch, 0);
+    /**
+     * Determines if a template can take its operand stack arguments from the cache and leave its result there. This is
+     * the case for the templates of the non-trapping integer arithmetic bytecodes, provided they contain no safepoint
+     * and the cache holds no more values than the template pops.
+     */
+    private boolean canConsumeCachedValues(T1XTemplate template) {
+        if (template.tag == null || template.tag.opcode != stream.currentBC() || template.safepoints.length != 0) {
+            return false;
+        }
+        if (cachedValues > arithmeticOperands(template.tag.opcode)) {
+            return false;
+        }
+        Sig sig = template.sig;
+        int argSlots = 0;
+        for (Arg a : sig.in) {
+            if (a.isStack()) {
+                if (!isCachedKind(a.kind) || a.reg == null) {
+                    return false;
+                }
+                argSlots += a.stackSlots();
+            }
+        }
+        if (cachedSlots() > argSlots) {
+            return false;
+        }
+        return sig.out.isStack() && sig.out.slot == 0 && isCachedKind(sig.out.kind);
     }
 
-    protected void do_lconst(long value) {
-        assignLong(scratch, value);
-        incStack(2);
-        pokeLong(scratch, 0);
+    private static boolean isCachedKind(Kind kind) {
+        return kind == Kind.INT || kind == Kind.LONG;
     }
 
-    protected void do_load(int index, Kind kind) {
+    /**
+     * Gets the number of operand stack slots occupied by the cached values.
+     */
+    private int cachedSlots() {
+        int slots = 0;
+        for (int i = 0; i < cachedValues; i++) {
+            slots += cachedKinds[i].stackSlots;
+        }
+        return slots;
+    }
+
+    /**
+     * Gets the register into which the current bytecode loads the value it pushes with {@link #pushRegister(Kind)}.
+     */
+    protected CiRegister pushTargetRegister() {
+        if (!cacheTopOfStack) {
+            return scratch;
+        }
+        if (cachedValues == cacheRegisters.length) {
+            flushTopOfStack();
+        }
+        return cacheRegisters[cachedValues];
+    }
+
+    /**
+     * Pushes the value loaded into the {@linkplain #pushTargetRegister() push target register} onto the operand stack,
+     * leaving it in the register if the top of stack is cached.
+     */
+    protected void pushRegister(Kind kind) {
+        if (cacheTopOfStack) {
+            cachedKinds[cachedValues++] = kind;
+            T1XMetrics.CachedTopOfStackPushes++;
+            return;
+        }
         switch (kind.asEnum) {
             case INT:
             case FLOAT:
-                loadInt(scratch, index);
                 incStack(1);
                 pokeInt(scratch, 0);
                 break;
             case REFERENCE:
-                loadWord(scratch, index);
+                incStack(1);
+                pokeObject(scratch, 0);
+                break;
+            case WORD:
                 incStack(1);
                 pokeWord(scratch, 0);
                 break;
             case LONG:
             case DOUBLE:
-                loadLong(scratch, index);
                 incStack(2);
                 pokeLong(scratch, 0);
                 break;
@@ -1901,24 +2164,189 @@ public abstract class T1XCompilation {
         }
     }
 
-    protected void do_store(int index, Kind kind) {
+    /**
+     * Pops the value on the top of the operand stack.
+     *
+     * @return the register holding the value, which is either a cache register or {@link #scratch}
+     */
+    protected CiRegister popRegister(Kind kind) {
+        if (cachedValues != 0) {
+            Kind cachedKind = cachedKinds[--cachedValues];
+            assert cachedKind.stackSlots == kind.stackSlots : cachedKind + " != " + kind;
+            return cacheRegisters[cachedValues];
+        }
         switch (kind.asEnum) {
             case INT:
             case FLOAT:
                 peekInt(scratch, 0);
                 decStack(1);
-                storeInt(scratch, index);
                 break;
             case REFERENCE:
+            case WORD:
                 peekWord(scratch, 0);
                 decStack(1);
-                storeWord(scratch, index);
                 break;
             case LONG:
             case DOUBLE:
                 peekLong(scratch, 0);
                 decStack(2);
-                storeLong(scratch, index);
+                break;
+            default:
+                throw new InternalError("Unexpected kind: " + kind);
+        }
+        return scratch;
+    }
+
+    /**
+     * Copies an operand stack value into a register, taking it from the cache if it is held there. The value is not
+     * popped; use {@link #popOperands(int)} for that once all operands have been read.
+     *
+     * @param dst the register to copy to, which must be a general purpose register if the value may be cached
+     * @param kind the kind of the value
+     * @param index the operand stack index of the value, as for {@link #peekInt(CiRegister, int)}
+     */
+    protected void peekOperand(CiRegister dst, Kind kind, int index) {
+        int slots = 0;
+        for (int i = cachedValues - 1; i >= 0; i--) {
+            if (index == slots) {
+                assert dst.isCpu() && cachedKinds[i].stackSlots == kind.stackSlots : cachedKinds[i] + " != " + kind;
+                assignWordReg(dst, cacheRegisters[i]);
+                return;
+            }
+            slots += cachedKinds[i].stackSlots;
+        }
+        assert index >= slots : "operand straddles the cache";
+        switch (kind.asEnum) {
+            case INT:
+                peekInt(dst, index - slots);
+                break;
+            case FLOAT:
+                peekFloat(dst, index - slots);
+                break;
+            case LONG:
+                peekLong(dst, index - slots);
+                break;
+            case DOUBLE:
+                peekDouble(dst, index - slots);
+                break;
+            case WORD:
+                peekWord(dst, index - slots);
+                break;
+            case REFERENCE:
+                peekObject(dst, index - slots);
+                break;
+            default:
+                throw new InternalError("Unexpected kind: " + kind);
+        }
+    }
+
+    /**
+     * Pops a number of slots off the operand stack, dropping cached values first.
+     */
+    protected void popOperands(int numberOfSlots) {
+        int slots = numberOfSlots;
+        while (slots > 0 && cachedValues != 0) {
+            slots -= cachedKinds[--cachedValues].stackSlots;
+        }
+        assert slots >= 0 : "operand straddles the cache";
+        if (slots > 0) {
+            decStack(slots);
+        }
+    }
+
+    /**
+     * Writes the cached top of stack values to their operand stack slots.
+     */
+    protected void flushTopOfStack() {
+        if (cachedValues == 0) {
+            return;
+        }
+        int slots = cachedSlots();
+        incStack(slots);
+        for (int i = 0; i < cachedValues; i++) {
+            Kind kind = cachedKinds[i];
+            CiRegister reg = cacheRegisters[i];
+            slots -= kind.stackSlots;
+            switch (kind.asEnum) {
+                case INT:
+                case FLOAT:
+                    pokeInt(reg, slots);
+                    break;
+                case REFERENCE:
+                    pokeObject(reg, slots);
+                    break;
+                case WORD:
+                    pokeWord(reg, slots);
+                    break;
+                case LONG:
+                case DOUBLE:
+                    pokeLong(reg, slots);
+                    break;
+                default:
+                    throw new InternalError("Unexpected kind: " + kind);
+            }
+        }
+        cachedValues = 0;
+    }
+
+    protected void do_oconst(Object value) {
+        assignObject(pushTargetRegister(), value);
+        pushRegister(Kind.REFERENCE);
+    }
+
+    protected void do_iconst(int value) {
+        assignInt(pushTargetRegister(), value);
+        pushRegister(Kind.INT);
+    }
+
+    protected void do_dconst(double value) {
+        assignLong(pushTargetRegister(), Double.doubleToRawLongBits(value));
+        pushRegister(Kind.DOUBLE);
+    }
+
+    protected void do_fconst(float value) {
+        assignInt(pushTargetRegister(), Float.floatToRawIntBits(value));
+        pushRegister(Kind.FLOAT);
+    }
+
+    protected void do_lconst(long value) {
+        assignLong(pushTargetRegister(), value);
+        pushRegister(Kind.LONG);
+    }
+
+    protected void do_load(int index, Kind kind) {
+        CiRegister dst = pushTargetRegister();
+        switch (kind.asEnum) {
+            case INT:
+            case FLOAT:
+                loadInt(dst, index);
+                break;
+            case REFERENCE:
+                loadWord(dst, index);
+                break;
+            case LONG:
+            case DOUBLE:
+                loadLong(dst, index);
+                break;
+            default:
+                throw new InternalError("Unexpected kind: " + kind);
+        }
+        pushRegister(kind);
+    }
+
+    protected void do_store(int index, Kind kind) {
+        CiRegister src = popRegister(kind);
+        switch (kind.asEnum) {
+            case INT:
+            case FLOAT:
+                storeInt(src, index);
+                break;
+            case REFERENCE:
+                storeWord(src, index);
+                break;
+            case LONG:
+            case DOUBLE:
+                storeLong(src, index);
                 break;
             default:
                 throw new InternalError("Unexpected kind: " + kind);
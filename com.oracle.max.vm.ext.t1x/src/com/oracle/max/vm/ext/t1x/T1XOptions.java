@@ -40,6 +40,8 @@ public final class T1XOptions {
 
     public static boolean DebugMethods                       = ____;
 
+    public static boolean CacheTopOfStack                    = ____;
+
     /**
      * See {@link Filter#Filter(String, Object)}.
      */
@@ -80,6 +82,9 @@ public final class T1XOptions {
                 "Trace calls to T1X compiled methods.");
         map.put("DebugMethods",
                         "Create file with T1X compiled method IDs for debugging.");
+        map.put("CacheTopOfStack",
+                "Keep up to two values on top of the operand stack in registers across local variable " +
+                "loads and stores, constants, integer arithmetic and forward integer branches (AMD64 only).");
         map.put("PrintJsrRetRewrites",
                 "Print a message when T1X rewrites a method to inline jsr/ret subroutines.");
 
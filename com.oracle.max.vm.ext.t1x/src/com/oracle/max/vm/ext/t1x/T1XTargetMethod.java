@@ -182,6 +182,17 @@ public class T1XTargetMethod extends TargetMethod {
      */
     private int survivedEvictions = 0;
 
+    /**
+     * Value of the {@linkplain MethodProfile#entryBackedgeCount entry and backward branch counter} of the
+     * {@link #profile} when its hotness was last {@linkplain #sampleHotness(int) sampled}.
+     */
+    private int lastSampledEntryBackedgeCount;
+
+    /**
+     * Number of consecutive {@linkplain CodeEviction code eviction cycles} in which this method was cold.
+     */
+    private int coldAge = 0;
+
     public T1XTargetMethod(T1XCompilation comp, boolean install) {
         super(comp.method, CallEntryPoint.BASELINE_ENTRY_POINT);
         codeAttribute = comp.codeAttribute;
@@ -210,6 +221,7 @@ public class T1XTargetMethod extends TargetMethod {
         } else {
             profile = null;
         }
+        lastSampledEntryBackedgeCount = profile == null ? 0 : profile.entryBackedgeCount;
 
         assert comp.protectionLiteralIndex == 0 : "protection literal should be first but is " + comp.protectionLiteralIndex;
         protectionLiteralIndex = comp.protectionLiteralIndex;
@@ -306,6 +318,27 @@ public class T1XTargetMethod extends TargetMethod {
         return survivedEvictions;
     }
 
+    /**
+     * The profile's counter counts down, so the hotness is the distance it moved since the last sample. A counter that
+     * was reset upwards by the {@linkplain CompilationBroker compilation broker} yields a hotness of 0.
+     */
+    @Override
+    public int sampleHotness(int hotnessThreshold) {
+        if (profile == null) {
+            return -1;
+        }
+        final int count = profile.entryBackedgeCount;
+        final int hotness = Math.max(lastSampledEntryBackedgeCount - count, 0);
+        lastSampledEntryBackedgeCount = count;
+        coldAge = hotness >= hotnessThreshold ? 0 : coldAge + 1;
+        return hotness;
+    }
+
+    @Override
+    public int coldAge() {
+        return coldAge;
+    }
+
     @Override
     public MethodProfile profile() {
         return profile;
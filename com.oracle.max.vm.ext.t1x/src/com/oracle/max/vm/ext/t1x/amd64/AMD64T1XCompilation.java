@@ -85,6 +85,17 @@ public class AMD64T1XCompilation extends T1XCompilation {
         frame = new AMD64JVMSFrameLayout(maxLocals, maxStack, maxParams, T1XTargetMethod.templateSlots());
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * {@code rbx} and {@code r12} are not template parameter registers and are not used by the code emitted
+     * between templates.
+     */
+    @Override
+    protected CiRegister[] topOfStackRegisters() {
+        return new CiRegister[] {rbx, r12};
+    }
+
     @Override
     public void decStack(int numberOfSlots) {
         assert numberOfSlots > 0;
@@ -752,7 +763,9 @@ public class AMD64T1XCompilation extends T1XCompilation {
 
         if (stream.nextBCI() == targetBCI && methodProfileBuilder == null) {
             // Skip completely if target is next instruction and profiling is turned off
-            decStack(1);
+            if (opcode != Bytecodes.GOTO && opcode != Bytecodes.GOTO_W) {
+                popOperands(opcode >= Bytecodes.IF_ICMPEQ && opcode <= Bytecodes.IF_ACMPNE ? 2 : 1);
+            }
             return;
         }
 
@@ -760,86 +773,86 @@ public class AMD64T1XCompilation extends T1XCompilation {
         // adjustment instructions as both affect the condition flags.
         switch (opcode) {
             case Bytecodes.IFEQ:
-                peekInt(scratch, 0);
+                peekOperand(scratch, Kind.INT, 0);
                 assignInt(scratch2, 0);
-                decStack(1);
+                popOperands(1);
                 asm.cmpl(scratch, scratch2);
                 cc = ConditionFlag.equal;
                 break;
             case Bytecodes.IFNE:
-                peekInt(scratch, 0);
+                peekOperand(scratch, Kind.INT, 0);
                 assignInt(scratch2, 0);
-                decStack(1);
+                popOperands(1);
                 asm.cmpl(scratch, scratch2);
                 cc = ConditionFlag.notEqual;
                 break;
             case Bytecodes.IFLE:
-                peekInt(scratch, 0);
+                peekOperand(scratch, Kind.INT, 0);
                 assignInt(scratch2, 0);
-                decStack(1);
+                popOperands(1);
                 asm.cmpl(scratch, scratch2);
                 cc = ConditionFlag.lessEqual;
                 break;
             case Bytecodes.IFLT:
-                peekInt(scratch, 0);
+                peekOperand(scratch, Kind.INT, 0);
                 assignInt(scratch2, 0);
-                decStack(1);
+                popOperands(1);
                 asm.cmpl(scratch, scratch2);
                 cc = ConditionFlag.less;
                 break;
             case Bytecodes.IFGE:
-                peekInt(scratch, 0);
+                peekOperand(scratch, Kind.INT, 0);
                 assignInt(scratch2, 0);
-                decStack(1);
+                popOperands(1);
                 asm.cmpl(scratch, scratch2);
                 cc = ConditionFlag.greaterEqual;
                 break;
             case Bytecodes.IFGT:
-                peekInt(scratch, 0);
+                peekOperand(scratch, Kind.INT, 0);
                 assignInt(scratch2, 0);
-                decStack(1);
+                popOperands(1);
                 asm.cmpl(scratch, scratch2);
                 cc = ConditionFlag.greater;
                 break;
             case Bytecodes.IF_ICMPEQ:
-                peekInt(scratch, 1);
-                peekInt(scratch2, 0);
-                decStack(2);
+                peekOperand(scratch, Kind.INT, 1);
+                peekOperand(scratch2, Kind.INT, 0);
+                popOperands(2);
                 asm.cmpl(scratch, scratch2);
                 cc = ConditionFlag.equal;
                 break;
             case Bytecodes.IF_ICMPNE:
-                peekInt(scratch, 1);
-                peekInt(scratch2, 0);
-                decStack(2);
+                peekOperand(scratch, Kind.INT, 1);
+                peekOperand(scratch2, Kind.INT, 0);
+                popOperands(2);
                 asm.cmpl(scratch, scratch2);
                 cc = ConditionFlag.notEqual;
                 break;
             case Bytecodes.IF_ICMPGE:
-                peekInt(scratch, 1);
-                peekInt(scratch2, 0);
-                decStack(2);
+                peekOperand(scratch, Kind.INT, 1);
+                peekOperand(scratch2, Kind.INT, 0);
+                popOperands(2);
                 asm.cmpl(scratch, scratch2);
                 cc = ConditionFlag.greaterEqual;
                 break;
             case Bytecodes.IF_ICMPGT:
-                peekInt(scratch, 1);
-                peekInt(scratch2, 0);
-                decStack(2);
+                peekOperand(scratch, Kind.INT, 1);
+                peekOperand(scratch2, Kind.INT, 0);
+                popOperands(2);
                 asm.cmpl(scratch, scratch2);
                 cc = ConditionFlag.greater;
                 break;
             case Bytecodes.IF_ICMPLE:
-                peekInt(scratch, 1);
-                peekInt(scratch2, 0);
-                decStack(2);
+                peekOperand(scratch, Kind.INT, 1);
+                peekOperand(scratch2, Kind.INT, 0);
+                popOperands(2);
                 asm.cmpl(scratch, scratch2);
                 cc = ConditionFlag.lessEqual;
                 break;
             case Bytecodes.IF_ICMPLT:
-                peekInt(scratch, 1);
-                peekInt(scratch2, 0);
-                decStack(2);
+                peekOperand(scratch, Kind.INT, 1);
+                peekOperand(scratch2, Kind.INT, 0);
+                popOperands(2);
                 asm.cmpl(scratch, scratch2);
                 cc = ConditionFlag.less;
                 break;
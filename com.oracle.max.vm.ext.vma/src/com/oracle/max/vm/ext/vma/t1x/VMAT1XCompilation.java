@@ -98,6 +98,8 @@ public class VMAT1XCompilation extends AMD64T1XCompilation {
         // we do not want code to be recompiled as the optimizing compiler does not
         // currently support advising.
         methodProfileBuilder = null;
+        // the advice code reads operands from the stack in memory
+        cacheTopOfStack = false;
         // Simulate the method entry, so that emitMethodTraceEntry gets the right template
         selectTemplates(VMABytecodes.MENTRY.ordinal());
     }
@@ -150,13 +150,30 @@ Address threadLocalsBlock_create(jint id, Address tlBlock, Size stackSize) {
     Address refMap = current;
     current = current + refMapSize;
 
-    /* Clear each of the thread local spaces: */
-    memset((void *) ttla, 0, tlaSize);
+    ThreadResources resources = NULL;
+#if (os_LINUX || os_DARWIN)
+    if (!attaching) {
+        /* Recorded by thread_create() before the thread was started */
+        resources = (ThreadResources) ntl->osData;
+    }
+#endif
+    const jboolean guardZonesProtected = resources != NULL && resources->guardZonesProtected;
+
+    /* Clear each of the thread local spaces. The first word of the triggered thread locals
+     * lies in the trigger page which is still protected if the block is being recycled. */
+    if (guardZonesProtected) {
+        memset((void *) (ttla + sizeof(Address)), 0, tlaSize - sizeof(Address));
+    } else {
+        memset((void *) ttla, 0, tlaSize);
+    }
     memset((void *) etla, 0, tlaSize);
     memset((void *) dtla, 0, tlaSize);
 
     /* Clear the NativeThreadLocals: */
     memset((void *) ntl, 0, sizeof(NativeThreadLocalsStruct));
+#if (os_LINUX || os_DARWIN)
+    ntl->osData = resources;
+#endif
 
     ntl->handle = (Address) thread_self();
     ntl->stackBase = stackBase;
@@ -242,16 +259,21 @@ Address threadLocalsBlock_create(jint id, Address tlBlock, Size stackSize) {
     log_println("thread %3d: refMapSize   = %d (%p)", id, refMapSize, refMapSize);
 #endif
 
-    if (guardZonePages != 0) {
+    if (!guardZonesProtected) {
+        if (guardZonePages != 0) {
 #if os_MAXVE
-        // custom stack initialization
-        maxve_initStack(ntl);
+            // custom stack initialization
+            maxve_initStack(ntl);
 #else
-        virtualMemory_protectPages(startGuardZone, guardZonePages);
+            virtualMemory_protectPages(startGuardZone, guardZonePages);
 #endif
+        }
+        /* Protect the first page of the TL block (which contains the first word of the triggered thread locals) */
+        virtualMemory_protectPages(tlBlock, 1);
+        if (resources != NULL) {
+            resources->guardZonesProtected = true;
+        }
     }
-    /* Protect the first page of the TL block (which contains the first word of the triggered thread locals) */
-    virtualMemory_protectPages(tlBlock, 1);
 
     threadLocalsBlock_setCurrent(tlBlock);
 
@@ -306,6 +328,19 @@ void threadLocalsBlock_destroy(Address tlBlock) {
         c_ASSERT(tla_load(Address, tla, BACKWARD_LINK) == 0);
     }
 
+#if (os_LINUX || os_DARWIN)
+    ThreadResources resources = (ThreadResources) ntl->osData;
+    if (resources != NULL) {
+        /* Leave the guard zones protected and the block allocated for the next thread started on these resources */
+        threadLocalsBlock_setCurrent(0);
+        thread_releaseResources(resources);
+#if log_THREADS
+        log_println("threadLocalsBlock_destroy: END t=%p (resources recycled)", nativeThread);
+#endif
+        return;
+    }
+#endif
+
     const jboolean attached = ntl->redZone == ntl->stackBase;
     Address startGuardZone;
     int guardZonePages;
@@ -93,6 +93,32 @@ int thread_detachCurrent();
  */
 extern void thread_getStackInfo(Address *stackBase, Size* stackSize);
 
+/**
+ * The native resources of a VM-created thread that are retained after the thread terminates
+ * so that they can be handed to the next thread created with the same stack size. The stack
+ * (including its red zone), the protection of the yellow zone and the thread locals block
+ * (including its protected trigger page) are all left intact while in the pool, so starting
+ * a thread on recycled resources needs no memory mapping or page protection system calls.
+ *
+ * Only used on platforms where the VM allocates thread stacks itself (Linux and Darwin).
+ * A thread running on such resources has them recorded in 'NativeThreadLocalsStruct.osData'.
+ */
+typedef struct ThreadResources {
+    Address stack;           // start of the mapping, i.e. the red zone below the stack
+    Size mappingSize;        // size of the red zone plus the stack
+    Size stackSize;
+    Address tlBlock;
+    jboolean guardZonesProtected; // true once the yellow zone and trigger page have been protected
+    Address owner;           // native handle of the thread that last ran on these resources
+    struct ThreadResources *next;
+} ThreadResourcesStruct, *ThreadResources;
+
+/**
+ * Returns the resources of the terminating current thread to the pool. This is called
+ * from the thread locals block destructor instead of unprotecting and freeing the block.
+ */
+extern void thread_releaseResources(ThreadResources resources);
+
 /**
  * For debugging purposes:
  */
@@ -156,6 +156,30 @@ Address virtualMemory_allocatePrivateAnon(Address address, Size size, jboolean r
 }
 
 
+/* Allocates private anonymous virtual space at a given address, but only if the range is not already mapped.
+ * Unlike virtualMemory_allocatePrivateAnon, an existing mapping is never replaced.
+ * Returns ALLOC_FAILED if the space cannot be allocated at 'address'.
+ */
+Address virtualMemory_allocatePrivateAnonIfFree(Address address, Size size, jboolean reserveSwap, int type) {
+    int flags = MAP_PRIVATE | MAP_ANON;
+    if (reserveSwap == JNI_FALSE) {
+        flags |= MAP_NORESERVE;
+    }
+    void *result = mmap((void *) address, (size_t) size, PROT, flags, -1, 0);
+    if (result == MAP_FAILED) {
+        return ALLOC_FAILED;
+    }
+    if ((Address) result != address) {
+        /* The address was only a hint and the kernel placed the mapping elsewhere */
+        munmap(result, (size_t) size);
+        return ALLOC_FAILED;
+    }
+#if log_LOADER
+    log_println("virtualMemory_allocatePrivateAnonIfFree(address=%p, size=%p) allocated", address, size);
+#endif
+    return address;
+}
+
 Address virtualMemory_mapFile(Size size, jint fd, Size offset) {
 #ifdef arm
     Address address = 0x0;
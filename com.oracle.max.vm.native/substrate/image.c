@@ -26,6 +26,10 @@
 #include <unistd.h>
 #include <stdio.h>
 #include <stdlib.h>
+#include <string.h>
+#include <signal.h>
+#include <sched.h>
+#include <sys/mman.h>
 
 #include "relocation.h"
 #include "word.h"
@@ -43,7 +47,7 @@
 /*
  * Image format version checked against com.sun.max.vm.hosted.BootImage.BOOT_IMAGE_FORMAT_VERSION
  */
-#define IMAGE_FORMAT_VERSION                    2
+#define IMAGE_FORMAT_VERSION                    4
 #define DEFAULT_RELOCATION_SCHEME        0
 
 #if os_MAXVE
@@ -143,7 +147,9 @@ static void readHeader(int fd) {
 #if log_LOADER
     log_println("ImageHeader @ %p {", theHeader);
 #define PRINT_IMAGE_HEADER_FIELD(name) log_println("    %35s: %d (0x%04x)", STRINGIZE(name), theHeader->name, theHeader->name);
-    IMAGE_HEADER_FIELDS(PRINT_IMAGE_HEADER_FIELD)
+#define PRINT_IMAGE_HEADER_LONG_FIELD(name) log_println("    %35s: %lld (0x%llx)", STRINGIZE(name), (long long) theHeader->name, (long long) theHeader->name);
+    IMAGE_HEADER_FIELDS(PRINT_IMAGE_HEADER_FIELD, PRINT_IMAGE_HEADER_LONG_FIELD)
+#undef PRINT_IMAGE_HEADER_LONG_FIELD
 #undef PRINT_IMAGE_HEADER_FIELD
     log_println("}");
 #endif
@@ -295,10 +301,78 @@ static void checkTrailer(int fd) {
     }
 }
 
+/**
+ * Gets the address at which the heap and code were linked when the boot image was built.
+ * This is 0 for an image whose pointers are all relative to the start of the heap.
+ */
+static Address preferredHeapAddress(void) {
+    return (Address) theHeader->preferredHeapPage * (Address) theHeader->pageSize;
+}
+
+/**
+ * Relocates the image lazily, page by page on first access, when it is prelinked but cannot be mapped at its
+ * link address. Off by default: each relocated page costs a fault, a read and a remap, and system calls given
+ * a pointer into a page that is not relocated yet fail with EFAULT instead of faulting.
+ */
+static boolean lazyRelocation = false;
+
+/**
+ * Maps the image away from its link address, so that it is relocated. For testing relocation of prelinked images.
+ */
+static boolean avoidPreferredAddress = false;
+
+boolean image_parseOption(const char *arg) {
+    if (strcmp(arg, "-XX:+LazyBootImageRelocation") == 0) {
+        lazyRelocation = true;
+        return true;
+    }
+    if (strcmp(arg, "-XX:+AvoidPreferredBootImageAddress") == 0) {
+        avoidPreferredAddress = true;
+        return true;
+    }
+    return false;
+}
+
+/**
+ * Reserves 'size' bytes of virtual space at 'preferred' if that range is free, otherwise anywhere.
+ */
+static Address reserveVirtualSpace(Address preferred, Size size, int failureCode, const char *failureMessage) {
+    Address result = ALLOC_FAILED;
+#if !MEMORY_IMAGE
+    if (preferred != 0) {
+        result = virtualMemory_allocatePrivateAnonIfFree(preferred, size, JNI_FALSE, HEAP_VM);
+#if log_LOADER
+        if (result == ALLOC_FAILED) {
+            log_println("image.reserveVirtualSpace: preferred address %p is not free", preferred);
+        }
+#endif
+    }
+    if (result == ALLOC_FAILED) {
+        result = virtualMemory_allocatePrivateAnon((Address) 0, size, JNI_FALSE, JNI_FALSE, HEAP_VM);
+    }
+    if (result == ALLOC_FAILED) {
+        log_exit(failureCode, "%s", failureMessage);
+    }
+#endif
+    return result;
+}
+
+/**
+ * The address of the virtual space reserved for the heap scheme, if any. It is stored into the
+ * boot heap once the heap has been relocated.
+ */
+static Address theReservedVirtualSpace = 0;
+
+/**
+ * The offset of the heap in the boot image file.
+ */
+static Size theHeapOffsetInImage = 0;
+
 static void mapHeapAndCode(int fd) {
     int heapOffsetInImage = virtualMemory_pageAlign(sizeof(struct image_Header) + theHeader->stringDataSize + theHeader->relocationDataSize);
     int heapAndCodeSize = theHeader->heapSize + theHeader->codeSize;
     c_ASSERT(virtualMemory_pageAlign((Size) heapAndCodeSize) == (Size) heapAndCodeSize);
+    theHeapOffsetInImage = heapOffsetInImage;
 #if log_LOADER
     log_println("image.mapHeapAndCode");
 #endif
@@ -306,6 +380,7 @@ static void mapHeapAndCode(int fd) {
     theHeap = (Address) &maxvm_image_start + heapOffsetInImage;
 #elif os_SOLARIS || os_DARWIN || os_LINUX
     Address reservedVirtualSpace = (Address) 0;
+    Address preferred = avoidPreferredAddress ? 0 : preferredHeapAddress();
     size_t virtualSpaceSize = 1024L * theHeader->reservedVirtualSpaceSize;
     c_ASSERT(virtualMemory_pageAlign((Size) virtualSpaceSize) == (Size) virtualSpaceSize);
     if (virtualSpaceSize != 0) {
@@ -314,10 +389,17 @@ static void mapHeapAndCode(int fd) {
         // The address returned might subsequently be used to memory map various regions, including the
         // boot heap region, automatically splitting this mapping.
         // In any case,  the VM (mostly the heap scheme) is responsible for releasing unused reserved space.
-        reservedVirtualSpace = virtualMemory_allocatePrivateAnon((Address) 0, virtualSpaceSize, JNI_FALSE, JNI_FALSE, HEAP_VM);
-        if (reservedVirtualSpace == ALLOC_FAILED) {
-            log_exit(4, "could not reserve requested virtual space");
+        // If the image was linked at a preferred address, the space is placed so that the boot heap region
+        // ends up at that address.
+        Address preferredReservedVirtualSpace = 0;
+        if (preferred != 0) {
+            if (theHeader->bootRegionMappingConstraint == 1) {
+                preferredReservedVirtualSpace = preferred;
+            } else if (theHeader->bootRegionMappingConstraint == 2) {
+                preferredReservedVirtualSpace = preferred - (virtualSpaceSize - heapAndCodeSize);
+            }
         }
+        reservedVirtualSpace = reserveVirtualSpace(preferredReservedVirtualSpace, virtualSpaceSize, 4, "could not reserve requested virtual space");
     }
     if (theHeader->bootRegionMappingConstraint == 1) {
         // Map the boot heap region at the start of the reserved space
@@ -326,19 +408,13 @@ static void mapHeapAndCode(int fd) {
         // Map the boot heap region at the end of the reserved space. The start of the boot heap region is page-aligned.
         theHeap = reservedVirtualSpace + virtualSpaceSize - heapAndCodeSize;
     } else {
-        // Map the boot heap region anywhere outside of the reserved space.
-        theHeap = virtualMemory_allocatePrivateAnon((Address) 0, heapAndCodeSize, JNI_FALSE, JNI_FALSE, HEAP_VM);
-        if (theHeap == ALLOC_FAILED) {
-            log_exit(4, "could not reserve virtual space for boot image");
-        }
+        // Map the boot heap region anywhere outside of the reserved space, at the preferred address if possible.
+        theHeap = reserveVirtualSpace(preferred, heapAndCodeSize, 4, "could not reserve virtual space for boot image");
     }
     if (virtualMemory_mapFileAtFixedAddress(theHeap, heapAndCodeSize, fd, heapOffsetInImage) == ALLOC_FAILED) {
         log_exit(4, "could not map boot image");
     }
-    if (reservedVirtualSpace) {
-        Address *addr = image_offset_as_address(Address *, reservedVirtualSpaceFieldOffset);
-        *addr = reservedVirtualSpace;
-    }
+    theReservedVirtualSpace = reservedVirtualSpace;
 #else
     c_UNIMPLEMENTED();
 #endif
@@ -348,7 +424,7 @@ static void mapHeapAndCode(int fd) {
 #endif
 #if log_LOADER
     log_println("ReservedVSpace Size %d ActualVSpaceSize(*1Mb) %u",theHeader->reservedVirtualSpaceSize, virtualSpaceSize);
-    log_println("boot heap start at %p", theHeap);
+    log_println("boot heap start at %p (preferred %p)", theHeap, preferredHeapAddress());
     log_println("code heap start at %p", theCode);
     log_println("application heap start at %p", theCode + theHeader->codeSize);
     log_println("application heap stop at %p", theHeap + virtualSpaceSize);
@@ -357,9 +433,224 @@ static void mapHeapAndCode(int fd) {
     theCodeEnd = theCode + theHeader->codeSize;
 }
 
-static void relocate(int fd) {
+#if os_LINUX && !MEMORY_IMAGE
+/*
+ * Lazy relocation. When the heap and code cannot be mapped at the address they were linked at, only the
+ * pages that contain pointers need relocating. Those pages are protected and relocated one at a time on
+ * first access. The other pages are never written and so stay shared with other VM processes mapping
+ * the same image file.
+ *
+ * A page is relocated into a separate anonymous page, built from the image file, which then atomically
+ * replaces the protected page. Threads thus never see a partially relocated page.
+ */
+
+#define PAGE_RELOCATED   0
+#define PAGE_PENDING     1
+#define PAGE_RELOCATING  2
+
+static volatile jbyte *thePageStates = NULL;
+static Byte *theRelocationData = NULL;
+static Address theRelocationDelta = 0;
+static int theImageFd = -1;
+
+/**
+ * The address of the last fault on an already relocated image page taken by the current thread.
+ * Such a fault is retried once, as it may have raced with the relocation of the page by another thread.
+ */
+static __thread Address lastRelocatedPageFault = 0;
+
+static boolean pageHasPointers(Size pageIndex) {
+    Size bytesPerPage = theHeader->pageSize / theHeader->wordSize / 8;
+    Size start = pageIndex * bytesPerPage;
+    Size i;
+    for (i = start; i < start + bytesPerPage && i < (Size) theHeader->relocationDataSize; i++) {
+        if (theRelocationData[i] != 0) {
+            return true;
+        }
+    }
+    return false;
+}
+
+static void relocatePageContents(Address page, Size pageIndex) {
+    Size wordsPerPage = theHeader->pageSize / theHeader->wordSize;
+    Size firstWord = pageIndex * wordsPerPage;
+    Size w;
+    for (w = 0; w < wordsPerPage; w++) {
+        Size bit = firstWord + w;
+        if ((bit >> 3) >= (Size) theHeader->relocationDataSize) {
+            break;
+        }
+        if ((theRelocationData[bit >> 3] & (1 << (bit & 7))) != 0) {
+            Address *p = (Address *) (page + w * theHeader->wordSize);
+            if (*p != 0) {
+                *p += theRelocationDelta;
+            }
+        }
+    }
+}
+
+static void relocatePage(Size pageIndex) {
+    Size pageSize = theHeader->pageSize;
+    Address target = theHeap + pageIndex * pageSize;
+    void *buffer = mmap(NULL, pageSize, PROT_EXEC | PROT_READ | PROT_WRITE, MAP_PRIVATE | MAP_ANON, -1, 0);
+    if (buffer == MAP_FAILED) {
+        log_exit(4, "could not allocate page to relocate boot image page %p", target);
+    }
+    Size n = 0;
+    while (n < pageSize) {
+        ssize_t r = pread(theImageFd, (char *) buffer + n, pageSize - n, theHeapOffsetInImage + pageIndex * pageSize + n);
+        if (r <= 0) {
+            log_exit(4, "could not read boot image page %p", target);
+        }
+        n += r;
+    }
+    relocatePageContents((Address) buffer, pageIndex);
+    if (mremap(buffer, pageSize, pageSize, MREMAP_MAYMOVE | MREMAP_FIXED, (void *) target) == MAP_FAILED) {
+        log_exit(4, "could not install relocated boot image page %p", target);
+    }
+}
+
+boolean image_relocateFaultingPage(Address faultAddress) {
+    if (thePageStates == NULL || faultAddress < theHeap || faultAddress >= theCodeEnd) {
+        return false;
+    }
+    Size pageIndex = (faultAddress - theHeap) / theHeader->pageSize;
+    if (__sync_bool_compare_and_swap(&thePageStates[pageIndex], PAGE_PENDING, PAGE_RELOCATING)) {
+        relocatePage(pageIndex);
+        __sync_synchronize();
+        thePageStates[pageIndex] = PAGE_RELOCATED;
+        return true;
+    }
+    if (thePageStates[pageIndex] == PAGE_RELOCATING) {
+        while (thePageStates[pageIndex] == PAGE_RELOCATING) {
+            sched_yield();
+        }
+        return true;
+    }
+    if (lastRelocatedPageFault != faultAddress) {
+        lastRelocatedPageFault = faultAddress;
+        return true;
+    }
+    // A repeated fault on a relocated page is not caused by relocation
+    lastRelocatedPageFault = 0;
+    return false;
+}
+
+/**
+ * Handles faults on protected image pages until the VM installs its own signal handlers,
+ * which then forward such faults to 'image_relocateFaultingPage'.
+ */
+static void imageFaultHandler(int signal, siginfo_t *signalInfo, void *ucontext) {
+    if (image_relocateFaultingPage((Address) signalInfo->si_addr)) {
+        return;
+    }
+    // Not an image page: let the fault be delivered again with the default action
+    struct sigaction defaultAction;
+    memset(&defaultAction, 0, sizeof(defaultAction));
+    defaultAction.sa_handler = SIG_DFL;
+    sigaction(signal, &defaultAction, NULL);
+}
+
+/**
+ * Gets the most memory mappings that lazy relocation may add to the process. Each protected run of pages
+ * splits the image mapping, and each page relocated in the middle of such a run splits it again. The VM
+ * fails once the process reaches the kernel's limit on mappings, so only a quarter of it is used.
+ */
+static Size lazyRelocationMappingBudget(void) {
+    long maxMapCount = 65530;
+    FILE *f = fopen("/proc/sys/vm/max_map_count", "r");
+    if (f != NULL) {
+        if (fscanf(f, "%ld", &maxMapCount) != 1) {
+            maxMapCount = 65530;
+        }
+        fclose(f);
+    }
+    return (Size) maxMapCount / 4;
+}
+
+/**
+ * Protects the image pages that contain pointers so that they are relocated on first access.
+ *
+ * @return false if too many pages would need relocating for the mappings this creates to stay within
+ *         {@link lazyRelocationMappingBudget}, in which case nothing is changed
+ */
+static boolean prepareLazyRelocation(int fd, Byte *relocationData) {
+    Size pageSize = theHeader->pageSize;
+    Size numberOfPages = (theCodeEnd - theHeap) / pageSize;
+    Size pageIndex, pendingPages = 0, runs = 0;
+    Size runStart = 0;
+    boolean inRun = false;
+
+    thePageStates = (jbyte *) malloc(numberOfPages);
+    if (thePageStates == NULL) {
+        log_exit(1, "could not allocate memory for boot image page states");
+    }
+    theRelocationData = relocationData;
+    for (pageIndex = 0; pageIndex < numberOfPages; pageIndex++) {
+        boolean pending = pageHasPointers(pageIndex);
+        thePageStates[pageIndex] = pending ? PAGE_PENDING : PAGE_RELOCATED;
+        if (pending) {
+            pendingPages++;
+            if (pageIndex == 0 || thePageStates[pageIndex - 1] != PAGE_PENDING) {
+                runs++;
+            }
+        }
+    }
+    if (2 * (runs + pendingPages) > lazyRelocationMappingBudget()) {
+#if log_LOADER
+        log_println("image.relocate: %d pages in %d runs would exceed the mapping budget, relocating eagerly", pendingPages, runs);
+#endif
+        free((void *) thePageStates);
+        thePageStates = NULL;
+        theRelocationData = NULL;
+        return false;
+    }
+    theImageFd = fd;
+
+    struct sigaction action;
+    memset(&action, 0, sizeof(action));
+    sigemptyset(&action.sa_mask);
+    action.sa_flags = SA_SIGINFO | SA_RESTART | SA_ONSTACK;
+    action.sa_sigaction = imageFaultHandler;
+    if (sigaction(SIGSEGV, &action, NULL) != 0) {
+        log_exit(1, "could not install boot image fault handler");
+    }
+
+    for (pageIndex = 0; pageIndex <= numberOfPages; pageIndex++) {
+        boolean pending = pageIndex < numberOfPages && thePageStates[pageIndex] == PAGE_PENDING;
+        if (pending && !inRun) {
+            runStart = pageIndex;
+            inRun = true;
+        } else if (!pending && inRun) {
+            if (mprotect((void *) (theHeap + runStart * pageSize), (pageIndex - runStart) * pageSize, PROT_NONE) != 0) {
+                log_exit(4, "could not protect boot image pages for lazy relocation");
+            }
+            inRun = false;
+        }
+    }
+#if log_LOADER
+    log_println("image.relocate: %d of %d pages to be relocated lazily", pendingPages, numberOfPages);
+#endif
+    return true;
+}
+
+#else
+
+boolean image_relocateFaultingPage(Address faultAddress) {
+    return false;
+}
+
+#endif
+
+/**
+ * Relocates the heap and code if they are not mapped at the address they were linked at.
+ *
+ * @return true if 'fd' must be kept open for lazy relocation
+ */
+static boolean relocate(int fd) {
     off_t wantedFileOffset;
     Byte *relocationData;
+    Address delta = theHeap - preferredHeapAddress();
 #if log_LOADER
     log_println("image.relocate");
 #endif
@@ -368,6 +659,13 @@ static void relocate(int fd) {
     int n;
 #endif
 
+    if (delta == 0) {
+#if log_LOADER
+        log_println("image.relocate: mapped at link address, no relocation needed");
+#endif
+        return false;
+    }
+
     wantedFileOffset = sizeof(struct image_Header) + theHeader->stringDataSize;
 #if !MEMORY_IMAGE
     relocationData = (Byte *) malloc(theHeader->relocationDataSize);
@@ -388,10 +686,22 @@ static void relocate(int fd) {
 #endif
 
 #if log_LOADER
-    log_println("image.relocate [relocation map: %d bytes]", theHeader->relocationDataSize);
+    log_println("image.relocate [relocation map: %d bytes, delta: %p]", theHeader->relocationDataSize, delta);
 #endif
 
-    relocation_apply((void *) theHeap, theHeap, relocationData, theHeader->relocationDataSize, word_BIG_ENDIAN, theHeader->wordSize);
+#if os_LINUX && !MEMORY_IMAGE
+    // Only a prelinked image that missed its link address benefits from relocating lazily, as an image
+    // linked at 0 has a pointer in nearly every page. The Inspector reads image pages through the file
+    // mapping and so would see unrelocated pointers.
+    if (lazyRelocation && preferredHeapAddress() != 0 && getenv("MAX_AGENT_PORT") == NULL) {
+        theRelocationDelta = delta;
+        if (prepareLazyRelocation(fd, relocationData)) {
+            return true;
+        }
+    }
+#endif
+
+    relocation_apply((void *) theHeap, delta, relocationData, theHeader->relocationDataSize, word_BIG_ENDIAN, theHeader->wordSize);
 
 #if !MEMORY_IMAGE
     free(relocationData);
@@ -399,6 +709,7 @@ static void relocate(int fd) {
 #if log_LOADER
     log_println("image.relocate: done");
 #endif
+    return false;
 }
 
 void image_load(char *imageFileName) {
@@ -425,13 +736,20 @@ void image_load(char *imageFileName) {
 #if log_LOADER
     log_println("code @%p codeEnd @%p heap @%p", theCode, theCodeEnd, theHeap);
 #endif
-    relocate(fd);
+    boolean keepOpen = relocate(fd);
 #if log_LOADER
     log_println("code @%p codeEnd @%p heap @%p", theCode, theCodeEnd, theHeap);
 #endif
-    int error = close(fd);
-    if (error != 0) {
-        log_println("WARNING: could not close image file");
+    if (theReservedVirtualSpace) {
+        // Written after relocation so that a lazily relocated page is not read back from the file over it
+        Address *addr = image_offset_as_address(Address *, reservedVirtualSpaceFieldOffset);
+        *addr = theReservedVirtualSpace;
+    }
+    if (!keepOpen) {
+        int error = close(fd);
+        if (error != 0) {
+            log_println("WARNING: could not close image file");
+        }
     }
 }
 
@@ -27,9 +27,11 @@
 #include "jni.h"
 
 /*
- * Definition of fields in the image header struct.
+ * Definition of fields in the image header struct. The fields are 32-bit, except those passed
+ * to 'l', which are 64-bit. The number of 32-bit fields before
+ * and after each of them must be even, so that the struct has no padding.
  */
-#define IMAGE_HEADER_FIELDS(f) \
+#define IMAGE_HEADER_FIELDS(f, l) \
     f(isBigEndian) /* 0: LITTLE, anything else: BIG. Must be first.  */ \
     f(identification) /* Magic number that must be present and have the same value in every Maxine boot image file  */ \
     f(bootImageFormatVersion) /* Version of boot image file format  */ \
@@ -54,6 +56,7 @@
     f(reservedVirtualSpaceFieldOffset) /* offset where to store the address of the reserved contiguous virtual space, if any*/ \
     f(bootRegionMappingConstraint) \
     f(tlaListHeadOffset) /* See the comment for the 'tlaListHead' field in the VmThreadMap class.  */ \
+    l(preferredHeapPage) /* Address at which the heap and code were linked, in pages. 0 if linked at address 0  */ \
     f(exitCodeOffset) \
     f(tlaSize) /* The size of a TLA.  */ \
     f(SAFEPOINT_LATCH) \
@@ -74,13 +77,14 @@
     f(STACK_REFERENCE_MAP_SIZE)
 
 #define DEFINE_IMAGE_HEADER_FIELD(name) jint name;
+#define DEFINE_IMAGE_HEADER_LONG_FIELD(name) jlong name;
 
 /**
  *  ATTENTION: this struct and the below items must match
  *             'com.sun.max.vm.hosted.BootImage.Header'.
  */
 typedef struct image_Header {
-   IMAGE_HEADER_FIELDS(DEFINE_IMAGE_HEADER_FIELD)
+   IMAGE_HEADER_FIELDS(DEFINE_IMAGE_HEADER_FIELD, DEFINE_IMAGE_HEADER_LONG_FIELD)
 } *image_Header;
 
 /**
@@ -154,6 +158,20 @@ extern Address image_code(void);
  */
 extern Address image_code_end(void);
 
+/**
+ * Handles a command line option for the boot image loader. Must be called before 'image_load()'.
+ *
+ * @return true if 'arg' is a loader option, which must then not be passed on to the VM
+ */
+extern boolean image_parseOption(const char *arg);
+
+/**
+ * Relocates the boot image page containing a given fault address, if it is a page whose relocation was deferred.
+ *
+ * @return true if the faulting access should be retried
+ */
+extern boolean image_relocateFaultingPage(Address faultAddress);
+
 
 /**
  * Gets an address in the boot image based on a known offset in the image.
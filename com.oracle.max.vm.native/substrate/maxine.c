@@ -309,6 +309,12 @@ int maxine(int argc, char *argv[], char *executablePath) {
         }
     }
     log_initialize(logFilePath);
+    /* Extract the boot image loader arguments. */
+    for (i = 1; i < argc; i++) {
+        if (argv[i] != NULL && image_parseOption(argv[i])) {
+            argv[i] = NULL;
+        }
+    }
 
 #if os_DARWIN
     _executablePath = executablePath;
@@ -21,6 +21,7 @@
 
 #include <string.h>
 #include <stdlib.h>
+#include <errno.h>
 
 #include "condition.h"
 #include "log.h"
@@ -30,6 +31,12 @@
 #include "word.h"
 #include "threads.h"
 
+#if os_LINUX
+#include <unistd.h>
+#include <sys/syscall.h>
+#include <linux/futex.h>
+#endif
+
 jint nativeMutexSize(void) {
 	return sizeof(mutex_Struct);
 }
@@ -106,3 +113,44 @@ jboolean nativeConditionNotify(Condition condition, jboolean all) {
     }
     return condition_notify(condition);
 }
+
+/**
+ * Blocks the current thread on the futex word at 'address' while it holds 'expectedValue'.
+ *
+ * @param timeoutMilliSeconds the maximum time to block. No timeout is used if this is 0.
+ * @return 0 if woken (possibly spuriously), ETIMEDOUT if the timeout expired, EINTR if interrupted by a signal
+ *         (e.g. from Thread.interrupt()) or EAGAIN if the word did not hold 'expectedValue'. Any other value is an error.
+ */
+JNIEXPORT jint JNICALL
+Java_com_sun_max_vm_monitor_modal_sync_futex_Futex_nativeFutexWait(JNIEnv *env, jclass c, Address address, jint expectedValue, jlong timeoutMilliSeconds) {
+#if os_LINUX
+    struct timespec timeout;
+    struct timespec *timeoutPointer = NULL;
+    if (timeoutMilliSeconds > 0) {
+        timeout.tv_sec = timeoutMilliSeconds / 1000;
+        timeout.tv_nsec = (timeoutMilliSeconds % 1000) * 1000000;
+        timeoutPointer = &timeout;
+    }
+    if (syscall(SYS_futex, (int *) address, FUTEX_WAIT_PRIVATE, expectedValue, timeoutPointer, NULL, 0) == 0) {
+        return 0;
+    }
+    return errno;
+#else
+    c_UNIMPLEMENTED();
+    return ENOSYS;
+#endif
+}
+
+/**
+ * Wakes up to 'count' threads blocked on the futex word at 'address'.
+ *
+ * @return the number of threads woken or -1 if an error occurred
+ */
+jint nativeFutexWake(Address address, jint count) {
+#if os_LINUX
+    return (jint) syscall(SYS_futex, (int *) address, FUTEX_WAKE_PRIVATE, count, NULL, NULL, 0);
+#else
+    c_UNIMPLEMENTED();
+    return -1;
+#endif
+}
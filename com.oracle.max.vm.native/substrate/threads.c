@@ -123,15 +123,168 @@ void thread_getStackInfo(Address *stackBase, Size* stackSize) {
 
 }
 
+#if (os_LINUX || os_DARWIN)
+/**
+ * The pool of resources left behind by terminated threads, most recently released first.
+ */
+static ThreadResources threadResourcesPool;
+
+static pthread_mutex_t threadResourcesPoolLock = PTHREAD_MUTEX_INITIALIZER;
+
+/**
+ * Waits for the native thread that last ran on some given resources to have completely exited.
+ * The thread has already released the resources so this does not block for long, but it must
+ * not be called while holding the global thread lock.
+ */
+static void threadResources_joinOwner(ThreadResources resources) {
+    if (resources->owner != 0) {
+        int error = pthread_join((pthread_t) resources->owner, NULL);
+        if (error != 0) {
+            log_exit(11, "Could not join terminated thread %p [%s]", resources->owner, strerror(error));
+        }
+        resources->owner = 0;
+    }
+}
+
+/**
+ * Allocates a stack with a protected red zone below it and an uninitialized thread locals block.
+ *
+ * @return the new resources or NULL if the memory could not be allocated
+ */
+static ThreadResources threadResources_allocate(jint id, Size stackSize) {
+    const Size redZoneSize = RED_ZONE_PAGES * virtualMemory_getPageSize();
+    const Size mappingSize = redZoneSize + stackSize;
+    ThreadResources resources = (ThreadResources) calloc(1, sizeof(ThreadResourcesStruct));
+    if (resources == NULL) {
+        return NULL;
+    }
+    Address stack = virtualMemory_allocate(mappingSize, STACK_VM);
+    if (stack == ALLOC_FAILED) {
+        free(resources);
+        return NULL;
+    }
+    Address tlBlock = threadLocalsBlock_create(id, 0, stackSize);
+    if (tlBlock == 0) {
+        virtualMemory_deallocate(stack, mappingSize, STACK_VM);
+        free(resources);
+        return NULL;
+    }
+    virtualMemory_protectPages(stack, RED_ZONE_PAGES);
+    resources->stack = stack;
+    resources->mappingSize = mappingSize;
+    resources->stackSize = stackSize;
+    resources->tlBlock = tlBlock;
+    return resources;
+}
+
+/**
+ * Releases the memory of some resources that are no longer in the pool.
+ */
+static void threadResources_free(ThreadResources resources) {
+    threadResources_joinOwner(resources);
+    if (resources->guardZonesProtected) {
+        virtualMemory_unprotectPages(resources->tlBlock, 1);
+    }
+    free((void *) resources->tlBlock);
+    virtualMemory_deallocate(resources->stack, resources->mappingSize, STACK_VM);
+    free(resources);
+}
+
+/**
+ * Takes resources for a stack of a given size from the pool, allocating them if the pool has none.
+ * Only resources whose previous owner has been {@linkplain threadResources_reclaim joined} are taken,
+ * so that this never blocks while the caller holds the global thread lock.
+ *
+ * @return the resources for the new thread or NULL if they could not be allocated
+ */
+static ThreadResources threadResources_acquire(jint id, Size stackSize) {
+    ThreadResources resources = NULL;
+
+    pthread_mutex_lock(&threadResourcesPoolLock);
+    ThreadResources *link = &threadResourcesPool;
+    while (*link != NULL) {
+        ThreadResources r = *link;
+        if (r->owner == 0 && r->stackSize == stackSize) {
+            *link = r->next;
+            resources = r;
+            break;
+        }
+        link = &r->next;
+    }
+    pthread_mutex_unlock(&threadResourcesPoolLock);
+
+    if (resources != NULL) {
+        resources->next = NULL;
+#if log_THREADS
+        log_println("thread_create: id = %d, reusing stack %p and thread locals block %p", id, resources->stack, resources->tlBlock);
+#endif
+        return resources;
+    }
+    return threadResources_allocate(id, stackSize);
+}
+
+static void threadResources_addToPool(ThreadResources resources) {
+    pthread_mutex_lock(&threadResourcesPoolLock);
+    resources->next = threadResourcesPool;
+    threadResourcesPool = resources;
+    pthread_mutex_unlock(&threadResourcesPoolLock);
+}
+
+void thread_releaseResources(ThreadResources resources) {
+    resources->owner = (Address) thread_current();
+    threadResources_addToPool(resources);
+}
+
+/**
+ * Joins the previous owners of the pooled resources and frees the resources beyond {@code poolSize}.
+ * This may block and is therefore done before taking the global thread lock. The pool is emptied
+ * while this runs so that the pool lock is not held while joining; threads created in the meantime
+ * allocate new resources.
+ */
+static void threadResources_reclaim(int poolSize) {
+    pthread_mutex_lock(&threadResourcesPoolLock);
+    ThreadResources pool = threadResourcesPool;
+    threadResourcesPool = NULL;
+    pthread_mutex_unlock(&threadResourcesPoolLock);
+
+    /* The pool is ordered from most to least recently released */
+    ThreadResources kept = NULL;
+    ThreadResources *tail = &kept;
+    int count = 0;
+    while (pool != NULL) {
+        ThreadResources next = pool->next;
+        if (count < poolSize) {
+            threadResources_joinOwner(pool);
+            pool->next = NULL;
+            *tail = pool;
+            tail = &pool->next;
+            count++;
+        } else {
+            threadResources_free(pool);
+        }
+        pool = next;
+    }
+
+    if (kept != NULL) {
+        pthread_mutex_lock(&threadResourcesPoolLock);
+        *tail = threadResourcesPool;
+        threadResourcesPool = kept;
+        pthread_mutex_unlock(&threadResourcesPoolLock);
+    }
+}
+#endif
+
 /**
  * OS-specific thread creation.
  *
  * @param id the identifier reserved in the thread map for the thread to be started
  * @param stackSize the requested size of the thread's stack
  * @param priority the initial priority of the thread
+ * @param stackPoolSize the maximum number of terminated threads' stacks and thread locals blocks retained
+ *            for reuse, or 0 to let the thread library allocate the stack
  * @return the native thread handle (e.g. pthread_self()) of the started thread or 0 in the case of failure
  */
-static Thread thread_create(jint id, Size stackSize, int priority) {
+static Thread thread_create(jint id, Size stackSize, int priority, int stackPoolSize) {
     Thread thread;
 #if !os_MAXVE
     int error;
@@ -154,13 +307,30 @@ static Thread thread_create(jint id, Size stackSize, int priority) {
 
     // Allocate the threadLocals block and the struct for passing this to the created thread.
     // We do this to ensure that all memory allocation problems are addressed here before the thread runs.
+#if (os_LINUX || os_DARWIN)
+    ThreadResources resources = NULL;
+    Address tlBlock;
+    if (stackPoolSize > 0) {
+        resources = threadResources_acquire(id, stackSize);
+        if (resources == NULL) {
+            return (Thread) 0;
+        }
+        tlBlock = resources->tlBlock;
+    } else {
+        tlBlock = threadLocalsBlock_create(id, 0, stackSize);
+    }
+#else
     Address tlBlock = threadLocalsBlock_create(id, 0, stackSize);
+#endif
     if (tlBlock == 0) {
         return (Thread) 0;
     }
 
     TLA etla = ETLA_FROM_TLBLOCK(tlBlock);
     tla_store(etla, ID, id);
+#if (os_LINUX || os_DARWIN)
+    NATIVE_THREAD_LOCALS_FROM_TLBLOCK(tlBlock)->osData = resources;
+#endif
 
 #if os_MAXVE
     thread = maxve_create_thread(
@@ -175,16 +345,26 @@ static Thread thread_create(jint id, Size stackSize, int priority) {
     pthread_attr_t attributes;
     pthread_attr_init(&attributes);
 
-    /* The thread library allocates the stack and sets the red-zone
-     * guard page at (Linux) or just below (Darwin) the bottom of the stack. */
-    pthread_attr_setstacksize(&attributes, stackSize);
-    pthread_attr_setguardsize(&attributes, virtualMemory_getPageSize());
+    if (resources != NULL) {
+        /* The stack was allocated with the red zone just below it. The thread is joined
+         * by the first thread start after it has released the resources to the pool. */
+        pthread_attr_setstack(&attributes, (void *) (resources->stack + resources->mappingSize - stackSize), stackSize);
+        pthread_attr_setguardsize(&attributes, 0);
+    } else {
+        /* The thread library allocates the stack and sets the red-zone
+         * guard page at (Linux) or just below (Darwin) the bottom of the stack. */
+        pthread_attr_setstacksize(&attributes, stackSize);
+        pthread_attr_setguardsize(&attributes, virtualMemory_getPageSize());
+    }
     pthread_attr_setdetachstate(&attributes, PTHREAD_CREATE_JOINABLE);
 
     error = pthread_create(&thread, &attributes, (void *(*)(void *)) thread_run, (void *) tlBlock);
     pthread_attr_destroy(&attributes);
     if (error != 0) {
         log_println("pthread_create failed with error: %d", error);
+        if (resources != NULL) {
+            threadResources_addToPool(resources);
+        }
         return (Thread) 0;
     }
 #elif os_SOLARIS
@@ -451,8 +631,15 @@ void nativeBlockOnThreadLock() {
  * Create a thread.
  * @C_FUNCTION - called from Java
  */
-Address nativeThreadCreate(jint id, Size stackSize, jint priority) {
-    return (Address) thread_create(id, stackSize, priority);
+Address nativeThreadCreate(jint id, Size stackSize, jint priority, jint stackPoolSize) {
+    return (Address) thread_create(id, stackSize, priority, stackPoolSize);
+}
+
+JNIEXPORT void JNICALL
+Java_com_sun_max_vm_thread_VmThread_nativeReclaimThreadResources(JNIEnv *env, jclass c, jint stackPoolSize) {
+#if (os_LINUX || os_DARWIN)
+    threadResources_reclaim(stackPoolSize);
+#endif
 }
 
 JNIEXPORT void JNICALL
@@ -359,6 +359,11 @@ static void vmSignalHandler(int signal, SigInfo *signalInfo, UContext *ucontext)
     Address ip = getInstructionPointer(ucontext);
     Address faultAddress = getFaultAddress(signalInfo, ucontext);
 
+    if (signal == SIGSEGV && image_relocateFaultingPage(faultAddress)) {
+        /* The access was to a boot image page that has now been relocated */
+        return;
+    }
+
 #if isa_ARM
     if (ucontext->uc_mcontext.arm_cpsr & 0x20) {
         ip = ip | 0x1;
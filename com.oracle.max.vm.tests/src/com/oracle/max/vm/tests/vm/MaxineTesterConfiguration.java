@@ -330,6 +330,8 @@ public class MaxineTesterConfiguration {
         imageConfig("jtt-c1xt1x", opt_c1x, tmpVMArgs, gcScheme, "-threads=4", build, "-run=com.oracle.max.vm.tests.vm.jtrun.all", "-native-tests", testCalleeT1X, "--XX:+FailOverCompilation");
         imageConfig("jtt-t1xt1x", opt_c1x, tmpVMArgs, gcScheme, "-threads=4", build, "-run=com.oracle.max.vm.tests.vm.jtrun.all", "-native-tests",
                         joinCompileCommands(testCallerT1X, testCalleeT1X), "--XX:+FailOverCompilation");
+        imageConfig("jtt-t1xt1x-tos", opt_c1x, tmpVMArgs, gcScheme, "-threads=4", build, "-run=com.oracle.max.vm.tests.vm.jtrun.all", "-native-tests",
+                        joinCompileCommands(testCallerT1X, testCalleeT1X), "--XX:+FailOverCompilation", "--T1X:+CacheTopOfStack");
 
         imageConfig("jtt-c1xc1x", opt_c1x, tmpVMArgs, gcScheme, "-threads=4", "-run=com.oracle.max.vm.tests.vm.jtrun.all", build, "-native-tests");
         imageConfig("jtt-c1xgraal", opt_c1xgraal, "-run=com.oracle.max.vm.tests.vm.jtrun.all", "-native-tests", joinCompileCommands(testCallerT1X, testCalleeGraal));
@@ -345,6 +347,8 @@ public class MaxineTesterConfiguration {
         imageConfig("jtt-msec1xc1x", opt_c1x, "-run=com.oracle.max.vm.tests.vm.jtrun.all", "-heap=gcx.mse", "-native-tests");
 
         imageConfig("vm-output", "-run=com.oracle.max.vm.tests.vm.output");
+        // Linked at 16TB. Run with the "relocated" and "relocated-lazy" maxvm configs to boot it with a non-zero relocation delta.
+        imageConfig("vm-output-prelinked", "-run=com.oracle.max.vm.tests.vm.output", "-prelink-address=17592186044416");
 
         maxvmConfig("std", "-Xms2g", "-Xmx2g");
         maxvmConfig("eviction1000", "-Xms2g", "-Xmx2g", "-XX:CodeCacheContentionFrequency=1000");
@@ -357,6 +361,8 @@ public class MaxineTesterConfiguration {
         maxvmConfig("opt", "-Xms2g", "-Xmx2g", "-Xopt");
         maxvmConfig("mx256m", "-Xmx256m");
         maxvmConfig("mx512m", "-Xmx512m");
+        maxvmConfig("relocated", "-Xms2g", "-Xmx2g", "-XX:+AvoidPreferredBootImageAddress");
+        maxvmConfig("relocated-lazy", "-Xms2g", "-Xmx2g", "-XX:+AvoidPreferredBootImageAddress", "-XX:+LazyBootImageRelocation");
 
         // VEE 2010 benchmarking configurations
         maxvmConfig("noGC", "-XX:+DisableGC", "-Xmx3g");
@@ -527,7 +533,7 @@ public class MaxineTesterConfiguration {
         if (platform.cpu == CPU.SPARCV9 || platform.cpu == CPU.ARMV7) {
             return "jtt-c1xc1x,jtt-c1xt1x,jtt-t1xc1x,jtt-t1xt1x";
         }
-        return "jtt-c1xc1x,jtt-t1xc1x,jtt-c1xt1x,jtt-t1xt1x,jtt-c1xgraal";
+        return "jtt-c1xc1x,jtt-t1xc1x,jtt-c1xt1x,jtt-t1xt1x,jtt-t1xt1x-tos,jtt-c1xgraal";
     }
 
     public static List<String> defaultVMOutputImageConfigs() {
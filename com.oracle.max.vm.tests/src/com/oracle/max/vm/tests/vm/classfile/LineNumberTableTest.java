@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.oracle.max.vm.tests.vm.classfile;
+
+import java.io.*;
+
+import com.sun.max.ide.*;
+import com.sun.max.vm.bytecode.graft.*;
+import com.sun.max.vm.classfile.*;
+import com.sun.max.vm.classfile.LineNumberTable.Entry;
+
+/**
+ * Round trip tests for {@link LineNumberTable}.
+ */
+public class LineNumberTableTest extends MaxTestCase {
+
+    public LineNumberTableTest(String name) {
+        super(name);
+    }
+
+    public static void main(String[] args) {
+        junit.textui.TestRunner.run(LineNumberTableTest.class);
+    }
+
+    private static final int CODE_LENGTH = 65535;
+
+    private static Entry[] entries(int... bciLinePairs) {
+        final Entry[] entries = new Entry[bciLinePairs.length / 2];
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] = new Entry((char) bciLinePairs[i * 2], (char) bciLinePairs[i * 2 + 1]);
+        }
+        return entries;
+    }
+
+    /**
+     * Gets the line number for a BCI by a linear scan of entries sorted by BCI.
+     */
+    private static int expectedLineNumber(Entry[] sortedEntries, int bci) {
+        int lineNumber = -1;
+        for (Entry entry : sortedEntries) {
+            if (entry.bci() > bci) {
+                break;
+            }
+            lineNumber = entry.lineNumber();
+        }
+        return lineNumber;
+    }
+
+    private static LineNumberTable readAttribute(LineNumberTable table) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        table.writeAttributeInfo(new DataOutputStream(bytes), null);
+        return new LineNumberTable(LineNumberTable.EMPTY, new ClassfileStream(bytes.toByteArray()), CODE_LENGTH);
+    }
+
+    private static LineNumberTable encodeAndDecode(LineNumberTable table) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        table.encode(new DataOutputStream(bytes));
+        return LineNumberTable.decode(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    }
+
+    private void assertSameEntries(Entry[] expected, LineNumberTable table) {
+        final Entry[] actual = table.entries();
+        assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals("bci of entry " + i, expected[i].bci(), actual[i].bci());
+            assertEquals("line number of entry " + i, expected[i].lineNumber(), actual[i].lineNumber());
+        }
+    }
+
+    private void assertLineNumbers(Entry[] sortedEntries, LineNumberTable table) {
+        int maxBCI = 0;
+        for (Entry entry : sortedEntries) {
+            maxBCI = Math.max(maxBCI, entry.bci());
+        }
+        for (int bci = 0; bci <= maxBCI + 1; bci++) {
+            assertEquals("line number for bci " + bci, expectedLineNumber(sortedEntries, bci), table.findLineNumber(bci));
+        }
+    }
+
+    /**
+     * Checks that a table made from some entries sorted by BCI survives being written as a class file attribute and
+     * read back, as well as being encoded and decoded.
+     */
+    private void assertRoundTrips(Entry[] sortedEntries) throws IOException {
+        final LineNumberTable table = new LineNumberTable(sortedEntries);
+        assertSameEntries(sortedEntries, table);
+        assertLineNumbers(sortedEntries, table);
+
+        final LineNumberTable read = readAttribute(table);
+        assertSameEntries(sortedEntries, read);
+        assertLineNumbers(sortedEntries, read);
+        assertEquals(table.toString(), read.toString());
+
+        final LineNumberTable decoded = encodeAndDecode(table);
+        assertSameEntries(sortedEntries, decoded);
+        assertLineNumbers(sortedEntries, decoded);
+        assertEquals(table.toString(), decoded.toString());
+    }
+
+    public void test_empty() throws IOException {
+        assertTrue(new LineNumberTable(new Entry[0]).isEmpty());
+        assertEquals(-1, LineNumberTable.EMPTY.findLineNumber(0));
+        assertRoundTrips(new Entry[0]);
+    }
+
+    public void test_largeBCIs() throws IOException {
+        assertRoundTrips(entries(0, 10, 100, 11, 32767, 12, 32768, 13, 40000, 14, 65534, 15));
+    }
+
+    public void test_negativeLineDeltas() throws IOException {
+        assertRoundTrips(entries(0, 500, 4, 20, 9, 65535, 15, 1, 20, 300, 31, 0));
+    }
+
+    public void test_manyEntries() throws IOException {
+        for (int n : new int[] {15, 16, 17, 32, 33, 100, 1000}) {
+            final int[] pairs = new int[n * 2];
+            for (int i = 0; i < n; i++) {
+                pairs[i * 2] = i * 7 + (i % 3);
+                pairs[i * 2 + 1] = (i % 5 == 0) ? 1000 - i : 10 + i * 3;
+            }
+            assertRoundTrips(entries(pairs));
+        }
+        final int[] pairs = new int[200 * 2];
+        for (int i = 0; i < 200; i++) {
+            pairs[i * 2] = 30000 + i * 150;
+            pairs[i * 2 + 1] = 200 - i;
+        }
+        assertRoundTrips(entries(pairs));
+    }
+
+    public void test_equalBCIsKeepClassFileOrder() throws IOException {
+        final Entry[] entries = entries(0, 1, 5, 9, 5, 2, 5, 7, 12, 3, 12, 1);
+        final LineNumberTable table = new LineNumberTable(entries);
+        assertSameEntries(entries, table);
+        assertEquals(7, table.findLineNumber(5));
+        assertEquals(7, table.findLineNumber(11));
+        assertEquals(1, table.findLineNumber(12));
+        assertRoundTrips(entries);
+
+        // Equal BCIs spanning an index point
+        final int[] pairs = new int[40 * 2];
+        for (int i = 0; i < 40; i++) {
+            pairs[i * 2] = i < 10 ? i : 10;
+            pairs[i * 2 + 1] = 100 - i;
+        }
+        final Entry[] manyEntries = entries(pairs);
+        assertRoundTrips(manyEntries);
+        assertEquals(61, new LineNumberTable(manyEntries).findLineNumber(10));
+    }
+
+    public void test_unsortedEntries() throws IOException {
+        final LineNumberTable table = new LineNumberTable(entries(20, 3, 0, 1, 40000, 4, 10, 2, 10, 5));
+        final Entry[] sorted = entries(0, 1, 10, 2, 10, 5, 20, 3, 40000, 4);
+        assertSameEntries(sorted, table);
+        assertLineNumbers(sorted, table);
+        assertSameEntries(sorted, readAttribute(table));
+    }
+
+    public void test_relocate() throws IOException {
+        final int n = 50;
+        final int[] pairs = new int[n * 2];
+        final int[] relocatedPairs = new int[n * 2];
+        for (int i = 0; i < n; i++) {
+            pairs[i * 2] = i * 3;
+            pairs[i * 2 + 1] = (i & 1) == 0 ? 100 + i : 50 - i;
+            relocatedPairs[i * 2] = 32760 + i * 3 * 2;
+            relocatedPairs[i * 2 + 1] = pairs[i * 2 + 1];
+        }
+        final OpcodeBCIRelocator relocator = new OpcodeBCIRelocator() {
+            public int relocate(int opcodeBCI) {
+                return 32760 + opcodeBCI * 2;
+            }
+        };
+        final LineNumberTable relocated = new LineNumberTable(entries(pairs)).relocate(relocator);
+        assertSameEntries(entries(relocatedPairs), relocated);
+        assertLineNumbers(entries(relocatedPairs), relocated);
+        assertRoundTrips(relocated.entries());
+        assertSame(LineNumberTable.EMPTY, LineNumberTable.EMPTY.relocate(relocator));
+    }
+}
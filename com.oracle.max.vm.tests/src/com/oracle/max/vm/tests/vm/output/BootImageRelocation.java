@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.oracle.max.vm.tests.vm.output;
+
+import com.sun.max.vm.actor.holder.*;
+import com.sun.max.vm.heap.*;
+import com.sun.max.vm.reference.*;
+import com.sun.max.vm.type.*;
+
+/**
+ * Follows pointers from every boot image class to its hubs and mirror and checks that they lead back to the
+ * class. Run on the "vm-output-prelinked" image with the "relocated" or "relocated-lazy" maxvm config, this
+ * boots the image with a non-zero relocation delta and touches most of the boot heap pages holding pointers.
+ */
+public class BootImageRelocation implements MaxineOnly {
+
+    public static void main(String[] args) {
+        int bad = 0;
+        for (ClassActor classActor : ClassRegistry.allBootImageClasses()) {
+            if (!Heap.bootHeapRegion.contains(Reference.fromJava(classActor).toOrigin())) {
+                bad++;
+            } else if (classActor.dynamicHub().classActor != classActor) {
+                bad++;
+            } else if (classActor.staticHub().classActor != classActor) {
+                bad++;
+            } else if (ClassActor.fromJava(classActor.javaClass()) != classActor) {
+                bad++;
+            }
+        }
+        System.gc();
+        System.out.println("boot image classes with bad pointers: " + bad);
+        System.out.println("done.");
+    }
+}
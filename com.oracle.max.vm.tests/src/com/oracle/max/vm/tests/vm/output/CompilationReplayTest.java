@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.oracle.max.vm.tests.vm.output;
+
+import static com.sun.max.vm.MaxineVM.*;
+
+import java.io.*;
+
+import com.sun.max.vm.actor.member.*;
+import com.sun.max.vm.compiler.*;
+import com.sun.max.vm.compiler.RuntimeCompiler.Nature;
+import com.sun.max.vm.compiler.CompilationReplay.Record;
+
+/**
+ * Records compilations after optimizing a static method and a default method, reads the record back and replays it.
+ */
+public class CompilationReplayTest implements MaxineOnly {
+
+    interface WithDefault {
+        default int twice(int i) {
+            return i * 2;
+        }
+    }
+
+    static class Impl implements WithDefault {
+    }
+
+    static int sum(int n) {
+        int sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += i;
+        }
+        return sum;
+    }
+
+    public static void main(String[] args) throws Throwable {
+        final ClassMethodActor sum = ClassMethodActor.fromJava(CompilationReplayTest.class.getDeclaredMethod("sum", int.class));
+        final ClassMethodActor twice = ClassMethodActor.fromJava(WithDefault.class.getDeclaredMethod("twice", int.class));
+        vm().compilationBroker.compile(sum, Nature.OPT, false, true);
+        vm().compilationBroker.compile(twice, Nature.OPT, false, true);
+        System.out.println("sum(100) = " + sum(100) + ", twice(21) = " + new Impl().twice(21));
+
+        final File file = File.createTempFile("compilations", ".record");
+        file.deleteOnExit();
+        System.out.println("record written: " + CompilationReplay.record(file));
+
+        final Record record = Record.read(file);
+        System.out.println("classes recorded: " + (record.numberOfClasses() > 0));
+        System.out.println("test class recorded: " + record.containsClass(CompilationReplayTest.class.getName()));
+        System.out.println("optimized method recorded: " + record.containsMethod(CompilationReplayTest.class.getName(), "sum", "(I)I"));
+        System.out.println("default method recorded: " + record.containsMethod(WithDefault.class.getName(), "twice", "(I)I"));
+
+        // The recorded methods are already optimized in this VM so the replay only has to look them up
+        System.out.println("record replayed: " + (CompilationReplay.replay(file) >= 0));
+        System.out.println("done.");
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.oracle.max.vm.tests.vm.output;
+
+/**
+ * Takes stack traces of threads blocked in native code and revokes the biases they hold, which Maxine does with
+ * handshakes that the requesting thread performs on behalf of the blocked threads.
+ */
+public class HandshakeNativeBlocking {
+
+    static final int ROUNDS = 100;
+
+    static final Object sleeperLock = new Object();
+    static final Object waiterLock = new Object();
+    static final Object monitor = new Object();
+    static volatile boolean stop;
+
+    static void sleepForever() {
+        // biases the lock towards this thread
+        synchronized (sleeperLock) {
+            sleeperLock.hashCode();
+        }
+        while (!stop) {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+            }
+        }
+    }
+
+    static void waitForever() {
+        synchronized (waiterLock) {
+            waiterLock.hashCode();
+        }
+        synchronized (monitor) {
+            while (!stop) {
+                try {
+                    monitor.wait();
+                } catch (InterruptedException e) {
+                }
+            }
+        }
+    }
+
+    static boolean hasFrame(Thread thread, String methodName) {
+        for (StackTraceElement element : thread.getStackTrace()) {
+            if (element.getMethodName().equals(methodName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        final Thread sleeper = new Thread("Sleeper") {
+            @Override
+            public void run() {
+                sleepForever();
+            }
+        };
+        final Thread waiter = new Thread("Waiter") {
+            @Override
+            public void run() {
+                waitForever();
+            }
+        };
+        sleeper.start();
+        waiter.start();
+        Thread.sleep(200);
+
+        int sleeperFound = 0;
+        int waiterFound = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            if (hasFrame(sleeper, "sleepForever")) {
+                sleeperFound++;
+            }
+            if (hasFrame(waiter, "waitForever")) {
+                waiterFound++;
+            }
+        }
+        // revoke the biases held by the blocked threads
+        int revocations = 0;
+        synchronized (sleeperLock) {
+            synchronized (waiterLock) {
+                revocations++;
+            }
+        }
+
+        stop = true;
+        synchronized (monitor) {
+            monitor.notifyAll();
+        }
+        sleeper.join();
+        waiter.join();
+        System.out.println("sleeper traces: " + sleeperFound + "/" + ROUNDS);
+        System.out.println("waiter traces: " + waiterFound + "/" + ROUNDS);
+        System.out.println("revocations: " + revocations);
+        System.out.println("done.");
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.oracle.max.vm.tests.vm.output;
+
+/**
+ * Takes stack traces of threads and revokes the biases they hold while the threads are terminating, which races
+ * the handshakes Maxine uses for both against thread exit.
+ */
+public class HandshakeThreadExit {
+
+    static final int THREADS = 200;
+
+    static class Worker extends Thread {
+        final Object lock;
+        final int index;
+        int result;
+
+        Worker(Object lock, int index) {
+            super("Worker-" + index);
+            this.lock = lock;
+            this.index = index;
+        }
+
+        @Override
+        public void run() {
+            int sum = 0;
+            for (int i = 0; i < 1000; i++) {
+                // biases the lock towards this thread
+                synchronized (lock) {
+                    sum += i ^ index;
+                }
+            }
+            result = sum;
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        long total = 0;
+        int badTraces = 0;
+        int revocations = 0;
+        for (int i = 0; i < THREADS; i++) {
+            final Object lock = new Object();
+            final Worker worker = new Worker(lock, i);
+            worker.start();
+            do {
+                for (StackTraceElement element : worker.getStackTrace()) {
+                    if (element == null) {
+                        badTraces++;
+                    }
+                }
+                // revokes the bias held by the worker, which may be exiting
+                synchronized (lock) {
+                    revocations++;
+                }
+            } while (worker.isAlive());
+            worker.join();
+            total += worker.result;
+            worker.getStackTrace();
+        }
+        System.out.println("total: " + total);
+        System.out.println("bad traces: " + badTraces);
+        System.out.println("done.");
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.oracle.max.vm.tests.vm.output;
+
+import java.util.concurrent.locks.*;
+
+import com.sun.max.vm.code.*;
+import com.sun.max.vm.thread.*;
+
+/**
+ * Parks virtual threads deep in baseline-compiled frames, evicts the baseline code cache while they are
+ * suspended and then resumes them. The return addresses saved in the suspended frames must have been
+ * patched for the threads to return through the relocated code.
+ */
+public class VirtualThreadEviction implements MaxineOnly {
+
+    static final int THREADS = 8;
+    static final int DEPTH = 20;
+    static final int EVICTIONS = 3;
+
+    static volatile boolean release;
+
+    static int descend(int depth, int value) {
+        if (depth == 0) {
+            while (!release) {
+                LockSupport.park();
+            }
+            return value;
+        }
+        return descend(depth - 1, value * 31 + depth) + depth;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        final int[] results = new int[THREADS];
+        final VirtualThread[] threads = new VirtualThread[THREADS];
+        for (int i = 0; i < THREADS; i++) {
+            final int index = i;
+            threads[i] = new VirtualThread(new Runnable() {
+                public void run() {
+                    results[index] = descend(DEPTH, index);
+                }
+            });
+            threads[i].start();
+        }
+        for (VirtualThread thread : threads) {
+            while (thread.getState() != Thread.State.WAITING) {
+                Thread.sleep(10);
+            }
+        }
+        for (int i = 0; i < EVICTIONS; i++) {
+            CodeEviction.run();
+        }
+        release = true;
+        for (VirtualThread thread : threads) {
+            LockSupport.unpark(thread);
+        }
+        for (VirtualThread thread : threads) {
+            thread.join();
+        }
+        for (int i = 0; i < THREADS; i++) {
+            System.out.println("thread " + i + ": " + results[i]);
+        }
+        System.out.println("done.");
+    }
+}
@@ -57,6 +57,7 @@ public class C1XMetrics {
     public static int BytecodesCompiled;
     public static int CodeBytesEmitted;
     public static int SafepointsEmitted;
+    public static int LoopSafepointsEliminated;
     public static int ExceptionHandlersEmitted;
     public static int DataPatches;
     public static int DirectCallSitesEmitted;
@@ -45,6 +45,7 @@ public final class C1XOptions {
     public static int     MaximumRecursiveInlineLevel        = 1;
     public static int     MaximumDesiredSize                 = 8000;
     public static int     MaximumShortLoopSize               = 5;
+    public static int     MaximumUnpolledLoopIterations      = 1000;
 
     // intrinsification settings
     public static boolean OptIntrinsify                      = ____;
@@ -110,6 +111,7 @@ public final class C1XOptions {
     public static boolean OptGlobalValueNumbering;
     public static boolean OptDiamondElimination;
     public static boolean OptCEElimination;
+    public static boolean OptLoopSafepointElimination;
     public static boolean OptBlockMerging;
     public static boolean OptBlockSkipping;
     public static boolean OptNullCheckElimination;
@@ -229,6 +231,7 @@ public final class C1XOptions {
         OptGlobalValueNumbering         = lll;
         OptDiamondElimination           = lll;
         OptCEElimination                = lll;
+        OptLoopSafepointElimination     = lll;
         OptBlockSkipping                = lll;
     }
 }
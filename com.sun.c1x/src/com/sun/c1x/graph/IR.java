@@ -135,6 +135,10 @@ public class IR {
             new DiamondEliminator(this);
             observeCompilationEvent("After Diamond elimination");
         }
+        if (C1XOptions.OptLoopSafepointElimination) {
+            new LoopSafepointEliminator(this);
+            observeCompilationEvent("After loop safepoint elimination");
+        }
     }
 
     private void computeLinearScanOrder() {
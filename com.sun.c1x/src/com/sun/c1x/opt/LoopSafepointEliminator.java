@@ -0,0 +1,315 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.sun.c1x.opt;
+
+import static com.sun.cri.bytecode.Bytecodes.*;
+
+import java.util.*;
+
+import com.sun.c1x.*;
+import com.sun.c1x.graph.*;
+import com.sun.c1x.ir.*;
+import com.sun.cri.ci.*;
+
+/**
+ * Removes the safepoint poll from the backward branch of counted loops whose trip count is a compile-time
+ * constant no greater than {@link C1XOptions#MaximumUnpolledLoopIterations}. Such a loop runs for a bounded
+ * number of iterations between polls, so the poll on every backedge buys nothing in terms of time-to-safepoint
+ * and only costs a load per iteration.
+ *
+ * A loop qualifies if its backedge is an {@link If} comparing an int induction variable (or its increment)
+ * against a constant, where the induction variable is a phi that is initialized with a constant on entry and
+ * updated by a constant stride on the loop path. The phi must be in the loop header or in the block ending with
+ * the backedge, and the block supplying the initial value must not be reachable from the loop header without
+ * passing through another safepoint poll.
+ *
+ * All qualifying loops are found before any poll is removed. They are then considered innermost first, and a
+ * loop only loses its poll if its trip count multiplied by the iterations of the unpolled loops nested in it
+ * stays within the limit. A nest of short loops therefore cannot add up to an unbounded stretch without a poll,
+ * and any cycle that is not covered by this accounting contains a backward branch that keeps its poll.
+ *
+ * Loops whose trip count is not a known constant keep the poll on every backedge: this pass does not strip-mine
+ * them into an inner loop without a poll and an outer loop that polls, since that would need the HIR to support
+ * loop versioning.
+ */
+public final class LoopSafepointEliminator implements BlockClosure {
+
+    /**
+     * A loop whose backedge may be left without a poll.
+     */
+    static final class CountedLoop {
+        final BlockBegin header;
+        final BlockBegin latch;
+        final int tripCount;
+        CiBitMap body;
+
+        /**
+         * The most iterations, of this loop and the unpolled loops nested in it, that can run between two polls.
+         */
+        long unpolledIterations;
+
+        CountedLoop(BlockBegin header, BlockBegin latch, int tripCount) {
+            this.header = header;
+            this.latch = latch;
+            this.tripCount = tripCount;
+        }
+    }
+
+    final IR ir;
+    final ArrayList<CountedLoop> loops = new ArrayList<CountedLoop>();
+
+    public LoopSafepointEliminator(IR ir) {
+        this.ir = ir;
+        ir.startBlock.iteratePreOrder(this);
+        if (!loops.isEmpty()) {
+            eliminate();
+        }
+    }
+
+    /**
+     * Clears the backedge polls of the counted loops, innermost first, as long as the product of the trip
+     * counts across each nest of unpolled loops stays within {@link C1XOptions#MaximumUnpolledLoopIterations}.
+     */
+    private void eliminate() {
+        for (CountedLoop loop : loops) {
+            loop.body = loopBody(loop.header, loop.latch);
+        }
+        // a nested loop's body is a strict subset of the enclosing loop's body
+        Collections.sort(loops, new Comparator<CountedLoop>() {
+            public int compare(CountedLoop a, CountedLoop b) {
+                return a.body.cardinality() - b.body.cardinality();
+            }
+        });
+
+        ArrayList<CountedLoop> unpolled = new ArrayList<CountedLoop>();
+        for (CountedLoop loop : loops) {
+            // sums over every unpolled loop inside this one, which over-counts loops nested more than one level
+            // deep and so errs on the side of keeping the poll
+            long inner = 0;
+            for (CountedLoop other : unpolled) {
+                if (loop.body.get(other.header.blockID)) {
+                    inner += other.unpolledIterations;
+                }
+            }
+            long iterations = loop.tripCount * Math.max(inner, 1L);
+            if (iterations <= C1XOptions.MaximumUnpolledLoopIterations) {
+                loop.unpolledIterations = iterations;
+                loop.latch.end().clearFlag(Value.Flag.IsSafepointPoll);
+                unpolled.add(loop);
+                C1XMetrics.LoopSafepointsEliminated++;
+            }
+        }
+    }
+
+    public void apply(BlockBegin block) {
+        BlockEnd end = block.end();
+        if (!(end instanceof If) || !end.isSafepointPoll()) {
+            return;
+        }
+        If backedge = (If) end;
+        BlockBegin header;
+        boolean continueIfTrue;
+        if (backedge.trueSuccessor().bci() <= backedge.bci()) {
+            header = backedge.trueSuccessor();
+            continueIfTrue = true;
+        } else {
+            header = backedge.falseSuccessor();
+            continueIfTrue = false;
+        }
+
+        // find the side of the comparison that is the loop variable and the constant limit
+        Condition cond = backedge.condition();
+        Value var = backedge.x();
+        Value limit = backedge.y();
+        if (isIntConstant(var)) {
+            var = backedge.y();
+            limit = backedge.x();
+            cond = cond.mirror();
+        }
+        if (!isIntConstant(limit) || var.kind != CiKind.Int) {
+            return;
+        }
+        if (!continueIfTrue) {
+            cond = cond.negate();
+        }
+
+        Phi phi;
+        boolean comparesIncrement;
+        if (var instanceof Phi) {
+            phi = (Phi) var;
+            comparesIncrement = false;
+        } else if (var instanceof ArithmeticOp && ((ArithmeticOp) var).x() instanceof Phi) {
+            phi = (Phi) ((ArithmeticOp) var).x();
+            comparesIncrement = true;
+        } else {
+            return;
+        }
+        if (!phi.isLocal() || phi.inputCount() != 2 || phi.block().isExceptionEntry()) {
+            return;
+        }
+        if (phi.block() != header && !(phi.block() == block && !comparesIncrement)) {
+            return;
+        }
+
+        // one input must be the constant initial value, the other the increment
+        int entryIndex = isIntConstant(phi.inputAt(0)) ? 0 : 1;
+        Value init = phi.inputAt(entryIndex);
+        Value increment = phi.inputAt(1 - entryIndex);
+        if (!isIntConstant(init) || !(increment instanceof ArithmeticOp)) {
+            return;
+        }
+        ArithmeticOp op = (ArithmeticOp) increment;
+        if (op.x() != phi || !isIntConstant(op.y()) || (op.opcode != IADD && op.opcode != ISUB)) {
+            return;
+        }
+        if (comparesIncrement && var != increment) {
+            return;
+        }
+        int stride = intValue(op.y());
+        if (op.opcode == ISUB) {
+            stride = -stride;
+        }
+        BlockBegin entry = phi.block().predAt(entryIndex);
+        if (entry == block || isReachableWithoutPoll(header, block, entry)) {
+            return;
+        }
+
+        int tripCount = tripCount(intValue(init), stride, cond, intValue(limit), comparesIncrement);
+        if (tripCount >= 0) {
+            loops.add(new CountedLoop(header, block, tripCount));
+        }
+    }
+
+    /**
+     * Runs the loop test as the compiled code would and counts the backedges taken before control leaves the
+     * loop.
+     *
+     * @return the number of times the backedge is taken, or {@code -1} if that exceeds
+     *         {@link C1XOptions#MaximumUnpolledLoopIterations}
+     */
+    private static int tripCount(int init, int stride, Condition cond, int limit, boolean comparesIncrement) {
+        int i = init;
+        for (int trips = 0; trips <= C1XOptions.MaximumUnpolledLoopIterations; trips++) {
+            int next = i + stride;
+            if (!cond.check(comparesIncrement ? next : i, limit)) {
+                return Math.max(trips, 1);
+            }
+            i = next;
+        }
+        return -1;
+    }
+
+    /**
+     * Computes the blocks of the loop closed by the backedge from {@code latch} to {@code header}: the blocks
+     * reachable from the header that can reach the latch without passing through the header again. Exception
+     * edges are followed as well, since handler blocks do not record the blocks that throw to them as
+     * predecessors.
+     */
+    private CiBitMap loopBody(BlockBegin header, BlockBegin latch) {
+        ArrayList<BlockBegin> reachable = new ArrayList<BlockBegin>();
+        CiBitMap visited = new CiBitMap(ir.numberOfBlocks());
+        reachable.add(header);
+        visited.set(header.blockID);
+        for (int i = 0; i < reachable.size(); i++) {
+            BlockBegin b = reachable.get(i);
+            if (b == latch || b.end() == null) {
+                continue;
+            }
+            for (BlockBegin sux : b.end().successors()) {
+                if (sux != header && !visited.get(sux.blockID)) {
+                    visited.set(sux.blockID);
+                    reachable.add(sux);
+                }
+            }
+            for (BlockBegin handler : b.exceptionHandlerBlocks()) {
+                if (handler != header && !visited.get(handler.blockID)) {
+                    visited.set(handler.blockID);
+                    reachable.add(handler);
+                }
+            }
+        }
+
+        CiBitMap body = new CiBitMap(ir.numberOfBlocks());
+        body.set(header.blockID);
+        body.set(latch.blockID);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (BlockBegin b : reachable) {
+                if (body.get(b.blockID) || b.end() == null) {
+                    continue;
+                }
+                boolean reachesLatch = false;
+                for (BlockBegin sux : b.end().successors()) {
+                    reachesLatch |= sux != header && body.get(sux.blockID);
+                }
+                for (BlockBegin handler : b.exceptionHandlerBlocks()) {
+                    reachesLatch |= handler != header && body.get(handler.blockID);
+                }
+                if (reachesLatch) {
+                    body.set(b.blockID);
+                    changed = true;
+                }
+            }
+        }
+        return body;
+    }
+
+    /**
+     * Determines if {@code target} can be reached from {@code header} along edges that do not pass through a
+     * safepoint poll, ignoring the backedge from {@code latch} to {@code header}.
+     */
+    private boolean isReachableWithoutPoll(BlockBegin header, BlockBegin latch, BlockBegin target) {
+        CiBitMap visited = new CiBitMap(ir.numberOfBlocks());
+        ArrayList<BlockBegin> worklist = new ArrayList<BlockBegin>();
+        worklist.add(header);
+        visited.set(header.blockID);
+        while (!worklist.isEmpty()) {
+            BlockBegin b = worklist.remove(worklist.size() - 1);
+            if (b == target) {
+                return true;
+            }
+            if (b == latch || b.end() == null || b.end().isSafepointPoll()) {
+                continue;
+            }
+            for (BlockBegin sux : b.end().successors()) {
+                if (!visited.get(sux.blockID)) {
+                    visited.set(sux.blockID);
+                    worklist.add(sux);
+                }
+            }
+            for (BlockBegin handler : b.exceptionHandlerBlocks()) {
+                if (!visited.get(handler.blockID)) {
+                    visited.set(handler.blockID);
+                    worklist.add(handler);
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean isIntConstant(Value v) {
+        return v instanceof Constant && v.kind == CiKind.Int;
+    }
+
+    private static int intValue(Value v) {
+        return ((Constant) v).value.asInt();
+    }
+}
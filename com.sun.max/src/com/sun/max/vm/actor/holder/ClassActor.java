@@ -1600,7 +1600,11 @@ public abstract class ClassActor extends Actor implements RiResolvedType {
         if (isReflectionStub() || !ClassVerifier.shouldBeVerified(classLoader, isRemote())) {
             // generated stubs do not necessarily pass the verifier, even if they work as intended
         } else {
-            Verifier.verifierFor(this).verify();
+            final ClassVerifier verifier = Verifier.verifierFor(this);
+            final Set<ClassActor> resolvedClasses = VerificationCache.resolvedClassesSet(this);
+            verifier.recordResolvedClasses(resolvedClasses);
+            verifier.verify();
+            VerificationCache.classVerified(this, resolvedClasses);
         }
     }
 
@@ -60,6 +60,7 @@ import com.sun.max.vm.ti.*;
 import com.sun.max.vm.type.*;
 import com.sun.max.vm.type.ClassRegistry.*;
 import com.sun.max.vm.value.*;
+import com.sun.max.vm.verifier.*;
 
 import sun.reflect.CallerSensitive;
 
@@ -89,6 +90,17 @@ public final class ClassfileReader {
     protected TypeDescriptor classDescriptor;
     protected int classFlags;
 
+    /**
+     * Specifies if the debug tables of the methods in the class being read are to be {@linkplain CodeAttribute#CodeAttribute(ConstantPool, byte[], char, char, ExceptionHandlerEntry[], byte[], StackMapTable) kept in class file form} until first used.
+     */
+    protected boolean lazyDebugTables;
+
+    private static boolean LazyDebugTables = true;
+    static {
+        VMOptions.addFieldOption("-XX:", "LazyDebugTables", ClassfileReader.class,
+            "Build the line number and local variable tables of methods on first use. The class file attributes they are built from are still checked when a class is loaded.");
+    }
+
     public ClassfileReader(ClassfileStream classfileStream, ClassLoader classLoader) {
         this.classfileStream = classfileStream;
         this.classLoader = classLoader;
@@ -584,7 +596,8 @@ public final class ClassfileReader {
     }
 
     // CheckStyle: stop parameter assignment check
-    protected Map<LocalVariableTable.Entry, LocalVariableTable.Entry> readLocalVariableTable(int maxLocals, int codeLength, Map<LocalVariableTable.Entry, LocalVariableTable.Entry> localVariableTableEntries, boolean forLVTT) {
+    static Map<LocalVariableTable.Entry, LocalVariableTable.Entry> readLocalVariableTable(ClassfileStream classfileStream, ConstantPool constantPool, int maxLocals, int codeLength,
+                    Map<LocalVariableTable.Entry, LocalVariableTable.Entry> localVariableTableEntries, boolean forLVTT) {
         final int count = classfileStream.readUnsigned2();
         if (count == 0) {
             return localVariableTableEntries;
@@ -603,6 +616,127 @@ public final class ClassfileReader {
     }
     // CheckStyle: resume parameter assignment check
 
+    /**
+     * Merges the entries read from the LocalVariableTable and LocalVariableTypeTable attributes of a method.
+     */
+    static LocalVariableTable mergeLocalVariableTables(Map<LocalVariableTable.Entry, LocalVariableTable.Entry> localVariableTableEntries,
+                    Map<LocalVariableTable.Entry, LocalVariableTable.Entry> localVariableTypeTableEntries) {
+        if (localVariableTypeTableEntries != null) {
+            if (localVariableTableEntries == null) {
+                throw classFormatError("LocalVariableTypeTable attribute present without LocalVariableTable");
+            }
+            for (LocalVariableTable.Entry lvttEntry : localVariableTypeTableEntries.values()) {
+                final LocalVariableTable.Entry lvtEntry = localVariableTableEntries.get(lvttEntry);
+                if (lvtEntry == null) {
+                    throw classFormatError("LocalVariableTypeTable entry does not match any LocalVariableTable entry");
+                }
+                lvtEntry.copySignatureIndex(lvttEntry);
+            }
+        }
+
+        if (localVariableTableEntries != null) {
+            return new LocalVariableTable(localVariableTableEntries.values());
+        }
+        return LocalVariableTable.EMPTY;
+    }
+
+    /**
+     * Copies a LineNumberTable, LocalVariableTable or LocalVariableTypeTable attribute without decoding it.
+     * The copy is prefixed by a tag denoting the kind of attribute.
+     *
+     * @param rawDebugTables the stream to which the copy is appended or {@code null} if a new stream is to be created
+     * @param tag one of {@link CodeAttribute#LINE_NUMBER_TABLE}, {@link CodeAttribute#LOCAL_VARIABLE_TABLE} or
+     *            {@link CodeAttribute#LOCAL_VARIABLE_TYPE_TABLE}
+     * @param entrySize the size in bytes of an entry in the attribute's table
+     */
+    private ByteArrayOutputStream copyDebugTable(ByteArrayOutputStream rawDebugTables, int tag, int entrySize) {
+        final int count = classfileStream.readUnsigned2();
+        final byte[] entries = classfileStream.readByteArray(count * entrySize);
+        final ByteArrayOutputStream out = rawDebugTables == null ? new ByteArrayOutputStream(entries.length + 3) : rawDebugTables;
+        out.write(tag);
+        out.write(count >> 8);
+        out.write(count);
+        out.write(entries, 0, entries.length);
+        return out;
+    }
+
+    /**
+     * Performs the format checks that decoding the debug tables {@linkplain #copyDebugTable copied} for a method would
+     * perform, so that a malformed table still causes a {@link ClassFormatError} when the class is loaded. Unlike
+     * decoding, this builds no {@link LineNumberTable}, {@link LocalVariableTable} or table entry objects.
+     *
+     * @param rawDebugTables the copied tables in the format described by {@link CodeAttribute#rawDebugTables}
+     */
+    private void checkDebugTables(byte[] rawDebugTables, int maxLocals, int codeLength) {
+        // The key of a local variable entry is its start_pc, length and index, which is what makes entries duplicates
+        // of each other and what matches a LocalVariableTypeTable entry with a LocalVariableTable entry.
+        long[] lvtKeys = null;
+        long[] lvttKeys = null;
+        int lvtCount = 0;
+        int lvttCount = 0;
+        final ClassfileStream stream = new ClassfileStream(rawDebugTables);
+        while (!stream.isAtEndOfFile()) {
+            final int tag = stream.readUnsigned1();
+            final int count = stream.readUnsigned2();
+            if (tag == CodeAttribute.LINE_NUMBER_TABLE) {
+                for (int i = 0; i != count; ++i) {
+                    final int bci = stream.readUnsigned2();
+                    stream.readUnsigned2();
+                    if (bci >= codeLength) {
+                        throw classFormatError("Invalid address in LineNumberTable entry " + i);
+                    }
+                }
+                continue;
+            }
+            final boolean forLVTT = tag == CodeAttribute.LOCAL_VARIABLE_TYPE_TABLE;
+            long[] keys = forLVTT ? lvttKeys : lvtKeys;
+            int n = forLVTT ? lvttCount : lvtCount;
+            keys = keys == null ? new long[count] : Arrays.copyOf(keys, n + count);
+            for (int i = 0; i != count; ++i) {
+                final char startBCI = (char) stream.readUnsigned2();
+                final char length = (char) stream.readUnsigned2();
+                final char nameIndex = (char) stream.readUnsigned2();
+                final char descriptorIndex = (char) stream.readUnsigned2();
+                final char slot = (char) stream.readUnsigned2();
+                LocalVariableTable.Entry.verify(constantPool, startBCI, length, slot, nameIndex, descriptorIndex, codeLength, maxLocals, forLVTT);
+                keys[n++] = ((long) startBCI << 32) | ((long) length << 16) | slot;
+            }
+            if (forLVTT) {
+                lvttKeys = keys;
+                lvttCount = n;
+            } else {
+                lvtKeys = keys;
+                lvtCount = n;
+            }
+        }
+        checkNoDuplicates(lvtKeys, lvtCount, "LocalVariableTable");
+        checkNoDuplicates(lvttKeys, lvttCount, "LocalVariableTypeTable");
+        if (lvttCount != 0) {
+            if (lvtCount == 0) {
+                throw classFormatError("LocalVariableTypeTable attribute present without LocalVariableTable");
+            }
+            for (int i = 0; i != lvttCount; ++i) {
+                if (Arrays.binarySearch(lvtKeys, 0, lvtCount, lvttKeys[i]) < 0) {
+                    throw classFormatError("LocalVariableTypeTable entry does not match any LocalVariableTable entry");
+                }
+            }
+        }
+    }
+
+    /**
+     * Sorts the first {@code count} local variable entry keys in {@code keys} and checks that they are distinct.
+     */
+    private static void checkNoDuplicates(long[] keys, int count, String attributeName) {
+        if (count > 1) {
+            Arrays.sort(keys, 0, count);
+            for (int i = 1; i != count; ++i) {
+                if (keys[i] == keys[i - 1]) {
+                    throw classFormatError("Duplicated " + attributeName + " entry");
+                }
+            }
+        }
+    }
+
     protected CodeAttribute readCodeAttribute(int methodAccessFlags) {
         final char maxStack = (char) classfileStream.readUnsigned2();
         final char maxLocals = (char) classfileStream.readUnsigned2();
@@ -617,10 +751,11 @@ public final class ClassfileReader {
         final ExceptionHandlerEntry[] exceptionHandlerTable = readExceptionHandlerTable(code.length);
 
         LineNumberTable lineNumberTable = LineNumberTable.EMPTY;
-        LocalVariableTable localVariableTable = LocalVariableTable.EMPTY;
+        LocalVariableTable localVariableTable;
         Map<LocalVariableTable.Entry, LocalVariableTable.Entry> localVariableTableEntries = null;
         Map<LocalVariableTable.Entry, LocalVariableTable.Entry> localVariableTypeTableEntries = null;
         StackMapTable stackMapTable = null;
+        ByteArrayOutputStream rawDebugTables = null;
 
         int nAttributes = classfileStream.readUnsigned2();
         while (nAttributes-- != 0) {
@@ -629,17 +764,29 @@ public final class ClassfileReader {
             final int attributeSize = classfileStream.readSize4();
             final int startPosition = classfileStream.getPosition();
             if (attributeName.equals("LineNumberTable")) {
-                lineNumberTable = new LineNumberTable(lineNumberTable, classfileStream, codeLength);
+                if (lazyDebugTables) {
+                    rawDebugTables = copyDebugTable(rawDebugTables, CodeAttribute.LINE_NUMBER_TABLE, 4);
+                } else {
+                    lineNumberTable = new LineNumberTable(lineNumberTable, classfileStream, codeLength);
+                }
             } else if (attributeName.equals("StackMapTable")) {
                 if (stackMapTable != null) {
                     throw classFormatError("Duplicate stack map attribute");
                 }
                 stackMapTable = new StackMapTable(classfileStream, constantPool, attributeSize);
             } else if (attributeName.equals("LocalVariableTable")) {
-                localVariableTableEntries = readLocalVariableTable(maxLocals, codeLength, localVariableTableEntries, false);
+                if (lazyDebugTables) {
+                    rawDebugTables = copyDebugTable(rawDebugTables, CodeAttribute.LOCAL_VARIABLE_TABLE, 10);
+                } else {
+                    localVariableTableEntries = readLocalVariableTable(classfileStream, constantPool, maxLocals, codeLength, localVariableTableEntries, false);
+                }
             } else if (majorVersion >= JAVA_1_5_VERSION) {
                 if (attributeName.equals("LocalVariableTypeTable")) {
-                    localVariableTypeTableEntries = readLocalVariableTable(maxLocals, codeLength, localVariableTypeTableEntries, true);
+                    if (lazyDebugTables) {
+                        rawDebugTables = copyDebugTable(rawDebugTables, CodeAttribute.LOCAL_VARIABLE_TYPE_TABLE, 10);
+                    } else {
+                        localVariableTypeTableEntries = readLocalVariableTable(classfileStream, constantPool, maxLocals, codeLength, localVariableTypeTableEntries, true);
+                    }
                 } else {
                     classfileStream.skip(attributeSize);
                 }
@@ -652,22 +799,23 @@ public final class ClassfileReader {
             }
         }
 
-        if (localVariableTypeTableEntries != null) {
-            if (localVariableTableEntries == null) {
-                throw classFormatError("LocalVariableTypeTable attribute present without LocalVariableTable");
-            }
-            for (LocalVariableTable.Entry lvttEntry : localVariableTypeTableEntries.values()) {
-                final LocalVariableTable.Entry lvtEntry = localVariableTableEntries.get(lvttEntry);
-                if (lvtEntry == null) {
-                    throw classFormatError("LocalVariableTypeTable entry does not match any LocalVariableTable entry");
-                }
-                lvtEntry.copySignatureIndex(lvttEntry);
+        if (lazyDebugTables) {
+            byte[] raw = null;
+            if (rawDebugTables != null) {
+                raw = rawDebugTables.toByteArray();
+                checkDebugTables(raw, maxLocals, codeLength);
             }
+            return new CodeAttribute(
+                            constantPool,
+                            code,
+                            maxStack,
+                            maxLocals,
+                            exceptionHandlerTable,
+                            raw,
+                            stackMapTable);
         }
 
-        if (localVariableTableEntries != null) {
-            localVariableTable = new LocalVariableTable(localVariableTableEntries.values());
-        }
+        localVariableTable = mergeLocalVariableTables(localVariableTableEntries, localVariableTypeTableEntries);
 
         return new CodeAttribute(
                         constantPool,
@@ -1321,6 +1469,7 @@ public final class ClassfileReader {
         verifyVersion(majorVersionChar, minorVersionChar);
         constantPool = new ConstantPool(classLoader, classfileStream, majorVersionChar);
         majorVersion = majorVersionChar;
+        lazyDebugTables = LazyDebugTables && !MaxineVM.isHosted();
 
         classFlags = classfileStream.readUnsigned2();
 
@@ -1767,6 +1916,9 @@ public final class ClassfileReader {
         final ClassActor definedClassActor = ClassRegistry.define(classActor);
 
         if (!MaxineVM.isHosted()) {
+            if (definedClassActor == classActor) {
+                VerificationCache.classDefined(classActor, bytes, offset, length);
+            }
             // Maxine is unable to usefully distinguish CLASS_LOAD and CLASS_PREPARE events which, for example, JVMTI distinguishes,
             // as we need a ClassActor in order to create a Class object, so we just have the one event.
             VMTI.handler().classLoad(definedClassActor);
@@ -24,6 +24,7 @@
 package com.sun.max.vm.classfile;
 
 import java.io.*;
+import java.util.*;
 
 import com.sun.cri.bytecode.*;
 import com.sun.cri.ci.*;
@@ -54,6 +55,21 @@ public final class CodeAttribute {
     private final int lineNumberTableOffset;
     private final int localVariableTableOffset;
     private LineNumberTable lineNumberTable;
+    private LocalVariableTable localVariableTable;
+
+    /**
+     * Tags of the class file attributes in {@link #rawDebugTables}.
+     */
+    static final int LINE_NUMBER_TABLE = 1;
+    static final int LOCAL_VARIABLE_TABLE = 2;
+    static final int LOCAL_VARIABLE_TYPE_TABLE = 3;
+
+    /**
+     * The LineNumberTable, LocalVariableTable and LocalVariableTypeTable attributes of this code in class file form,
+     * each prefixed by a one byte tag. This is {@code null} if there are no such attributes or once they have been
+     * {@linkplain #decodeDebugTables() decoded}.
+     */
+    private volatile byte[] rawDebugTables;
 
     public CodeAttribute(ConstantPool constantPool,
                     byte[] code,
@@ -77,7 +93,6 @@ public final class CodeAttribute {
         int localVariableTableOff = -1;
 
         try {
-            dataOutputStream.write(code);
             if (exceptionHandlerTable.length != 0) {
                 exceptionHandlerTableOff = encodingStream.size();
                 ExceptionHandlerEntry.encode(exceptionHandlerTable, dataOutputStream);
@@ -101,22 +116,56 @@ public final class CodeAttribute {
 
     }
 
-    static void writeCharArray(DataOutputStream dataOutputStream, char[] buf) throws IOException {
-        assert buf.length <= Short.MAX_VALUE;
-        dataOutputStream.writeShort(buf.length);
-        for (char c : buf) {
-            dataOutputStream.writeChar(c);
+    /**
+     * Creates a code attribute whose line number and local variable tables are built from their class file form
+     * on first use. The class file attributes must already have been checked by the caller, so only building the
+     * tables is deferred: most methods are never the subject of a stack trace or a debugger request, and their
+     * tables would otherwise be allocated, sorted and re-encoded when the class is loaded.
+     *
+     * @param rawDebugTables the debug tables in the format described by {@link #rawDebugTables} or {@code null} if
+     *            there are none
+     */
+    CodeAttribute(ConstantPool constantPool,
+                    byte[] code,
+                    char maxStack,
+                    char maxLocals,
+                    ExceptionHandlerEntry[] exceptionHandlerTable,
+                    byte[] rawDebugTables,
+                    StackMapTable stackMapTable) {
+        this(constantPool, code, maxStack, maxLocals, exceptionHandlerTable, LineNumberTable.EMPTY, LocalVariableTable.EMPTY, stackMapTable);
+        if (rawDebugTables != null) {
+            this.rawDebugTables = rawDebugTables;
+        } else {
+            this.localVariableTable = LocalVariableTable.EMPTY;
         }
     }
 
-    static char[] readCharArray(DataInputStream dataInputStream) throws IOException {
-        final int length = dataInputStream.readUnsignedShort();
-        assert length != 0;
-        final char[] buf = new char[length];
-        for (int i = 0; i != length; ++i) {
-            buf[i] = dataInputStream.readChar();
+    /**
+     * Builds the tables from the {@link #rawDebugTables}, which were checked when the class was loaded.
+     */
+    private synchronized void decodeDebugTables() {
+        final byte[] raw = rawDebugTables;
+        if (raw == null) {
+            return;
         }
-        return buf;
+        LineNumberTable lineNumbers = LineNumberTable.EMPTY;
+        final ClassfileStream stream = new ClassfileStream(raw);
+        Map<LocalVariableTable.Entry, LocalVariableTable.Entry> localVariableTableEntries = null;
+        Map<LocalVariableTable.Entry, LocalVariableTable.Entry> localVariableTypeTableEntries = null;
+        while (!stream.isAtEndOfFile()) {
+            final int tag = stream.readUnsigned1();
+            if (tag == LINE_NUMBER_TABLE) {
+                lineNumbers = new LineNumberTable(lineNumbers, stream, code.length);
+            } else if (tag == LOCAL_VARIABLE_TABLE) {
+                localVariableTableEntries = ClassfileReader.readLocalVariableTable(stream, cp, maxLocals, code.length, localVariableTableEntries, false);
+            } else {
+                assert tag == LOCAL_VARIABLE_TYPE_TABLE;
+                localVariableTypeTableEntries = ClassfileReader.readLocalVariableTable(stream, cp, maxLocals, code.length, localVariableTypeTableEntries, true);
+            }
+        }
+        lineNumberTable = lineNumbers;
+        localVariableTable = ClassfileReader.mergeLocalVariableTables(localVariableTableEntries, localVariableTypeTableEntries);
+        rawDebugTables = null;
     }
 
     public byte[] code() {
@@ -180,6 +229,9 @@ public final class CodeAttribute {
     }
 
     public LineNumberTable lineNumberTable() {
+        if (rawDebugTables != null) {
+            decodeDebugTables();
+        }
         if (lineNumberTable == null) {
             // cache the line number table
             try {
@@ -192,6 +244,12 @@ public final class CodeAttribute {
     }
 
     public LocalVariableTable localVariableTable() {
+        if (rawDebugTables != null) {
+            decodeDebugTables();
+        }
+        if (localVariableTable != null) {
+            return localVariableTable;
+        }
         try {
             return localVariableTableOffset == -1 ? LocalVariableTable.EMPTY : LocalVariableTable.decode(encodedData(localVariableTableOffset));
         } catch (IOException e) {
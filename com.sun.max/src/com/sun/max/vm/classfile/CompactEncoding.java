@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.sun.max.vm.classfile;
+
+import java.io.*;
+
+/**
+ * Variable length encoding of integers used by the compact {@link LineNumberTable} and {@link LocalVariableTable}
+ * representations. An unsigned value is written 7 bits per byte, least significant group first, with the high bit of
+ * every byte but the last one set. A signed value is zigzag encoded so that values of a small magnitude take a
+ * single byte regardless of their sign.
+ */
+final class CompactEncoding {
+
+    private CompactEncoding() {
+    }
+
+    static void writeUnsigned(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    static void writeSigned(ByteArrayOutputStream out, int value) {
+        writeUnsigned(out, (value << 1) ^ (value >> 31));
+    }
+
+    /**
+     * A cursor for reading values from an encoded byte array.
+     */
+    static final class Decoder {
+        private final byte[] data;
+        private int position;
+
+        Decoder(byte[] data) {
+            this.data = data;
+        }
+
+        boolean hasMore() {
+            return position < data.length;
+        }
+
+        int position() {
+            return position;
+        }
+
+        int readUnsigned() {
+            int b = data[position++];
+            int value = b & 0x7F;
+            int shift = 7;
+            while (b < 0) {
+                b = data[position++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            }
+            return value;
+        }
+
+        int readSigned() {
+            final int value = readUnsigned();
+            return (value >>> 1) ^ -(value & 1);
+        }
+    }
+
+    static void writeByteArray(DataOutputStream dataOutputStream, byte[] data) throws IOException {
+        dataOutputStream.writeInt(data.length);
+        dataOutputStream.write(data);
+    }
+
+    static byte[] readByteArray(DataInputStream dataInputStream) throws IOException {
+        final byte[] data = new byte[dataInputStream.readInt()];
+        dataInputStream.readFully(data);
+        return data;
+    }
+}
@@ -34,6 +34,10 @@ import com.sun.max.vm.classfile.constant.*;
  * Encapsulates the information specified in one or more
  * <a href="http://java.sun.com/docs/books/jvms/second_edition/html/ClassFile.doc.html#22856">LineNumberTable</a>
  * class file attributes.
+ * <p>
+ * The entries are kept sorted by BCI. The entries of a class file table that is not sorted by BCI are therefore
+ * {@linkplain #entries() returned} and {@linkplain #writeAttributeInfo written} in a different order than they
+ * were read.
  */
 public final class LineNumberTable {
 
@@ -58,107 +62,257 @@ public final class LineNumberTable {
 
     public static final LineNumberTable EMPTY = new LineNumberTable(new Entry[0]);
 
-    private final char[] encodedEntries;
+    /**
+     * The number of entries between consecutive {@linkplain #index index} points.
+     */
+    private static final int INDEX_INTERVAL = 16;
+
+    /**
+     * The entries sorted by BCI, with entries for the same BCI in class file order. Each entry is encoded as the
+     * unsigned difference between its BCI and the BCI of the previous entry followed by the signed difference between
+     * its line number and the line number of the previous entry, both in {@linkplain CompactEncoding variable length}
+     * form. The first entry is relative to BCI 0 and line 0. Most entries take 2 bytes.
+     */
+    private final byte[] encodedEntries;
+
+    private final int numberOfEntries;
+
+    /**
+     * A sparse index supporting a binary search for the entry covering a given BCI. For every {@link #INDEX_INTERVAL}'th
+     * entry, this holds the position in {@link #encodedEntries} just after the entry followed by its BCI and line number.
+     * This is {@code null} if there are not more than {@link #INDEX_INTERVAL} entries.
+     */
+    private final int[] index;
+
+    private static int pack(int bci, int lineNumber) {
+        return (bci << 16) | lineNumber;
+    }
+
+    private static int bciOf(int packedEntry) {
+        return packedEntry >>> 16;
+    }
+
+    private static int lineNumberOf(int packedEntry) {
+        return packedEntry & 0xFFFF;
+    }
+
+    /**
+     * Creates a line number table from a set of entries, each {@linkplain #pack(int, int) packed} into an int.
+     */
+    private LineNumberTable(int[] packedEntries) {
+        packedEntries = sortByBCI(packedEntries);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(packedEntries.length * 2);
+        int bci = 0;
+        int lineNumber = 0;
+        for (int packedEntry : packedEntries) {
+            CompactEncoding.writeUnsigned(out, bciOf(packedEntry) - bci);
+            CompactEncoding.writeSigned(out, lineNumberOf(packedEntry) - lineNumber);
+            bci = bciOf(packedEntry);
+            lineNumber = lineNumberOf(packedEntry);
+        }
+        encodedEntries = out.toByteArray();
+        numberOfEntries = packedEntries.length;
+        index = createIndex(encodedEntries, numberOfEntries);
+    }
+
+    /**
+     * Sorts a set of packed entries by BCI. Entries with the same BCI are kept in their original order.
+     */
+    private static int[] sortByBCI(int[] packedEntries) {
+        final long[] keys = new long[packedEntries.length];
+        for (int i = 0; i < packedEntries.length; i++) {
+            keys[i] = ((long) bciOf(packedEntries[i]) << 32) | i;
+        }
+        Arrays.sort(keys);
+        final int[] sortedEntries = new int[packedEntries.length];
+        for (int i = 0; i < keys.length; i++) {
+            sortedEntries[i] = packedEntries[(int) keys[i]];
+        }
+        return sortedEntries;
+    }
+
+    private LineNumberTable(byte[] encodedEntries, int numberOfEntries) {
+        this.encodedEntries = encodedEntries;
+        this.numberOfEntries = numberOfEntries;
+        this.index = createIndex(encodedEntries, numberOfEntries);
+    }
+
+    private static int[] createIndex(byte[] encodedEntries, int numberOfEntries) {
+        if (numberOfEntries <= INDEX_INTERVAL) {
+            return null;
+        }
+        final int[] index = new int[((numberOfEntries + INDEX_INTERVAL - 1) / INDEX_INTERVAL) * 3];
+        final CompactEncoding.Decoder decoder = new CompactEncoding.Decoder(encodedEntries);
+        int bci = 0;
+        int lineNumber = 0;
+        for (int i = 0; i < numberOfEntries; i++) {
+            bci += decoder.readUnsigned();
+            lineNumber += decoder.readSigned();
+            if (i % INDEX_INTERVAL == 0) {
+                final int indexPoint = (i / INDEX_INTERVAL) * 3;
+                index[indexPoint] = decoder.position();
+                index[indexPoint + 1] = bci;
+                index[indexPoint + 2] = lineNumber;
+            }
+        }
+        return index;
+    }
+
+    private int[] packedEntries() {
+        final int[] packedEntries = new int[numberOfEntries];
+        final CompactEncoding.Decoder decoder = new CompactEncoding.Decoder(encodedEntries);
+        int bci = 0;
+        int lineNumber = 0;
+        for (int i = 0; i < numberOfEntries; i++) {
+            bci += decoder.readUnsigned();
+            lineNumber += decoder.readSigned();
+            packedEntries[i] = pack(bci, lineNumber);
+        }
+        return packedEntries;
+    }
 
     public Entry[] entries() {
-        final Entry[] entries = new Entry[encodedEntries.length >> 1];
-        int encodedIndex = 0;
+        final int[] packedEntries = packedEntries();
+        final Entry[] entries = new Entry[numberOfEntries];
         for (int i = 0; i < entries.length; i++) {
-            entries[i] = new Entry(encodedEntries[encodedIndex++], encodedEntries[encodedIndex++]);
+            entries[i] = new Entry((char) bciOf(packedEntries[i]), (char) lineNumberOf(packedEntries[i]));
         }
         return entries;
     }
 
     public LineNumberTable relocate(OpcodeBCIRelocator relocator) {
-        if (encodedEntries.length == 0) {
+        if (numberOfEntries == 0) {
             return this;
         }
-        final char[] relocEncodedEntries = new char[encodedEntries.length];
-        for (int i = 0; i < relocEncodedEntries.length; i += 2) {
-            relocEncodedEntries[i] = (char) relocator.relocate(encodedEntries[i]);
-            relocEncodedEntries[i + 1] = encodedEntries[i + 1];
+        final int[] packedEntries = packedEntries();
+        for (int i = 0; i < packedEntries.length; i++) {
+            packedEntries[i] = pack(relocator.relocate(bciOf(packedEntries[i])), lineNumberOf(packedEntries[i]));
         }
-        return new LineNumberTable(relocEncodedEntries);
+        return new LineNumberTable(packedEntries);
     }
 
     public boolean isEmpty() {
-        return encodedEntries.length == 0;
+        return numberOfEntries == 0;
     }
 
-    LineNumberTable(char[] encodedEntries) {
-        this.encodedEntries = encodedEntries;
+    public LineNumberTable(LineNumberTable prefix, ClassfileStream classfileStream, int codeLength) {
+        this(readEntries(prefix, classfileStream, codeLength));
     }
 
-    public LineNumberTable(LineNumberTable prefix, ClassfileStream classfileStream, int codeLength) {
+    private static int[] readEntries(LineNumberTable prefix, ClassfileStream classfileStream, int codeLength) {
         final int length = classfileStream.readUnsigned2();
-        int encodedIndex;
-        if (prefix.encodedEntries.length == 0) {
-            encodedEntries = new char[length * 2];
-            encodedIndex = 0;
-        } else {
-            encodedIndex = prefix.encodedEntries.length;
-            encodedEntries = Arrays.copyOf(prefix.encodedEntries, encodedIndex + (length * 2));
-        }
+        final int[] packedEntries = Arrays.copyOf(prefix.packedEntries(), prefix.numberOfEntries + length);
+        int encodedIndex = prefix.numberOfEntries;
         for (int i = 0; i != length; ++i) {
             final char bci = (char) classfileStream.readUnsigned2();
             final char lineNumber = (char) classfileStream.readUnsigned2();
             if (bci >= codeLength) {
                 throw classFormatError("Invalid address in LineNumberTable entry " + i);
             }
-            encodedEntries[encodedIndex++] = bci;
-            encodedEntries[encodedIndex++] = lineNumber;
+            packedEntries[encodedIndex++] = pack(bci, lineNumber);
         }
+        return packedEntries;
     }
 
     public LineNumberTable(Entry[] entries) {
-        encodedEntries = new char[entries.length * 2];
-        int encodedIndex = 0;
-        for (Entry entry : entries) {
-            encodedEntries[encodedIndex++] = entry.bci;
-            encodedEntries[encodedIndex++] = entry.lineNumber;
+        this(packEntries(entries));
+    }
+
+    private static int[] packEntries(Entry[] entries) {
+        final int[] packedEntries = new int[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            packedEntries[i] = pack(entries[i].bci, entries[i].lineNumber);
         }
+        return packedEntries;
     }
 
     /**
-     * Gets the source line number corresponding to a given BCI.
+     * Gets the source line number corresponding to a given BCI. This is the line number of the entry with the
+     * greatest BCI that is not greater than {@code bci}. If there are several entries with that BCI, the last one in
+     * class file order is used, as by a linear scan of a table sorted by BCI. The entry is located with a binary
+     * search of the {@linkplain #index index} followed by decoding at most {@link #INDEX_INTERVAL} entries.
      *
      * @param bci
      * @return -1 if this line number table does not containing a source line mapping for {@code bci}
      */
     public int findLineNumber(int bci) {
+        final byte[] data = encodedEntries;
+        int position = 0;
+        int entryBCI = 0;
+        int entryLineNumber = 0;
         int lineNumber = -1;
-        if (encodedEntries.length != 0) {
-            int index = 0;
-            while (index != encodedEntries.length) {
-                final int e = encodedEntries[index++];
-                if (e > bci) {
-                    break;
+        int remaining = numberOfEntries;
+        if (index != null) {
+            int low = 0;
+            int high = index.length / 3 - 1;
+            int indexPoint = -1;
+            while (low <= high) {
+                final int middle = (low + high) >>> 1;
+                if (index[middle * 3 + 1] <= bci) {
+                    indexPoint = middle;
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
                 }
-                lineNumber = encodedEntries[index++];
             }
+            if (indexPoint < 0) {
+                return -1;
+            }
+            position = index[indexPoint * 3];
+            entryBCI = index[indexPoint * 3 + 1];
+            entryLineNumber = index[indexPoint * 3 + 2];
+            lineNumber = entryLineNumber;
+            remaining = Math.min(INDEX_INTERVAL, numberOfEntries - indexPoint * INDEX_INTERVAL) - 1;
+        }
+        while (remaining-- > 0) {
+            // Decoding is inlined here as this is on the path of stack trace construction
+            int b = data[position++];
+            int delta = b & 0x7F;
+            int shift = 7;
+            while (b < 0) {
+                b = data[position++];
+                delta |= (b & 0x7F) << shift;
+                shift += 7;
+            }
+            entryBCI += delta;
+            if (entryBCI > bci) {
+                break;
+            }
+            b = data[position++];
+            delta = b & 0x7F;
+            shift = 7;
+            while (b < 0) {
+                b = data[position++];
+                delta |= (b & 0x7F) << shift;
+                shift += 7;
+            }
+            entryLineNumber += (delta >>> 1) ^ -(delta & 1);
+            lineNumber = entryLineNumber;
         }
         return lineNumber;
     }
 
     @Override
     public String toString() {
-        final StringBuilder sb = new StringBuilder(encodedEntries.length * 10);
+        final StringBuilder sb = new StringBuilder(numberOfEntries * 10);
         sb.append('[');
-        for (int i = 0; i != encodedEntries.length; i += 2) {
+        for (int packedEntry : packedEntries()) {
             if (sb.length() != 1) {
                 sb.append(", ");
             }
-            sb.append((int) encodedEntries[i]).append(':').append((int) encodedEntries[i + 1]);
+            sb.append(bciOf(packedEntry)).append(':').append(lineNumberOf(packedEntry));
         }
         return sb.append(']').toString();
     }
 
     public void encode(DataOutputStream dataOutputStream) throws IOException {
-        CodeAttribute.writeCharArray(dataOutputStream, encodedEntries);
+        dataOutputStream.writeShort(numberOfEntries);
+        CompactEncoding.writeByteArray(dataOutputStream, encodedEntries);
     }
 
     public static LineNumberTable decode(DataInputStream dataInputStream) throws IOException {
-        return new LineNumberTable(CodeAttribute.readCharArray(dataInputStream));
+        final int numberOfEntries = dataInputStream.readUnsignedShort();
+        return new LineNumberTable(CompactEncoding.readByteArray(dataInputStream), numberOfEntries);
     }
 
     /**
@@ -170,9 +324,10 @@ public final class LineNumberTable {
      * @param constantPoolEditor
      */
     public void writeAttributeInfo(DataOutputStream stream, ConstantPoolEditor constantPoolEditor) throws IOException {
-        stream.writeShort(encodedEntries.length >> 1);
-        for (char c : encodedEntries) {
-            stream.writeShort(c);
+        stream.writeShort(numberOfEntries);
+        for (int packedEntry : packedEntries()) {
+            stream.writeShort(bciOf(packedEntry));
+            stream.writeShort(lineNumberOf(packedEntry));
         }
     }
 }
@@ -127,7 +127,15 @@ public final class LocalVariableTable {
         }
 
         public void verify(ConstantPool constantPool, int codeLength, int maxLocals, boolean forLVTT) {
-            name(constantPool);
+            verify(constantPool, startBCI, length, slot, nameIndex, descriptorIndex, codeLength, maxLocals, forLVTT);
+        }
+
+        /**
+         * Checks the fields of an entry in a LocalVariableTable or LocalVariableTypeTable attribute without creating
+         * an {@link Entry} for it.
+         */
+        public static void verify(ConstantPool constantPool, int startBCI, int length, int slot, int nameIndex, int descriptorIndex, int codeLength, int maxLocals, boolean forLVTT) {
+            constantPool.utf8At(nameIndex, "local variable name");
             if (startBCI >= codeLength) {
                 throw classFormatError("Invalid start_pc (" + startBCI + ") in LocalVariableTable");
             }
@@ -136,7 +144,7 @@ public final class LocalVariableTable {
                 throw classFormatError("Invalid length (" + length + ") in LocalVariableTable");
             }
             if (!forLVTT) {
-                final TypeDescriptor descriptor = descriptor(constantPool);
+                final TypeDescriptor descriptor = JavaTypeDescriptor.parseTypeDescriptor(constantPool.utf8At(descriptorIndex, "local variable type").toString());
                 final int index = (!descriptor.toKind().isCategory1) ? slot + 1 : slot;
                 if (index >= maxLocals) {
                     throw classFormatError("Invalid local variable index (" + slot + ") in LocalVariableTable");
@@ -150,82 +158,81 @@ public final class LocalVariableTable {
         }
     }
 
-    public static final LocalVariableTable EMPTY = new LocalVariableTable(new char[] {0});
+    public static final LocalVariableTable EMPTY = new LocalVariableTable(Collections.<Entry>emptyList());
 
     /**
-     * An encoded local variable table. The format is as follows:
+     * The entries in {@linkplain CompactEncoding variable length} form. Each entry is encoded as follows:
      * <p>
      *
      * <pre>
-     * encoded_entries {
-     *     u2 number_of_entries_with_a_signature;
-     *     {
-     *         u2 start_bci;
-     *         u2 length;
-     *         u2 slot;
-     *         u2 name_index;
-     *         u2 descriptor_index;
-     *         u2 signature_index;
-     *     } entries[number_of_entries]
+     * encoded_entry {
+     *     signed   start_bci - previous_start_bci;
+     *     unsigned length;
+     *     unsigned slot;
+     *     signed   name_index - previous_name_index;
+     *     signed   descriptor_index - previous_descriptor_index;
+     *     unsigned signature_index;
      * }
      * </pre>
+     *
+     * The first entry is relative to 0 for all the delta encoded fields. Entries are kept in the order in which they
+     * were given to the constructor.
      */
-    private final char[] encodedEntries;
+    private final byte[] encodedEntries;
+
+    private final int numberOfEntries;
 
-    private static final int ENCODED_START_BCI = 0;
-    private static final int ENCODED_LENGTH = 1;
-    private static final int ENCODED_SLOT = 2;
-    private static final int ENCODED_NAME_INDEX = 3;
-    private static final int ENCODED_DESCRIPTOR_INDEX = 4;
-    private static final int ENCODED_SIGNATURE_INDEX = 5;
+    private final int numberOfEntriesWithSignature;
 
-    LocalVariableTable(char[] encodedEntries) {
-        assert encodedEntries.length >= 1;
+    private LocalVariableTable(byte[] encodedEntries, int numberOfEntries, int numberOfEntriesWithSignature) {
         this.encodedEntries = encodedEntries;
+        this.numberOfEntries = numberOfEntries;
+        this.numberOfEntriesWithSignature = numberOfEntriesWithSignature;
     }
 
     public LocalVariableTable(Collection<Entry> entries) {
-        encodedEntries = new char[(entries.size() * 6) + 1];
-        int i = 1;
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(entries.size() * 6);
+        int startBCI = 0;
+        int nameIndex = 0;
+        int descriptorIndex = 0;
+        int withSignature = 0;
         for (Entry entry : entries) {
-            encodedEntries[i + ENCODED_START_BCI] = entry.startBCI;
-            encodedEntries[i + ENCODED_LENGTH] = entry.length;
-            encodedEntries[i + ENCODED_SLOT] = entry.slot;
-            encodedEntries[i + ENCODED_NAME_INDEX] = entry.nameIndex;
-            encodedEntries[i + ENCODED_DESCRIPTOR_INDEX] = entry.descriptorIndex;
-            encodedEntries[i + ENCODED_SIGNATURE_INDEX] = entry.signatureIndex;
-            i += 6;
+            CompactEncoding.writeSigned(out, entry.startBCI - startBCI);
+            CompactEncoding.writeUnsigned(out, entry.length);
+            CompactEncoding.writeUnsigned(out, entry.slot);
+            CompactEncoding.writeSigned(out, entry.nameIndex - nameIndex);
+            CompactEncoding.writeSigned(out, entry.descriptorIndex - descriptorIndex);
+            CompactEncoding.writeUnsigned(out, entry.signatureIndex);
+            startBCI = entry.startBCI;
+            nameIndex = entry.nameIndex;
+            descriptorIndex = entry.descriptorIndex;
             if (entry.signatureIndex != 0) {
-                encodedEntries[0]++;
+                withSignature++;
             }
         }
+        encodedEntries = out.toByteArray();
+        numberOfEntries = entries.size();
+        numberOfEntriesWithSignature = withSignature;
     }
 
     public LocalVariableTable relocate(OpcodeBCIRelocator relocator) {
-        if (encodedEntries.length == 1) {
+        if (numberOfEntries == 0) {
             return this;
         }
-        final char[] relocEncodedEntries = new char[this.encodedEntries.length];
-        relocEncodedEntries[0] = relocEncodedEntries[0];
-        for (int i = 1; i != relocEncodedEntries.length; i += 6) {
-            final char startBCI = relocEncodedEntries[i + ENCODED_START_BCI];
-            final char length = relocEncodedEntries[i + ENCODED_LENGTH];
-            final char relocatedEndBCI = (char) relocator.relocate(startBCI + length);
+        final Entry[] entries = entries();
+        for (int i = 0; i != entries.length; i++) {
+            final Entry entry = entries[i];
+            final char relocatedEndBCI = (char) relocator.relocate(entry.startBCI + entry.length);
             // Special case for start address 0: only parameters can be defined at 0
-            final char relocatedStartBCI = startBCI == 0 ? 0 : (char) relocator.relocate(startBCI);
+            final char relocatedStartBCI = entry.startBCI == 0 ? 0 : (char) relocator.relocate(entry.startBCI);
             final char relocatedLength = (char) (relocatedEndBCI - relocatedStartBCI);
-            relocEncodedEntries[i + ENCODED_START_BCI] = relocatedStartBCI;
-            relocEncodedEntries[i + ENCODED_LENGTH] = relocatedLength;
-            relocEncodedEntries[i + ENCODED_SLOT] = relocEncodedEntries[i + ENCODED_SLOT];
-            relocEncodedEntries[i + ENCODED_NAME_INDEX] = relocEncodedEntries[i + ENCODED_NAME_INDEX];
-            relocEncodedEntries[i + ENCODED_DESCRIPTOR_INDEX] = relocEncodedEntries[i + ENCODED_DESCRIPTOR_INDEX];
-            relocEncodedEntries[i + ENCODED_SIGNATURE_INDEX] = relocEncodedEntries[i + ENCODED_SIGNATURE_INDEX];
+            entries[i] = new Entry(relocatedStartBCI, relocatedLength, entry.slot, entry.nameIndex, entry.descriptorIndex, entry.signatureIndex);
         }
-        return new LocalVariableTable(relocEncodedEntries);
+        return new LocalVariableTable(Arrays.asList(entries));
     }
 
     public int numberOfEntries() {
-        return (encodedEntries.length - 1) / 6;
+        return numberOfEntries;
     }
 
     /**
@@ -233,11 +240,11 @@ public final class LocalVariableTable {
      * That is, how many entries in this table are derived from a LocalVariableTypeTable class file attribute.
      */
     public int numberOfEntriesWithSignature() {
-        return encodedEntries[0];
+        return numberOfEntriesWithSignature;
     }
 
     public boolean isEmpty() {
-        return encodedEntries.length == 1;
+        return numberOfEntries == 0;
     }
 
     /**
@@ -251,19 +258,21 @@ public final class LocalVariableTable {
      *         do not denote a live local variable, then null is returned.
      */
     public Entry findLocalVariable(int index, int bci) {
-        if (encodedEntries.length != 1) {
-            for (int i = 1; i != encodedEntries.length; i += 6) {
-                final char thisSlot = encodedEntries[i + ENCODED_SLOT];
-                if (thisSlot == index) {
-                    final char thisStartBCI = encodedEntries[i + ENCODED_START_BCI];
-                    final char thisLength = encodedEntries[i + ENCODED_LENGTH];
-                    final char thisEndBCI = (char) (thisStartBCI + thisLength);
-                    if (bci >= thisStartBCI && bci <= thisEndBCI) {
-                        final char thisNameIndex = encodedEntries[i + ENCODED_NAME_INDEX];
-                        final char thisDescriptorIndex = encodedEntries[i + ENCODED_DESCRIPTOR_INDEX];
-                        final char thisSignatureIndex = encodedEntries[i + ENCODED_SIGNATURE_INDEX];
-                        return new Entry(thisStartBCI, thisLength, thisSlot, thisNameIndex, thisDescriptorIndex, thisSignatureIndex);
-                    }
+        final CompactEncoding.Decoder decoder = new CompactEncoding.Decoder(encodedEntries);
+        int startBCI = 0;
+        int nameIndex = 0;
+        int descriptorIndex = 0;
+        for (int i = 0; i != numberOfEntries; i++) {
+            startBCI += decoder.readSigned();
+            final int length = decoder.readUnsigned();
+            final int slot = decoder.readUnsigned();
+            nameIndex += decoder.readSigned();
+            descriptorIndex += decoder.readSigned();
+            final int signatureIndex = decoder.readUnsigned();
+            if (slot == index) {
+                final char endBCI = (char) (startBCI + length);
+                if (bci >= startBCI && bci <= endBCI) {
+                    return new Entry((char) startBCI, (char) length, (char) slot, (char) nameIndex, (char) descriptorIndex, (char) signatureIndex);
                 }
             }
         }
@@ -271,15 +280,19 @@ public final class LocalVariableTable {
     }
 
     public Entry[] entries() {
-        final Entry[] entries = new Entry[numberOfEntries()];
-        for (int i = 1; i != encodedEntries.length; i += 6) {
-            final char startBCI = encodedEntries[i + ENCODED_START_BCI];
-            final char slot = encodedEntries[i + ENCODED_SLOT];
-            final char length = encodedEntries[i + ENCODED_LENGTH];
-            final char nameIndex = encodedEntries[i + ENCODED_NAME_INDEX];
-            final char descriptorIndex = encodedEntries[i + ENCODED_DESCRIPTOR_INDEX];
-            final char signatureIndex = encodedEntries[i + ENCODED_SIGNATURE_INDEX];
-            entries[i / 6] = new Entry(startBCI, length, slot, nameIndex, descriptorIndex, signatureIndex);
+        final Entry[] entries = new Entry[numberOfEntries];
+        final CompactEncoding.Decoder decoder = new CompactEncoding.Decoder(encodedEntries);
+        int startBCI = 0;
+        int nameIndex = 0;
+        int descriptorIndex = 0;
+        for (int i = 0; i != numberOfEntries; i++) {
+            startBCI += decoder.readSigned();
+            final int length = decoder.readUnsigned();
+            final int slot = decoder.readUnsigned();
+            nameIndex += decoder.readSigned();
+            descriptorIndex += decoder.readSigned();
+            final int signatureIndex = decoder.readUnsigned();
+            entries[i] = new Entry((char) startBCI, (char) length, (char) slot, (char) nameIndex, (char) descriptorIndex, (char) signatureIndex);
         }
         return entries;
     }
@@ -297,11 +310,15 @@ public final class LocalVariableTable {
     }
 
     public void encode(DataOutputStream dataOutputStream) throws IOException {
-        CodeAttribute.writeCharArray(dataOutputStream, encodedEntries);
+        dataOutputStream.writeShort(numberOfEntries);
+        dataOutputStream.writeShort(numberOfEntriesWithSignature);
+        CompactEncoding.writeByteArray(dataOutputStream, encodedEntries);
     }
 
     public static LocalVariableTable decode(DataInputStream dataInputStream) throws IOException {
-        return new LocalVariableTable(CodeAttribute.readCharArray(dataInputStream));
+        final int numberOfEntries = dataInputStream.readUnsignedShort();
+        final int numberOfEntriesWithSignature = dataInputStream.readUnsignedShort();
+        return new LocalVariableTable(CompactEncoding.readByteArray(dataInputStream), numberOfEntries, numberOfEntriesWithSignature);
     }
 
     /**
@@ -313,14 +330,13 @@ public final class LocalVariableTable {
      * @param constantPoolEditor
      */
     public void writeLocalVariableTableAttributeInfo(DataOutputStream stream, ConstantPoolEditor constantPoolEditor) throws IOException {
-        final int numberOfEntries = numberOfEntries();
         stream.writeShort(numberOfEntries);
-        for (int i = 1; i != encodedEntries.length; i += 6) {
-            stream.writeShort(encodedEntries[i + ENCODED_START_BCI]);
-            stream.writeShort(encodedEntries[i + ENCODED_LENGTH]);
-            stream.writeShort(encodedEntries[i + ENCODED_NAME_INDEX]);
-            stream.writeShort(encodedEntries[i + ENCODED_DESCRIPTOR_INDEX]);
-            stream.writeShort(encodedEntries[i + ENCODED_SLOT]);
+        for (Entry entry : entries()) {
+            stream.writeShort(entry.startBCI);
+            stream.writeShort(entry.length);
+            stream.writeShort(entry.nameIndex);
+            stream.writeShort(entry.descriptorIndex);
+            stream.writeShort(entry.slot);
         }
     }
 
@@ -335,14 +351,13 @@ public final class LocalVariableTable {
     public void writeLocalVariableTypeTableAttributeInfo(DataOutputStream stream, ConstantPoolEditor constantPoolEditor) throws IOException {
         int numberOfEntries = numberOfEntriesWithSignature();
         stream.writeShort(numberOfEntries);
-        for (int i = 1; i != encodedEntries.length; i += 6) {
-            final int signatureIndex = encodedEntries[i + ENCODED_SIGNATURE_INDEX];
-            if (signatureIndex != 0) {
-                stream.writeShort(encodedEntries[i + ENCODED_START_BCI]);
-                stream.writeShort(encodedEntries[i + ENCODED_LENGTH]);
-                stream.writeShort(encodedEntries[i + ENCODED_NAME_INDEX]);
-                stream.writeShort(signatureIndex);
-                stream.writeShort(encodedEntries[i + ENCODED_SLOT]);
+        for (Entry entry : entries()) {
+            if (entry.signatureIndex != 0) {
+                stream.writeShort(entry.startBCI);
+                stream.writeShort(entry.length);
+                stream.writeShort(entry.nameIndex);
+                stream.writeShort(entry.signatureIndex);
+                stream.writeShort(entry.slot);
                 --numberOfEntries;
             }
         }
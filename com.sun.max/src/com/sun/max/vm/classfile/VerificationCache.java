@@ -0,0 +1,507 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.sun.max.vm.classfile;
+
+import static com.sun.max.vm.VMOptions.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.security.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import com.sun.max.util.*;
+import com.sun.max.vm.*;
+import com.sun.max.vm.actor.holder.*;
+import com.sun.max.vm.type.*;
+
+/**
+ * A persistent cache of bytecode verification results, enabled with {@link #verificationCache}. The cache records,
+ * for every class defined by the {@linkplain ClassLoader#getSystemClassLoader() system class loader} that passed
+ * bytecode verification, the class name together with the SHA-256 digest of its class file bytes. A later run skips
+ * verification of any class whose class file matches its cached digest. Classes are still parsed from their class
+ * files; only the verification results are cached.
+ * <p>
+ * Verification of a class depends on the other classes it refers to. The cache entry of a class therefore also
+ * records the digests of the system class loader classes that the verifier resolved, together with their supertypes
+ * and the supertypes of the class itself. An entry is only used if each of these classes still has the same
+ * digest, where a class not yet defined by a run is digested from the class file its loader would define it from.
+ * Classes on the class path are thus compared by content whether they come from a directory or a jar. Classes
+ * defined by the boot and extension class loaders are not digested; a cache is only used with the same JDK and VM
+ * as the run that wrote it. A class whose verification resolved a class of any other loader is not cached. Class
+ * files older than version 50.0 are never cached as their verification also inlines {@code jsr} subroutines.
+ * <p>
+ * The cache file is used if it exists. It is {@linkplain FileChannel#map mapped} read-only and its entries are looked
+ * up in place. On exit it is rewritten with the classes verified by the current run added to the entries of the
+ * classes that were not loaded by the current run.
+ */
+public final class VerificationCache {
+
+    private VerificationCache() {
+    }
+
+    static final int MAGIC = 0x4d585643; // "MXVC"
+    static final int VERSION = 2;
+
+    /**
+     * The length in bytes of a class file digest.
+     */
+    static final int DIGEST_LENGTH = 32;
+
+    /**
+     * Entry flag denoting a class that passed verification in the training run.
+     */
+    static final int VERIFIED = 0x1;
+
+    public static VMStringOption verificationCache = VMOptions.register(new VMStringOption("-XX:VerificationCache=", false, null,
+        "Use the given verification cache if it exists to skip verification, and update it with the classes verified by this run."), MaxineVM.Phase.STARTING);
+
+    /**
+     * A cache entry for a verified class.
+     */
+    static final class Entry {
+        final byte[] digest;
+        final String[] dependencyNames;
+        final byte[][] dependencyDigests;
+
+        Entry(byte[] digest, String[] dependencyNames, byte[][] dependencyDigests) {
+            this.digest = digest;
+            this.dependencyNames = dependencyNames;
+            this.dependencyDigests = dependencyDigests;
+        }
+    }
+
+    /**
+     * The loader whose classes are cached, or {@code null} if the cache is not in use.
+     */
+    private static ClassLoader cachedLoader;
+
+    /**
+     * The mapped cache file being used, or {@code null}.
+     */
+    private static ByteBuffer cache;
+
+    /**
+     * Maps class names to the position of their entry in {@link #cache}.
+     */
+    private static Map<String, Integer> cacheIndex;
+
+    /**
+     * Digests of the classes defined in this run, keyed by class name.
+     */
+    private static ConcurrentHashMap<String, byte[]> definedDigests;
+
+    /**
+     * Digests of the class files of classes not defined in this run, keyed by class name.
+     * A class without a class file is mapped to a zero length array.
+     */
+    private static ConcurrentHashMap<String, byte[]> classFileDigests;
+
+    /**
+     * Entries of the classes verified in this run, keyed by class name.
+     */
+    private static ConcurrentHashMap<String, Entry> verifiedEntries;
+
+    /**
+     * Opens the cache specified by {@link #verificationCache} if it exists and arranges for it to be rewritten on exit.
+     * This must be called once the system class loader is available and before any application class is loaded.
+     */
+    public static void initialize() {
+        final String cacheFile = verificationCache.getValue();
+        if (cacheFile == null) {
+            return;
+        }
+        try {
+            // Load the digest implementation now rather than while an application class is being defined
+            MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            Log.println("[Verification cache not used: " + e.getMessage() + "]");
+            return;
+        }
+        final File file = new File(cacheFile);
+        if (file.exists()) {
+            try {
+                map(file);
+            } catch (IOException e) {
+                Log.println("[Verification cache " + cacheFile + " not used: " + e.getMessage() + "]");
+            }
+        }
+        definedDigests = new ConcurrentHashMap<String, byte[]>();
+        classFileDigests = new ConcurrentHashMap<String, byte[]>();
+        verifiedEntries = new ConcurrentHashMap<String, Entry>();
+        Runtime.getRuntime().addShutdownHook(new Thread("VerificationCacheWriter") {
+            @Override
+            public void run() {
+                dump(file);
+            }
+        });
+        cachedLoader = ClassLoader.getSystemClassLoader();
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new InternalError(e.toString());
+        }
+    }
+
+    private static byte[] digest(byte[] bytes, int offset, int length) {
+        final MessageDigest md = newDigest();
+        md.update(bytes, offset, length);
+        return md.digest();
+    }
+
+    /**
+     * Gets the digest of a class as defined in this run or, if it has not been defined, of the class file from which
+     * the cached loader would define it.
+     *
+     * @return the digest or a zero length array if the class has no class file
+     */
+    private static byte[] currentDigest(String name) {
+        byte[] digest = definedDigests.get(name);
+        if (digest != null) {
+            return digest;
+        }
+        digest = classFileDigests.get(name);
+        if (digest == null) {
+            digest = new byte[0];
+            final InputStream in = cachedLoader.getResourceAsStream(name.replace('.', '/') + ".class");
+            if (in != null) {
+                try {
+                    final MessageDigest md = newDigest();
+                    final byte[] buffer = new byte[8192];
+                    int n;
+                    while ((n = in.read(buffer)) > 0) {
+                        md.update(buffer, 0, n);
+                    }
+                    digest = md.digest();
+                } catch (IOException e) {
+                    // treated as a class without a class file
+                } finally {
+                    try {
+                        in.close();
+                    } catch (IOException e) {
+                    }
+                }
+            }
+            classFileDigests.put(name, digest);
+        }
+        return digest;
+    }
+
+    private static boolean isCacheable(ClassActor classActor) {
+        return cachedLoader != null && classActor.classLoader == cachedLoader && classActor.majorVersion >= 50;
+    }
+
+    /**
+     * Notifies the cache that a class has been defined from some given class file bytes. If the class matches an
+     * entry in the cache that was verified and all the classes its verification depended on are unchanged, the
+     * class is marked as {@linkplain ClassActor#doNotVerify() not needing verification}.
+     */
+    static void classDefined(ClassActor classActor, byte[] bytes, int offset, int length) {
+        if (!isCacheable(classActor)) {
+            return;
+        }
+        final byte[] digest = digest(bytes, offset, length);
+        final String name = classActor.name.toString();
+        definedDigests.put(name, digest);
+        if (cache != null) {
+            final Integer position = cacheIndex.get(name);
+            if (position != null) {
+                final Entry entry = readEntry(cache.duplicate(), position);
+                if (entry != null && Arrays.equals(entry.digest, digest) && dependenciesUnchanged(entry)) {
+                    classActor.doNotVerify();
+                    verifiedEntries.put(name, entry);
+                }
+            }
+        }
+    }
+
+    private static boolean dependenciesUnchanged(Entry entry) {
+        for (int i = 0; i < entry.dependencyNames.length; i++) {
+            if (!Arrays.equals(entry.dependencyDigests[i], currentDigest(entry.dependencyNames[i]))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the set in which the verifier of a given class is to record the classes it resolves.
+     *
+     * @return a thread safe set or {@code null} if the class is not cached
+     */
+    public static Set<ClassActor> resolvedClassesSet(ClassActor classActor) {
+        if (verifiedEntries == null || !isCacheable(classActor)) {
+            return null;
+        }
+        return Collections.newSetFromMap(new ConcurrentHashMap<ClassActor, Boolean>());
+    }
+
+    /**
+     * Determines if a given loader defines classes of the JDK or VM, which are not digested.
+     */
+    private static boolean isRuntimeLoader(ClassLoader classLoader) {
+        if (classLoader == null || classLoader == BootClassLoader.BOOT_CLASS_LOADER || classLoader == VMClassLoader.VM_CLASS_LOADER) {
+            return true;
+        }
+        for (ClassLoader loader = cachedLoader.getParent(); loader != null; loader = loader.getParent()) {
+            if (classLoader == loader) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds a class and its supertypes to the set of classes a verification depends on.
+     *
+     * @return {@code false} if one of the classes was defined by a loader whose classes are not cached
+     */
+    private static boolean addDependency(ClassActor classActor, Set<ClassActor> dependencies) {
+        final ClassActor elementClassActor = classActor.elementClassActor();
+        if (!dependencies.add(elementClassActor)) {
+            return true;
+        }
+        if (elementClassActor.classLoader != cachedLoader) {
+            return isRuntimeLoader(elementClassActor.classLoader);
+        }
+        if (elementClassActor.superClassActor != null && !addDependency(elementClassActor.superClassActor, dependencies)) {
+            return false;
+        }
+        for (InterfaceActor interfaceActor : elementClassActor.localInterfaceActors()) {
+            if (!addDependency(interfaceActor, dependencies)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Notifies the cache that a class has passed bytecode verification.
+     *
+     * @param resolvedClasses the classes resolved by the verifier as recorded in the set obtained from
+     *            {@link #resolvedClassesSet(ClassActor)}
+     */
+    public static void classVerified(ClassActor classActor, Set<ClassActor> resolvedClasses) {
+        if (resolvedClasses == null) {
+            return;
+        }
+        final String name = classActor.name.toString();
+        final byte[] digest = definedDigests.get(name);
+        if (digest == null) {
+            return;
+        }
+        final Set<ClassActor> dependencies = new HashSet<ClassActor>();
+        if (!addDependency(classActor, dependencies)) {
+            return;
+        }
+        for (ClassActor resolvedClass : resolvedClasses) {
+            if (!addDependency(resolvedClass, dependencies)) {
+                return;
+            }
+        }
+        final TreeMap<String, byte[]> dependencyDigests = new TreeMap<String, byte[]>();
+        for (ClassActor dependency : dependencies) {
+            if (dependency != classActor && dependency.classLoader == cachedLoader) {
+                final byte[] dependencyDigest = definedDigests.get(dependency.name.toString());
+                if (dependencyDigest == null) {
+                    // defined by other means than a class file
+                    return;
+                }
+                dependencyDigests.put(dependency.name.toString(), dependencyDigest);
+            }
+        }
+        final String[] names = dependencyDigests.keySet().toArray(new String[dependencyDigests.size()]);
+        final byte[][] digests = dependencyDigests.values().toArray(new byte[dependencyDigests.size()][]);
+        verifiedEntries.put(name, new Entry(digest, names, digests));
+    }
+
+    /**
+     * Computes a description of the JDK and VM that must be the same for a cache to be used.
+     */
+    private static String runtimeStamp() {
+        return System.getProperty("java.home") + "|" + System.getProperty("java.runtime.version") + "|" + System.getProperty("java.vm.version");
+    }
+
+    private static String getString(ByteBuffer buffer) throws Utf8Exception {
+        final byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return Utf8.utf8ToString(false, bytes);
+    }
+
+    private static void putString(DataOutputStream out, String s) throws IOException {
+        final byte[] bytes = Utf8.stringToUtf8(s);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] getDigest(ByteBuffer buffer) {
+        final byte[] digest = new byte[DIGEST_LENGTH];
+        buffer.get(digest);
+        return digest;
+    }
+
+    /**
+     * Reads the entry at a given position of the cache.
+     *
+     * @return the entry or {@code null} if it is not for a verified class
+     */
+    private static Entry readEntry(ByteBuffer buffer, int position) {
+        buffer.position(position);
+        final byte[] digest = getDigest(buffer);
+        final int flags = buffer.getInt();
+        final int dependencyCount = buffer.getInt();
+        if ((flags & VERIFIED) == 0) {
+            return null;
+        }
+        final String[] dependencyNames = new String[dependencyCount];
+        final byte[][] dependencyDigests = new byte[dependencyCount][];
+        try {
+            for (int i = 0; i < dependencyCount; i++) {
+                dependencyNames[i] = getString(buffer);
+                dependencyDigests[i] = getDigest(buffer);
+            }
+        } catch (Utf8Exception e) {
+            // validated by map()
+            return null;
+        }
+        return new Entry(digest, dependencyNames, dependencyDigests);
+    }
+
+    /**
+     * Maps a cache file and builds its index.
+     *
+     * The format of a cache file is:
+     * <pre>
+     *     int magic
+     *     int version
+     *     string runtimeStamp
+     *     int entryCount
+     *     entry[entryCount] {
+     *         string name
+     *         byte[32] digest   // SHA-256 of the class file
+     *         int flags
+     *         int dependencyCount
+     *         dependency[dependencyCount] {
+     *             string name
+     *             byte[32] digest
+     *         }
+     *     }
+     * </pre>
+     * where a string is an int byte count followed by the bytes of the string in modified UTF-8.
+     */
+    private static void map(File file) throws IOException {
+        final RandomAccessFile raf = new RandomAccessFile(file, "r");
+        final ByteBuffer buffer;
+        try {
+            buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+        } finally {
+            raf.close();
+        }
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("not a verification cache or wrong version");
+            }
+            if (!getString(buffer).equals(runtimeStamp())) {
+                throw new IOException("JDK or VM has changed");
+            }
+            final int entryCount = buffer.getInt();
+            final Map<String, Integer> index = new HashMap<String, Integer>(entryCount * 2);
+            for (int i = 0; i < entryCount; i++) {
+                final String name = getString(buffer);
+                index.put(name, buffer.position());
+                buffer.position(buffer.position() + DIGEST_LENGTH + 4);
+                final int dependencyCount = buffer.getInt();
+                for (int j = 0; j < dependencyCount; j++) {
+                    getString(buffer);
+                    buffer.position(buffer.position() + DIGEST_LENGTH);
+                }
+            }
+            cacheIndex = index;
+            cache = buffer;
+        } catch (BufferUnderflowException e) {
+            throw new IOException("truncated verification cache");
+        } catch (IllegalArgumentException e) {
+            throw new IOException("truncated verification cache");
+        } catch (Utf8Exception e) {
+            throw new IOException("malformed verification cache");
+        }
+        if (verboseOption.verboseClass) {
+            Log.println("[Using verification cache " + file + " with " + cacheIndex.size() + " classes]");
+        }
+    }
+
+    /**
+     * Writes the cache to a temporary file that then replaces {@code file}. This leaves a mapping of {@code file}
+     * by this or another VM intact.
+     */
+    private static void dump(File file) {
+        final Map<String, Entry> entries = new TreeMap<String, Entry>(verifiedEntries);
+        if (cache != null) {
+            final ByteBuffer buffer = cache.duplicate();
+            for (Map.Entry<String, Integer> e : cacheIndex.entrySet()) {
+                if (!definedDigests.containsKey(e.getKey())) {
+                    final Entry entry = readEntry(buffer, e.getValue());
+                    if (entry != null) {
+                        entries.put(e.getKey(), entry);
+                    }
+                }
+            }
+        }
+        File tmpFile = null;
+        try {
+            tmpFile = File.createTempFile(file.getName(), ".tmp", file.getAbsoluteFile().getParentFile());
+            final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+            try {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                putString(out, runtimeStamp());
+                out.writeInt(entries.size());
+                for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                    final Entry entry = e.getValue();
+                    putString(out, e.getKey());
+                    out.write(entry.digest);
+                    out.writeInt(VERIFIED);
+                    out.writeInt(entry.dependencyNames.length);
+                    for (int i = 0; i < entry.dependencyNames.length; i++) {
+                        putString(out, entry.dependencyNames[i]);
+                        out.write(entry.dependencyDigests[i]);
+                    }
+                }
+            } finally {
+                out.close();
+            }
+            if (!tmpFile.renameTo(file)) {
+                throw new IOException("could not rename " + tmpFile);
+            }
+            if (verboseOption.verboseClass) {
+                Log.println("[Wrote verification cache " + file + " with " + entries.size() + " classes]");
+            }
+        } catch (IOException e) {
+            if (tmpFile != null) {
+                tmpFile.delete();
+            }
+            Log.println("[Error writing verification cache " + file + ": " + e + "]");
+        }
+    }
+}
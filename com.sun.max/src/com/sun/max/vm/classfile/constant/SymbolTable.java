@@ -24,13 +24,15 @@ package com.sun.max.vm.classfile.constant;
 
 import java.io.*;
 
-import com.sun.max.collect.*;
-import com.sun.max.collect.ChainedHashMapping.Entry;
 import com.sun.max.vm.*;
 
 /**
  * Implementation of symbol and String interning, the latter of which is a Java language requirement.
  *
+ * The table is split into {@linkplain Segment segments} selected by the high bits of a symbol's hash.
+ * Looking up an existing symbol takes no lock. Adding a symbol only locks the segment it belongs to,
+ * so that threads loading classes in parallel rarely contend. A given string is only ever associated
+ * with a single {@link Utf8Constant} so that symbols can be compared by identity.
  */
 public final class SymbolTable {
 
@@ -39,73 +41,154 @@ public final class SymbolTable {
 
     /**
      * The only concrete subclass of {@link Utf8Constant}.
-     * Using a subclass hides the details of storing Utf8Constants in a {@link ChainedHashMapping}.
      */
-    static final class Utf8ConstantEntry extends Utf8Constant implements ChainedHashMapping.Entry<String, Utf8ConstantEntry> {
+    static final class Utf8ConstantEntry extends Utf8Constant {
 
         Utf8ConstantEntry(String value) {
             super(value);
         }
 
-        public String key() {
-            return toString();
+        @Override
+        public void writeOn(DataOutputStream stream, ConstantPoolEditor editor, int index) throws IOException {
+            super.writeOn(stream, editor, index);
+            stream.writeUTF(editor.pool().utf8At(index, null).toString());
         }
+    }
 
-        private Entry<String, Utf8ConstantEntry> next;
+    /**
+     * An immutable link in a hash bucket chain. Chains are only ever extended at their head, and rehashing
+     * creates new nodes, so a reader traversing a chain never observes it being modified.
+     */
+    static final class Node {
+        final int hash;
+        final Utf8ConstantEntry symbol;
+        final Node next;
+
+        Node(int hash, Utf8ConstantEntry symbol, Node next) {
+            this.hash = hash;
+            this.symbol = symbol;
+            this.next = next;
+        }
+    }
+
+    /**
+     * An independently locked and resized part of the symbol table.
+     */
+    static final class Segment {
 
-        public Entry<String, Utf8ConstantEntry> next() {
-            return next;
+        /**
+         * The buckets of this segment. Every update to the buckets is followed by a write of this field
+         * which publishes the update to the unsynchronized readers in {@link #get(String, int)}.
+         */
+        private volatile Node[] table;
+
+        /**
+         * The number of symbols in this segment. Only accessed while holding the lock on this segment.
+         */
+        private int count;
+
+        Segment(int capacity) {
+            table = new Node[capacity];
         }
 
-        public void setNext(Entry<String, Utf8ConstantEntry> next) {
-            this.next = next;
+        Utf8ConstantEntry get(String value, int hash) {
+            final Node[] table = this.table;
+            for (Node node = table[hash & (table.length - 1)]; node != null; node = node.next) {
+                if (node.hash == hash && node.symbol.string.equals(value)) {
+                    return node.symbol;
+                }
+            }
+            return null;
         }
 
-        public void setValue(Utf8ConstantEntry value) {
-            assert value == this;
+        synchronized Utf8ConstantEntry put(String value, int hash) {
+            Utf8ConstantEntry symbol = get(value, hash);
+            if (symbol == null) {
+                if (MaxineVM.isHosted()) {
+                    // String interning is implemented with another data structure when running hosted
+                    symbol = new Utf8ConstantEntry(value.intern());
+                } else {
+                    symbol = new Utf8ConstantEntry(value);
+                }
+                Node[] table = this.table;
+                if (++count > table.length - (table.length >> 2)) {
+                    table = rehash(table);
+                }
+                final int index = hash & (table.length - 1);
+                table[index] = new Node(hash, symbol, table[index]);
+                this.table = table;
+            }
+            return symbol;
         }
 
-        public Utf8ConstantEntry value() {
-            return this;
+        private static Node[] rehash(Node[] oldTable) {
+            final Node[] newTable = new Node[oldTable.length * 2];
+            final int mask = newTable.length - 1;
+            for (Node head : oldTable) {
+                for (Node node = head; node != null; node = node.next) {
+                    final int index = node.hash & mask;
+                    newTable[index] = new Node(node.hash, node.symbol, newTable[index]);
+                }
+            }
+            return newTable;
         }
 
-        @Override
-        public void writeOn(DataOutputStream stream, ConstantPoolEditor editor, int index) throws IOException {
-            super.writeOn(stream, editor, index);
-            stream.writeUTF(editor.pool().utf8At(index, null).toString());
+        synchronized int count() {
+            return count;
         }
     }
 
+    private static final int SEGMENT_BITS = 5;
+
     /**
-     * Searching and adding entries to this map is only performed by {@linkplain #makeSymbol(String) one method} which
-     * is synchronized.
+     * The segments of the symbol table, initially sized to hold 40000 symbols in total without rehashing.
      */
-    private static final ChainingValueChainedHashMapping<String, Utf8ConstantEntry> symbolTable = new ChainingValueChainedHashMapping<String, Utf8ConstantEntry>(40000);
+    private static final Segment[] segments = new Segment[1 << SEGMENT_BITS];
+    static {
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment(2048);
+        }
+    }
+
+    /**
+     * Spreads the bits of a string's hash code so that both the segment index (taken from the high bits)
+     * and the bucket index within a segment (taken from the low bits) depend on all of the original bits.
+     */
+    private static int hash(String value) {
+        int h = value.hashCode();
+        h ^= (h >>> 20) ^ (h >>> 12);
+        return h ^ (h >>> 7) ^ (h >>> 4);
+    }
+
+    private static Segment segmentFor(int hash) {
+        return segments[hash >>> (32 - SEGMENT_BITS)];
+    }
 
     public static final Utf8Constant INIT = makeSymbol("<init>");
     public static final Utf8Constant CLINIT = makeSymbol("<clinit>");
     public static final Utf8Constant FINALIZE = makeSymbol("finalize");
 
     public static int length() {
-        return symbolTable.length();
+        int length = 0;
+        for (Segment segment : segments) {
+            length += segment.count();
+        }
+        return length;
     }
 
-    public static synchronized Utf8Constant lookupSymbol(String value) {
-        return symbolTable.get(value);
+    public static Utf8Constant lookupSymbol(String value) {
+        final int hash = hash(value);
+        return segmentFor(hash).get(value, hash);
     }
 
-    public static synchronized Utf8Constant makeSymbol(String value) {
-        Utf8ConstantEntry utf8 = symbolTable.get(value);
-        if (utf8 == null) {
-            if (MaxineVM.isHosted()) {
-                // String interning is implemented with another data structure when running hosted
-                utf8 = new Utf8ConstantEntry(value.intern());
-            } else {
-                utf8 = new Utf8ConstantEntry(value);
-            }
-            symbolTable.put(value, utf8);
+    public static Utf8Constant makeSymbol(String value) {
+        final int hash = hash(value);
+        final Segment segment = segmentFor(hash);
+        final Utf8ConstantEntry symbol = segment.get(value, hash);
+        if (symbol != null) {
+            return symbol;
         }
-        return utf8;
+        return segment.put(value, hash);
     }
 
     public static String intern(String value) {
@@ -53,6 +53,11 @@ import com.sun.max.vm.ti.*;
 /**
  * Code garbage collection (eviction).
  * See <a href="https://wikis.oracle.com/display/MaxineVM/Code+Management">the Wiki page</a> for more details.
+ * <p>
+ * Only baseline code is evicted. It lives in the {@linkplain CodeManager#getRuntimeBaselineCodeRegion() semi-space
+ * baseline region}, and each eviction cycle copies the surviving methods to the other space. Optimized code lives in
+ * the bump-allocated opt region, which is never evicted: code recompiled by the optimizing compiler, including the
+ * hot baseline methods promoted by a cycle, stays there for the lifetime of the VM.
  */
 public final class CodeEviction extends VmOperation {
 
@@ -67,6 +72,35 @@ public final class CodeEviction extends VmOperation {
             MaxineVM.Phase.STARTING);
     }
 
+    /**
+     * Number of invocations and backward branches since the previous eviction cycle from which on a baseline method
+     * counts as hot and survives the cycle.
+     */
+    private static int CodeEvictionHotnessThreshold = 100;
+
+    /**
+     * Number of consecutive cold eviction cycles after which a baseline method loses the protection that a type
+     * profile gives it.
+     */
+    private static int CodeEvictionMaxColdAge = 2;
+
+    /**
+     * Number of eviction cycles a hot baseline method must have survived before it is promoted.
+     */
+    private static int CodeEvictionPromotionAge = 2;
+
+    static {
+        VMOptions.addFieldOption("-XX:", "CodeEvictionHotnessThreshold", CodeEviction.class,
+            "During code eviction, protect baseline methods invoked at least this often since the last eviction (default: 100).",
+            MaxineVM.Phase.STARTING);
+        VMOptions.addFieldOption("-XX:", "CodeEvictionMaxColdAge", CodeEviction.class,
+            "During code eviction, evict baseline methods with type profiles once they were cold for this many cycles (default: 2).",
+            MaxineVM.Phase.STARTING);
+        VMOptions.addFieldOption("-XX:", "CodeEvictionPromotionAge", CodeEviction.class,
+            "During code eviction, have hot baseline methods that survived this many cycles recompiled by the optimizing compiler (default: 2).",
+            MaxineVM.Phase.STARTING);
+    }
+
     /**
      * Marks all target methods on the stack as live that are short-lived (baseline),
      * and all baseline methods directly invoked from those.
@@ -117,15 +151,22 @@ public final class CodeEviction extends VmOperation {
      *
      * A method is protected if it must not be evicted in spite of not being present on any call stack.
      * Currently, this is true for methods ...<ul>
-     * <li>having type profiles (as they will soon be recompiled by the optimising compiler),</li>
      * <li>that have just been compiled but are not yet fully installed in the system (e.g., by being referenced
      * from a stack),</li>
-     * <li>whose invocation count is within the threshold denoted by {@link MethodInstrumentation#PROTECTION_PERCENTAGE}.</li>
+     * <li>whose invocation count is within the threshold denoted by {@link MethodInstrumentation#PROTECTION_PERCENTAGE},</li>
+     * <li>that are hot, i.e., were invoked at least {@link #CodeEvictionHotnessThreshold} times since the last
+     * eviction cycle,</li>
+     * <li>having type profiles (as they will soon be recompiled by the optimising compiler), unless they have been cold
+     * for more than {@link #CodeEvictionMaxColdAge} cycles.</li>
      * </ul>
+     * Methods are thus evicted coldest first. Hot methods that keep surviving are promoted: their invocation counter is
+     * made to overflow on the next invocation, so that they are recompiled into the long-lived opt code region and their
+     * baseline version eventually becomes stale.
      */
     final class ProtectedMethodsMarker implements TargetMethod.Closure {
         @Override
         public boolean doTargetMethod(TargetMethod targetMethod) {
+            final boolean hot = targetMethod.sampleHotness(CodeEvictionHotnessThreshold) >= CodeEvictionHotnessThreshold;
             // avoid further tests if already marked
             if (!targetMethod.isMarked()) {
                 if (targetMethod.isProtected()) {
@@ -134,13 +175,28 @@ public final class CodeEviction extends VmOperation {
                 } else if (targetMethod.withinInvocationThreshold()) {
                     logMark("PROTECTED (invocation count)", targetMethod);
                     targetMethod.mark();
-                } else if (targetMethod.hasTypeProfile()) {
+                } else if (hot) {
+                    logMark("PROTECTED (hot)", targetMethod);
+                    targetMethod.mark();
+                } else if (targetMethod.hasTypeProfile() && targetMethod.coldAge() < CodeEvictionMaxColdAge) {
                     logMark("PROTECTED (type profile)", targetMethod);
                     targetMethod.mark();
                 }
             }
+            if (hot && targetMethod.timesRelocated() >= CodeEvictionPromotionAge) {
+                promote(targetMethod);
+            }
             return true;
         }
+
+        private void promote(TargetMethod targetMethod) {
+            final MethodProfile profile = targetMethod.profile();
+            if (!profile.compilationDisabled && profile.entryBackedgeCount > 1) {
+                logMark("PROMOTED", targetMethod);
+                ++nPromoted;
+                profile.entryBackedgeCount = 1;
+            }
+        }
     }
 
     final class InvalidateDispatchTables implements TargetMethod.Closure {
@@ -614,6 +670,10 @@ public final class CodeEviction extends VmOperation {
      */
     @Override
     protected void doThread(VmThread vmThread, Pointer ip, Pointer sp, Pointer fp) {
+        for (StackContinuation c = StackContinuation.firstSuspendedOn(vmThread); c != null; c = c.nextSuspended()) {
+            doSuspendedFrames(c);
+        }
+
         // bail out if the thread was stopped in native code before invoking any Java method
         if (ip.isZero() && sp.isZero() && fp.isZero()) {
             return;
@@ -645,6 +705,54 @@ public final class CodeEviction extends VmOperation {
         }
     }
 
+    /**
+     * Does for the frames of a suspended continuation what {@link #doThread} does for the frames on a stack.
+     * The saved frames are not walked. Instead, the methods and return address slots recorded when the
+     * continuation was suspended are used, and tagged code pointers are found by the slots recorded as such.
+     */
+    private void doSuspendedFrames(StackContinuation c) {
+        switch(phase) {
+            case DUMPING:
+                break;
+            case PATCHING:
+                for (int i = 0; i < c.suspendedFrameCount(); i++) {
+                    final TargetMethod tm = c.suspendedFrameMethodAt(i);
+                    if (CodeManager.isShortlived(tm)) {
+                        logMark("SUSPENDED", tm);
+                        tm.mark();
+                        liveMethodsMarker.markDirectCalleesOf(tm, CodeEvictionProtectCalleeDepth);
+                    }
+                }
+                break;
+            case COMPACTING:
+                CodeManager.runtimeBaselineCodeRegion.allowFromSpaceLookup = true;
+                // frame 0 returns to resumeIP in the boot code of StackContinuation.suspend()
+                for (int i = 1; i < c.suspendedFrameCount(); i++) {
+                    final TargetMethod tm = c.suspendedFrameMethodAt(i);
+                    final CodePointer ret = c.returnAddressAt(i);
+                    if (CodeManager.runtimeBaselineCodeRegion.isInFromSpace(ret.toAddress())) {
+                        final Address offset = ret.minus(tm.oldStart()).toAddress();
+                        final CodePointer newRet = CodePointer.from(tm.start().plus(offset));
+                        logReturnAddressPatch(tm, ret, newRet);
+                        c.patchReturnAddressAt(i, newRet, -1);
+                    }
+                }
+                for (int slot = c.nextCodePointerSlot(0); slot >= 0; slot = c.nextCodePointerSlot(slot + 1)) {
+                    final CodePointer cp = CodePointer.fromTaggedLong(c.frameWordAt(slot));
+                    if (CodeManager.runtimeBaselineCodeRegion.isInFromSpace(cp.toAddress())) {
+                        final TargetMethod tm = CodeManager.runtimeBaselineCodeRegion.findInFromSpace(cp.toAddress());
+                        final CodePointer newCp = cp.relocate(tm.start().minus(tm.oldStart()).asOffset());
+                        logRelocateCodePointer(slot, cp, newCp, tm);
+                        c.setFrameWordAt(slot, newCp.toTaggedLong());
+                    }
+                }
+                CodeManager.runtimeBaselineCodeRegion.allowFromSpaceLookup = false;
+                break;
+            default:
+                throw FatalError.unexpected("invalid code cache cleaner phase");
+        }
+    }
+
     private final VmStackFrameWalker walker = new VmStackFrameWalker(Pointer.zero());
 
     private final LiveMethodsMarker liveMethodsMarker = new LiveMethodsMarker();
@@ -965,6 +1073,7 @@ public final class CodeEviction extends VmOperation {
         nBootMeth = 0;
         nSurvivors = 0;
         nSurvivingBytes = 0;
+        nPromoted = 0;
         nVT = 0;
         nIT = 0;
         nNonvirtual = 0;
@@ -984,6 +1093,7 @@ public final class CodeEviction extends VmOperation {
     int nBootMeth = 0;
     int nSurvivors = 0;
     int nSurvivingBytes = 0;
+    int nPromoted = 0;
     int nVT = 0;
     int nIT = 0;
     int nNonvirtual = 0;
@@ -1605,7 +1715,9 @@ public final class CodeEviction extends VmOperation {
             Log.print(" kB) - ");
             final int totalMethods = codeEviction.nSurvivors + codeEviction.nStale;
             Log.print(codeEviction.nSurvivors * 100 / totalMethods);
-            Log.println(" % of methods survived");
+            Log.print(" % of methods survived, ");
+            Log.print(codeEviction.nPromoted);
+            Log.println(" promoted");
         }
 
         @Override
@@ -24,6 +24,7 @@ import static com.sun.max.vm.MaxineVM.*;
 import static com.sun.max.vm.VMOptions.*;
 
 import java.util.*;
+import java.util.concurrent.atomic.*;
 
 import com.sun.max.annotate.*;
 import com.sun.max.unsafe.*;
@@ -66,7 +67,11 @@ public abstract class CodeManager {
         register(new VMSizeOption("-XX:ReservedOptCodeCacheSize=", Size.M.times(16),
             "Memory allocated for runtime code region cache."), MaxineVM.Phase.PRISTINE);
 
-    private int nAllocations = 0;
+    /**
+     * Number of allocations in the baseline code region, counted to {@linkplain #CodeCacheContentionFrequency force}
+     * evictions. Allocating threads do not hold a lock when they count.
+     */
+    private final AtomicInteger nAllocations = new AtomicInteger();
 
     private int lastSurvivorSize;
     private int largestSurvivorSize = 0;
@@ -187,68 +192,176 @@ public abstract class CodeManager {
         }
     }
 
+    /**
+     * Number of threads that are between a lock-free allocation in the {@link #runtimeBaselineCodeRegion} and the
+     * {@linkplain CodeRegion#add(TargetMethod) registration} of the allocated target method.
+     */
+    private final AtomicInteger baselineAllocationsInFlight = new AtomicInteger();
+
+    /**
+     * Set while a thread holding the lock of this code manager may evict code from the baseline code region. This
+     * keeps further lock-free allocations in that region from starting. Only one thread at a time sets this flag.
+     */
+    private volatile boolean baselineEvictionPending;
+
     /**
      * Allocates memory for the code-related arrays of a given target method
      * and {@linkplain TargetMethod#setCodeArrays(byte[], Pointer, byte[], Object[]) initializes} them.
+     * <p>
+     * At runtime, memory in a code region is allocated without holding the lock of this code manager, so that
+     * several compiler threads can install code at the same time. The lock is only taken when the region is full
+     * and, for the baseline code region, code must be evicted.
      *
      * @param targetBundleLayout describes the layout of the arrays in the allocated space
      * @param targetMethod the target method for which the code-related arrays are allocated
      * @param inHeap specifies if the memory should be allocated in a code region or on the heap
      */
-    synchronized void allocate(TargetBundleLayout targetBundleLayout, TargetMethod targetMethod, boolean inHeap, Lifespan lifespan) {
-        final Size bundleSize = targetBundleLayout.bundleSize();
-        int codeLength = targetBundleLayout.length(ArrayField.code);
-        int scalarLiteralsLength = targetBundleLayout.length(ArrayField.scalarLiterals);
-        int referenceLiteralsLength = targetBundleLayout.length(ArrayField.referenceLiterals);
-        final Size allocationSize;
-        CodeRegion currentCodeRegion = null;
-
-        allocationSize = bundleSize;
+    void allocate(TargetBundleLayout targetBundleLayout, TargetMethod targetMethod, boolean inHeap, Lifespan lifespan) {
+        final Size allocationSize = targetBundleLayout.bundleSize();
         Object allocationTraceDescription = Code.TraceCodeAllocation ? (targetMethod.classMethodActor() == null ? targetMethod.regionName() : targetMethod.classMethodActor()) : null;
 
-        Pointer start;
-        boolean mustReenableSafepoints = false;
         if (inHeap) {
             assert !isHosted();
             int byteArraySize = allocationSize.minus(Layout.byteArrayLayout().headerSize()).toInt();
             byte[] buf = new byte[byteArraySize];
 
             // 'buf' must not move until it has been reformatted
-            mustReenableSafepoints = !SafepointPoll.disable();
-
-            start = Layout.originToCell(Reference.fromJava(buf).toOrigin());
+            final boolean mustReenableSafepoints = !SafepointPoll.disable();
+
+            final Pointer start = Layout.originToCell(Reference.fromJava(buf).toOrigin());
+            traceChunkAllocation(allocationTraceDescription, allocationSize, start, true);
+            install(targetBundleLayout, targetMethod, null, start, mustReenableSafepoints, true);
+        } else if (isHosted()) {
+            synchronized (this) {
+                final CodeRegion currentCodeRegion = Code.bootCodeRegion();
+                final Pointer start = currentCodeRegion.allocate(allocationSize, false);
+                traceChunkAllocation(allocationTraceDescription, allocationSize, start, false);
+                install(targetBundleLayout, targetMethod, currentCodeRegion, start, false, false);
+            }
         } else {
-            if (!isHosted()) {
-                // The allocation and initialization of objects in a code region must be atomic with respect to garbage collection.
-                mustReenableSafepoints = !SafepointPoll.disable();
-                Heap.disableAllocationForCurrentThread();
-                if (lifespan == Lifespan.LONG) {
-                    currentCodeRegion = runtimeOptCodeRegion;
-                } else {
-                    currentCodeRegion = runtimeBaselineCodeRegion;
+            final CodeRegion currentCodeRegion = lifespan == Lifespan.LONG ? runtimeOptCodeRegion : runtimeBaselineCodeRegion;
+            final boolean forceEviction = currentCodeRegion == runtimeBaselineCodeRegion && CodeCacheContentionFrequency > 0 && nAllocations.incrementAndGet() % CodeCacheContentionFrequency == 0;
+            if (forceEviction || !allocateConcurrently(targetBundleLayout, targetMethod, currentCodeRegion, allocationTraceDescription)) {
+                synchronized (this) {
+                    allocateExclusively(targetBundleLayout, targetMethod, currentCodeRegion, allocationTraceDescription, forceEviction);
                 }
-            } else {
-                currentCodeRegion = Code.bootCodeRegion();
             }
+        }
+    }
 
-            if (currentCodeRegion == runtimeBaselineCodeRegion && CodeCacheContentionFrequency > 0 && ++nAllocations % CodeCacheContentionFrequency == 0) {
-                start = Pointer.zero();
-            } else {
-                start = currentCodeRegion.allocate(allocationSize, false);
+    /**
+     * Tries to allocate and install the code arrays of a target method in a runtime code region without holding the
+     * lock of this code manager.
+     *
+     * @return {@code false} if nothing was allocated because the region is full or a code eviction is pending, in
+     *         which case the allocation must be retried by {@link #allocateExclusively}
+     */
+    private boolean allocateConcurrently(TargetBundleLayout targetBundleLayout, TargetMethod targetMethod, CodeRegion currentCodeRegion, Object allocationTraceDescription) {
+        final boolean isBaseline = currentCodeRegion == runtimeBaselineCodeRegion;
+        if (isBaseline) {
+            baselineAllocationsInFlight.incrementAndGet();
+        }
+        try {
+            if (isBaseline && baselineEvictionPending) {
+                return false;
+            }
+            // The allocation and initialization of objects in a code region must be atomic with respect to garbage collection.
+            final boolean mustReenableSafepoints = !SafepointPoll.disable();
+            Heap.disableAllocationForCurrentThread();
+            final Size allocationSize = targetBundleLayout.bundleSize();
+            final Pointer start = currentCodeRegion.allocateAtomically(allocationSize);
+            if (start.isZero()) {
+                Heap.enableAllocationForCurrentThread();
+                if (mustReenableSafepoints) {
+                    SafepointPoll.enable();
+                }
+                return false;
+            }
+            traceChunkAllocation(allocationTraceDescription, allocationSize, start, false);
+            install(targetBundleLayout, targetMethod, currentCodeRegion, start, mustReenableSafepoints, false);
+            return true;
+        } finally {
+            if (isBaseline && baselineAllocationsInFlight.decrementAndGet() == 0 && baselineEvictionPending) {
+                synchronized (this) {
+                    notifyAll();
+                }
             }
+        }
+    }
+
+    /**
+     * Allocates and installs the code arrays of a target method in a runtime code region while holding the lock of
+     * this code manager, evicting baseline code if necessary.
+     */
+    private void allocateExclusively(TargetBundleLayout targetBundleLayout, TargetMethod targetMethod, CodeRegion currentCodeRegion, Object allocationTraceDescription, boolean forceEviction) {
+        final boolean isBaseline = currentCodeRegion == runtimeBaselineCodeRegion;
+        if (isBaseline) {
+            // Waiting releases the lock, so another thread may have started an eviction in the meantime
+            while (baselineEvictionPending) {
+                waitForBaselineAllocations();
+            }
+            // Eviction must see every method whose code has been allocated in the region,
+            // so wait for the lock-free allocations under way to register their methods.
+            baselineEvictionPending = true;
+        }
+        try {
+            if (isBaseline) {
+                while (baselineAllocationsInFlight.get() != 0) {
+                    waitForBaselineAllocations();
+                }
+            }
+
+            // The allocation and initialization of objects in a code region must be atomic with respect to garbage collection.
+            final boolean mustReenableSafepoints = !SafepointPoll.disable();
+            Heap.disableAllocationForCurrentThread();
+            final Size allocationSize = targetBundleLayout.bundleSize();
+            Pointer start = forceEviction ? Pointer.zero() : currentCodeRegion.allocateAtomically(allocationSize);
 
             // Allocation in the baseline code region may take another attempt upon contention, after compaction.
-            if (start.isZero() && currentCodeRegion == runtimeBaselineCodeRegion) {
+            if (start.isZero() && isBaseline) {
                 CodeEviction.run();
                 assert validateCodeCache();
-                start = currentCodeRegion.allocate(allocationSize, false);
+                start = currentCodeRegion.allocateAtomically(allocationSize);
                 if (CodeCacheContentionFrequency > 0 && CodeEviction.logging()) {
                     CodeEviction.codeEvictionLogger.logStats_Surviving(lastSurvivorSize, largestSurvivorSize);
                 }
             }
+
+            traceChunkAllocation(allocationTraceDescription, allocationSize, start, false);
+            install(targetBundleLayout, targetMethod, currentCodeRegion, start, mustReenableSafepoints, false);
+        } finally {
+            if (isBaseline) {
+                baselineEvictionPending = false;
+                notifyAll();
+            }
         }
+    }
+
+    /**
+     * Waits on the lock of this code manager, which the caller must hold, until a lock-free allocation in the baseline
+     * code region completes or another thread finishes evicting baseline code.
+     */
+    private void waitForBaselineAllocations() {
+        try {
+            wait();
+        } catch (InterruptedException e) {
+            // the condition is re-checked by the caller
+        }
+    }
+
+    /**
+     * Initializes the memory allocated for the code-related arrays of a given target method, re-enables safepoints and
+     * allocation and finally adds the method to its code region.
+     *
+     * @param currentCodeRegion the code region in which {@code start} was allocated or {@code null} if it is in the heap
+     * @param start the allocated memory or {@link Pointer#zero()} if allocation failed
+     */
+    private void install(TargetBundleLayout targetBundleLayout, TargetMethod targetMethod, CodeRegion currentCodeRegion, Pointer start, boolean mustReenableSafepoints, boolean inHeap) {
+        final Size allocationSize = targetBundleLayout.bundleSize();
+        int codeLength = targetBundleLayout.length(ArrayField.code);
+        int scalarLiteralsLength = targetBundleLayout.length(ArrayField.scalarLiterals);
+        int referenceLiteralsLength = targetBundleLayout.length(ArrayField.referenceLiterals);
 
-        traceChunkAllocation(allocationTraceDescription, allocationSize, start, inHeap);
         if (start.isZero()) {
             if (mustReenableSafepoints) {
                 SafepointPoll.enable();
@@ -287,7 +400,7 @@ public abstract class CodeManager {
                 referenceLiterals = (Object[]) Cell.plantArray(referenceLiteralsCell, ClassActor.fromJava(Object[].class).dynamicHub(), referenceLiteralsLength);
             }
             if (Code.TraceCodeAllocation) {
-                traceAllocation(targetBundleLayout, bundleSize, scalarLiteralsLength, referenceLiteralsLength, start, codeCell);
+                traceAllocation(targetBundleLayout, allocationSize, scalarLiteralsLength, referenceLiteralsLength, start, codeCell);
             }
         }
 
@@ -24,10 +24,17 @@ package com.sun.max.vm.code;
 
 import java.util.*;
 
+import com.oracle.max.cri.intrinsics.*;
 import com.sun.max.annotate.*;
 import com.sun.max.unsafe.*;
+import com.sun.max.vm.*;
+import com.sun.max.vm.actor.holder.*;
+import com.sun.max.vm.actor.member.*;
 import com.sun.max.vm.compiler.target.*;
 import com.sun.max.vm.heap.*;
+import com.sun.max.vm.reference.*;
+import com.sun.max.vm.runtime.*;
+import com.sun.max.vm.thread.*;
 
 /**
  * A code region that encapsulates a contiguous, fixed-sized memory area in the VM
@@ -73,6 +80,7 @@ public class CodeRegion extends LinearAllocatorRegion {
         super(description);
         targetMethods = new TargetMethod[DEFAULT_CAPACITY];
         findIndex = new int[DEFAULT_CAPACITY];
+        codeMap = new TargetMethod[DEFAULT_CAPACITY];
     }
 
     /**
@@ -88,6 +96,7 @@ public class CodeRegion extends LinearAllocatorRegion {
         super(start, size, description);
         targetMethods = new TargetMethod[DEFAULT_CAPACITY];
         findIndex = new int[DEFAULT_CAPACITY];
+        codeMap = new TargetMethod[DEFAULT_CAPACITY];
     }
 
     /**
@@ -110,6 +119,36 @@ public class CodeRegion extends LinearAllocatorRegion {
         return start();
     }
 
+    /**
+     * Allocates memory from this region by atomically advancing the allocation mark. Unlike
+     * {@link #allocate(Size, boolean)}, this can be used by several threads at the same time without holding a lock.
+     *
+     * @param size the number of bytes to allocate, which must be word aligned
+     * @return the start of the allocated memory or {@link Pointer#zero()} if there is not enough space left
+     */
+    public Pointer allocateAtomically(Size size) {
+        if (!size.isWordAligned()) {
+            FatalError.unexpected("Allocation size must be word aligned");
+        }
+        while (true) {
+            final Address oldMark = mark.get().asAddress();
+            final Address newMark = oldMark.plus(size);
+            if (newMark.greaterThan(allocationLimit())) {
+                return Pointer.zero();
+            }
+            if (mark.compareAndSet(oldMark, newMark)) {
+                return oldMark.asPointer();
+            }
+        }
+    }
+
+    /**
+     * Gets the address up to which {@link #allocateAtomically(Size)} may advance the allocation mark.
+     */
+    protected Address allocationLimit() {
+        return end();
+    }
+
     /**
      * A sorted list of the target methods allocated within this code region.
      */
@@ -127,10 +166,19 @@ public class CodeRegion extends LinearAllocatorRegion {
      * The number of times that an addition to the array
      * of target methods has been started.  During the addition
      * the array may not be in a usefully inspectable state.
+     * <p>
+     * Together with {@link #additionCompletedCount} this also serves as the lock taken by
+     * {@link #lockForAddition()}: an addition is underway whenever the two counts differ.
      */
     @INSPECTED
     private int additionStartedCount = 0;
 
+    /**
+     * Offset of {@link #additionStartedCount} used in compare and swap.
+     */
+    @CONSTANT_WHEN_NOT_ZERO
+    private static int additionStartedCountOffset;
+
     /**
      * The number of times that an addition to the array
      * of target methods has completed.
@@ -138,6 +186,11 @@ public class CodeRegion extends LinearAllocatorRegion {
     @INSPECTED
     private int additionCompletedCount = 0;
 
+    /**
+     * The thread locals of the thread holding the {@linkplain #lockForAddition() addition lock}, or zero.
+     */
+    private Address additionOwner = Address.zero();
+
     public static final int FIND_INDEX_ALIGN_SHIFT = 9;
     public static final int FIND_INDEX_ALIGN = 1 << FIND_INDEX_ALIGN_SHIFT;
 
@@ -150,6 +203,15 @@ public class CodeRegion extends LinearAllocatorRegion {
      */
     protected int[] findIndex;
 
+    /**
+     * Direct-mapped side table from the pages of {@link #findIndex} to the target method covering the beginning of
+     * each page. Since methods are allocated contiguously, an address is almost always covered either by the method
+     * found for its page or by the one found for the next page, so {@link #find(Address)} only has to search
+     * {@link #targetMethods} for methods lying entirely within a single page. This array has the same length as
+     * {@link #findIndex}.
+     */
+    protected TargetMethod[] codeMap;
+
     /**
      * Number of target methods in the code regions.
      */
@@ -169,12 +231,72 @@ public class CodeRegion extends LinearAllocatorRegion {
 
     /**
      * Adds a target method to this sorted list of target methods.
+     * <p>
+     * Several threads may add methods at the same time. The arrays are modified under
+     * {@linkplain #lockForAddition() a lock} that is only held with safepoints disabled, while {@link #find(Address)}
+     * does not lock at all.
      */
     public void add(TargetMethod targetMethod) {
-        additionStartedCount++;         // The array becomes not inspectable
+        if (MaxineVM.isHosted()) {
+            synchronized (this) {
+                add0(targetMethod);
+            }
+        } else {
+            add0(targetMethod);
+        }
+    }
+
+    private void add0(TargetMethod targetMethod) {
+        assert start().alignUp(FIND_INDEX_ALIGN).equals(start());
+        final int endIdx = targetMethod.end().minus(1).minus(start()).unsignedShiftedRight(FIND_INDEX_ALIGN_SHIFT).toInt();
+        TargetMethod[] spareTargetMethods = null;
+        int[] spareFindIndex = null;
+        TargetMethod[] spareCodeMap = null;
+        while (true) {
+            // Growing the arrays allocates, which must not happen while holding the lock
+            if (length >= targetMethods.length && (spareTargetMethods == null || spareTargetMethods.length <= length)) {
+                spareTargetMethods = new TargetMethod[(length * 3) / 2 + 1];
+            }
+            if (endIdx >= findIndex.length && (spareFindIndex == null || spareFindIndex.length <= endIdx)) {
+                spareFindIndex = new int[(endIdx * 3) / 2 + 1];
+                spareCodeMap = new TargetMethod[spareFindIndex.length];
+            }
+            final boolean mustReenableSafepoints = lockForAddition();
+            final boolean added = insert(targetMethod, endIdx, spareTargetMethods, spareFindIndex, spareCodeMap);
+            unlockForAddition(mustReenableSafepoints);
+            if (added) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Inserts a target method into {@link #targetMethods}, {@link #findIndex} and {@link #codeMap}. The caller must hold the
+     * {@linkplain #lockForAddition() lock}.
+     *
+     * @param endIdx the index of the page containing the last byte of {@code targetMethod}
+     * @param spareTargetMethods replaces {@link #targetMethods} if it is full (may be {@code null})
+     * @param spareFindIndex replaces {@link #findIndex} if it is too short (may be {@code null})
+     * @param spareCodeMap replaces {@link #codeMap} along with {@code spareFindIndex}
+     * @return {@code false} if an array must grow but the spare array is missing or too small, in which case nothing
+     *         has been modified
+     */
+    private boolean insert(TargetMethod targetMethod, int endIdx, TargetMethod[] spareTargetMethods, int[] spareFindIndex, TargetMethod[] spareCodeMap) {
+        if (length == targetMethods.length && (spareTargetMethods == null || spareTargetMethods.length <= length)) {
+            return false;
+        }
+        if (endIdx >= findIndex.length && (spareFindIndex == null || spareFindIndex.length <= endIdx)) {
+            return false;
+        }
         if (length == targetMethods.length) {
-            int newCapacity = (targetMethods.length * 3) / 2 + 1;
-            targetMethods = Arrays.copyOf(targetMethods, newCapacity);
+            System.arraycopy(targetMethods, 0, spareTargetMethods, 0, length);
+            targetMethods = spareTargetMethods;
+        }
+        if (endIdx >= findIndex.length) {
+            System.arraycopy(findIndex, 0, spareFindIndex, 0, findIndex.length);
+            findIndex = spareFindIndex;
+            System.arraycopy(codeMap, 0, spareCodeMap, 0, codeMap.length);
+            codeMap = spareCodeMap;
         }
         int insertionPoint;
         if (length == 0 || COMPARATOR.compare(targetMethods[length - 1], targetMethod) < 0) {
@@ -189,48 +311,133 @@ public class CodeRegion extends LinearAllocatorRegion {
         }
         targetMethods[insertionPoint] = targetMethod;
         length++;
-        additionCompletedCount++;       // The array becomes once again inspectable
 
-        assert start().alignUp(FIND_INDEX_ALIGN).equals(start());
         int startIdx = targetMethod.start().plus(FIND_INDEX_ALIGN - 1).minus(start()).unsignedShiftedRight(FIND_INDEX_ALIGN_SHIFT).toInt();
-        int endIdx = targetMethod.end().minus(1).minus(start()).unsignedShiftedRight(FIND_INDEX_ALIGN_SHIFT).toInt();
-        if (endIdx >= findIndex.length) {
-            findIndex = Arrays.copyOf(findIndex, (endIdx * 3) / 2 + 1);
-        }
         for (int i = startIdx; i <= endIdx; i++) {
             assert findIndex[i] == 0;
             findIndex[i] = insertionPoint;
+            codeMap[i] = targetMethod;
+        }
+
+        // The methods following an out-of-order addition have moved up by one
+        for (int index = insertionPoint + 1; index < length; index++) {
+            final TargetMethod moved = targetMethods[index];
+            final int movedStartIdx = moved.start().plus(FIND_INDEX_ALIGN - 1).minus(start()).unsignedShiftedRight(FIND_INDEX_ALIGN_SHIFT).toInt();
+            final int movedEndIdx = moved.end().minus(1).minus(start()).unsignedShiftedRight(FIND_INDEX_ALIGN_SHIFT).toInt();
+            for (int i = movedStartIdx; i <= movedEndIdx; i++) {
+                findIndex[i] = index;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Acquires the lock guarding modifications of {@link #targetMethods}, {@link #findIndex} and {@link #codeMap}. The lock is a spin
+     * lock that is only ever held with safepoints disabled, so its holder can not be stopped by a VM operation and
+     * code eviction, which runs at a safepoint, never finds it taken.
+     *
+     * @return {@code true} if safepoints must be re-enabled by {@link #unlockForAddition(boolean)}
+     */
+    protected final boolean lockForAddition() {
+        if (MaxineVM.isHosted()) {
+            additionStartedCount++;         // The array becomes not inspectable
+            return false;
+        }
+        if (additionStartedCountOffset == 0) {
+            additionStartedCountOffset = FieldActor.findInstance(ClassActor.fromJava(CodeRegion.class), "additionStartedCount").offset();
+        }
+        final boolean mustReenableSafepoints = !SafepointPoll.disable();
+        while (true) {
+            final int completed = additionCompletedCount;
+            if (additionStartedCount == completed &&
+                Reference.fromJava(this).compareAndSwapInt(additionStartedCountOffset, completed, completed + 1) == completed) {
+                // The array becomes not inspectable
+                additionOwner = VmThread.currentTLA();
+                return mustReenableSafepoints;
+            }
+            Intrinsics.pause();
+        }
+    }
+
+    /**
+     * Releases the lock acquired by {@link #lockForAddition()}.
+     */
+    protected final void unlockForAddition(boolean mustReenableSafepoints) {
+        additionOwner = Address.zero();
+        if (!MaxineVM.isHosted()) {
+            // publish the modified arrays before the count that tells readers they are consistent again
+            MemoryBarriers.barrier(MemoryBarriers.STORE_STORE);
+        }
+        additionCompletedCount = additionStartedCount;      // The array becomes once again inspectable
+        if (mustReenableSafepoints) {
+            SafepointPoll.enable();
         }
     }
 
     /**
      * Looks up the target method containing a particular address, using the index.
+     * <p>
+     * This does not take the lock of {@link #add(TargetMethod)}. Instead, the lookup is repeated if an addition was
+     * underway or has completed while it ran. If the addition is being made by the current thread, for example when a
+     * trap handler looks up code on a thread interrupted inside {@link #add(TargetMethod)}, waiting would never end:
+     * the arrays are searched as they are instead, and the lookup may fail.
      *
      * @param cp the address to lookup in this region
      * @return a reference to the target method containing the specified address, if it exists; {@code null} otherwise
      */
     public TargetMethod find(Address cp) {
-        return find0(cp, start(), findIndex, targetMethods);
+        if (MaxineVM.isHosted()) {
+            synchronized (this) {
+                return find0(cp, start(), codeMap, findIndex, targetMethods);
+            }
+        }
+        while (true) {
+            final int completed = additionCompletedCount;
+            if (additionStartedCount == completed) {
+                MemoryBarriers.barrier(MemoryBarriers.LOAD_LOAD);
+                final TargetMethod result = find0(cp, start(), codeMap, findIndex, targetMethods);
+                MemoryBarriers.barrier(MemoryBarriers.LOAD_LOAD);
+                if (additionStartedCount == completed) {
+                    return result;
+                }
+            } else if (additionOwner.equals(VmThread.currentTLA())) {
+                return find0(cp, start(), codeMap, findIndex, targetMethods);
+            }
+            Intrinsics.pause();
+        }
     }
 
-    protected final TargetMethod find0(Address cp, Address start, int[] index, TargetMethod[] tms) {
+    protected final TargetMethod find0(Address cp, Address start, TargetMethod[] map, int[] index, TargetMethod[] tms) {
         int pageIndex = cp.minus(start).unsignedShiftedRight(FIND_INDEX_ALIGN_SHIFT).toInt();
         if (pageIndex < 0 || pageIndex >= index.length) {
             return null;
         }
 
+        // The method covering the beginning of the page, or the one crossing into the next page
+        TargetMethod method = map[pageIndex];
+        if (method != null && validMethodStart(method, cp) && methodFound(method, cp)) {
+            return method;
+        }
+        if (pageIndex + 1 < map.length) {
+            method = map[pageIndex + 1];
+            if (method != null && validMethodStart(method, cp) && methodFound(method, cp)) {
+                return method;
+            }
+        }
+
         int methodIdx = index[pageIndex];
-        while (true) {
-            TargetMethod method = tms[methodIdx];
-            if (method == null) {
+        while (methodIdx < tms.length) {
+            method = tms[methodIdx];
+            // An invalid start can only be observed by a lookup that races with an addition and is then repeated
+            if (method == null || !validMethodStart(method, cp)) {
                 return null;
             }
-            assert validMethodStart(method, cp);
             if (methodFound(method, cp)) {
                 return method;
             }
             methodIdx++;
         }
+        return null;
     }
 
     protected boolean validMethodStart(TargetMethod tm, Address address) {
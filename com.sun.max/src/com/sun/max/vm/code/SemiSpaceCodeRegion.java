@@ -41,6 +41,7 @@ public final class SemiSpaceCodeRegion extends CodeRegion {
         fromTargetMethods = new TargetMethod[DEFAULT_CAPACITY];
         fromLength = 0;
         fromFindIndex = new int[DEFAULT_CAPACITY];
+        fromCodeMap = new TargetMethod[DEFAULT_CAPACITY];
     }
 
     @INSPECTED
@@ -67,6 +68,11 @@ public final class SemiSpaceCodeRegion extends CodeRegion {
      */
     private int[] fromFindIndex;
 
+    /**
+     * A {@link #codeMap} for from-space.
+     */
+    private TargetMethod[] fromCodeMap;
+
     /**
      * Amount of entries in the from-space target methods array.
      * The {@link #length} field represents the amount of entries in to-space.
@@ -118,6 +124,9 @@ public final class SemiSpaceCodeRegion extends CodeRegion {
         int[] tmpIndex = findIndex;
         findIndex = fromFindIndex;
         fromFindIndex = tmpIndex;
+        TargetMethod[] tmpMap = codeMap;
+        codeMap = fromCodeMap;
+        fromCodeMap = tmpMap;
     }
 
     /**
@@ -142,6 +151,11 @@ public final class SemiSpaceCodeRegion extends CodeRegion {
         return cell;
     }
 
+    @Override
+    protected Address allocationLimit() {
+        return topOfSpace;
+    }
+
     /**
      * Looks up the target method containing a particular address <i>in from-space</i>.
      */
@@ -149,7 +163,7 @@ public final class SemiSpaceCodeRegion extends CodeRegion {
         if (!isInFromSpace(cp)) {
             return null;
         }
-        return find0(cp, fromSpace, fromFindIndex, fromTargetMethods);
+        return find0(cp, fromSpace, fromCodeMap, fromFindIndex, fromTargetMethods);
     }
 
     @Override
@@ -215,14 +229,25 @@ public final class SemiSpaceCodeRegion extends CodeRegion {
      */
     @Override
     public void add(TargetMethod tm) {
-        final TargetMethod[] tms = targetMethods;
-        final int[] index = findIndex;
         super.add(tm);
-        if (tms != targetMethods) {
-            fromTargetMethods = Arrays.copyOf(fromTargetMethods, targetMethods.length);
-        }
-        if (index != findIndex) {
-            fromFindIndex = Arrays.copyOf(fromFindIndex, findIndex.length);
+        while (fromTargetMethods.length < targetMethods.length || fromFindIndex.length < findIndex.length) {
+            // allocate outside the lock, copy and publish under it
+            final TargetMethod[] tms = new TargetMethod[Math.max(fromTargetMethods.length, targetMethods.length)];
+            final int[] index = new int[Math.max(fromFindIndex.length, findIndex.length)];
+            final TargetMethod[] map = new TargetMethod[index.length];
+            final boolean mustReenableSafepoints = lockForAddition();
+            // Another thread may have grown either space while the arrays were allocated. Only publish them if
+            // from-space still needs to grow and they are large enough for both spaces; otherwise retry.
+            final boolean mustGrow = fromTargetMethods.length < targetMethods.length || fromFindIndex.length < findIndex.length;
+            if (mustGrow && tms.length >= Math.max(fromTargetMethods.length, targetMethods.length) && index.length >= Math.max(fromFindIndex.length, findIndex.length)) {
+                System.arraycopy(fromTargetMethods, 0, tms, 0, fromTargetMethods.length);
+                System.arraycopy(fromFindIndex, 0, index, 0, fromFindIndex.length);
+                System.arraycopy(fromCodeMap, 0, map, 0, fromCodeMap.length);
+                fromTargetMethods = tms;
+                fromFindIndex = index;
+                fromCodeMap = map;
+            }
+            unlockForAddition(mustReenableSafepoints);
         }
     }
 
@@ -233,6 +258,7 @@ public final class SemiSpaceCodeRegion extends CodeRegion {
         Arrays.fill(fromTargetMethods, null);
         fromLength = 0;
         Arrays.fill(fromFindIndex, 0);
+        Arrays.fill(fromCodeMap, null);
     }
 
     /**
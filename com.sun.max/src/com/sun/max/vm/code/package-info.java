@@ -57,11 +57,15 @@
  * <ul>
  * <li>have just been compiled but were not yet placed in the baseline code cache (such methods are typically the reason for an eviction
  * cycle to be triggered in the first place)</li>
- * <li>have an invocation counter within optimization threshold and/or a type profile (such methods might soon be recompiled by the
- * optimizing compiler, and the profile information gathered for them should not be lost)</li>
+ * <li>are <i>hot</i>, i.e., were invoked or looped at least {@code -XX:CodeEvictionHotnessThreshold} times since the previous cycle</li>
+ * <li>have a type profile and have been cold for at most {@code -XX:CodeEvictionMaxColdAge} cycles (such methods might soon be
+ * recompiled by the optimizing compiler, and the profile information gathered for them should not be lost)</li>
  * </ul>
- * </li>
+ * A hot method that has survived {@code -XX:CodeEvictionPromotionAge} cycles is <i>promoted</i>: it is recompiled by the optimizing
+ * compiler, and its baseline code then goes cold and is evicted.</li>
  * </ol>
+ * Only baseline code is ever evicted. The optimized code in the run-time code region, including the code of promoted methods,
+ * is never evicted and stays there for the lifetime of the VM.
  *
  * <h3>Invalidate Non-live Methods</h3>
  * Invalidation takes place in three steps:
@@ -0,0 +1,338 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.sun.max.vm.compiler;
+
+import static com.sun.max.vm.MaxineVM.*;
+
+import java.io.*;
+import java.util.*;
+
+import com.sun.max.vm.*;
+import com.sun.max.vm.actor.holder.*;
+import com.sun.max.vm.actor.member.*;
+import com.sun.max.vm.classfile.constant.*;
+import com.sun.max.vm.code.*;
+import com.sun.max.vm.compiler.RuntimeCompiler.Nature;
+import com.sun.max.vm.compiler.target.*;
+import com.sun.max.vm.type.*;
+
+/**
+ * Records the methods optimized during the warmup phase of an application so that later runs of the application
+ * can replay those compilations at startup. The record names the classes loaded by the boot and system class loaders
+ * and the methods, including default methods, for which optimized code has been produced at runtime. It is
+ * {@linkplain Record#take() taken} by walking the class registries while the application keeps running. A run that
+ * {@linkplain #replayCompilations replays} the record loads the named classes and compiles the named methods with
+ * the optimizing compiler in a background thread at startup, instead of waiting for the methods to reach the
+ * recompilation threshold.
+ * <p>
+ * This is not a checkpoint of the VM: no heap objects, class metadata or machine code are saved, so a replaying run
+ * still loads, links and compiles everything itself and only skips the profiling that would have selected the
+ * methods. Only names are recorded. The classes are looked up again with the recorded loader when the record is
+ * replayed, so a class that has changed or disappeared since the record was written is simply loaded as it is now
+ * or skipped. Classes are not initialized by the replay.
+ */
+public final class CompilationReplay {
+
+    private CompilationReplay() {
+    }
+
+    static final int MAGIC = 0x4d584352; // "MXCR"
+    static final int VERSION = 1;
+
+    static final int BOOT_LOADER = 0;
+    static final int SYSTEM_LOADER = 1;
+
+    public static VMStringOption recordCompilations = VMOptions.register(new VMStringOption("-XX:RecordCompilations=", false, null,
+        "Write the classes loaded and the methods optimized by this run to the given file. The record is taken " +
+        "after -XX:RecordCompilationsDelay seconds or, if no delay is given, when the VM exits."), MaxineVM.Phase.STARTING);
+
+    public static VMStringOption replayCompilations = VMOptions.register(new VMStringOption("-XX:ReplayCompilations=", false, null,
+        "Load the classes and optimize the methods named in the given -XX:RecordCompilations file in a background thread at startup."), MaxineVM.Phase.STARTING);
+
+    private static int RecordCompilationsDelay;
+    static {
+        VMOptions.addFieldOption("-XX:", "RecordCompilationsDelay", CompilationReplay.class,
+            "The number of seconds after startup at which the record specified by -XX:RecordCompilations is taken.", MaxineVM.Phase.STARTING);
+    }
+
+    /**
+     * Starts replaying the record specified by {@link #replayCompilations} and arranges for the record specified by
+     * {@link #recordCompilations} to be taken. This must be called once the system class loader is available.
+     */
+    public static void initialize() {
+        final String replayFile = replayCompilations.getValue();
+        if (replayFile != null) {
+            final Thread replayer = new Thread("CompilationReplayer") {
+                @Override
+                public void run() {
+                    replay(new File(replayFile));
+                }
+            };
+            replayer.setDaemon(true);
+            replayer.start();
+        }
+        final String writeFile = recordCompilations.getValue();
+        if (writeFile != null) {
+            final File file = new File(writeFile);
+            if (RecordCompilationsDelay > 0) {
+                final Thread writer = new Thread("CompilationRecorder") {
+                    @Override
+                    public void run() {
+                        try {
+                            Thread.sleep(RecordCompilationsDelay * 1000L);
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                        record(file);
+                    }
+                };
+                writer.setDaemon(true);
+                writer.start();
+            } else {
+                Runtime.getRuntime().addShutdownHook(new Thread("CompilationRecorder") {
+                    @Override
+                    public void run() {
+                        record(file);
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Records the currently loaded classes and optimized methods and writes them to a given file. An application can
+     * call this once it has finished warming up instead of relying on {@code -XX:RecordCompilationsDelay}.
+     *
+     * @return {@code true} if the record was written
+     */
+    public static boolean record(File file) {
+        final Record record = new Record();
+        record.take();
+        final File tempFile = new File(file.getPath() + ".tmp");
+        try {
+            record.write(tempFile);
+            if (!tempFile.renameTo(file)) {
+                throw new IOException("could not rename " + tempFile + " to " + file);
+            }
+        } catch (IOException e) {
+            tempFile.delete();
+            Log.println("[Error writing compilation record " + file + ": " + e.getMessage() + "]");
+            return false;
+        }
+        if (VMOptions.verboseOption.verboseCompilation) {
+            Log.println("[Wrote compilation record " + file + " with " + record.classNames.size() + " classes and " + record.methods.size() + " optimized methods]");
+        }
+        return true;
+    }
+
+    /**
+     * The loaded classes and optimized methods named by a compilation record.
+     */
+    public static final class Record implements ClassActor.Closure {
+        final List<String> classNames = new ArrayList<String>();
+        final List<Integer> classLoaders = new ArrayList<Integer>();
+        final List<String[]> methods = new ArrayList<String[]>();
+        private final ClassLoader systemClassLoader = ClassLoader.getSystemClassLoader();
+
+        /**
+         * Records the classes in the boot and system class registries and their optimized methods. The registries
+         * are concurrent maps, so they are walked without stopping the application threads: a class defined or a
+         * method compiled during the walk may or may not be recorded.
+         */
+        void take() {
+            for (ClassActor classActor : ClassRegistry.BOOT_CLASS_REGISTRY.getClassActors()) {
+                doClass(classActor);
+            }
+            for (ClassActor classActor : ClassRegistry.makeRegistry(systemClassLoader).getClassActors()) {
+                doClass(classActor);
+            }
+        }
+
+        @Override
+        public boolean doClass(ClassActor classActor) {
+            if (classActor.isArrayClass() || classActor.isPrimitiveClassActor()) {
+                return true;
+            }
+            final int loader;
+            if (classActor.classLoader == BootClassLoader.BOOT_CLASS_LOADER) {
+                loader = BOOT_LOADER;
+            } else if (classActor.classLoader == systemClassLoader) {
+                loader = SYSTEM_LOADER;
+            } else {
+                return true;
+            }
+            final String className = classActor.name.toString();
+            classNames.add(className);
+            classLoaders.add(loader);
+            addOptimizedMethods(className, classActor.localStaticMethodActors());
+            addOptimizedMethods(className, classActor.localVirtualMethodActors());
+            addOptimizedMethods(className, classActor.localInterfaceMethodActors());
+            return true;
+        }
+
+        private void addOptimizedMethods(String className, ClassMethodActor[] methodActors) {
+            for (ClassMethodActor methodActor : methodActors) {
+                if (methodActor.isProxyToDefault()) {
+                    // Compiled as the default method of the interface
+                    continue;
+                }
+                final TargetMethod targetMethod = methodActor.currentTargetMethod();
+                // Methods compiled into the boot image are optimized in every run anyway
+                if (targetMethod != null && !targetMethod.isBaseline() && !Code.bootCodeRegion().contains(targetMethod.codeStart().toAddress())) {
+                    methods.add(new String[] {className, methodActor.name.toString(), methodActor.descriptor().toString()});
+                }
+            }
+        }
+
+        /**
+         * Gets the number of classes in this record.
+         */
+        public int numberOfClasses() {
+            return classNames.size();
+        }
+
+        /**
+         * Determines if this record names a given class as loaded.
+         */
+        public boolean containsClass(String className) {
+            return classNames.contains(className);
+        }
+
+        /**
+         * Determines if this record names a given method as optimized.
+         */
+        public boolean containsMethod(String className, String name, String descriptor) {
+            for (String[] method : methods) {
+                if (method[0].equals(className) && method[1].equals(name) && method[2].equals(descriptor)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void write(File file) throws IOException {
+            final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+            try {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(classNames.size());
+                for (int i = 0; i < classNames.size(); i++) {
+                    out.writeByte(classLoaders.get(i));
+                    out.writeUTF(classNames.get(i));
+                }
+                out.writeInt(methods.size());
+                for (String[] method : methods) {
+                    out.writeUTF(method[0]);
+                    out.writeUTF(method[1]);
+                    out.writeUTF(method[2]);
+                }
+            } finally {
+                out.close();
+            }
+        }
+
+        /**
+         * Reads a record from a file written by {@link CompilationReplay#record(File)}.
+         */
+        public static Record read(File file) throws IOException {
+            final Record record = new Record();
+            final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            try {
+                if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                    throw new IOException("not a compilation record or wrong version");
+                }
+                final int numberOfClasses = in.readInt();
+                for (int i = 0; i < numberOfClasses; i++) {
+                    record.classLoaders.add((int) in.readByte());
+                    record.classNames.add(in.readUTF());
+                }
+                final int numberOfMethods = in.readInt();
+                for (int i = 0; i < numberOfMethods; i++) {
+                    record.methods.add(new String[] {in.readUTF(), in.readUTF(), in.readUTF()});
+                }
+            } finally {
+                in.close();
+            }
+            return record;
+        }
+    }
+
+    /**
+     * Loads the classes and optimizes the methods named in a compilation record file.
+     *
+     * @return the number of methods optimized or -1 if the record could not be read
+     */
+    public static int replay(File file) {
+        final Record record;
+        try {
+            record = Record.read(file);
+        } catch (IOException e) {
+            Log.println("[Compilation record " + file + " not replayed: " + e.getMessage() + "]");
+            return -1;
+        }
+        int loadedClasses = 0;
+        int optimizedMethods = 0;
+        final ClassLoader systemClassLoader = ClassLoader.getSystemClassLoader();
+        final Map<String, ClassActor> classActors = new HashMap<String, ClassActor>();
+        for (int i = 0; i < record.classNames.size(); i++) {
+            final ClassLoader classLoader = record.classLoaders.get(i) == BOOT_LOADER ? BootClassLoader.BOOT_CLASS_LOADER : systemClassLoader;
+            final String className = record.classNames.get(i);
+            try {
+                classActors.put(className, ClassActor.fromJava(Class.forName(className, false, classLoader)));
+                loadedClasses++;
+            } catch (ClassNotFoundException | LinkageError e) {
+                // The class will fail to load in the same way if the application actually uses it
+            }
+        }
+        for (String[] method : record.methods) {
+            final ClassActor classActor = classActors.get(method[0]);
+            if (classActor != null && optimize(classActor, method[1], method[2])) {
+                optimizedMethods++;
+            }
+        }
+        if (VMOptions.verboseOption.verboseCompilation) {
+            Log.println("[Replayed compilation record " + file + ": " + loadedClasses + " classes loaded, " + optimizedMethods + " methods optimized]");
+        }
+        return optimizedMethods;
+    }
+
+    private static boolean optimize(ClassActor classActor, String name, String descriptor) {
+        final Utf8Constant methodName = SymbolTable.lookupSymbol(name);
+        if (methodName == null) {
+            return false;
+        }
+        final MethodActor localMethodActor = classActor.findLocalMethodActor(methodName, SignatureDescriptor.create(descriptor));
+        if (!(localMethodActor instanceof ClassMethodActor) || localMethodActor.isAbstract() || localMethodActor.isNative()) {
+            return false;
+        }
+        final ClassMethodActor methodActor = (ClassMethodActor) localMethodActor;
+        final TargetMethod current = methodActor.currentTargetMethod();
+        if (current != null && !current.isBaseline()) {
+            return false;
+        }
+        try {
+            vm().compilationBroker.compile(methodActor, Nature.OPT, false, true);
+            return true;
+        } catch (Throwable t) {
+            // The method stays with its current code and is recompiled when it reaches the threshold as usual
+            return false;
+        }
+    }
+}
@@ -40,6 +40,7 @@ import com.sun.max.vm.profile.MethodProfile;
 import com.sun.max.vm.reference.*;
 import com.sun.max.vm.runtime.*;
 import com.sun.max.vm.stack.*;
+import com.sun.max.vm.thread.StackContinuation;
 import com.sun.max.vm.thread.VmThread;
 
 import java.util.ArrayList;
@@ -242,6 +243,9 @@ public class Deoptimization extends VmOperation {
     public void doThread(VmThread vmThread, Pointer ip, Pointer sp, Pointer fp) {
         Patcher patcher = new Patcher(methods);
         patcher.go(vmThread, ip, sp, fp);
+        for (StackContinuation c = StackContinuation.firstSuspendedOn(vmThread); c != null; c = c.nextSuspended()) {
+            patcher.go(c);
+        }
     }
 
     /**
@@ -516,6 +520,30 @@ public class Deoptimization extends VmOperation {
             assert stackIsWalkable(sfw, ip, sp, fp);
         }
 
+        /**
+         * Patch the saved return addresses denoting one of the methods in {@link #methods} in the frames of a
+         * suspended continuation, as {@link #visitFrame} does for the frames on a stack.
+         */
+        public void go(StackContinuation c) {
+            ClassMethodActor calleeMethod = null;
+            // frame 0 returns to the boot code of StackContinuation.suspend(), which is not deoptimized
+            for (int i = 1; i < c.suspendedFrameCount(); i++) {
+                TargetMethod calleeTM = c.suspendedFrameMethodAt(i - 1);
+                if (calleeTM.classMethodActor != null) {
+                    calleeMethod = calleeTM.classMethodActor;
+                }
+                TargetMethod tm = c.suspendedFrameMethodAt(i);
+                if (methods.contains(tm)) {
+                    Stub stub = deoptStub(calleeTM, calleeMethod);
+                    CodePointer to = deoptStubReturnAddress(stub, calleeTM);
+                    if (deoptLogger.enabled()) {
+                        deoptLogger.logPatchReturnAddress(tm, calleeTM, stub, to, Pointer.zero(), Pointer.zero(), c.returnAddressAt(i));
+                    }
+                    c.patchReturnAddressAt(i, to, DEOPT_RETURN_ADDRESS_OFFSET);
+                }
+            }
+        }
+
         @Override
         public boolean visitFrame(StackFrameCursor current, StackFrameCursor callee) {
             TargetMethod tm = current.targetMethod();
@@ -669,30 +697,8 @@ public class Deoptimization extends VmOperation {
      */
     public static void patchReturnAddress(StackFrameCursor caller, StackFrameCursor callee, ClassMethodActor calleeMethod) {
         TargetMethod tm = caller.targetMethod();
-        Stub.Type stubType = callee.targetMethod().stubType();
-        Stub stub;
-
-        if (stubType == null) {
-            assert calleeMethod != null;
-            stub = vm().stubs.deoptStub(calleeMethod.descriptor().returnKind(true), false);
-        } else {
-            switch (stubType) {
-                case CompilerStub: {
-                    stub = vm().stubs.deoptStub(calleeMethod.descriptor().returnKind(true), true);
-                    break;
-                }
-                case TrapStub: {
-                    stub = vm().stubs.deoptStubForSafepointPoll();
-                    break;
-                }
-                default: {
-                    assert calleeMethod != null;
-                    stub = vm().stubs.deoptStub(calleeMethod.descriptor().returnKind(true), false);
-                }
-            }
-
-        }
-        CodePointer to = stub.codeStart();
+        Stub stub = deoptStub(callee.targetMethod(), calleeMethod);
+        CodePointer to = deoptStubReturnAddress(stub, callee.targetMethod());
         Pointer save = caller.sp().plus(DEOPT_RETURN_ADDRESS_OFFSET);
         Pointer patch = callee.targetMethod().returnAddressPointer(callee);
         CodePointer from = CodePointer.from(patch.readWord(0));
@@ -700,16 +706,49 @@ public class Deoptimization extends VmOperation {
         if (deoptLogger.enabled()) {
             deoptLogger.logPatchReturnAddress(tm, callee.targetMethod(), stub, to, save, patch, from);
         }
+        patch.writeWord(0, to.toAddress());
+        save.writeWord(0, from.toAddress());
+    }
+
+    /**
+     * Selects the {@linkplain Stubs#deoptStub(CiKind, boolean) deoptimization stub} to return to from a given callee.
+     *
+     * @param calleeMethod the method of the nearest callee that is not a stub
+     */
+    static Stub deoptStub(TargetMethod callee, ClassMethodActor calleeMethod) {
+        Stub.Type stubType = callee.stubType();
+        if (stubType == null) {
+            assert calleeMethod != null;
+            return vm().stubs.deoptStub(calleeMethod.descriptor().returnKind(true), false);
+        }
+        switch (stubType) {
+            case CompilerStub: {
+                return vm().stubs.deoptStub(calleeMethod.descriptor().returnKind(true), true);
+            }
+            case TrapStub: {
+                return vm().stubs.deoptStubForSafepointPoll();
+            }
+            default: {
+                assert calleeMethod != null;
+                return vm().stubs.deoptStub(calleeMethod.descriptor().returnKind(true), false);
+            }
+        }
+    }
+
+    /**
+     * Gets the address with which to patch a return address from a given callee so that it returns to {@code stub}.
+     */
+    static CodePointer deoptStubReturnAddress(Stub stub, TargetMethod callee) {
+        CodePointer to = stub.codeStart();
         // Adjust return address taking into account return address substitution in static trampoline.
-        if (stubType == StaticTrampoline) {
+        if (callee.stubType() == StaticTrampoline) {
             if (platform().isa == ISA.AMD64) {
                 to = to.plus(AMD64TargetMethodUtil.RIP_CALL_INSTRUCTION_SIZE);
             } else {
                 throw FatalError.unimplemented("com.sun.max.vm.compiler.deopt.Deoptimization.patchReturnAddress");
             }
         }
-        patch.writeWord(0, to.toAddress());
-        save.writeWord(0, from.toAddress());
+        return to;
     }
 
     /**
@@ -230,6 +230,26 @@ public abstract class TargetMethod extends MemoryRegion {
         return 0;
     }
 
+    /**
+     * Gets the number of invocations and backward branches of this method since the previous call of this method,
+     * which {@linkplain CodeEviction code eviction} makes once per cycle. Also updates the {@linkplain #coldAge() cold
+     * age} of this method.
+     *
+     * @param hotnessThreshold the number of invocations and backward branches from which on a method counts as hot
+     * @return the number of invocations and backward branches, or {@code -1} if this method does not count them
+     */
+    public int sampleHotness(int hotnessThreshold) {
+        return -1;
+    }
+
+    /**
+     * @return the number of consecutive {@linkplain CodeEviction eviction cycles} in which this method was found to be
+     *         cold by {@link #sampleHotness(int)}.
+     */
+    public int coldAge() {
+        return 0;
+    }
+
     /**
      * Indicates that a method code is located in the boot code region.
      */
@@ -82,7 +82,7 @@ public class BootImage {
     /**
      * A version number of the boot image file layout, checked against IMAGE_FORMAT_VERSION in Native/substrate/image.c .
      */
-    public static final int BOOT_IMAGE_FORMAT_VERSION = 2;
+    public static final int BOOT_IMAGE_FORMAT_VERSION = 4;
 
     /**
      * A field section in a boot image is described by the {@code public final} and {@code final}
@@ -98,12 +98,12 @@ public class BootImage {
             this.offset = offset;
         }
 
-        static Field[] fields(Class holder, final Class fieldType) {
+        static Field[] fields(Class holder, final Class... fieldTypes) {
             Field[] declaredFields = holder.getDeclaredFields();
             ArrayList<Field> result = new ArrayList<Field>(declaredFields.length);
             for (Field declaredField : declaredFields) {
                 final int flags = Actor.ACC_FINAL | Actor.ACC_PUBLIC;
-                if ((declaredField.getModifiers() & flags) == flags && declaredField.getType().equals(fieldType)) {
+                if ((declaredField.getModifiers() & flags) == flags && Arrays.asList(fieldTypes).contains(declaredField.getType())) {
                     result.add(declaredField);
                 }
             }
@@ -239,6 +239,16 @@ public class BootImage {
          */
         public final int tlaListHeadOffset;
 
+        /**
+         * The address, in pages, at which the heap and code were linked. The boot image loader maps them at this
+         * address if it is free, in which case no relocation is needed. If 0, all pointers in the heap and code
+         * are relative to the start of the heap.
+         * <p>
+         * This is the only 64-bit entry of the header, so that addresses of 8TB and above can be expressed. Both the
+         * {@code int} entries before it and those after it are even in number, so that 'image_Header' has no padding.
+         */
+        public final long preferredHeapPage;
+
         /**
          * @see MaxineVM#exitCode
          */
@@ -306,6 +316,7 @@ public class BootImage {
             reservedVirtualSpaceFieldOffset = endian.readInt(dataInputStream);
             bootRegionMappingConstraint = endian.readInt(dataInputStream);
             tlaListHeadOffset = endian.readInt(dataInputStream);
+            preferredHeapPage = endian.readLong(dataInputStream);
             exitCodeOffset = endian.readInt(dataInputStream);
 
             tlaSize = endian.readInt(dataInputStream);
@@ -334,7 +345,7 @@ public class BootImage {
             return staticTupleOrigin.toInt() + fieldActor.offset();
         }
 
-        private Header(DataPrototype dataPrototype, int stringInfoSize) {
+        private Header(DataPrototype dataPrototype, int stringInfoSize, long preferredHeapAddress) {
             super(platform().endianness(), 0);
             final VMConfiguration vmConfiguration = vmConfig();
             isBigEndian = endianness() == Endianness.LITTLE ? 0 : 0xffffffff;
@@ -362,6 +373,8 @@ public class BootImage {
             reservedVirtualSpaceSize = vmConfiguration.heapScheme().reservedVirtualSpaceKB();
             reservedVirtualSpaceFieldOffset = staticFieldPointerOffset(dataPrototype, Heap.class, "reservedVirtualSpace");
             bootRegionMappingConstraint = vmConfiguration.heapScheme().bootRegionMappingConstraint().ordinal();
+            preferredHeapPage = preferredHeapAddress / pageSize;
+            ProgramError.check(preferredHeapPage * pageSize == preferredHeapAddress, "preferred heap address is not page aligned: 0x" + Long.toHexString(preferredHeapAddress));
             tlaListHeadOffset = dataPrototype.objectToOrigin(VmThreadMap.ACTIVE).toInt() + ClassActor.fromJava(VmThreadMap.class).findLocalInstanceFieldActor("tlaListHead").offset();
             exitCodeOffset = staticFieldPointerOffset(dataPrototype, MaxineVM.class, "exitCode");
 
@@ -385,6 +398,13 @@ public class BootImage {
             STACK_REFERENCE_MAP_SIZE = VmThreadLocal.STACK_REFERENCE_MAP_SIZE.index;
         }
 
+        /**
+         * Gets the address at which the heap and code were linked.
+         */
+        public long preferredHeapAddress() {
+            return preferredHeapPage * pageSize;
+        }
+
         public void check() throws BootImageException {
             BootImageException.check(identification == IDENTIFICATION, "not a MaxineVM VM boot image file, wrong identification: " + identification);
             BootImageException.check(bootImageFormatVersion == BOOT_IMAGE_FORMAT_VERSION, "wrong version: " + bootImageFormatVersion);
@@ -392,18 +412,32 @@ public class BootImage {
             BootImageException.check(cacheAlignment > 4 && Ints.isPowerOfTwoOrZero(cacheAlignment), "implausible alignment size: " + cacheAlignment);
             BootImageException.check(pageSize >= Longs.K && pageSize % Longs.K == 0, "implausible page size: " + pageSize);
             BootImageException.check(!(bootRegionMappingConstraint > 0 && reservedVirtualSpaceSize == 0), "invalid boot region mapping constraint");
+            BootImageException.check(preferredHeapPage >= 0, "invalid preferred heap page: " + preferredHeapPage);
+        }
+
+        @Override
+        public Field[] fields() {
+            return fields(getClass(), int.class, long.class);
         }
 
         @Override
         public int size() {
-            return fields().length * Ints.SIZE;
+            int size = 0;
+            for (Field field : fields()) {
+                size += field.getType() == long.class ? Longs.SIZE : Ints.SIZE;
+            }
+            return size;
         }
 
         @Override
         public void write(OutputStream outputStream, Endianness endian) throws IOException {
             for (Field field : fields()) {
                 try {
-                    endianness().writeInt(outputStream, field.getInt(this));
+                    if (field.getType() == long.class) {
+                        endianness().writeLong(outputStream, field.getLong(this));
+                    } else {
+                        endianness().writeInt(outputStream, field.getInt(this));
+                    }
                 } catch (IllegalAccessException illegalAccessException) {
                     throw ProgramError.unexpected();
                 }
@@ -697,17 +731,24 @@ public class BootImage {
 
     /**
      * Used when constructing a boot image to be written to a file.
+     *
+     * @param preferredHeapAddress the page aligned address at which to link the heap and code, or 0 to leave all
+     *            pointers relative to the start of the heap. Note that linking updates the heap and code data of
+     *            {@code dataPrototype} in place.
      */
-    public BootImage(DataPrototype dataPrototype) throws BootImageException {
+    public BootImage(DataPrototype dataPrototype, long preferredHeapAddress) throws BootImageException {
         this.vmConfiguration = vmConfig();
-        this.stringInfo = new StringInfo(vmConfiguration, new Header(dataPrototype, 0).size());
+        this.stringInfo = new StringInfo(vmConfiguration, new Header(dataPrototype, 0, 0L).size());
         this.stringInfo.check();
-        this.header = new Header(dataPrototype, stringInfo.size());
+        this.header = new Header(dataPrototype, stringInfo.size(), preferredHeapAddress);
         this.header.check();
         this.relocationData = dataPrototype.relocationData();
         this.padding = new byte[deltaToPageAlign(header.size() + stringInfo.size() + relocationData.length)];
         this.heap = ByteBuffer.wrap(dataPrototype.heapData());
         this.code = ByteBuffer.wrap(dataPrototype.codeData());
+        if (preferredHeapAddress != 0L) {
+            link(preferredHeapAddress);
+        }
         int trailerOffset = codeOffset() + header.codeSize;
         this.trailer = new Trailer(header, trailerOffset);
         this.imageFile = null;
@@ -820,16 +861,53 @@ public class BootImage {
         }
     }
 
+    /**
+     * Adds a given address to every non-null pointer in the heap and code, as the boot image loader does at
+     * run time when it relocates an image.
+     */
+    private void link(long address) {
+        final ByteOrder byteOrder = header.endianness().asByteOrder();
+        final ByteBuffer heapBuffer = ByteBuffer.wrap(heap.array()).order(byteOrder);
+        final ByteBuffer codeBuffer = ByteBuffer.wrap(code.array()).order(byteOrder);
+        final int heapSize = header.heapSize;
+        final int wordSize = header.wordSize;
+        for (int i = 0; i < relocationData.length; i++) {
+            final int bits = relocationData[i] & 0xff;
+            if (bits == 0) {
+                continue;
+            }
+            for (int bit = 0; bit < 8; bit++) {
+                if ((bits & (1 << bit)) != 0) {
+                    final int offset = (i * 8 + bit) * wordSize;
+                    final ByteBuffer buffer = offset < heapSize ? heapBuffer : codeBuffer;
+                    final int index = offset < heapSize ? offset : offset - heapSize;
+                    if (wordSize == 8) {
+                        final long value = buffer.getLong(index);
+                        if (value != 0L) {
+                            buffer.putLong(index, value + address);
+                        }
+                    } else {
+                        final int value = buffer.getInt(index);
+                        if (value != 0) {
+                            buffer.putInt(index, value + (int) address);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
     private static native void nativeRelocate(long heap, long relocatedHeap, byte[] relocationDataPointer, int relocationDataSize, int isBigEndian, int wordSize);
 
     /**
      * Relocates the pointers in the heap and code. All the pointers are assumed to be
-     * canonicalized; their current values assume that the heap and code start address 0.
+     * canonicalized; their current values assume that the heap and code start at {@link Header#preferredHeapAddress()}.
      *
      * @param heap the physical address at which the (contiguous) heap and code reside
      * @param relocatedHeap the logical address to which the heap and code is being relocated
      */
     public void relocate(long heap, Address relocatedHeap) {
-        nativeRelocate(heap, relocatedHeap.toLong(), relocationData, relocationData.length, header.isBigEndian, header.wordSize);
+        final long delta = relocatedHeap.toLong() - header.preferredHeapAddress();
+        nativeRelocate(heap, delta, relocationData, relocationData.length, header.isBigEndian, header.wordSize);
     }
 }
@@ -94,6 +94,10 @@ public final class BootImageGenerator {
     private static final Option<Boolean> useOutOfLineStubs = options.newBooleanOption("out-stubs", true,
             "Uses out of line runtime stubs when generating inlined TLAB allocations with XIR");
 
+    private static final Option<Long> preferredHeapAddressOption = options.newLongOption("prelink-address", 0L,
+            "Link the boot heap and code at the given page aligned address. The loader then maps them there without " +
+            "relocation if the address is free, so that image pages stay shared between VM processes. 0 disables prelinking.");
+
     // Options shared with the Inspector
     public static final OptionSet inspectorSharedOptions = new OptionSet();
 
@@ -239,7 +243,9 @@ public final class BootImageGenerator {
             configurator.create();
 
             // Initialize the Java prototype
+            long phaseStart = System.currentTimeMillis();
             JavaPrototype.initialize(prototypeGenerator.threadsOption.getValue(), checkGeneratedCodeOption.getValue());
+            GraphStats.recordPhaseTime("initialize Java prototype", phaseStart);
 
             Heap.genInlinedTLAB = inlinedTLABOption.getValue(); // TODO: cleanup. Just for evaluating impact on performance of inlined tlab alloc.
             Heap.useOutOfLineStubs = useOutOfLineStubs.getValue(); // TODO: cleanup.
@@ -261,9 +267,15 @@ public final class BootImageGenerator {
             // ClassID debugging
             ClassIDManager.validateUsedClassIds();
 
+            phaseStart = System.currentTimeMillis();
             writeJar(new File(vmDirectory, IMAGE_JAR_FILE_NAME));
+            GraphStats.recordPhaseTime("write jar", phaseStart);
+            phaseStart = System.currentTimeMillis();
             writeImage(dataPrototype, new File(vmDirectory, IMAGE_FILE_NAME));
+            GraphStats.recordPhaseTime("write image", phaseStart);
+            phaseStart = System.currentTimeMillis();
             verifyBootClasses();
+            GraphStats.recordPhaseTime("verify boot image classes", phaseStart);
             if (treeOption.getValue()) {
                 // write the tree file only if specified by the user.
                 writeObjectTree(dataPrototype, graphPrototype, new File(vmDirectory, IMAGE_OBJECT_TREE_FILE_NAME));
@@ -276,6 +288,9 @@ public final class BootImageGenerator {
             throw ProgramError.unexpected("could not write file ", ioException);
         } finally {
             final long timeInMilliseconds = System.currentTimeMillis() - start;
+            if (Trace.hasLevel(1)) {
+                GraphStats.printPhaseTimes(Trace.stream());
+            }
             Trace.line(1, "Total time: " + (timeInMilliseconds / 1000.0f) + " seconds");
             System.out.flush();
         }
@@ -360,7 +375,7 @@ public final class BootImageGenerator {
     private void writeImage(DataPrototype dataPrototype, File file) {
         try {
             final FileOutputStream outputStream = new FileOutputStream(file);
-            final BootImage bootImage = new BootImage(dataPrototype);
+            final BootImage bootImage = new BootImage(dataPrototype, preferredHeapAddressOption.getValue());
             try {
                 Trace.begin(1, "writing boot image file: " + file);
                 bootImage.write(outputStream);
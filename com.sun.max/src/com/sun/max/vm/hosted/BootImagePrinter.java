@@ -359,7 +359,9 @@ public class BootImagePrinter {
             } catch (Exception e) {
                 value = "error: " + e;
             }
-            if (section.fieldType() == int.class) {
+            if (field.getType() == long.class) {
+                out.printf("%" + nameWidth + "s:   %-" + valueWidth + "s   0x%016x%n", field.getName(), value, value);
+            } else if (section.fieldType() == int.class) {
                 out.printf("%" + nameWidth + "s:   %-" + valueWidth + "s   0x%08x%n", field.getName(), value, value);
             } else {
                 assert section.fieldType() == String.class;
@@ -368,6 +368,13 @@ public class CompiledPrototype extends Prototype {
 
     private final int numberOfCompilerThreads;
 
+    /**
+     * The pool of compiler threads, shared by all rounds of {@link #compileWorklist()}. A work-stealing pool keeps all
+     * threads busy when a round has a few expensive methods among many cheap ones, and creating the pool once avoids
+     * starting new threads for each of the many small rounds near the fixpoint.
+     */
+    private ForkJoinPool compilationPool;
+
     private static CompiledPrototype instance;
 
     /**
@@ -593,7 +600,10 @@ public class CompiledPrototype extends Prototype {
         } else {
             int submittedCompilations = totalCompilations;
 
-            final ExecutorService compilationService = Executors.newFixedThreadPool(numberOfCompilerThreads);
+            if (compilationPool == null) {
+                compilationPool = new ForkJoinPool(numberOfCompilerThreads);
+            }
+            final ForkJoinPool compilationService = compilationPool;
             final CompletionService<TargetMethod> compilationCompletionService = new ExecutorCompletionService<TargetMethod>(compilationService);
 
             while (true) {
@@ -629,6 +639,7 @@ public class CompiledPrototype extends Prototype {
                     e.printStackTrace();
                 } catch (ExecutionException executionException) {
                     compilationService.shutdownNow();
+                    compilationPool = null;
                     throw ProgramError.unexpected(executionException.getCause());
                 }
                 ++totalCompilations;
@@ -636,8 +647,6 @@ public class CompiledPrototype extends Prototype {
                     Trace.line(1, "compiled: " + totalCompilations + " (" + methodActors.size() + " methods)");
                 }
             }
-
-            compilationService.shutdown();
         }
 
         final int newCompilations = totalCompilations - initialNumberOfCompilations;
@@ -937,9 +946,20 @@ public class CompiledPrototype extends Prototype {
         }
     }
 
+    /**
+     * Links the compiled code. No methods are compiled after linking, so this also shuts down the
+     * {@linkplain #compilationPool compiler threads}.
+     */
     public void link() {
-        linkNonVirtualCalls();
-        linkVTableEntries();
-        linkITableEntries();
+        try {
+            linkNonVirtualCalls();
+            linkVTableEntries();
+            linkITableEntries();
+        } finally {
+            if (compilationPool != null) {
+                compilationPool.shutdown();
+                compilationPool = null;
+            }
+        }
     }
 }
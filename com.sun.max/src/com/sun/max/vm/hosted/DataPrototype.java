@@ -235,8 +235,10 @@ public final class DataPrototype extends Prototype {
         preventNullConfusion();
         final BootHeapRegion heapRegion = Heap.bootHeapRegion;
 
-        assignHeapCells(heapRegion, true);
-        assignHeapCells(heapRegion, false);
+        final List<Object> objects = graphPrototype.objects();
+        final int[] sizes = computeObjectSizes(objects);
+        assignHeapCells(heapRegion, objects, sizes, true);
+        assignHeapCells(heapRegion, objects, sizes, false);
 
         final Object alignment = createPageAlignmentObject(heapRegion);
         if (alignment != null) {
@@ -247,29 +249,72 @@ public final class DataPrototype extends Prototype {
         assert heapRegion.size().remainder(pageSize) == 0;
     }
 
+    /**
+     * Computes the sizes of a list of objects in parallel. Cells must be assigned in order, but computing the size of
+     * a hosted object goes through its class actor and layout, which is the bulk of the work of assigning a cell.
+     *
+     * @return the size of each object in {@code objects}, at the same index
+     */
+    private int[] computeObjectSizes(final List<Object> objects) {
+        Trace.begin(1, "computeObjectSizes");
+        final int[] sizes = new int[objects.size()];
+        final ThreadPoolExecutor executor = (ThreadPoolExecutor) Executors.newFixedThreadPool(threadCount);
+        final CompletionService<Integer> completionService = new ExecutorCompletionService<Integer>(executor);
+        for (int n = 0; n < objects.size(); n += BATCH) {
+            final int start = n;
+            completionService.submit(new Callable<Integer>() {
+                public Integer call() throws Exception {
+                    final int end = Math.min(objects.size(), start + BATCH);
+                    for (int i = start; i < end; i++) {
+                        sizes[i] = ObjectAccess.size(objects.get(i)).toInt();
+                    }
+                    return end - start;
+                }
+            });
+        }
+        for (int n = 0; n < objects.size(); n += BATCH) {
+            try {
+                completionService.take().get();
+            } catch (Throwable throwable) {
+                executor.shutdownNow();
+                throw ProgramError.unexpected(throwable);
+            }
+        }
+        executor.shutdown();
+        if (checkParallelPhases) {
+            for (int i = 0; i < objects.size(); i++) {
+                ProgramError.check(sizes[i] == ObjectAccess.size(objects.get(i)).toInt(), "size computed in parallel differs for " + objects.get(i).getClass());
+            }
+        }
+        Trace.end(1, "computeObjectSizes: " + objects.size() + " objects");
+        return sizes;
+    }
+
     /**
      * Assigns cells to some heap objects.
      *
      * @param heapRegion the boot heap region in which the objects are to be allocated
+     * @param objects the objects of the graph prototype
+     * @param sizes the {@linkplain #computeObjectSizes(List) sizes} of {@code objects}
      * @param objectsWithMutableReferences if {@code true} then only objects
      *            {@linkplain ClassInfo#containsMutableReferences(Object) containing mutable references} are processed;
      *            otherwise only objects the do not contain mutable object references are processed
      */
-    private void assignHeapCells(BootHeapRegion heapRegion, boolean objectsWithMutableReferences) {
+    private void assignHeapCells(BootHeapRegion heapRegion, List<Object> objects, int[] sizes, boolean objectsWithMutableReferences) {
         final String tracePrefix = "assign" + (objectsWithMutableReferences ? "Mutable" : "Immutable") + "HeapCells: ";
         Trace.begin(1, tracePrefix);
         int count = 0;
         final Address mark = heapRegion.getAllocationMark();
-        final List<Object> mutableHeapObjects = new ArrayList<Object>(graphPrototype.objects().size());
-        for (Object object : graphPrototype.objects()) {
+        final List<Object> mutableHeapObjects = new ArrayList<Object>(objects.size());
+        for (int i = 0; i < objects.size(); i++) {
+            final Object object = objects.get(i);
             final ClassInfo classInfo = graphPrototype.classInfoFor(object);
             if (classInfo.containsMutableReferences(object) == objectsWithMutableReferences) {
                 Address cell = objectToCell.get(object);
                 if (cell != null) {
                     assert Code.bootCodeRegion().contains(cell);
                 } else {
-                    final Size size = ObjectAccess.size(object);
-                    cell = heapRegion.allocate(size, true);
+                    cell = heapRegion.allocate(Size.fromInt(sizes[i]), true);
                     assignHeapCell(object, cell);
 
                     if (objectsWithMutableReferences) {
@@ -796,6 +841,12 @@ public final class DataPrototype extends Prototype {
     private final int threadCount;
     private static final int BATCH = 10000;
 
+    /**
+     * Specifies if the object sizes and relocation flags computed in parallel are checked against a serial
+     * recomputation.
+     */
+    private final boolean checkParallelPhases;
+
     /**
      * Create the data representation of the objects.
      *
@@ -971,27 +1022,49 @@ public final class DataPrototype extends Prototype {
     }
 
     /**
-     * A visitor that sets the relocation flag for references.
+     * The relocation flags found by scanning one batch of objects. Batches are scanned in parallel without
+     * synchronization and each batch is then {@linkplain #commit() committed} to {@link #relocationFlags} under a
+     * single lock acquisition, as concurrent updates to the same byte of the bit map would otherwise be lost.
      */
-    private final PointerIndexVisitor originVisitor = new PointerIndexVisitor() {
+    private final class RelocationBatch extends PointerIndexVisitor {
+        private int[] indexes = new int[1024];
+        private int count;
+
+        void add(Address address) {
+            assert address.remainder(alignment) == 0;
+            if (count == indexes.length) {
+                indexes = Arrays.copyOf(indexes, count * 2);
+            }
+            indexes[count++] = address.toInt() / alignment;
+        }
+
         @Override
         public void visit(Pointer origin, int index) {
-            setRelocationFlag(origin.plus(index * Word.size()));
+            add(origin.plus(index * Word.size()));
         }
-    };
+
+        void commit() {
+            synchronized (relocationFlags) {
+                for (int i = 0; i < count; i++) {
+                    relocationFlags.set(indexes[i]);
+                }
+            }
+        }
+    }
 
     /**
-     * Sets the relocation flags for the specified object.
+     * Finds the relocation flags for the specified object.
      *
      * @param object the object to scan
      * @param cell the cell which contains the object
+     * @param batch the batch to which the flags are added
      * @return the number of references within the object
      */
-    private synchronized int setRelocationFlags(Object object, Address cell) {
+    private int setRelocationFlags(Object object, Address cell, RelocationBatch batch) {
         final Hub hub = ObjectAccess.readHub(object);
         final SpecificLayout specificLayout = hub.specificLayout;
 
-        setRelocationFlag(cell.plus(specificLayout.getHubReferenceOffsetInCell()));
+        batch.add(cell.plus(specificLayout.getHubReferenceOffsetInCell()));
         if (specificLayout.isArrayLayout()) {
             if (specificLayout.isReferenceArrayLayout()) {
                 final ArrayLayout arrayLayout = (ArrayLayout) specificLayout;
@@ -999,16 +1072,16 @@ public final class DataPrototype extends Prototype {
                 final int n = ArrayAccess.readArrayLength(object);
                 for (int i = 0; i < n; i++) {
                     final Address address = cell.plus(arrayLayout.getElementOffsetInCell(i));
-                    setRelocationFlag(address);
+                    batch.add(address);
                 }
                 return 1 + n;
             }
             return 1;
         }
         final Pointer origin = specificLayout.cellToOrigin(cell.asPointer());
-        TupleReferenceMap.visitReferences(hub, origin, originVisitor);
+        TupleReferenceMap.visitReferences(hub, origin, batch);
         if (hub.isJLRReference) {
-            originVisitor.visit(origin, ClassRegistry.JLRReference_referent.offset() / Word.size());
+            batch.visit(origin, ClassRegistry.JLRReference_referent.offset() / Word.size());
         }
         return 1 + hub.referenceMapLength;
     }
@@ -1032,10 +1105,12 @@ public final class DataPrototype extends Prototype {
                     try {
                         int numberOfRelocationsInBatch = 0;
                         final int end = Math.min(objects.size(), start + BATCH);
+                        final RelocationBatch batch = new RelocationBatch();
                         for (int i = start; i < end; i++) {
                             final Object object = objects.get(i);
-                            numberOfRelocationsInBatch += setRelocationFlags(object, objectToCell.get(object));
+                            numberOfRelocationsInBatch += setRelocationFlags(object, objectToCell.get(object), batch);
                         }
+                        batch.commit();
                         return numberOfRelocationsInBatch;
                     } catch (Exception e) {
                         executor.shutdown();
@@ -1054,9 +1129,29 @@ public final class DataPrototype extends Prototype {
         }
 
         executor.shutdown();
+        if (checkParallelPhases) {
+            checkObjectRelocationFlags(objects, numberOfRelocations);
+        }
         Trace.end(1, "assignObjectRelocationFlags - " + name + " relocations: " + numberOfRelocations);
     }
 
+    /**
+     * Checks the relocation flags assigned in parallel for some objects against a serial scan of the objects.
+     * Every flag found by the serial scan must be set and the scan must find as many references as the parallel
+     * batches did.
+     */
+    private void checkObjectRelocationFlags(List<Object> objects, int numberOfRelocations) {
+        final RelocationBatch batch = new RelocationBatch();
+        int serialNumberOfRelocations = 0;
+        for (Object object : objects) {
+            serialNumberOfRelocations += setRelocationFlags(object, objectToCell.get(object), batch);
+        }
+        ProgramError.check(serialNumberOfRelocations == numberOfRelocations, "number of relocations found in parallel differs: " + numberOfRelocations + " != " + serialNumberOfRelocations);
+        for (int i = 0; i < batch.count; i++) {
+            ProgramError.check(relocationFlags.isSet(batch.indexes[i]), "relocation flag not set in parallel at " + (batch.indexes[i] * alignment));
+        }
+    }
+
     /**
      * Assigns relocation flags for all method dispatch tables. TODO: generalize to any kind of hybrid?
      */
@@ -1148,9 +1243,22 @@ public final class DataPrototype extends Prototype {
      * @param mapFile a file to which to write map information; if {@code null}, no map information will be written
      */
     public DataPrototype(GraphPrototype graphPrototype, File mapFile, int threadCount) {
+        this(graphPrototype, mapFile, threadCount, false);
+    }
+
+    /**
+     * Create and build a new data prototype from the specified graph prototype.
+     *
+     * @param graphPrototype the graph prototype for which to build the data prototype
+     * @param mapFile a file to which to write map information; if {@code null}, no map information will be written
+     * @param checkParallelPhases specifies if the results of the phases run in parallel are checked against a serial
+     *            recomputation
+     */
+    public DataPrototype(GraphPrototype graphPrototype, File mapFile, int threadCount, boolean checkParallelPhases) {
         this.graphPrototype = graphPrototype;
         final Platform platform = platform();
         this.threadCount = threadCount;
+        this.checkParallelPhases = checkParallelPhases;
         pageSize = platform.pageSize;
         dataModel = platform.dataModel;
         alignment = Word.size();
@@ -1159,10 +1267,12 @@ public final class DataPrototype extends Prototype {
         tagging = vmConfig().debugging() && vmConfig().heapScheme().supportsTagging();
         Trace.begin(1, DataPrototype.class.getSimpleName());
 
+        long phaseStart = System.currentTimeMillis();
         assignCodeCells();
         assignHeapCells();
 
         adjustMemoryRegions();
+        GraphStats.recordPhaseTime("assign cells", phaseStart);
 
         MaxineVM vm = vm();
         // From now on, all objects have been assigned their final cells location.
@@ -1177,6 +1287,7 @@ public final class DataPrototype extends Prototype {
         heapDataWriter = new ByteArrayMemoryRegionWriter(Heap.bootHeapRegion, "heap");
         codeDataWriter = new ByteArrayMemoryRegionWriter(Code.bootCodeRegion(), "code");
 
+        phaseStart = System.currentTimeMillis();
         int numberOfBytes = createData(heapObjects, heapDataWriter);
         final int bootHeapRegionSize = Heap.bootHeapRegion.size().toInt();
         ProgramWarning.check(numberOfBytes == bootHeapRegionSize, "numberOfBytes != bootHeapRegionSize");
@@ -1185,10 +1296,14 @@ public final class DataPrototype extends Prototype {
         final int bootCodeRegionSize = Code.bootCodeRegion().size().toInt();
         ProgramWarning.check(numberOfBytes <= bootCodeRegionSize, "numberOfBytes > bootCodeRegionSize");
 
+        GraphStats.recordPhaseTime("create data", phaseStart);
+
         // one bit per alignment unit
         relocationFlags = new ByteArrayBitMap((heapDataWriter.data().length + codeDataWriter.data().length) / alignment);
 
+        phaseStart = System.currentTimeMillis();
         assignRelocationFlags();
+        GraphStats.recordPhaseTime("assign relocation flags", phaseStart);
 
         if (mapFile != null) {
             try {
@@ -81,6 +81,43 @@ public class GraphStats {
     final GraphPrototype graphPrototype;
     final Map<MethodActor, MethodStats> methodStats = new HashMap<MethodActor, MethodStats>();
 
+    /**
+     * The wall clock time spent in each phase of boot image generation, in milliseconds, in the order the phases
+     * were first entered. A phase entered more than once (e.g. compilation) accumulates its times.
+     */
+    private static final Map<String, Long> phaseTimes = new LinkedHashMap<String, Long>();
+
+    /**
+     * Records the time spent in a phase of boot image generation.
+     *
+     * @param phase the name of the phase
+     * @param startTimeMillis the time at which the phase started, as given by {@link System#currentTimeMillis()}
+     */
+    public static void recordPhaseTime(String phase, long startTimeMillis) {
+        final long time = System.currentTimeMillis() - startTimeMillis;
+        synchronized (phaseTimes) {
+            final Long previous = phaseTimes.get(phase);
+            phaseTimes.put(phase, previous == null ? time : previous + time);
+        }
+    }
+
+    public static void printPhaseTimes(PrintStream printStream) {
+        synchronized (phaseTimes) {
+            long total = 0;
+            for (long time : phaseTimes.values()) {
+                total += time;
+            }
+            printStream.println("Phase Times Start");
+            printStream.println("Time (ms)  Percent  Phase");
+            printStream.println("==============================================================================");
+            for (Map.Entry<String, Long> entry : phaseTimes.entrySet()) {
+                final String percent = Strings.padLengthWithSpaces(6, Strings.fixedDouble(total == 0 ? 0.0d : entry.getValue() * 100.0d / total, 2));
+                printStream.printf("%-10d %s%%  %s\n", entry.getValue(), percent, entry.getKey());
+            }
+            printStream.println("Phase Times End\n");
+        }
+    }
+
     public GraphStats(GraphPrototype graphPrototype) {
         this.graphPrototype = graphPrototype;
     }
@@ -89,6 +126,7 @@ public class GraphStats {
         printObjectStats(printStream, computeObjectStats());
         printClassStats(printStream, computeClassStats());
         printMethodStats(printStream);
+        printPhaseTimes(printStream);
     }
 
     private void printObjectStats(PrintStream printStream, final int total) {
@@ -41,6 +41,8 @@ public final class PrototypeGenerator {
 
     final Option<Integer> threadsOption;
 
+    final Option<Boolean> checkParallelOption;
+
     /**
      * Creates a new prototype generator.
      *
@@ -49,6 +51,8 @@ public final class PrototypeGenerator {
     public PrototypeGenerator(OptionSet optionSet) {
         threadsOption = optionSet.newIntegerOption("threads", Runtime.getRuntime().availableProcessors(),
             "Specifies the number of threads to be used for parallel compilation.");
+        checkParallelOption = optionSet.newBooleanOption("check-parallel", false,
+            "Checks the object sizes and relocation flags computed in parallel against a serial recomputation.");
     }
 
     /**
@@ -75,21 +79,32 @@ public final class PrototypeGenerator {
                 compiledPrototype.add(methodActor, null, null);
             }
             numberOfClassActors = currentNumberOfClasses();
-            if (compiledPrototype.compile()) {
+            long phaseStart = System.currentTimeMillis();
+            final boolean compiled = compiledPrototype.compile();
+            GraphStats.recordPhaseTime("compile", phaseStart);
+            if (compiled) {
+                phaseStart = System.currentTimeMillis();
                 graphPrototype = new GraphPrototype(compiledPrototype);
+                GraphStats.recordPhaseTime("build object graph", phaseStart);
             }
+            phaseStart = System.currentTimeMillis();
             compiledPrototype.compileFoldableMethods();
+            GraphStats.recordPhaseTime("compile", phaseStart);
         } while (currentNumberOfClasses() != numberOfClassActors);
 
+        long phaseStart = System.currentTimeMillis();
         compiledPrototype.resolveAlias();
         assert compiledPrototype.invalidatedTargetMethods.isEmpty();
 
         compiledPrototype.link();
+        GraphStats.recordPhaseTime("link", phaseStart);
 
         // From now on, no code will be added to the boot regions.
         vmConfig().initializeSchemes(Phase.SERIALIZING_IMAGE);
 
+        phaseStart = System.currentTimeMillis();
         graphPrototype = new GraphPrototype(compiledPrototype);
+        GraphStats.recordPhaseTime("build object graph", phaseStart);
 
         Code.bootCodeRegion().trim();
         return graphPrototype;
@@ -109,7 +124,7 @@ public final class PrototypeGenerator {
         }
 
         final GraphPrototype graphPrototype = createGraphPrototype();
-        final DataPrototype dataPrototype = new DataPrototype(graphPrototype, null, threadsOption.getValue());
+        final DataPrototype dataPrototype = new DataPrototype(graphPrototype, null, threadsOption.getValue(), checkParallelOption.getValue());
         return dataPrototype;
     }
 
@@ -25,7 +25,10 @@ package com.sun.max.vm.jdk;
 import static com.sun.max.vm.intrinsics.MaxineIntrinsicIDs.*;
 
 import com.sun.max.annotate.*;
+import com.sun.max.unsafe.*;
 import com.sun.max.vm.classfile.constant.*;
+import com.sun.max.vm.layout.*;
+import com.sun.max.vm.object.*;
 
 /**
  * Method substitutions for {@link java.lang.String java.lang.String}.
@@ -40,6 +43,12 @@ public final class JDK_java_lang_String {
     @INTRINSIC(UNSAFE_CAST)
     private native String thisString();
 
+    @INTRINSIC(UNSAFE_CAST)
+    private static native JDK_java_lang_String asThis(String string);
+
+    @ALIAS(declaringClass = String.class)
+    private char[] value;
+
     /**
      * Intern this string, returning a canonicalized version.
      * @see java.lang.String#intern()
@@ -50,4 +59,56 @@ public final class JDK_java_lang_String {
     public String intern() {
         return SymbolTable.intern(thisString());
     }
+
+    /**
+     * Compares this string to another object, comparing the character arrays a block at a time.
+     * @see java.lang.String#equals(Object)
+     */
+    @SUBSTITUTE("equals")
+    public boolean equals_SUBSTITUTE(Object anObject) {
+        if (thisString() == anObject) {
+            return true;
+        }
+        if (anObject instanceof String) {
+            final char[] v1 = value;
+            final char[] v2 = asThis((String) anObject).value;
+            final int n = v1.length;
+            if (n == v2.length) {
+                final Offset first = Layout.charArrayLayout().getElementOffsetFromOrigin(0);
+                return ArrayKernels.equals(v1, first, v2, first, (long) n << 1);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Finds the first occurrence of a code point at or after a given index, scanning a block of characters at a time.
+     * @see java.lang.String#indexOf(int, int)
+     */
+    @SUBSTITUTE
+    public int indexOf(int ch, int fromIndex) {
+        final char[] v = value;
+        final int max = v.length;
+        if (fromIndex < 0) {
+            fromIndex = 0;
+        } else if (fromIndex >= max) {
+            return -1;
+        }
+        if (ch < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+            if (ch < 0) {
+                return -1;
+            }
+            return ArrayKernels.indexOf(v, Layout.charArrayLayout().getElementOffsetFromOrigin(0), fromIndex, max, (char) ch);
+        }
+        if (Character.isValidCodePoint(ch)) {
+            final char hi = Character.highSurrogate(ch);
+            final char lo = Character.lowSurrogate(ch);
+            for (int i = fromIndex; i < max - 1; i++) {
+                if (v[i] == hi && v[i + 1] == lo) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
 }
@@ -33,7 +33,9 @@ import com.sun.max.vm.*;
 import com.sun.max.vm.MaxineVM.NativeProperty;
 import com.sun.max.vm.actor.holder.ClassActor;
 import com.sun.max.vm.actor.holder.Hub;
+import com.sun.max.vm.layout.ArrayLayout;
 import com.sun.max.vm.object.ArrayAccess;
+import com.sun.max.vm.object.ArrayKernels;
 import com.sun.max.vm.object.ObjectAccess;
 import com.sun.max.vm.runtime.FatalError;
 import com.sun.max.vm.type.BootClassLoader;
@@ -135,163 +137,55 @@ public final class JDK_java_lang_System {
     }
 
     /**
-     * Performs an array copy in the forward direction.
+     * Performs a copy between arrays of the same primitive kind. The regions may overlap.
      *
+     * @param hub                   the hub shared by the source and destination arrays
      * @param kind                  the element kind
      * @param fromArray             the source array
      * @param fromIndex             the start index in the source array
      * @param toArray               the destination array
      * @param toIndex               the start index in the destination array
      * @param length                the number of elements to copy
+     */
+    private static void primitiveArrayCopy(Hub hub, Kind kind, Object fromArray, int fromIndex, Object toArray, int toIndex, int length) {
+        final ArrayLayout arrayLayout = (ArrayLayout) hub.specificLayout;
+        ArrayKernels.copy(fromArray, arrayLayout.getElementOffsetFromOrigin(fromIndex),
+                          toArray, arrayLayout.getElementOffsetFromOrigin(toIndex),
+                          (long) length * kind.width.numberOfBytes);
+    }
+
+    /**
+     * Performs a reference array copy in the forward direction.
+     *
+     * @param fromArray             the source array
+     * @param fromIndex             the start index in the source array
+     * @param toArray               the destination array
+     * @param toIndex               the start index in the destination array
+     * @param length                the number of elements to copy
      * @param toComponentClassActor the class actor representing the component type of the destination array
      */
-    private static void arrayCopyForward(final Kind kind, Object fromArray, int fromIndex, Object toArray, int toIndex, int length, ClassActor toComponentClassActor) {
-        switch (kind.asEnum) {
-            case BYTE: {
-                for (int i = 0; i < length; i++) {
-                    ArrayAccess.setByte(toArray, toIndex + i, ArrayAccess.getByte(fromArray, fromIndex + i));
-                }
-                break;
-            }
-            case BOOLEAN: {
-                for (int i = 0; i < length; i++) {
-                    ArrayAccess.setBoolean(toArray, toIndex + i, ArrayAccess.getBoolean(fromArray, fromIndex + i));
-                }
-                break;
-            }
-            case SHORT: {
-                for (int i = 0; i < length; i++) {
-                    ArrayAccess.setShort(toArray, toIndex + i, ArrayAccess.getShort(fromArray, fromIndex + i));
-                }
-                break;
-            }
-            case CHAR: {
-                for (int i = 0; i < length; i++) {
-                    ArrayAccess.setChar(toArray, toIndex + i, ArrayAccess.getChar(fromArray, fromIndex + i));
-                }
-                break;
-            }
-            case INT: {
-                for (int i = 0; i < length; i++) {
-                    ArrayAccess.setInt(toArray, toIndex + i, ArrayAccess.getInt(fromArray, fromIndex + i));
-                }
-                break;
-            }
-            case FLOAT: {
-                for (int i = 0; i < length; i++) {
-                    ArrayAccess.setFloat(toArray, toIndex + i, ArrayAccess.getFloat(fromArray, fromIndex + i));
-                }
-                break;
-            }
-            case LONG: {
-                for (int i = 0; i < length; i++) {
-                    ArrayAccess.setLong(toArray, toIndex + i, ArrayAccess.getLong(fromArray, fromIndex + i));
-                }
-                break;
-            }
-            case DOUBLE: {
-                for (int i = 0; i < length; i++) {
-                    ArrayAccess.setDouble(toArray, toIndex + i, ArrayAccess.getDouble(fromArray, fromIndex + i));
-                }
-                break;
-            }
-            case WORD: {
-                for (int i = 0; i < length; i++) {
-                    ArrayAccess.setWord(toArray, toIndex + i, ArrayAccess.getWord(fromArray, fromIndex + i));
-                }
-                break;
-            }
-            case REFERENCE: {
-                for (int i = 0; i < length; i++) {
-                    final Object object = ArrayAccess.getObject(fromArray, fromIndex + i);
-                    if (toComponentClassActor != null && !toComponentClassActor.isNullOrInstance(object)) {
-                        throw new ArrayStoreException();
-                    }
-                    ArrayAccess.setObject(toArray, toIndex + i, object);
-                }
-                break;
-            }
-            default: {
-                throw ProgramError.unknownCase("arrayCopyForward");
+    private static void arrayCopyForward(Object fromArray, int fromIndex, Object toArray, int toIndex, int length, ClassActor toComponentClassActor) {
+        for (int i = 0; i < length; i++) {
+            final Object object = ArrayAccess.getObject(fromArray, fromIndex + i);
+            if (toComponentClassActor != null && !toComponentClassActor.isNullOrInstance(object)) {
+                throw new ArrayStoreException();
             }
+            ArrayAccess.setObject(toArray, toIndex + i, object);
         }
     }
 
     /**
-     * Performs an array copy in the backward direction.
+     * Performs a reference array copy in the backward direction.
      *
-     * @param kind      the element kind
      * @param fromArray the source array
      * @param fromIndex the start index in the source array
      * @param toArray   the destination array
      * @param toIndex   the start index in the destination array
      * @param length    the number of elements to copy
      */
-    private static void arrayCopyBackward(final Kind kind, Object fromArray, int fromIndex, Object toArray, int toIndex, int length) {
-        switch (kind.asEnum) {
-            case BYTE: {
-                for (int i = length - 1; i >= 0; i--) {
-                    ArrayAccess.setByte(toArray, toIndex + i, ArrayAccess.getByte(fromArray, fromIndex + i));
-                }
-                break;
-            }
-            case BOOLEAN: {
-                for (int i = length - 1; i >= 0; i--) {
-                    ArrayAccess.setBoolean(toArray, toIndex + i, ArrayAccess.getBoolean(fromArray, fromIndex + i));
-                }
-                break;
-            }
-            case SHORT: {
-                for (int i = length - 1; i >= 0; i--) {
-                    ArrayAccess.setShort(toArray, toIndex + i, ArrayAccess.getShort(fromArray, fromIndex + i));
-                }
-                break;
-            }
-            case CHAR: {
-                for (int i = length - 1; i >= 0; i--) {
-                    ArrayAccess.setChar(toArray, toIndex + i, ArrayAccess.getChar(fromArray, fromIndex + i));
-                }
-                break;
-            }
-            case INT: {
-                for (int i = length - 1; i >= 0; i--) {
-                    ArrayAccess.setInt(toArray, toIndex + i, ArrayAccess.getInt(fromArray, fromIndex + i));
-                }
-                break;
-            }
-            case FLOAT: {
-                for (int i = length - 1; i >= 0; i--) {
-                    ArrayAccess.setFloat(toArray, toIndex + i, ArrayAccess.getFloat(fromArray, fromIndex + i));
-                }
-                break;
-            }
-            case LONG: {
-                for (int i = length - 1; i >= 0; i--) {
-                    ArrayAccess.setLong(toArray, toIndex + i, ArrayAccess.getLong(fromArray, fromIndex + i));
-                }
-                break;
-            }
-            case DOUBLE: {
-                for (int i = length - 1; i >= 0; i--) {
-                    ArrayAccess.setDouble(toArray, toIndex + i, ArrayAccess.getDouble(fromArray, fromIndex + i));
-                }
-                break;
-            }
-            case WORD: {
-                for (int i = length - 1; i >= 0; i--) {
-                    ArrayAccess.setWord(toArray, toIndex + i, ArrayAccess.getWord(fromArray, fromIndex + i));
-                }
-                break;
-            }
-            case REFERENCE: {
-                for (int i = length - 1; i >= 0; i--) {
-                    ArrayAccess.setObject(toArray, toIndex + i, ArrayAccess.getObject(fromArray, fromIndex + i));
-                }
-                break;
-            }
-            default: {
-                throw ProgramError.unknownCase("arrayCopyBackward");
-            }
+    private static void arrayCopyBackward(Object fromArray, int fromIndex, Object toArray, int toIndex, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            ArrayAccess.setObject(toArray, toIndex + i, ArrayAccess.getObject(fromArray, fromIndex + i));
         }
     }
 
@@ -321,12 +215,20 @@ public final class JDK_java_lang_System {
                 if (fromIndex < 0 || length < 0 || toIndex + length > ArrayAccess.readArrayLength(fromArray)) {
                     throw new IndexOutOfBoundsException();
                 }
-                arrayCopyBackward(kind, fromArray, fromIndex, fromArray, toIndex, length);
+                if (kind != Kind.REFERENCE) {
+                    primitiveArrayCopy(fromHub, kind, fromArray, fromIndex, fromArray, toIndex, length);
+                } else {
+                    arrayCopyBackward(fromArray, fromIndex, fromArray, toIndex, length);
+                }
             } else if (fromIndex != toIndex) {
                 if (toIndex < 0 || length < 0 || fromIndex + length > ArrayAccess.readArrayLength(fromArray)) {
                     throw new IndexOutOfBoundsException();
                 }
-                arrayCopyForward(kind, fromArray, fromIndex, fromArray, toIndex, length, null);
+                if (kind != Kind.REFERENCE) {
+                    primitiveArrayCopy(fromHub, kind, fromArray, fromIndex, fromArray, toIndex, length);
+                } else {
+                    arrayCopyForward(fromArray, fromIndex, fromArray, toIndex, length, null);
+                }
             }
             return;
         }
@@ -337,7 +239,11 @@ public final class JDK_java_lang_System {
                     toIndex + length > ArrayAccess.readArrayLength(toArray)) {
                 throw new IndexOutOfBoundsException();
             }
-            arrayCopyForward(kind, fromArray, fromIndex, toArray, toIndex, length, null);
+            if (kind != Kind.REFERENCE) {
+                primitiveArrayCopy(fromHub, kind, fromArray, fromIndex, toArray, toIndex, length);
+            } else {
+                arrayCopyForward(fromArray, fromIndex, toArray, toIndex, length, null);
+            }
         } else {
             final ClassActor toArrayClassActor = toHub.classActor;
             if (!toArrayClassActor.isArrayClass()) {
@@ -352,7 +258,7 @@ public final class JDK_java_lang_System {
                     toIndex + length > ArrayAccess.readArrayLength(toArray)) {
                 throw new IndexOutOfBoundsException();
             }
-            arrayCopyForward(kind, fromArray, fromIndex, toArray, toIndex, length, toComponentClassActor);
+            arrayCopyForward(fromArray, fromIndex, toArray, toIndex, length, toComponentClassActor);
         }
     }
 
@@ -143,7 +143,7 @@ public final class JDK_java_lang_Thread {
      */
     @SUBSTITUTE
     public static Thread currentThread() {
-        return VmThread.current().javaThread();
+        return VmThread.current().currentJavaThread();
     }
 
     /**
@@ -152,6 +152,11 @@ public final class JDK_java_lang_Thread {
      */
     @SUBSTITUTE
     public static void yield() {
+        final VirtualThread virtualThread = VirtualThread.current();
+        if (virtualThread != null) {
+            virtualThread.yieldNow();
+            return;
+        }
         VmThread.yield();
     }
 
@@ -162,6 +167,11 @@ public final class JDK_java_lang_Thread {
      */
     @SUBSTITUTE
     public static void sleep(long millis) throws InterruptedException {
+        final VirtualThread virtualThread = VirtualThread.current();
+        if (virtualThread != null) {
+            virtualThread.sleepMillis(millis);
+            return;
+        }
         VmThread.sleep(millis);
     }
 
@@ -184,6 +194,10 @@ public final class JDK_java_lang_Thread {
      */
     @SUBSTITUTE
     private boolean isInterrupted(boolean clearInterrupted) throws InterruptedException {
+        final Thread thread = thisThread();
+        if (thread instanceof VirtualThread) {
+            return ((VirtualThread) thread).isInterrupted(clearInterrupted);
+        }
         VmThread vmThread = thisVMThread();
         return vmThread == null ? false : vmThread.isInterrupted(clearInterrupted);
     }
@@ -195,10 +209,51 @@ public final class JDK_java_lang_Thread {
      */
     @SUBSTITUTE
     public boolean isAlive() {
+        final Thread thread = thisThread();
+        if (thread instanceof VirtualThread) {
+            return ((VirtualThread) thread).isVirtualAlive();
+        }
         VmThread vmThread = thisVMThread();
         return vmThread != null && vmThread.state() != Thread.State.NEW && vmThread.state() != Thread.State.TERMINATED;
     }
 
+    /**
+     * Waits at most {@code millis} milliseconds for this thread to die. A virtual thread is joined by parking
+     * so that joining it from another virtual thread on the same carrier does not block that carrier.
+     * @see java.lang.Thread#join(long)
+     * @param millis the time to wait in milliseconds, or 0 to wait forever
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     */
+    @SUBSTITUTE
+    public final void join(long millis) throws InterruptedException {
+        final Thread thread = thisThread();
+        if (thread instanceof VirtualThread) {
+            ((VirtualThread) thread).joinVirtual(millis);
+            return;
+        }
+        synchronized (thread) {
+            final long base = System.currentTimeMillis();
+            long now = 0;
+            if (millis < 0) {
+                throw new IllegalArgumentException("timeout value is negative");
+            }
+            if (millis == 0) {
+                while (thread.isAlive()) {
+                    thread.wait(0);
+                }
+            } else {
+                while (thread.isAlive()) {
+                    final long delay = millis - now;
+                    if (delay <= 0) {
+                        break;
+                    }
+                    thread.wait(delay);
+                    now = System.currentTimeMillis() - base;
+                }
+            }
+        }
+    }
+
     /**
      * Counts the number of stack frames on this thread's stack.
      * @deprecated The definition of this call depends on {@link #suspend0()},
@@ -311,6 +366,11 @@ public final class JDK_java_lang_Thread {
      */
     @SUBSTITUTE
     private void interrupt0() {
+        final Thread thread = thisThread();
+        if (thread instanceof VirtualThread) {
+            ((VirtualThread) thread).interrupt0();
+            return;
+        }
         VmThread vmThread = thisVMThread();
         if (vmThread != null) {
             vmThread.interrupt0();
@@ -324,6 +384,10 @@ public final class JDK_java_lang_Thread {
      */
     @SUBSTITUTE
     private Thread.State getState() {
+        final Thread thread = thisThread();
+        if (thread instanceof VirtualThread) {
+            return ((VirtualThread) thread).virtualState();
+        }
         VmThread vmThread = thisVMThread();
         return vmThread == null ? Thread.State.NEW : vmThread.state();
     }
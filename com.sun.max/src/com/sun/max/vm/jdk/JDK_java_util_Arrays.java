@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.sun.max.vm.jdk;
+
+import java.util.*;
+
+import com.sun.max.annotate.*;
+import com.sun.max.vm.layout.*;
+import com.sun.max.vm.object.*;
+
+/**
+ * Method substitutions for the primitive array comparison and fill methods of {@link Arrays}
+ * that process a block of elements at a time using {@link ArrayKernels}.
+ */
+@METHOD_SUBSTITUTIONS(Arrays.class)
+final class JDK_java_util_Arrays {
+
+    private JDK_java_util_Arrays() {
+    }
+
+    @INLINE
+    private static boolean sameLength(Object a, Object a2) {
+        return ArrayAccess.readArrayLength(a) == ArrayAccess.readArrayLength(a2);
+    }
+
+    @SUBSTITUTE
+    public static boolean equals(byte[] a, byte[] a2) {
+        if (a == a2) {
+            return true;
+        }
+        if (a == null || a2 == null || !sameLength(a, a2)) {
+            return false;
+        }
+        final ArrayLayout layout = Layout.byteArrayLayout();
+        return ArrayKernels.equals(a, layout.getElementOffsetFromOrigin(0), a2, layout.getElementOffsetFromOrigin(0), a.length);
+    }
+
+    @SUBSTITUTE
+    public static boolean equals(char[] a, char[] a2) {
+        if (a == a2) {
+            return true;
+        }
+        if (a == null || a2 == null || !sameLength(a, a2)) {
+            return false;
+        }
+        final ArrayLayout layout = Layout.charArrayLayout();
+        return ArrayKernels.equals(a, layout.getElementOffsetFromOrigin(0), a2, layout.getElementOffsetFromOrigin(0), (long) a.length << 1);
+    }
+
+    @SUBSTITUTE
+    public static boolean equals(short[] a, short[] a2) {
+        if (a == a2) {
+            return true;
+        }
+        if (a == null || a2 == null || !sameLength(a, a2)) {
+            return false;
+        }
+        final ArrayLayout layout = Layout.shortArrayLayout();
+        return ArrayKernels.equals(a, layout.getElementOffsetFromOrigin(0), a2, layout.getElementOffsetFromOrigin(0), (long) a.length << 1);
+    }
+
+    @SUBSTITUTE
+    public static boolean equals(int[] a, int[] a2) {
+        if (a == a2) {
+            return true;
+        }
+        if (a == null || a2 == null || !sameLength(a, a2)) {
+            return false;
+        }
+        final ArrayLayout layout = Layout.intArrayLayout();
+        return ArrayKernels.equals(a, layout.getElementOffsetFromOrigin(0), a2, layout.getElementOffsetFromOrigin(0), (long) a.length << 2);
+    }
+
+    @SUBSTITUTE
+    public static boolean equals(long[] a, long[] a2) {
+        if (a == a2) {
+            return true;
+        }
+        if (a == null || a2 == null || !sameLength(a, a2)) {
+            return false;
+        }
+        final ArrayLayout layout = Layout.longArrayLayout();
+        return ArrayKernels.equals(a, layout.getElementOffsetFromOrigin(0), a2, layout.getElementOffsetFromOrigin(0), (long) a.length << 3);
+    }
+
+    /**
+     * Replicates the bounds checks of {@code Arrays.rangeCheck}.
+     */
+    private static void rangeCheck(int arrayLength, int fromIndex, int toIndex) {
+        if (fromIndex > toIndex) {
+            throw new IllegalArgumentException("fromIndex(" + fromIndex + ") > toIndex(" + toIndex + ")");
+        }
+        if (fromIndex < 0) {
+            throw new ArrayIndexOutOfBoundsException(fromIndex);
+        }
+        if (toIndex > arrayLength) {
+            throw new ArrayIndexOutOfBoundsException(toIndex);
+        }
+    }
+
+    @SUBSTITUTE
+    public static void fill(byte[] a, byte val) {
+        ArrayKernels.fill(a, Layout.byteArrayLayout().getElementOffsetFromOrigin(0), a.length, ArrayKernels.replicate(val));
+    }
+
+    @SUBSTITUTE
+    public static void fill(byte[] a, int fromIndex, int toIndex, byte val) {
+        rangeCheck(a.length, fromIndex, toIndex);
+        ArrayKernels.fill(a, Layout.byteArrayLayout().getElementOffsetFromOrigin(fromIndex), toIndex - fromIndex, ArrayKernels.replicate(val));
+    }
+
+    @SUBSTITUTE
+    public static void fill(char[] a, char val) {
+        ArrayKernels.fill(a, Layout.charArrayLayout().getElementOffsetFromOrigin(0), (long) a.length << 1, ArrayKernels.replicate(val));
+    }
+
+    @SUBSTITUTE
+    public static void fill(char[] a, int fromIndex, int toIndex, char val) {
+        rangeCheck(a.length, fromIndex, toIndex);
+        ArrayKernels.fill(a, Layout.charArrayLayout().getElementOffsetFromOrigin(fromIndex), (long) (toIndex - fromIndex) << 1, ArrayKernels.replicate(val));
+    }
+
+    @SUBSTITUTE
+    public static void fill(int[] a, int val) {
+        ArrayKernels.fill(a, Layout.intArrayLayout().getElementOffsetFromOrigin(0), (long) a.length << 2, ArrayKernels.replicate(val));
+    }
+
+    @SUBSTITUTE
+    public static void fill(int[] a, int fromIndex, int toIndex, int val) {
+        rangeCheck(a.length, fromIndex, toIndex);
+        ArrayKernels.fill(a, Layout.intArrayLayout().getElementOffsetFromOrigin(fromIndex), (long) (toIndex - fromIndex) << 2, ArrayKernels.replicate(val));
+    }
+
+    @SUBSTITUTE
+    public static void fill(long[] a, long val) {
+        ArrayKernels.fill(a, Layout.longArrayLayout().getElementOffsetFromOrigin(0), (long) a.length << 3, val);
+    }
+}
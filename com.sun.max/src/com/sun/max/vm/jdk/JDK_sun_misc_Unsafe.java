@@ -38,6 +38,7 @@ import com.sun.max.vm.heap.Heap;
 import com.sun.max.vm.layout.ArrayLayout;
 import com.sun.max.vm.reference.Reference;
 import com.sun.max.vm.runtime.*;
+import com.sun.max.vm.thread.VirtualThread;
 import com.sun.max.vm.thread.VmThread;
 import com.sun.max.vm.type.*;
 
@@ -1243,6 +1244,10 @@ final class JDK_sun_misc_Unsafe {
      */
     @SUBSTITUTE
     public void unpark(Object javaThread) {
+        if (javaThread instanceof VirtualThread) {
+            ((VirtualThread) javaThread).unpark();
+            return;
+        }
         final VmThread thread = VmThread.fromJava((Thread) javaThread);
         if (thread != null) {
             thread.unpark();
@@ -1256,6 +1261,11 @@ final class JDK_sun_misc_Unsafe {
      */
     @SUBSTITUTE
     public void park(boolean isAbsolute, long time) {
+        final VirtualThread virtualThread = VirtualThread.current();
+        if (virtualThread != null) {
+            virtualThread.park(isAbsolute, time);
+            return;
+        }
         final VmThread thread = VmThread.current();
         try {
             if (!isAbsolute) {
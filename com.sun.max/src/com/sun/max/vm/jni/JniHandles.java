@@ -24,7 +24,6 @@ package com.sun.max.vm.jni;
 
 import java.lang.ref.*;
 
-import com.sun.cri.ci.*;
 import com.sun.max.annotate.*;
 import com.sun.max.unsafe.*;
 import com.sun.max.vm.*;
@@ -89,43 +88,54 @@ public final class JniHandles {
         public static final int BITS = 2;
     }
 
-    static final class Frame {
-        final int start;
-        final Frame previous;
-        Frame(int start, Frame previous) {
-            this.start = start;
-            this.previous = previous;
-        }
-    }
+    /**
+     * The number of handles in a segment. Handles are stored in fixed size segments so that the pool can grow
+     * without copying, and segments freed by {@link #resetTop(int)} can be reused without allocating.
+     */
+    public static final int SEGMENT_LENGTH = 64;
+    private static final int SEGMENT_SHIFT = 6;
+    private static final int SEGMENT_MASK = SEGMENT_LENGTH - 1;
 
-    public static final int INITIAL_NUMBER_OF_HANDLES = 32;
+    /**
+     * The number of segments retained above the one holding {@link #top} when the pool shrinks.
+     * This avoids reallocating a segment when calls repeatedly cross a segment boundary, while bounding
+     * the number of empty segments the garbage collector has to scan.
+     */
+    private static final int SPARE_SEGMENTS = 1;
+
+    private static final int INITIAL_NUMBER_OF_FRAMES = 8;
 
     private static final JniHandles globalHandles = new JniHandles();
     private static final JniHandles weakGlobalHandles = new JniHandles();
 
     /**
-     * The objects exposed to native code via handles.
-     *
-     * Note that this representation simplifies handle allocation and dereferencing
-     * (in the context of a "JNI handle is an index" implementation)
-     * at the cost of expanding an array (allocation plus copy). It will be replaced
-     * with a better representation if this expansion cost proves to be too high.
+     * The segments holding the objects exposed to native code via handles. The handle with index {@code i}
+     * is element {@code i % SEGMENT_LENGTH} of segment {@code i / SEGMENT_LENGTH}. Segments at or above
+     * {@link #numberOfSegments} are null.
      */
-    private Object[] handles = new Object[INITIAL_NUMBER_OF_HANDLES];
+    private Object[][] segments = new Object[4][];
 
     /**
-     * The frames pushed by {@link JniFunctions#PushLocalFrame}.
+     * The number of allocated segments.
      */
-    private Frame frames;
+    private int numberOfSegments;
 
     /**
-     * Denotes the indexes of handles that have been {@linkplain #freeHandle(int) freed}.
-     * No bit will be set for a handle at an index >= {@link #top}.
+     * The values of {@link #top} saved by {@link JniFunctions#PushLocalFrame}, with the most recent at
+     * index {@code numberOfFrames - 1}.
      */
-    private final CiBitMap freedHandles = new CiBitMap(INITIAL_NUMBER_OF_HANDLES);
+    private int[] frames = new int[INITIAL_NUMBER_OF_FRAMES];
+
+    private int numberOfFrames;
+
+    /**
+     * The number of handles below {@link #top} that have been {@linkplain #freeHandle(int) freed}.
+     * A freed handle is a null element, as a handle is never allocated for null.
+     */
+    private int freedCount;
 
     /**
-     * The index at which the next search for a free bit in {@link #freedHandles} starts.
+     * The index at which the next search for a freed handle starts.
      * This optimizes allocation where the expected behavior of a native method
      * that deletes local references is such that these references are deleted in the
      * reverse order in which they were created.
@@ -134,14 +144,18 @@ public final class JniHandles {
 
     /**
      * Number of handles allocated from this pool that are (potentially) still in use.
-     * This value also denotes the index of next unused handle in {@link #handles}.
+     * This value also denotes the index of next unused handle.
      * The name of this field also gives some indication of how handles can be allocated
      * and freed in a stack like fashion.
      *
-     * Invariant: All elements in {@link #handles} at an index greater than or equal to {@link #top} are null.
+     * Invariant: All handles at an index greater than or equal to {@link #top} are null.
      */
     private int top;
 
+    public JniHandles() {
+        addSegment();
+    }
+
     /**
      * Return the "top" (i.e. current size) of this handle pool. This value can be given
      * as the parameter to the {@link #resetTop(int)} method to free handles in a stack
@@ -164,18 +178,25 @@ public final class JniHandles {
         }
 
         if (newTop != this.top) {
+            int freed = 0;
             for (int i = newTop; i != this.top; ++i) {
-                handles[i] = null;
-            }
-            int freeLength = freedHandles.length();
-            if (freeLength >= newTop) {
-                for (int i = freedHandles.nextSetBit(newTop, freeLength); i != -1; i = freedHandles.nextSetBit(i, freeLength)) {
-                    freedHandles.clear(i);
+                final Object[] segment = segments[i >> SEGMENT_SHIFT];
+                if (segment[i & SEGMENT_MASK] == null) {
+                    freed++;
+                } else {
+                    segment[i & SEGMENT_MASK] = null;
                 }
             }
-
-            lastFreedIndex = 0;
+            freedCount -= freed;
+            if (lastFreedIndex > newTop) {
+                lastFreedIndex = 0;
+            }
             this.top = newTop;
+
+            final int keep = (newTop >> SEGMENT_SHIFT) + 1 + SPARE_SEGMENTS;
+            while (numberOfSegments > keep) {
+                segments[--numberOfSegments] = null;
+            }
         }
     }
 
@@ -183,7 +204,7 @@ public final class JniHandles {
      * Gets the handle at a given index.
      */
     private Object get(int index) {
-        return handles[index];
+        return segments[index >> SEGMENT_SHIFT][index & SEGMENT_MASK];
     }
 
     /**
@@ -192,53 +213,71 @@ public final class JniHandles {
      * @param index the index of the handle to free
      */
     private void freeHandle(int index) {
-        handles[index] = null;
-        freedHandles.grow(index + 1);
-        freedHandles.set(index);
-        lastFreedIndex = index;
+        final Object[] segment = segments[index >> SEGMENT_SHIFT];
+        if (segment[index & SEGMENT_MASK] != null) {
+            segment[index & SEGMENT_MASK] = null;
+            freedCount++;
+            lastFreedIndex = index;
+        }
     }
 
-    private static Object[] expandHandles(Object[] handles, int newLength) {
-        final int currentLength = handles.length;
-        final Object[] newHandles = new Object[newLength];
-        // Can't use System.arraycopy - it's a native method which may require allocating JNI handles!
-        for (int i = 0; i != currentLength; ++i) {
-            newHandles[i] = handles[i];
+    private int capacity() {
+        return numberOfSegments << SEGMENT_SHIFT;
+    }
+
+    private void addSegment() {
+        if (numberOfSegments == segments.length) {
+            final Object[][] newSegments = new Object[segments.length * 2][];
+            // Can't use System.arraycopy - it's a native method which may require allocating JNI handles!
+            for (int i = 0; i != numberOfSegments; ++i) {
+                newSegments[i] = segments[i];
+            }
+            segments = newSegments;
         }
-        return newHandles;
+        segments[numberOfSegments++] = new Object[SEGMENT_LENGTH];
     }
 
     private JniHandle allocateHandle(Object object, int tag) {
         assert object != null;
 
-        // Try to get a handle from the logical end of the array
-        if (top < handles.length) {
-            assert handles[top] == null;
-            handles[top] = object;
+        // Try to get a handle from the logical end of the pool
+        if (top < capacity()) {
+            final Object[] segment = segments[top >> SEGMENT_SHIFT];
+            assert segment[top & SEGMENT_MASK] == null;
+            segment[top & SEGMENT_MASK] = object;
             return indexToJniHandle(top++, tag);
         }
 
-        // Now look for a handle in the free set
-        int index = freedHandles.nextSetBit(lastFreedIndex);
-        if (index == -1 && lastFreedIndex != 0) {
-            // Wrap around and search from the beginning of the array
-            index = freedHandles.nextSetBit(0);
-        }
-        if (index != -1) {
-            assert handles[index] == null;
-            handles[index] = object;
-            freedHandles.clear(index);
+        // Now look for a freed handle
+        if (freedCount != 0) {
+            int index = findFreedHandle(lastFreedIndex, top);
+            if (index == -1) {
+                // Wrap around and search from the beginning of the pool
+                index = findFreedHandle(0, lastFreedIndex);
+            }
+            assert index != -1;
+            segments[index >> SEGMENT_SHIFT][index & SEGMENT_MASK] = object;
+            freedCount--;
+            lastFreedIndex = index;
             return indexToJniHandle(index, tag);
         }
 
-        // No space available, the handle array is expanded
-        // to be double its current size.
-        handles = expandHandles(handles, handles.length * 2);
+        // No space available, a segment is added
+        addSegment();
 
         // Retry - guaranteed to succeed
         return allocateHandle(object, tag);
     }
 
+    private int findFreedHandle(int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (segments[i >> SEGMENT_SHIFT][i & SEGMENT_MASK] == null) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
     private static JniHandle indexToJniHandle(int index, int tag) {
         return Address.fromInt(index << Tag.BITS | tag).asJniHandle();
     }
@@ -253,7 +292,14 @@ public final class JniHandles {
 
     private void pushFrame(int capacity) {
         ensureCapacity(capacity);
-        frames = new Frame(top, frames);
+        if (numberOfFrames == frames.length) {
+            final int[] newFrames = new int[frames.length * 2];
+            for (int i = 0; i != numberOfFrames; ++i) {
+                newFrames[i] = frames[i];
+            }
+            frames = newFrames;
+        }
+        frames[numberOfFrames++] = top;
     }
 
     private JniHandle popFrame(JniHandle result) {
@@ -261,9 +307,8 @@ public final class JniHandles {
 
         // This test means PopLocalFrame will work even if there was
         // not a corresponding call to PushLocalFrame
-        if (frames != null) {
-            resetTop(frames.start);
-            frames = frames.previous;
+        if (numberOfFrames != 0) {
+            resetTop(frames[--numberOfFrames]);
         }
         return (object != null) ? allocateHandle(object, Tag.LOCAL) : result;
     }
@@ -272,10 +317,8 @@ public final class JniHandles {
      * Ensures that <i>at least</i> a given number of local references can be created in this pool of handles.
      */
     private void ensureCapacity(int capacity) {
-        final int available = (handles.length - top) + freedHandles.cardinality();
-        final int extraNeeded = capacity - available;
-        if (extraNeeded > 0) {
-            handles = expandHandles(handles, handles.length + extraNeeded);
+        while ((capacity() - top) + freedCount < capacity) {
+            addSegment();
         }
     }
 
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.sun.max.vm.management;
+
+/**
+ * Management interface for the time-to-safepoint statistics of VM operations.
+ *
+ * @see SafepointManagement
+ */
+public interface SafepointMXBean {
+
+    /**
+     * Gets the number of VM operations that have frozen threads at a safepoint.
+     */
+    long getSafepointCount();
+
+    /**
+     * Gets the total time in milliseconds spent waiting for threads to reach a safepoint.
+     */
+    long getTotalTimeToSafepoint();
+
+    /**
+     * Gets the longest time in milliseconds spent waiting for threads to reach a safepoint.
+     */
+    long getMaxTimeToSafepoint();
+
+    /**
+     * Gets the total time in milliseconds spent running VM operations at a safepoint.
+     */
+    long getTotalOperationTime();
+
+    /**
+     * Gets the total time in milliseconds spent thawing threads after a safepoint.
+     */
+    long getTotalThawTime();
+
+    /**
+     * Gets the name of the VM operation whose safepoint took longest to reach.
+     */
+    String getSlowestSafepointOperation();
+
+    /**
+     * Gets the name of the thread that was slowest to reach the safepoint that took longest to reach.
+     */
+    String getSlowestSafepointThread();
+
+    /**
+     * Gets the method in which the slowest thread was stopped for the safepoint that took longest to reach.
+     */
+    String getSlowestSafepointMethod();
+}
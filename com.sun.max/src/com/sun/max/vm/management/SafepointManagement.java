@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.sun.max.vm.management;
+
+import java.lang.management.*;
+
+import javax.management.*;
+
+import com.sun.max.vm.*;
+import com.sun.max.vm.compiler.target.*;
+import com.sun.max.vm.runtime.*;
+
+/**
+ * Provides the {@link SafepointMXBean} for the {@linkplain SafepointStatistics safepoint statistics} of the VM.
+ * The bean is registered with the platform MBean server under {@link #OBJECT_NAME} at startup if
+ * {@code -XX:+SafepointMXBean} is specified.
+ */
+public class SafepointManagement {
+
+    public static final String OBJECT_NAME = "com.sun.max.vm:type=Safepoint";
+
+    public static boolean SafepointMXBean;
+
+    static {
+        VMOptions.addFieldOption("-XX:", "SafepointMXBean", SafepointManagement.class,
+            "Register a management bean exposing safepoint statistics with the platform MBean server.", MaxineVM.Phase.STARTING);
+    }
+
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    private static final SafepointMXBean mxBean = new SafepointMXBean() {
+        public long getSafepointCount() {
+            return SafepointStatistics.safepoints();
+        }
+
+        public long getTotalTimeToSafepoint() {
+            return SafepointStatistics.totalTimeToSafepoint() / NANOS_PER_MILLI;
+        }
+
+        public long getMaxTimeToSafepoint() {
+            return SafepointStatistics.maxTimeToSafepoint() / NANOS_PER_MILLI;
+        }
+
+        public long getTotalOperationTime() {
+            return SafepointStatistics.totalOperationTime() / NANOS_PER_MILLI;
+        }
+
+        public long getTotalThawTime() {
+            return SafepointStatistics.totalThawTime() / NANOS_PER_MILLI;
+        }
+
+        public String getSlowestSafepointOperation() {
+            return SafepointStatistics.worstOperation();
+        }
+
+        public String getSlowestSafepointThread() {
+            return SafepointStatistics.worstThread();
+        }
+
+        public String getSlowestSafepointMethod() {
+            final TargetMethod targetMethod = SafepointStatistics.worstMethod();
+            return targetMethod == null ? null : targetMethod.toString();
+        }
+    };
+
+    public static SafepointMXBean getSafepointMXBean() {
+        return mxBean;
+    }
+
+    /**
+     * Registers the {@link SafepointMXBean} with the platform MBean server if requested by {@code -XX:+SafepointMXBean}.
+     */
+    public static void initialize() {
+        if (SafepointMXBean) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(mxBean, new ObjectName(OBJECT_NAME));
+            } catch (JMException e) {
+                Log.println("Could not register safepoint MXBean: " + e);
+            }
+        }
+    }
+}
@@ -22,10 +22,13 @@
  */
 package com.sun.max.vm.management;
 
+import static com.sun.max.vm.intrinsics.Infopoints.*;
+
 import java.lang.management.*;
 import java.lang.reflect.*;
 import java.util.*;
 
+import com.sun.max.annotate.*;
 import com.sun.max.unsafe.*;
 import com.sun.max.vm.jdk.*;
 import com.sun.max.vm.runtime.*;
@@ -114,6 +117,9 @@ public class ThreadManagement {
      * @param threads
      */
     public static StackTraceElement[][] dumpThreads(Thread[] threads) {
+        if (threads.length == 1) {
+            return new StackTraceElement[][] {getStackTrace(threads[0], Integer.MAX_VALUE)};
+        }
         return getStackTrace(threads, Integer.MAX_VALUE);
     }
 
@@ -159,10 +165,70 @@ public class ThreadManagement {
         }
     }
 
+    /**
+     * The number of frames first recorded by a {@link StackTraceHandshake}, which is doubled until the whole stack fits.
+     */
+    private static final int STACK_TRACE_HANDSHAKE_INITIAL_CAPACITY = 64;
+
+    /**
+     * Gets the stack trace of a single thread. A thread other than the current thread is stopped by a
+     * {@linkplain StackTraceHandshake handshake}, so that no other thread has to reach a safepoint.
+     */
     private static StackTraceElement[] getStackTrace(Thread thread, int maxDepth) {
         assert maxDepth > 0;
-        Thread[] threads = {thread};
-        return getStackTrace(threads, maxDepth)[0];
+        final VmThread vmThread = VmThread.fromJava(thread);
+        if (thread == Thread.currentThread() || vmThread == null) {
+            Thread[] threads = {thread};
+            return getStackTrace(threads, maxDepth)[0];
+        }
+        int capacity = STACK_TRACE_HANDSHAKE_INITIAL_CAPACITY;
+        while (true) {
+            final StackTraceHandshake handshake = new StackTraceHandshake(capacity);
+            if (!handshake.submit(vmThread)) {
+                // not started yet or terminated
+                return new StackTraceElement[0];
+            }
+            if (!handshake.trace.overflowed()) {
+                final JDK_java_lang_Throwable.Backtrace backtrace = new JDK_java_lang_Throwable.Backtrace(null, maxDepth);
+                handshake.trace.replay(backtrace);
+                StackTraceElement[] trace = backtrace.getTrace();
+                if (maxDepth < trace.length) {
+                    trace = Arrays.copyOf(trace, maxDepth);
+                }
+                return trace;
+            }
+            capacity *= 2;
+        }
+    }
+
+    /**
+     * A handshake that records the frames of a single thread. The frames are only converted to stack trace elements
+     * once the handshake is over, as that allocates.
+     */
+    static final class StackTraceHandshake extends Handshake {
+        final RawStackTrace trace;
+        private final VmStackFrameWalker walker = new VmStackFrameWalker(Pointer.zero());
+
+        StackTraceHandshake(int capacity) {
+            super("StackTrace");
+            trace = new RawStackTrace(capacity);
+        }
+
+        @NEVER_INLINE
+        @Override
+        protected void run(VmThread thread, Pointer trapFrame) {
+            walker.setTLA(thread.tla());
+            if (thread == VmThread.current()) {
+                // stopped at a safepoint: the frames of the trap handler are dropped as they are above a trapped frame
+                walker.inspect(Pointer.fromLong(here()), VMRegister.getCpuStackPointer(), VMRegister.getCpuFramePointer(), trace);
+            } else {
+                // frozen in native code by the requesting thread
+                final Pointer anchor = JavaFrameAnchor.from(thread.tla());
+                if (!anchor.isZero()) {
+                    walker.inspect(JavaFrameAnchor.PC.get(anchor), JavaFrameAnchor.SP.get(anchor), JavaFrameAnchor.FP.get(anchor), trace);
+                }
+            }
+        }
     }
 
     private static StackTraceElement[][] getStackTrace(Thread[] threads, int maxDepth) {
@@ -28,6 +28,7 @@ import com.sun.max.vm.monitor.modal.modehandlers.*;
 import com.sun.max.vm.monitor.modal.modehandlers.AbstractModeHandler.ModeDelegate.DelegatedThreadHoldsMonitorResult;
 import com.sun.max.vm.monitor.modal.modehandlers.AbstractModeHandler.MonitorSchemeEntry;
 import com.sun.max.vm.monitor.modal.modehandlers.lightweight.biased.BiasedLockRevocationHeuristics.RevocationType;
+import com.sun.max.vm.monitor.modal.modehandlers.lightweight.thin.*;
 import com.sun.max.vm.object.*;
 import com.sun.max.vm.runtime.*;
 import com.sun.max.vm.thread.*;
@@ -57,6 +58,24 @@ public abstract class BiasedLockModeHandler extends AbstractModeHandler implemen
     // owner, or do we assume that it is by implication of block-structured locking?
     private static final boolean ASSUME_PERFECT_ENTRY_AND_EXIT_PAIRS = false;
 
+    private static boolean PrintBiasedLockingStats;
+
+    static {
+        VMOptions.addFieldOption("-XX:", "PrintBiasedLockingStats", BiasedLockModeHandler.class,
+            "Print statistics about biased lock revocations and the time taken to reach their safepoints at end of program.", MaxineVM.Phase.PRISTINE);
+    }
+
+    /*
+     * Revocation statistics. These are updated without synchronization by the thread that performs a revocation and
+     * are thus approximate. For a single object revocation by handshake, the time to safepoint is the time until the
+     * bias owner ran the handshake.
+     */
+    private static int singleRevocations;
+    private static int bulkRebiases;
+    private static int bulkRevocations;
+    private static long totalTimeToSafepoint;
+    private static long maxTimeToSafepoint;
+
     public static MonitorSchemeEntry asFastPath(boolean useBulkRevocation, ModeDelegate delegate) {
         if (useBulkRevocation) {
             return new BiasedLockModeHandler.FastPathWithEpoch(delegate);
@@ -64,12 +83,38 @@ public abstract class BiasedLockModeHandler extends AbstractModeHandler implemen
         return new BiasedLockModeHandler.FastPathNoEpoch(delegate);
     }
 
+    /**
+     * Specifies if a single object revocation can be {@linkplain RevokeBiasHandshake performed} at a safepoint of the
+     * bias owner alone. This requires a delegate whose lock words can be prepared without allocating or blocking,
+     * which is not the case for inflated monitors.
+     */
+    private final boolean revokeInHandshake;
+
     protected BiasedLockModeHandler(ModeDelegate delegate) {
         super(delegate);
+        revokeInHandshake = delegate instanceof ThinLockModeHandler;
     }
 
     @Override
     public void initialize(MaxineVM.Phase phase) {
+        if (phase == MaxineVM.Phase.TERMINATING && PrintBiasedLockingStats) {
+            final boolean lockDisabledSafepoints = Log.lock();
+            final int revocations = singleRevocations + bulkRebiases + bulkRevocations;
+            Log.println("Biased locking statistics:");
+            Log.print("  single object revocations: ");
+            Log.println(singleRevocations);
+            Log.print("  bulk rebiases: ");
+            Log.println(bulkRebiases);
+            Log.print("  bulk revocations: ");
+            Log.println(bulkRevocations);
+            Log.print("  total time to safepoint (us): ");
+            Log.println(totalTimeToSafepoint / 1000);
+            Log.print("  average time to safepoint (us): ");
+            Log.println(revocations == 0 ? 0 : totalTimeToSafepoint / revocations / 1000);
+            Log.print("  maximum time to safepoint (us): ");
+            Log.println(maxTimeToSafepoint / 1000);
+            Log.unlock(lockDisabledSafepoints);
+        }
     }
 
     // Inspector support
@@ -90,26 +135,226 @@ public abstract class BiasedLockModeHandler extends AbstractModeHandler implemen
         return lockword;
     }
 
+    /**
+     * Revokes the bias of an object with a compare and swap, for use while only the bias owner is stopped. Another
+     * thread may rebias an object whose class epoch has expired at the same time.
+     */
+    protected ModalLockword64 revokeBiasAtomically(Object object) {
+        while (true) {
+            final ModalLockword64 lockword = ModalLockword64.from(ObjectAccess.readMisc(object));
+            if (!BiasedLockword64.isBiasedLockword(lockword)) {
+                return lockword;
+            }
+            final ModalLockword64 newLockword = delegate().prepareModalLockword(object, lockword);
+            if (ModalLockword64.from(ObjectAccess.compareAndSwapMisc(object, lockword, newLockword)).equals(lockword)) {
+                return newLockword;
+            }
+            delegate().cancelPreparedModalLockword(newLockword);
+        }
+    }
+
+    private static void recordTimeToSafepoint(long timeToSafepoint) {
+        totalTimeToSafepoint += timeToSafepoint;
+        if (timeToSafepoint > maxTimeToSafepoint) {
+            maxTimeToSafepoint = timeToSafepoint;
+        }
+    }
+
     protected ModalLockword64 revokeWithoutSafepointing(Object object) {
         synchronized (VmThreadMap.THREAD_LOCK) {
             return revokeBias(object);
         }
     }
 
-    class RevokeBiasOperation extends VmOperation {
+    /**
+     * Base class of the safepoint operations that revoke biases. Records the time taken from the submission of the
+     * operation until all the threads it operates on are stopped.
+     */
+    abstract static class RevocationOperation extends VmOperation {
+        private long submitTime;
+
+        RevocationOperation(String name, VmThread thread) {
+            super(name, thread, Mode.Safepoint, false);
+        }
+
+        @Override
+        protected boolean doItPrologue(boolean nested) {
+            submitTime = System.nanoTime();
+            return true;
+        }
+
+        @Override
+        protected final void doIt() {
+            recordTimeToSafepoint(System.nanoTime() - submitTime);
+            revoke();
+        }
+
+        /**
+         * Performs the revocation once the safepoint has been reached.
+         */
+        protected abstract void revoke();
+    }
+
+    class RevokeBiasOperation extends RevocationOperation {
         final Object object;
         ModalLockword64 newLockword;
         RevokeBiasOperation(VmThread thread, Object object) {
-            super("RevokeBias", thread, Mode.Safepoint, false);
+            super("RevokeBias", thread);
             this.object = object;
         }
         @Override
-        protected void doIt() {
+        protected void revoke() {
+            singleRevocations++;
             newLockword = revokeBias(object);
         }
     }
 
+    /**
+     * Revokes the bias of a single object at a safepoint of its bias owner, without stopping any other thread. Only
+     * the bias owner updates a biased lock word without a compare and swap, so no other thread needs to be stopped.
+     */
+    final class RevokeBiasHandshake extends Handshake {
+        final Object object;
+        private final long submitTime;
+        ModalLockword64 newLockword;
+        RevokeBiasHandshake(Object object) {
+            super("RevokeBias");
+            this.object = object;
+            submitTime = System.nanoTime();
+        }
+        @Override
+        protected void run(VmThread thread, Pointer trapFrame) {
+            recordTimeToSafepoint(System.nanoTime() - submitTime);
+            singleRevocations++;
+            newLockword = revokeBiasAtomically(object);
+        }
+    }
+
+    class BulkRevokeOperation extends RevocationOperation {
+        private final Object object;
+        ModalLockword64 postRevokeLockword;
+        BulkRevokeOperation(Object object) {
+            super("BulkRevoke", null);
+            this.object = object;
+        }
+        @Override
+        protected void revoke() {
+            bulkRevocations++;
+            final Hub hub = ObjectAccess.readHub(object);
+            hub.biasedLockEpoch = BiasedLockEpoch64.bulkRevocation();
+            postRevokeLockword = revokeBias(object);
+        }
+    }
+
+    class BulkRebiasOperation extends RevocationOperation {
+        private final Object object;
+        ModalLockword64 postRebiasLockword;
+        BulkRebiasOperation(Object object) {
+            super("BulkRebias", null);
+            this.object = object;
+        }
+        @Override
+        protected void revoke() {
+            bulkRebiases++;
+            final Hub hub = ObjectAccess.readHub(object);
+            final BiasedLockEpoch64 epoch = hub.biasedLockEpoch;
+            if (!epoch.isBulkRevocation()) {
+                hub.biasedLockEpoch = epoch.increment();
+            }
+            postRebiasLockword = revokeBias(object);
+        }
+    }
+
+    private BiasedLockRevocationHeuristics getHeuristics(Object object) {
+        final Hub hub = ObjectAccess.readHub(object);
+        BiasedLockRevocationHeuristics revocationHeuristics = hub.biasedLockRevocationHeuristics();
+        if (revocationHeuristics == null) {
+            // This is purposely not synchronised.
+            // We only may miss an update to the heuristics.
+            revocationHeuristics = new BiasedLockRevocationHeuristics();
+            hub.setBiasedLockRevocationHeuristics(revocationHeuristics);
+        }
+        return revocationHeuristics;
+    }
+
+    /**
+     * Revokes the bias of an object biased to another thread, consulting the revocation heuristics of the object's
+     * class to decide whether the whole class should be rebiased or revoked instead.
+     *
+     * @param canRebias specifies if the fast path checks the class epoch, without which a bulk rebias has no effect and
+     *            a single object revocation is performed in its place
+     */
+    protected ModalLockword64 performRevocation(Object object, BiasedLockword64 lockword, boolean canRebias) {
+        final BiasedLockRevocationHeuristics revocationHeuristics = getHeuristics(object);
+        RevocationType type = revocationHeuristics.notifyContentionRevocationRequest();
+        if (type == RevocationType.BULK_REBIAS && !canRebias) {
+            type = RevocationType.SINGLE_OBJECT_REVOCATION;
+        }
+        ModalLockword64 postRevokeLockword = ModalLockword64.from(Word.zero());
+        switch (type) {
+            case SINGLE_OBJECT_REVOCATION: {
+                if (Monitor.TraceMonitors) {
+                    final boolean lockDisabledSafepoints = Log.lock();
+                    Log.print("SINGLE_OBJECT_REVOCATION: ");
+                    Log.println(object.getClass().getName());
+                    Log.unlock(lockDisabledSafepoints);
+                }
+                postRevokeLockword = revokeWithOwnerSafepointed(object, decodeLockwordThreadID(lockword.getBiasOwnerID()), lockword);
+                break;
+            }
+            case BULK_REBIAS: {
+                if (Monitor.TraceMonitors) {
+                    final boolean lockDisabledSafepoints = Log.lock();
+                    Log.print("BULK_REBIAS: ");
+                    Log.println(object.getClass().getName());
+                    Log.unlock(lockDisabledSafepoints);
+                }
+
+                BulkRebiasOperation operation = new BulkRebiasOperation(object);
+                operation.submit();
+                postRevokeLockword = operation.postRebiasLockword;
+                revocationHeuristics.notifyBulkRebiasComplete();
+                break;
+            }
+            case BULK_REVOCATION: {
+                if (Monitor.TraceMonitors) {
+                    final boolean lockDisabledSafepoints = Log.lock();
+                    Log.print("BULK_REVOCATION: ");
+                    Log.println(object.getClass().getName());
+                    Log.unlock(lockDisabledSafepoints);
+                }
+
+                BulkRevokeOperation operation = new BulkRevokeOperation(object);
+                operation.submit();
+                postRevokeLockword = operation.postRevokeLockword;
+                break;
+            }
+        }
+        return postRevokeLockword;
+    }
+
+    /**
+     * Moves an unbiased, unlocked object of a class whose biases have been bulk revoked to the next locking mode.
+     *
+     * @return the object's lockword after the attempt, which must be re-examined by the caller
+     */
+    protected ModalLockword64 revokeForBulkRevokedClass(Object object, BiasedLockword64 biasedLockword) {
+        final ModalLockword64 newLockword = delegate().prepareModalLockword(object, biasedLockword);
+        final ModalLockword64 currentLockword = ModalLockword64.from(ObjectAccess.compareAndSwapMisc(object, biasedLockword, newLockword));
+        if (!currentLockword.equals(biasedLockword)) {
+            delegate().cancelPreparedModalLockword(newLockword);
+        }
+        if (Monitor.TraceMonitors) {
+            final boolean lockDisabledSafepoints = Log.lock();
+            Log.print("New object bulk revocation: ");
+            Log.println(object.getClass().getName());
+            Log.unlock(lockDisabledSafepoints);
+        }
+        return currentLockword;
+    }
+
     protected ModalLockword64 revokeWithOwnerSafepointed(final Object object, int vmThreadMapThreadID, BiasedLockword64 biasedLockword) {
+        final VmThread biasOwner;
         synchronized (VmThreadMap.THREAD_LOCK) {
             final VmThread biasOwnerThread = VmThreadMap.ACTIVE.getVmThreadForID(vmThreadMapThreadID);
             if (biasOwnerThread == null) {
@@ -123,10 +368,19 @@ public abstract class BiasedLockModeHandler extends AbstractModeHandler implemen
                 FatalError.unexpected("Attempted to revoke bias for still initializing thread.");
             }
 
-            RevokeBiasOperation operation = new RevokeBiasOperation(VmThread.fromTLA(tla), object);
-            operation.submit();
-            return operation.newLockword;
+            if (!revokeInHandshake) {
+                RevokeBiasOperation operation = new RevokeBiasOperation(VmThread.fromTLA(tla), object);
+                operation.submit();
+                return operation.newLockword;
+            }
+            biasOwner = VmThread.fromTLA(tla);
+        }
+        final RevokeBiasHandshake handshake = new RevokeBiasHandshake(object);
+        if (!handshake.submit(biasOwner)) {
+            // The bias owner terminated in the meantime.
+            return ModalLockword64.from(ObjectAccess.compareAndSwapMisc(object, biasedLockword, biasedLockword.asAnonBiased()));
         }
+        return handshake.newLockword;
     }
 
     public Word createMisc(Object object) {
@@ -259,8 +513,11 @@ public abstract class BiasedLockModeHandler extends AbstractModeHandler implemen
             ModalLockword64 currentLockword = lockword;
             while (BiasedLockword64.isBiasedLockword(currentLockword)) {
                 final BiasedLockword64 biasedLockword = BiasedLockword64.from(currentLockword);
-                // Is the lock unbiased and biasable?
-                if (biasedLockword.equals(biasedLockword.asAnonBiased())) {
+                if (biasedLockword.equals(biasedLockword.asAnonBiased()) && ObjectAccess.readHub(object).biasedLockEpoch.isBulkRevocation()) {
+                    // Objects of this class are no longer eligible for biased locking
+                    currentLockword = revokeForBulkRevokedClass(object, biasedLockword);
+                } else if (biasedLockword.equals(biasedLockword.asAnonBiased())) {
+                    // The lock is unbiased and biasable
                     // Try to get the bias
                     final BiasedLockword64 newBiasedLockword = biasedLockword.asBiasedAndLockedOnceBy(lockwordThreadID);
                     currentLockword = ModalLockword64.from(ObjectAccess.compareAndSwapMisc(object, biasedLockword, newBiasedLockword));
@@ -275,14 +532,7 @@ public abstract class BiasedLockModeHandler extends AbstractModeHandler implemen
                     // Another thread holds the bias - so revoke.
                     // Note the revoking thread has no special priviledges, we simply revoke and then
                     // drop into the next locking mode's monitor enter code.
-                    if (Monitor.TraceMonitors) {
-                        final boolean lockDisabledSafepoints = Log.lock();
-                        Log.print("Safepointed revoke for monitorEnter: ");
-                        Log.println(object.getClass().getName());
-                        Log.unlock(lockDisabledSafepoints);
-                    }
-                    final int vmThreadMapThreadID = decodeLockwordThreadID(biasedLockword.getBiasOwnerID());
-                    currentLockword = revokeWithOwnerSafepointed(object, vmThreadMapThreadID, biasedLockword);
+                    currentLockword = performRevocation(object, biasedLockword, false);
                 }
             }
             delegate().delegateMonitorEnter(object, currentLockword, lockwordThreadID);
@@ -372,17 +622,7 @@ public abstract class BiasedLockModeHandler extends AbstractModeHandler implemen
                     // Objects of this class are no longer eligible for biased locking
                     if (biasedLockword.equals(biasedLockword.asAnonBiased())) {
                         // Object is not biased or locked, change the lockword to the next locking mode
-                        final ModalLockword64 newLockword = delegate().prepareModalLockword(object, currentLockword);
-                        currentLockword = ModalLockword64.from(ObjectAccess.compareAndSwapMisc(object, biasedLockword, newLockword));
-                        if (!currentLockword.equals(biasedLockword)) {
-                            delegate().cancelPreparedModalLockword(newLockword);
-                        }
-                        if (Monitor.TraceMonitors) {
-                            final boolean lockDisabledSafepoints = Log.lock();
-                            Log.print("New object bulk revocation: ");
-                            Log.println(object.getClass().getName());
-                            Log.unlock(lockDisabledSafepoints);
-                        }
+                        currentLockword = revokeForBulkRevokedClass(object, biasedLockword);
                     } else if (biasedLockword.getBiasOwnerID() == lockwordThreadID) {
                         // Object is biased and locked by the current thread. Revoke the bias.
                         currentLockword = revokeWithoutSafepointing(object);
@@ -397,8 +637,11 @@ public abstract class BiasedLockModeHandler extends AbstractModeHandler implemen
                     // We lock as normal. When the lock is released, the object will be rebiased.
                     ObjectAccess.writeMisc(object, biasedLockword.incrementCount());
                     return;
-                } else if (biasedLockword.equals(biasedLockword.asAnonBiased()) || !biasedLockword.getEpoch().equals(classEpoch)) {
-                    // Object is not biased or it's bias is not in the current epoch. Try to get the bias.
+                } else if (biasedLockword.equals(biasedLockword.asAnonBiased()) ||
+                           (!biasedLockword.getEpoch().equals(classEpoch) && biasedLockword.countUnderflow())) {
+                    // Object is not biased or its bias is not in the current epoch and it is not locked.
+                    // Try to get the bias. (A lock held under an expired bias must still be revoked
+                    // with its owner stopped, as nothing records it elsewhere.)
                     final BiasedLockword64 newBiasedLockword = biasedLockword.asBiasedAndLockedOnceBy(lockwordThreadID, classEpoch);
                     currentLockword = ModalLockword64.from(ObjectAccess.compareAndSwapMisc(object, biasedLockword, newBiasedLockword));
                     if (currentLockword.equals(biasedLockword)) {
@@ -416,7 +659,7 @@ public abstract class BiasedLockModeHandler extends AbstractModeHandler implemen
                     currentLockword = revokeWithoutSafepointing(object);
                 } else {
                     // Another thread holds the bias - so revoke.
-                    currentLockword = performRevocation(object, biasedLockword);
+                    currentLockword = performRevocation(object, biasedLockword, true);
                 }
             }
             delegate().delegateMonitorEnter(object, currentLockword, lockwordThreadID);
@@ -469,95 +712,6 @@ public abstract class BiasedLockModeHandler extends AbstractModeHandler implemen
             return delegate().delegateMakeHashcode(object, lockword);
         }
 
-        private BiasedLockRevocationHeuristics getHeuristics(Object object) {
-            final Hub hub = ObjectAccess.readHub(object);
-            BiasedLockRevocationHeuristics revocationHeuristics = hub.biasedLockRevocationHeuristics();
-            if (revocationHeuristics == null) {
-                // This is purposely not synchronised.
-                // We only may miss an update to the heuristics.
-                revocationHeuristics = new BiasedLockRevocationHeuristics();
-                hub.setBiasedLockRevocationHeuristics(revocationHeuristics);
-            }
-            return revocationHeuristics;
-        }
-
-        private ModalLockword64 performRevocation(Object object, BiasedLockword64 lockword) {
-            final BiasedLockRevocationHeuristics revocationHeuristics = getHeuristics(object);
-            final RevocationType type = revocationHeuristics.notifyContentionRevocationRequest();
-            ModalLockword64 postRevokeLockword = ModalLockword64.from(Word.zero());
-            switch (type) {
-                case SINGLE_OBJECT_REVOCATION: {
-                    if (Monitor.TraceMonitors) {
-                        final boolean lockDisabledSafepoints = Log.lock();
-                        Log.print("SINGLE_OBJECT_REVOCATION: ");
-                        Log.println(object.getClass().getName());
-                        Log.unlock(lockDisabledSafepoints);
-                    }
-                    postRevokeLockword = revokeWithOwnerSafepointed(object, decodeLockwordThreadID(lockword.getBiasOwnerID()), lockword);
-                    break;
-                }
-                case BULK_REBIAS: {
-                    if (Monitor.TraceMonitors) {
-                        final boolean lockDisabledSafepoints = Log.lock();
-                        Log.print("BULK_REBIAS: ");
-                        Log.println(object.getClass().getName());
-                        Log.unlock(lockDisabledSafepoints);
-                    }
-
-                    BulkRebiasOperation operation = new BulkRebiasOperation(object);
-                    operation.submit();
-                    postRevokeLockword = operation.postRebiasLockword;
-                    revocationHeuristics.notifyBulkRebiasComplete();
-                    break;
-                }
-                case BULK_REVOCATION: {
-                    if (Monitor.TraceMonitors) {
-                        final boolean lockDisabledSafepoints = Log.lock();
-                        Log.print("BULK_REVOCATION: ");
-                        Log.println(object.getClass().getName());
-                        Log.unlock(lockDisabledSafepoints);
-                    }
-
-                    BulkRevokeOperation operation = new BulkRevokeOperation(object);
-                    operation.submit();
-                    postRevokeLockword = operation.postRevokeLockword;
-                    break;
-                }
-            }
-            return postRevokeLockword;
-        }
-
-        class BulkRevokeOperation extends VmOperation {
-            private final Object object;
-            ModalLockword64 postRevokeLockword;
-            BulkRevokeOperation(Object object) {
-                super("BulkRevoke", null, Mode.Safepoint, false);
-                this.object = object;
-            }
-            @Override
-            protected void doIt() {
-                final Hub hub = ObjectAccess.readHub(object);
-                hub.biasedLockEpoch = BiasedLockEpoch64.bulkRevocation();
-                postRevokeLockword = revokeBias(object);
-            }
-        }
-
-        class BulkRebiasOperation extends VmOperation {
-            private final Object object;
-            ModalLockword64 postRebiasLockword;
-            BulkRebiasOperation(Object object) {
-                super("BulkRebias", null, Mode.Safepoint, false);
-                this.object = object;
-            }
-            @Override
-            protected void doIt() {
-                final Hub hub = ObjectAccess.readHub(object);
-                final BiasedLockEpoch64 epoch = hub.biasedLockEpoch;
-                hub.biasedLockEpoch = epoch.increment();
-                postRebiasLockword = revokeBias(object);
-            }
-        }
-
         public int createHash(Object object) {
             FatalError.unimplemented("com.sun.max.vm.monitor.modal.modehandlers.lightweight.biased.BiasedLockModeHandler.FastPathWithEpoch.createHash");
             return 0;
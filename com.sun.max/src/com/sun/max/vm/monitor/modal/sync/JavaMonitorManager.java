@@ -41,11 +41,16 @@ import com.sun.max.vm.thread.*;
  * <p>
  * Binding can be performed at bootstrapping or runtime. If binding is performed while bootstrapping then either a default
  * or specialized monitor can be used. If binding is performed at runtime then an unbound monitor is taken from
- * a free list.
+ * a free list. Each thread keeps a small free list of its own so that most bindings need not take the global lock.
+ * Binding is not lock-free: a thread whose free list is empty refills it from the global unbound list under
+ * {@link #LOCK}.
  * <p>
  * Unbinding is performed at global safepoints. All unowned, unbindable, bound monitors are unbound. Writing of unbound
  * lockwords is delegated to an {@link UnboundMiscWordWriter} object (most likely the inflated mode handler of the ModalMonitorScheme).
- * This allows unbinding to be a transition to any other locking mode.
+ * This allows unbinding to be a transition to any other locking mode. Besides GC, idle monitors are unbound by a
+ * {@linkplain #deflateIdleMonitors() deflation}, requested when the unbound list runs low or periodically by
+ * the {@link MonitorDeflationDaemon}. A deflation avoids the cost of a garbage collection, but it is still a
+ * stop-the-world {@link VmOperation}: unbinding rewrites lock words and relies on no mutator racing on them.
  * <p>
  * GC considerations:
  * <p>
@@ -81,6 +86,27 @@ public class JavaMonitorManager {
      */
     private static int unboundListGrowQty = 50;
 
+    /**
+     * The maximum number of unbound monitors a thread keeps on its own free list.
+     */
+    private static final int FREE_MONITORS_MAX_QTY = 16;
+
+    /**
+     * The number of monitors moved at once from the global unbound list to an empty thread free list.
+     */
+    private static final int FREE_MONITORS_BATCH_QTY = 8;
+
+    /**
+     * Interval in milliseconds at which the {@link MonitorDeflationDaemon} checks whether idle monitors should be
+     * deflated (0, the default, disables the daemon).
+     */
+    private static int MonitorDeflationInterval = 0;
+
+    static {
+        VMOptions.addFieldOption("-XX:", "MonitorDeflationInterval", JavaMonitorManager.class,
+            "Interval in milliseconds at which a daemon thread requests a safepoint to deflate idle monitors (default: 0, disabled).", MaxineVM.Phase.PRISTINE);
+    }
+
     /**
      * The current number of unbound monitors available.
      */
@@ -195,6 +221,12 @@ public class JavaMonitorManager {
                 }
                 Log.unlock(lockDisabledSafepoints);
             }
+        } else if (phase == MaxineVM.Phase.RUNNING) {
+            if (MonitorDeflationInterval > 0) {
+                new MonitorDeflationDaemon(MonitorDeflationInterval).start();
+            }
+        } else if (phase == MaxineVM.Phase.TERMINATING) {
+            StandardJavaMonitor.printSpinStats();
         }
     }
 
@@ -341,16 +373,20 @@ public class JavaMonitorManager {
         if (inGlobalSafepoint) {
             monitor = takeFromUnboundList();
         } else {
-            synchronized (LOCK) {
+            final VmThread current = VmThread.current();
+            monitor = takeFromFreeMonitors(current);
+            if (monitor == null) {
+                // Deflation is a VM operation, which must not be waited for while holding LOCK
                 if (numberOfUnboundMonitors < UNBOUNDLIST_MIN_QTY) {
-                    System.gc();
+                    deflateIdleMonitors();
                 }
-
-                // If we didn't free up enough such that we are at least midway between min and hwm, expand
-                if (numberOfUnboundMonitors < (unboundMonitorsHwm + UNBOUNDLIST_MIN_QTY) >> 1) {
-                    expandUnboundList();
+                synchronized (LOCK) {
+                    // If we didn't free up enough such that we are at least midway between min and hwm, expand
+                    if (numberOfUnboundMonitors < (unboundMonitorsHwm + UNBOUNDLIST_MIN_QTY) >> 1) {
+                        expandUnboundList();
+                    }
+                    monitor = refillFreeMonitors(current);
                 }
-                monitor = takeFromUnboundList();
             }
         }
         monitor.setBoundObject(object);
@@ -378,13 +414,131 @@ public class JavaMonitorManager {
         bindableMonitor.reset();
         if (inGlobalSafepoint) {
             addToUnboundList(bindableMonitor);
-        } else {
+        } else if (!addToFreeMonitors(VmThread.current(), bindableMonitor)) {
             synchronized (LOCK) {
                 addToUnboundList(bindableMonitor);
             }
         }
     }
 
+    /**
+     * Takes a monitor from the given thread's free list. Only the owning thread modifies its free list outside of a
+     * global safepoint, so no locking is required.
+     *
+     * @return a monitor from the free list of {@code thread} or {@code null} if the list is empty
+     */
+    @NO_SAFEPOINT_POLLS("a thread's free monitor list must be consistent at safepoints")
+    private static ManagedMonitor takeFromFreeMonitors(VmThread thread) {
+        final ManagedMonitor monitor = (ManagedMonitor) thread.freeMonitors;
+        if (monitor != null) {
+            thread.freeMonitors = monitor.next();
+            thread.numberOfFreeMonitors--;
+            monitor.setNext(null);
+        }
+        return monitor;
+    }
+
+    /**
+     * Adds an unbound monitor to the given thread's free list if it has not reached {@link #FREE_MONITORS_MAX_QTY}.
+     *
+     * @return {@code true} if the monitor was added, {@code false} if it must go back on the global unbound list
+     */
+    @NO_SAFEPOINT_POLLS("a thread's free monitor list must be consistent at safepoints")
+    private static boolean addToFreeMonitors(VmThread thread, ManagedMonitor monitor) {
+        if (thread.numberOfFreeMonitors >= FREE_MONITORS_MAX_QTY) {
+            return false;
+        }
+        monitor.setNext((ManagedMonitor) thread.freeMonitors);
+        thread.freeMonitors = monitor;
+        thread.numberOfFreeMonitors++;
+        return true;
+    }
+
+    /**
+     * Moves up to {@link #FREE_MONITORS_BATCH_QTY} monitors from the global unbound list to the free list of the
+     * given thread, always leaving {@link #UNBOUNDLIST_MIN_QTY} monitors on the global list. Must be called with
+     * {@link #LOCK} held.
+     *
+     * @return a monitor for the caller to bind
+     */
+    @NO_SAFEPOINT_POLLS("the unbound list must be consistent at safepoints")
+    private static ManagedMonitor refillFreeMonitors(VmThread thread) {
+        final ManagedMonitor monitor = takeFromUnboundList();
+        int n = FREE_MONITORS_BATCH_QTY;
+        while (n > 0 && numberOfUnboundMonitors > UNBOUNDLIST_MIN_QTY && thread.numberOfFreeMonitors < FREE_MONITORS_MAX_QTY) {
+            addToFreeMonitors(thread, takeFromUnboundList());
+            n--;
+        }
+        return monitor;
+    }
+
+    /**
+     * Returns the monitors on the free list of a terminating thread to the global unbound list.
+     *
+     * @param thread the terminating thread
+     */
+    public static void releaseFreeMonitors(VmThread thread) {
+        if (thread.freeMonitors == null) {
+            return;
+        }
+        synchronized (LOCK) {
+            ManagedMonitor monitor = takeFromFreeMonitors(thread);
+            while (monitor != null) {
+                addToUnboundList(monitor);
+                monitor = takeFromFreeMonitors(thread);
+            }
+        }
+    }
+
+    /**
+     * Unbinds all idle monitors at a global safepoint, without the cost of a garbage collection.
+     */
+    private static final class MonitorDeflation extends VmOperation {
+
+        MonitorDeflation() {
+            super("MonitorDeflation", null, Mode.Safepoint);
+        }
+
+        @Override
+        protected void doIt() {
+            inGlobalSafepoint = true;
+            unbindUnownedMonitors();
+            refreshAllBindings();
+            inGlobalSafepoint = false;
+        }
+    }
+
+    private static final MonitorDeflation monitorDeflation = new MonitorDeflation();
+
+    /**
+     * Deflates all bound monitors that are neither owned nor in use by a thread, returning them to the unbound list.
+     * All threads are stopped at a global safepoint while this happens.
+     */
+    static void deflateIdleMonitors() {
+        monitorDeflation.submit();
+    }
+
+    /**
+     * Determines if more than half of the bindable monitors are currently bound and some of them are idle, in which
+     * case {@link MonitorDeflationDaemon} deflates idle monitors ahead of demand. The check reads the monitors without
+     * synchronization, so it may be wrong, but it keeps the daemon from stopping all threads for a deflation that
+     * could not reclaim anything.
+     */
+    static boolean shouldDeflateIdleMonitors() {
+        if (numberOfUnboundMonitors >= unboundMonitorsHwm >> 1) {
+            return false;
+        }
+        final ManagedMonitor[] monitors = bindableMonitors;
+        final int n = Math.min(numberOfBindableMonitors, monitors.length);
+        for (int i = 0; i < n; i++) {
+            final ManagedMonitor monitor = monitors[i];
+            if (monitor != null && monitor.isBound() && monitor.bindingProtection() != BindingProtection.PROTECTED) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     @NO_SAFEPOINT_POLLS("verification requires mutual exclusion with GC")
     private static int verifyBindableMonitors() {
         int errors = 0;
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.sun.max.vm.monitor.modal.sync;
+
+/**
+ * A daemon thread that periodically {@linkplain JavaMonitorManager#deflateIdleMonitors() deflates} idle monitors
+ * once most of the monitor pool is bound, so that lock inflation rarely has to wait for a deflation itself.
+ * <p>
+ * Only the decision to deflate is made in the background. The deflation itself is a VM operation that stops all
+ * threads at a global safepoint, just like one requested by an inflating thread.
+ */
+class MonitorDeflationDaemon extends Thread {
+
+    private final int interval;
+
+    /**
+     * Creates a daemon thread that checks for idle monitors every {@code interval} milliseconds.
+     */
+    MonitorDeflationDaemon(int interval) {
+        super("MonitorDeflationDaemon");
+        setDaemon(true);
+        this.interval = interval;
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            try {
+                Thread.sleep(interval);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (JavaMonitorManager.shouldDeflateIdleMonitors()) {
+                JavaMonitorManager.deflateIdleMonitors();
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.sun.max.vm.monitor.modal.sync.futex;
+
+import com.sun.max.annotate.*;
+import com.sun.max.lang.*;
+import com.sun.max.memory.*;
+import com.sun.max.platform.*;
+import com.sun.max.unsafe.*;
+import com.sun.max.vm.runtime.*;
+
+/**
+ * Operations on a 32-bit futex word in native memory. The word must not move, so it cannot be a field of a Java object.
+ */
+final class Futex {
+
+    static {
+        new CriticalNativeMethod(Futex.class, "nativeFutexWake");
+    }
+
+    private Futex() {
+    }
+
+    // Linux errno values returned by nativeFutexWait
+    static final int EINTR = 4;
+    static final int EAGAIN = 11;
+    static final int ETIMEDOUT = 110;
+
+    static void checkPlatform() {
+        if (Platform.platform().os != OS.LINUX) {
+            throw FatalError.unexpected("futex based mutexes and condition variables are only supported on Linux");
+        }
+    }
+
+    /**
+     * Allocates and zeroes a futex word.
+     */
+    static Pointer allocate() {
+        final Pointer word = Memory.mustAllocate(Size.fromInt(Word.size()));
+        word.setWord(0, Word.zero());
+        return word;
+    }
+
+    /**
+     * Atomically sets the futex word to a given value.
+     *
+     * @return the previous value of the word
+     */
+    @INLINE
+    static int swap(Pointer word, int newValue) {
+        while (true) {
+            final int oldValue = word.getInt(0);
+            if (word.compareAndSwapInt(0, oldValue, newValue) == oldValue) {
+                return oldValue;
+            }
+        }
+    }
+
+    /**
+     * Atomically increments the futex word.
+     */
+    @INLINE
+    static void increment(Pointer word) {
+        while (true) {
+            final int oldValue = word.getInt(0);
+            if (word.compareAndSwapInt(0, oldValue, oldValue + 1) == oldValue) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Blocks the current thread while the futex word holds a given value.
+     *
+     * @return {@code true} if the thread returned normally, including by a spurious wake up, a timeout
+     *         or an interrupt; {@code false} if an error occurred
+     */
+    static boolean await(Pointer word, int expectedValue, long timeoutMilliSeconds) {
+        final int result = nativeFutexWait(word, expectedValue, timeoutMilliSeconds);
+        return result == 0 || result == EAGAIN || result == EINTR || result == ETIMEDOUT;
+    }
+
+    /**
+     * Wakes up to {@code count} threads blocked on the futex word.
+     *
+     * @return {@code true} if no error occurred
+     */
+    @INLINE
+    static boolean wake(Pointer word, int count) {
+        return nativeFutexWake(word, count) >= 0;
+    }
+
+    // May block so JNI
+    private static native int nativeFutexWait(Pointer word, int expectedValue, long timeoutMilliSeconds);
+
+    @C_FUNCTION
+    private static native int nativeFutexWake(Pointer word, int count);
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.sun.max.vm.monitor.modal.sync.futex;
+
+import com.sun.max.annotate.*;
+import com.sun.max.unsafe.*;
+import com.sun.max.vm.monitor.modal.sync.*;
+
+/**
+ * A condition variable built on a Linux futex holding a sequence number. A waiter reads the sequence number
+ * before releasing the mutex and blocks only while it is unchanged, so a notification between the two is not lost.
+ * Notifying a condition variable with no waiters makes no system call.
+ * <p>
+ * The waiter count is only updated and read with the mutex held, as {@link ConditionVariable} requires of its callers.
+ * Any {@link Mutex} implementation can be used with this condition variable.
+ */
+public final class FutexConditionVariable extends ConditionVariable {
+
+    @CONSTANT_WHEN_NOT_ZERO
+    private Pointer sequence = Pointer.zero();
+
+    private int waiters;
+
+    FutexConditionVariable() {
+    }
+
+    @Override
+    public ConditionVariable init() {
+        if (sequence.isZero()) {
+            sequence = Futex.allocate();
+        }
+        return this;
+    }
+
+    @Override
+    public boolean threadWait(Mutex mutex, long timeoutMilliSeconds) {
+        final int expectedSequence = sequence.getInt(0);
+        waiters++;
+        mutex.unlock();
+        final boolean result = Futex.await(sequence, expectedSequence, timeoutMilliSeconds);
+        mutex.lock();
+        waiters--;
+        return result;
+    }
+
+    @Override
+    public boolean threadNotify(boolean all) {
+        if (waiters == 0) {
+            return true;
+        }
+        Futex.increment(sequence);
+        return Futex.wake(sequence, all ? Integer.MAX_VALUE : 1);
+    }
+
+    @Override
+    public long logId() {
+        return sequence.toLong();
+    }
+}
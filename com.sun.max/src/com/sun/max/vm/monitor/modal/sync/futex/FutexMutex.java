@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.sun.max.vm.monitor.modal.sync.futex;
+
+import com.sun.max.annotate.*;
+import com.sun.max.memory.*;
+import com.sun.max.unsafe.*;
+import com.sun.max.vm.monitor.modal.sync.*;
+
+/**
+ * A mutex built on a Linux futex. Locking and unlocking an uncontended mutex is a single compare-and-swap on the
+ * futex word in Java code. Only a thread that has to block, or that releases a mutex another thread is blocked on,
+ * makes a system call. This is the three state mutex from Drepper's "Futexes Are Tricky".
+ */
+public final class FutexMutex extends Mutex {
+
+    private static final int UNLOCKED = 0;
+    private static final int LOCKED = 1;
+    private static final int CONTENDED = 2;
+
+    @CONSTANT_WHEN_NOT_ZERO
+    private Pointer word = Pointer.zero();
+
+    FutexMutex() {
+    }
+
+    @Override
+    public Mutex init() {
+        if (word.isZero()) {
+            word = Futex.allocate();
+        }
+        return this;
+    }
+
+    @Override
+    public void cleanup() {
+        Memory.deallocate(word);
+    }
+
+    @Override
+    public boolean lock() {
+        int state = word.compareAndSwapInt(0, UNLOCKED, LOCKED);
+        if (state == UNLOCKED) {
+            return false;
+        }
+        if (state != CONTENDED) {
+            state = Futex.swap(word, CONTENDED);
+        }
+        while (state != UNLOCKED) {
+            if (!Futex.await(word, CONTENDED, 0)) {
+                return true;
+            }
+            state = Futex.swap(word, CONTENDED);
+        }
+        return false;
+    }
+
+    @Override
+    public boolean tryLock() {
+        return word.compareAndSwapInt(0, UNLOCKED, LOCKED) == UNLOCKED;
+    }
+
+    @Override
+    public boolean unlock() {
+        if (word.compareAndSwapInt(0, LOCKED, UNLOCKED) == LOCKED) {
+            return false;
+        }
+        Futex.swap(word, UNLOCKED);
+        return !Futex.wake(word, 1);
+    }
+
+    @Override
+    public long logId() {
+        return word.toLong();
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.sun.max.vm.monitor.modal.sync.futex;
+
+import com.sun.max.vm.monitor.modal.sync.*;
+
+/**
+ * Creates {@link FutexMutex} instances. Selected by setting the {@value MutexFactory#MUTEX_FACTORY_CLASS_PROPERTY_NAME}
+ * system property to the name of this class when building the boot image.
+ */
+public class FutexMutexFactory extends MutexFactory {
+    /**
+     * Create a FutexMutex object.
+     *
+     * @return a FutexMutex object
+     */
+    @Override
+    protected Mutex newMutex() {
+        return new FutexMutex();
+    }
+
+    @Override
+    protected void initializeImpl() {
+        Futex.checkPlatform();
+    }
+
+}
@@ -87,6 +87,11 @@ public final class NativeMutex extends Mutex {
         return OSMonitor.nativeMutexLock(nativeRef.mutex);
     }
 
+    @Override
+    public boolean tryLock() {
+        return OSMonitor.nativeMutexTryLock(nativeRef.mutex);
+    }
+
     /**
      * Causes the current thread to perform an unlock on the mutex.
      *
@@ -35,6 +35,16 @@ public class NativeMutexFactory extends MutexFactory {
         return new NativeMutex();
     }
 
+    /**
+     * Creates a NativeMutex object whatever the configured {@link MutexFactory}, for a mutex that is also locked
+     * by native code.
+     *
+     * @return a NativeMutex object
+     */
+    public static NativeMutex createNativeMutex() {
+        return new NativeMutex();
+    }
+
     @Override
     protected void initializeImpl() {
         NativeMutex.initialize();
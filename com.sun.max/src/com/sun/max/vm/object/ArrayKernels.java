@@ -0,0 +1,398 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.sun.max.vm.object;
+
+import static com.sun.max.platform.Platform.*;
+
+import com.sun.max.annotate.*;
+import com.sun.max.lang.*;
+import com.sun.max.unsafe.*;
+import com.sun.max.vm.reference.*;
+
+/**
+ * Block-at-a-time kernels for the array and string operations that dominate JDK library code
+ * ({@code System.arraycopy}, {@code Arrays.equals}, {@code Arrays.fill}, {@code String.equals} and
+ * {@code String.indexOf}).
+ * <p>
+ * The kernels process eight bytes per iteration with plain {@link Pointer} reads and writes, which both
+ * compilers reduce to single machine loads and stores, and fall back to narrower accesses for the tail.
+ * Searching uses the usual SIMD-within-a-register zero-lane test so that a whole block of characters is
+ * rejected with a handful of ALU operations. On platforms that do not {@linkplain #allowsUnalignedAccess()
+ * allow unaligned accesses}, blocks are only used once the pointers have been brought to an 8-byte boundary,
+ * and byte accesses are used throughout if the pointers cannot be aligned together.
+ * <p>
+ * All kernels take arrays and byte offsets rather than raw addresses. An array is processed in chunks of at most
+ * {@link #CHUNK_SIZE} bytes. Each chunk is handled by a method that resolves the array origins itself and does not
+ * poll for safepoints, so that a moving collector cannot relocate an array while a derived pointer is live. The
+ * loop over the chunks polls as usual, so the time to reach a safepoint does not grow with the array length.
+ * Callers are responsible for all null, bounds and type checks.
+ */
+public final class ArrayKernels {
+
+    private ArrayKernels() {
+    }
+
+    /**
+     * Number of bytes processed per iteration of the block loops.
+     */
+    public static final int BLOCK_SIZE = 8;
+
+    /**
+     * Maximum number of bytes processed between two safepoint polls.
+     */
+    public static final int CHUNK_SIZE = 64 * 1024;
+
+    private static final long CHAR_LANE_ONES = 0x0001000100010001L;
+    private static final long CHAR_LANE_HIGHS = 0x8000800080008000L;
+
+    /**
+     * Determines if blocks may be read and written at addresses that are not a multiple of {@link #BLOCK_SIZE}.
+     */
+    @FOLD
+    private static boolean allowsUnalignedAccess() {
+        return platform().isa == ISA.AMD64;
+    }
+
+    @INLINE
+    private static boolean isBlockAligned(Pointer p) {
+        return p.isAligned(BLOCK_SIZE);
+    }
+
+    /**
+     * Replicates a byte value across all the lanes of a block.
+     */
+    @INLINE
+    public static long replicate(byte value) {
+        return (value & 0xFFL) * 0x0101010101010101L;
+    }
+
+    /**
+     * Replicates a 16-bit value across all the lanes of a block.
+     */
+    @INLINE
+    public static long replicate(char value) {
+        return value * CHAR_LANE_ONES;
+    }
+
+    /**
+     * Replicates a 32-bit value across both lanes of a block.
+     */
+    @INLINE
+    public static long replicate(int value) {
+        return (value & 0xFFFFFFFFL) * 0x0000000100000001L;
+    }
+
+    /**
+     * Copies {@code numberOfBytes} bytes between two arrays of the same primitive kind. The source and destination
+     * regions may overlap, in which case the copy is performed as if through a temporary buffer.
+     *
+     * @param fromArray the source array
+     * @param fromOffset the offset of the first source byte relative to the origin of {@code fromArray}
+     * @param toArray the destination array
+     * @param toOffset the offset of the first destination byte relative to the origin of {@code toArray}
+     * @param numberOfBytes the number of bytes to copy
+     */
+    public static void copy(Object fromArray, Offset fromOffset, Object toArray, Offset toOffset, long numberOfBytes) {
+        if (fromArray == toArray && toOffset.greaterThan(fromOffset) && toOffset.lessThan(fromOffset.plus(numberOfBytes))) {
+            // Copy the chunks from the end so that no source byte is overwritten before it has been read
+            long remaining = numberOfBytes;
+            while (remaining > 0) {
+                final long chunk = Math.min(remaining, CHUNK_SIZE);
+                remaining -= chunk;
+                copyChunkBackward(fromArray, fromOffset.plus(remaining), toArray, toOffset.plus(remaining), chunk);
+            }
+        } else {
+            long done = 0;
+            while (done < numberOfBytes) {
+                final long chunk = Math.min(numberOfBytes - done, CHUNK_SIZE);
+                copyChunkForward(fromArray, fromOffset.plus(done), toArray, toOffset.plus(done), chunk);
+                done += chunk;
+            }
+        }
+    }
+
+    @NEVER_INLINE
+    @NO_SAFEPOINT_POLLS("derived pointers into the heap are live across the loop")
+    private static void copyChunkForward(Object fromArray, Offset fromOffset, Object toArray, Offset toOffset, long numberOfBytes) {
+        Pointer from = Reference.fromJava(fromArray).toOrigin().plus(fromOffset);
+        Pointer to = Reference.fromJava(toArray).toOrigin().plus(toOffset);
+        long remaining = numberOfBytes;
+        if (!allowsUnalignedAccess()) {
+            while (remaining != 0 && !isBlockAligned(from)) {
+                to.writeByte(0, from.readByte(0));
+                from = from.plus(1);
+                to = to.plus(1);
+                remaining--;
+            }
+            if (!isBlockAligned(to)) {
+                while (remaining != 0) {
+                    to.writeByte(0, from.readByte(0));
+                    from = from.plus(1);
+                    to = to.plus(1);
+                    remaining--;
+                }
+                return;
+            }
+        }
+        while (remaining >= BLOCK_SIZE) {
+            to.writeLong(0, from.readLong(0));
+            from = from.plus(BLOCK_SIZE);
+            to = to.plus(BLOCK_SIZE);
+            remaining -= BLOCK_SIZE;
+        }
+        if (remaining >= 4) {
+            to.writeInt(0, from.readInt(0));
+            from = from.plus(4);
+            to = to.plus(4);
+            remaining -= 4;
+        }
+        if (remaining >= 2) {
+            to.writeShort(0, from.readShort(0));
+            from = from.plus(2);
+            to = to.plus(2);
+            remaining -= 2;
+        }
+        if (remaining != 0) {
+            to.writeByte(0, from.readByte(0));
+        }
+    }
+
+    @NEVER_INLINE
+    @NO_SAFEPOINT_POLLS("derived pointers into the heap are live across the loop")
+    private static void copyChunkBackward(Object fromArray, Offset fromOffset, Object toArray, Offset toOffset, long numberOfBytes) {
+        final Pointer from = Reference.fromJava(fromArray).toOrigin().plus(fromOffset);
+        final Pointer to = Reference.fromJava(toArray).toOrigin().plus(toOffset);
+        Pointer fromEnd = from.plus(numberOfBytes);
+        Pointer toEnd = to.plus(numberOfBytes);
+        long remaining = numberOfBytes;
+        if (!allowsUnalignedAccess()) {
+            while (remaining != 0 && !isBlockAligned(fromEnd)) {
+                fromEnd = fromEnd.minus(1);
+                toEnd = toEnd.minus(1);
+                toEnd.writeByte(0, fromEnd.readByte(0));
+                remaining--;
+            }
+            if (!isBlockAligned(toEnd)) {
+                while (remaining != 0) {
+                    fromEnd = fromEnd.minus(1);
+                    toEnd = toEnd.minus(1);
+                    toEnd.writeByte(0, fromEnd.readByte(0));
+                    remaining--;
+                }
+                return;
+            }
+        }
+        while (remaining >= BLOCK_SIZE) {
+            fromEnd = fromEnd.minus(BLOCK_SIZE);
+            toEnd = toEnd.minus(BLOCK_SIZE);
+            toEnd.writeLong(0, fromEnd.readLong(0));
+            remaining -= BLOCK_SIZE;
+        }
+        if (remaining >= 4) {
+            fromEnd = fromEnd.minus(4);
+            toEnd = toEnd.minus(4);
+            toEnd.writeInt(0, fromEnd.readInt(0));
+            remaining -= 4;
+        }
+        if (remaining >= 2) {
+            fromEnd = fromEnd.minus(2);
+            toEnd = toEnd.minus(2);
+            toEnd.writeShort(0, fromEnd.readShort(0));
+            remaining -= 2;
+        }
+        if (remaining != 0) {
+            to.writeByte(0, from.readByte(0));
+        }
+    }
+
+    /**
+     * Compares two array regions byte-wise.
+     *
+     * @return {@code true} if the {@code numberOfBytes} bytes starting at {@code offset1} in {@code array1} are
+     *         identical to those starting at {@code offset2} in {@code array2}
+     */
+    public static boolean equals(Object array1, Offset offset1, Object array2, Offset offset2, long numberOfBytes) {
+        long done = 0;
+        while (done < numberOfBytes) {
+            final long chunk = Math.min(numberOfBytes - done, CHUNK_SIZE);
+            if (!equalsChunk(array1, offset1.plus(done), array2, offset2.plus(done), chunk)) {
+                return false;
+            }
+            done += chunk;
+        }
+        return true;
+    }
+
+    @NEVER_INLINE
+    @NO_SAFEPOINT_POLLS("derived pointers into the heap are live across the loop")
+    private static boolean equalsChunk(Object array1, Offset offset1, Object array2, Offset offset2, long numberOfBytes) {
+        Pointer p1 = Reference.fromJava(array1).toOrigin().plus(offset1);
+        Pointer p2 = Reference.fromJava(array2).toOrigin().plus(offset2);
+        long remaining = numberOfBytes;
+        if (!allowsUnalignedAccess()) {
+            while (remaining != 0 && !isBlockAligned(p1)) {
+                if (p1.readByte(0) != p2.readByte(0)) {
+                    return false;
+                }
+                p1 = p1.plus(1);
+                p2 = p2.plus(1);
+                remaining--;
+            }
+        }
+        // If the regions cannot be aligned together, the remainder is compared byte by byte
+        if (allowsUnalignedAccess() || isBlockAligned(p2)) {
+            while (remaining >= BLOCK_SIZE) {
+                if (p1.readLong(0) != p2.readLong(0)) {
+                    return false;
+                }
+                p1 = p1.plus(BLOCK_SIZE);
+                p2 = p2.plus(BLOCK_SIZE);
+                remaining -= BLOCK_SIZE;
+            }
+        }
+        while (remaining != 0) {
+            if (p1.readByte(0) != p2.readByte(0)) {
+                return false;
+            }
+            p1 = p1.plus(1);
+            p2 = p2.plus(1);
+            remaining--;
+        }
+        return true;
+    }
+
+    /**
+     * Fills an array region with a repeating pattern. The pattern must have been {@linkplain #replicate(int)
+     * replicated} from a single element value so that every aligned sub-range of it is a whole number of elements.
+     *
+     * @param array the array to fill
+     * @param offset the offset of the first byte to fill relative to the origin of {@code array}
+     * @param numberOfBytes the number of bytes to fill, which must be a multiple of the element size
+     * @param pattern the replicated element value
+     */
+    public static void fill(Object array, Offset offset, long numberOfBytes, long pattern) {
+        long done = 0;
+        while (done < numberOfBytes) {
+            final long chunk = Math.min(numberOfBytes - done, CHUNK_SIZE);
+            fillChunk(array, offset.plus(done), chunk, pattern);
+            done += chunk;
+        }
+    }
+
+    @NEVER_INLINE
+    @NO_SAFEPOINT_POLLS("derived pointers into the heap are live across the loop")
+    private static void fillChunk(Object array, Offset offset, long numberOfBytes, long pattern) {
+        Pointer p = Reference.fromJava(array).toOrigin().plus(offset);
+        long remaining = numberOfBytes;
+        if (!allowsUnalignedAccess()) {
+            // Elements are naturally aligned, so aligning with byte writes keeps the pattern in phase
+            while (remaining != 0 && !isBlockAligned(p)) {
+                p.writeByte(0, (byte) pattern);
+                pattern = Long.rotateRight(pattern, 8);
+                p = p.plus(1);
+                remaining--;
+            }
+        }
+        while (remaining >= BLOCK_SIZE) {
+            p.writeLong(0, pattern);
+            p = p.plus(BLOCK_SIZE);
+            remaining -= BLOCK_SIZE;
+        }
+        if (remaining >= 4) {
+            p.writeInt(0, (int) pattern);
+            p = p.plus(4);
+            remaining -= 4;
+        }
+        if (remaining >= 2) {
+            p.writeShort(0, (short) pattern);
+            p = p.plus(2);
+            remaining -= 2;
+        }
+        if (remaining != 0) {
+            p.writeByte(0, (byte) pattern);
+        }
+    }
+
+    /**
+     * Searches a {@code char} array for the first occurrence of a value.
+     *
+     * @param chars the array to search
+     * @param firstElementOffset the offset of element 0 relative to the origin of {@code chars}
+     * @param fromIndex the index at which to start the search
+     * @param toIndex the index one past the last element to search
+     * @param value the value to search for
+     * @return the index of the first occurrence of {@code value} in the range, or -1 if there is none
+     */
+    public static int indexOf(char[] chars, Offset firstElementOffset, int fromIndex, int toIndex, char value) {
+        final int charsPerChunk = CHUNK_SIZE / 2;
+        int from = fromIndex;
+        while (from < toIndex) {
+            final int to = toIndex - from > charsPerChunk ? from + charsPerChunk : toIndex;
+            final int index = indexOfChunk(chars, firstElementOffset, from, to, value);
+            if (index >= 0) {
+                return index;
+            }
+            from = to;
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the byte offset of a {@code char} array element. This is computed as a word so that it does not overflow
+     * for arrays of 2^30 or more elements.
+     */
+    @INLINE
+    private static Offset charOffset(int index) {
+        return Offset.fromInt(index).times(2);
+    }
+
+    @NEVER_INLINE
+    @NO_SAFEPOINT_POLLS("derived pointers into the heap are live across the loop")
+    private static int indexOfChunk(char[] chars, Offset firstElementOffset, int fromIndex, int toIndex, char value) {
+        final Pointer elements = Reference.fromJava(chars).toOrigin().plus(firstElementOffset);
+        final long pattern = replicate(value);
+        final int charsPerBlock = BLOCK_SIZE / 2;
+        int i = fromIndex;
+        if (!allowsUnalignedAccess()) {
+            // Array elements are 2-byte aligned, so the block loop can always start at an aligned element
+            while (i < toIndex && !isBlockAligned(elements.plus(charOffset(i)))) {
+                if (elements.readChar(charOffset(i)) == value) {
+                    return i;
+                }
+                i++;
+            }
+        }
+        while (i + charsPerBlock <= toIndex) {
+            long v = elements.readLong(charOffset(i)) ^ pattern;
+            if (((v - CHAR_LANE_ONES) & ~v & CHAR_LANE_HIGHS) != 0) {
+                // At least one lane matched; locate it without depending on the byte order of the block
+                break;
+            }
+            i += charsPerBlock;
+        }
+        while (i < toIndex) {
+            if (elements.readChar(charOffset(i)) == value) {
+                return i;
+            }
+            i++;
+        }
+        return -1;
+    }
+}
@@ -30,12 +30,15 @@ import com.sun.max.vm.MaxineVM.Phase;
 import com.sun.max.vm.actor.holder.ClassActor;
 import com.sun.max.vm.actor.member.MethodActor;
 import com.sun.max.vm.actor.member.StaticMethodActor;
+import com.sun.max.vm.classfile.VerificationCache;
+import com.sun.max.vm.compiler.CompilationReplay;
 import com.sun.max.vm.compiler.deopt.Deoptimization;
 import com.sun.max.vm.heap.Heap;
 import com.sun.max.vm.hosted.CompiledPrototype;
 import com.sun.max.vm.instrument.InstrumentationManager;
 import com.sun.max.vm.jni.JniFunctions;
 import com.sun.max.vm.log.VMLog;
+import com.sun.max.vm.management.SafepointManagement;
 import com.sun.max.vm.profilers.sampling.*;
 import com.sun.max.vm.run.RunScheme;
 import com.sun.max.vm.runtime.CriticalMethod;
@@ -43,6 +46,7 @@ import com.sun.max.vm.runtime.FatalError;
 import com.sun.max.vm.runtime.PrintThreads;
 import com.sun.max.vm.thread.VmThread;
 import com.sun.max.vm.ti.VMTI;
+import com.sun.max.vm.type.ClassPrefetcher;
 import com.sun.max.vm.type.Kind;
 import com.sun.max.vm.type.SignatureDescriptor;
 import com.sun.max.vm.type.VMClassLoader;
@@ -232,6 +236,11 @@ public class JavaRunScheme extends AbstractVMScheme implements RunScheme {
             }
 
             case RUNNING: {
+                // The system class loader is available and no application class has been loaded yet
+                VerificationCache.initialize();
+                ClassPrefetcher.initialize();
+                CompilationReplay.initialize();
+
                 // This is always the last scheme to be initialized, so now is the right time
                 // to start the profiler if requested.
                 final String cpuProfOptionValue = cprofOption.getValue();
@@ -277,6 +286,7 @@ public class JavaRunScheme extends AbstractVMScheme implements RunScheme {
             if (Deoptimization.DeoptimizeALot != 0 && Deoptimization.UseDeopt) {
                 new DeoptimizeALot(Deoptimization.DeoptimizeALot).start();
             }
+            SafepointManagement.initialize();
             // Install the signal handler for dumping threads when SIGHUP is received
             Signal.handle(new Signal("QUIT"), new PrintThreads(false));
         }
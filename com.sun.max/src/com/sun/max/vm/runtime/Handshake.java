@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.sun.max.vm.runtime;
+
+import static com.sun.max.vm.runtime.VmOperation.*;
+import static com.sun.max.vm.thread.VmThreadLocal.*;
+
+import com.sun.max.annotate.*;
+import com.sun.max.unsafe.*;
+import com.sun.max.vm.*;
+import com.sun.max.vm.actor.holder.*;
+import com.sun.max.vm.actor.member.*;
+import com.sun.max.vm.reference.*;
+import com.sun.max.vm.thread.*;
+
+/**
+ * An operation performed on a single thread at its next {@linkplain SafepointPoll safepoint}, without stopping any
+ * other thread. Unlike a {@link VmOperation}, a handshake is not queued on the {@link VmOperationThread}: the
+ * requesting thread triggers safepoints for the target thread only and waits for the target to {@linkplain #run run}
+ * the handshake from its safepoint trap handler.
+ * <p>
+ * A thread in native code may not reach a safepoint for an arbitrary amount of time. If the target thread is found in
+ * native code, the requesting thread freezes it with the same mutator state transition used by the VM operation thread
+ * and runs the handshake on its behalf. This is done while holding the {@linkplain VmThreadMap#THREAD_LOCK thread lock}
+ * so that no VM operation can freeze or thaw the target in the meantime, and so that the target cannot terminate.
+ * <p>
+ * A handshake runs with safepoints disabled and possibly with the thread lock held. It must therefore not allocate,
+ * block or submit VM operations. Submissions of the same handshake object are serialized.
+ * <p>
+ * Once a handshake has been performed, safepoints are no longer triggered on the target thread unless another
+ * handshake or a VM operation is pending for it.
+ */
+public abstract class Handshake {
+
+    /**
+     * The name of this handshake, used for tracing.
+     */
+    public final String name;
+
+    /**
+     * Set once this handshake has been performed for the thread it was submitted for. Only the submission in progress
+     * uses this field, since {@link #submit(VmThread)} holds the lock of this handshake.
+     */
+    private volatile boolean completed;
+
+    @CONSTANT_WHEN_NOT_ZERO
+    private static int pendingHandshakeOffset;
+
+    protected Handshake(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Performs this handshake for a given thread.
+     *
+     * @param thread the thread this handshake was submitted for
+     * @param trapFrame the trap frame of {@code thread} if it is performing the handshake itself at a safepoint, or
+     *            zero if the handshake is performed by another thread while {@code thread} is frozen or by
+     *            {@code thread} itself outside a safepoint
+     */
+    protected abstract void run(VmThread thread, Pointer trapFrame);
+
+    /**
+     * Performs this handshake on a given thread, blocking the current thread until it has completed.
+     *
+     * @param thread the thread to perform the handshake on
+     * @return {@code false} if {@code thread} is not running, in which case the handshake was not performed
+     */
+    public final synchronized boolean submit(VmThread thread) {
+        final long start = System.nanoTime();
+        completed = false;
+
+        if (thread == VmThread.current()) {
+            final boolean wasDisabled = SafepointPoll.disable();
+            run(thread, Pointer.zero());
+            if (!wasDisabled) {
+                SafepointPoll.enable();
+            }
+            VmOperationThread.recordHandshake(this, System.nanoTime() - start, false);
+            return true;
+        }
+        FatalError.check(!VmThread.current().isVmOperationThread(), "VM operation thread cannot wait for a handshake");
+
+        // Only one handshake can be pending for a thread at any time
+        while (!compareAndSwapPending(thread, null, this)) {
+            Thread.yield();
+        }
+
+        boolean performedByRequester = false;
+        int steps = 0;
+        while (!completed) {
+            synchronized (VmThreadMap.THREAD_LOCK) {
+                final Pointer tla = thread.tla();
+                if (tla.isZero()) {
+                    // The thread is not yet on the global thread list or has terminated.
+                    if (compareAndSwapPending(thread, this, null)) {
+                        return false;
+                    }
+                } else {
+                    final Pointer etla = ETLA.load(tla);
+                    // This relies on UseCASBasedThreadFreezing: a thread cannot leave native code while it is frozen.
+                    if (etla.compareAndSwapWord(MUTATOR_STATE.offset, THREAD_IN_NATIVE, THREAD_IS_FROZEN).equals(THREAD_IN_NATIVE)) {
+                        if (compareAndSwapPending(thread, this, null)) {
+                            run(thread, Pointer.zero());
+                            performedByRequester = true;
+                            completed = true;
+                            resetSafepointLatch(thread, tla);
+                        }
+                        MUTATOR_STATE.store(etla, THREAD_IN_NATIVE);
+                    } else {
+                        // (Re)trigger safepoints on the thread. A VM operation that thawed it in the meantime
+                        // will have reset its safepoint latch.
+                        SAFEPOINT_LATCH.store(etla, TTLA.load(tla));
+                    }
+                }
+            }
+            if (!completed) {
+                if (steps < VmOperation.SafepointSpinBeforeYield) {
+                    Intrinsics.pause();
+                } else {
+                    Thread.yield();
+                }
+                steps++;
+            }
+        }
+        VmOperationThread.recordHandshake(this, System.nanoTime() - start, performedByRequester);
+        return true;
+    }
+
+    /**
+     * Performs the handshake pending for the current thread, if any. Called by the {@linkplain Trap trap} handler with
+     * safepoints disabled when the current thread hits a triggered safepoint.
+     *
+     * @param thread the current thread
+     * @param trapFrame a pointer to the trap frame
+     */
+    static void runPending(VmThread thread, Pointer trapFrame) {
+        final Handshake handshake = thread.pendingHandshake;
+        if (handshake != null && compareAndSwapPending(thread, handshake, null)) {
+            handshake.run(thread, trapFrame);
+            handshake.completed = true;
+        }
+        final Pointer tla = thread.tla();
+        final Pointer etla = ETLA.load(tla);
+        if (SAFEPOINT_LATCH.load(etla).equals(TTLA.load(tla))) {
+            // Triggered by a handshake rather than (or after) a VM operation, which resets the latch when it thaws
+            synchronized (VmThreadMap.THREAD_LOCK) {
+                resetSafepointLatch(thread, tla);
+            }
+        }
+    }
+
+    /**
+     * Stops triggering safepoints on a thread if neither a handshake nor a VM operation is pending for it. The
+     * caller must hold the {@linkplain VmThreadMap#THREAD_LOCK thread lock} so that no VM operation can trigger
+     * safepoints on the thread in the meantime.
+     *
+     * @param thread the thread on which to stop triggering safepoints
+     * @param tla the thread locals of {@code thread}
+     */
+    private static void resetSafepointLatch(VmThread thread, Pointer tla) {
+        final Pointer etla = ETLA.load(tla);
+        if (thread.pendingHandshake == null && VM_OPERATION.loadRef(etla).isZero()) {
+            SAFEPOINT_LATCH.store(etla, etla);
+        }
+    }
+
+    private static boolean compareAndSwapPending(VmThread thread, Handshake expectedValue, Handshake newValue) {
+        if (pendingHandshakeOffset == 0) {
+            pendingHandshakeOffset = FieldActor.findInstance(ClassActor.fromJava(VmThread.class), "pendingHandshake").offset();
+        }
+        final Reference oldValue = Reference.fromJava(thread).compareAndSwapReference(pendingHandshakeOffset, Reference.fromJava(expectedValue), Reference.fromJava(newValue));
+        return oldValue.toJava() == expectedValue;
+    }
+}
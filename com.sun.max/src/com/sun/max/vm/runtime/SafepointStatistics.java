@@ -0,0 +1,252 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.sun.max.vm.runtime;
+
+import com.sun.max.annotate.*;
+import com.sun.max.unsafe.*;
+import com.sun.max.vm.*;
+import com.sun.max.vm.compiler.target.*;
+import com.sun.max.vm.log.VMLog.Record;
+import com.sun.max.vm.log.hosted.*;
+import com.sun.max.vm.thread.*;
+
+/**
+ * Time-to-safepoint statistics for {@link VmOperation}s. For every operation that freezes threads, the
+ * {@link VmOperationThread} records the time taken to freeze all targeted threads, the thread that was slowest to
+ * freeze along with where it stopped, the time spent in the operation itself and the time taken to thaw the threads.
+ * <p>
+ * Each record goes to the {@link #logger safepoint logger} (enabled with {@code -XX:+LogSafepoint}, or traced with
+ * {@code -XX:+TraceSafepoint}), whose {@link com.sun.max.vm.log.VMLog} buffer keeps the most recent safepoints.
+ * Aggregate values are maintained for {@link com.sun.max.vm.management.SafepointManagement} and summarized at VM exit by
+ * {@code -XX:+PrintSafepointStatistics}.
+ * <p>
+ * All the values are only updated by the VM operation thread.
+ */
+public final class SafepointStatistics {
+
+    private static boolean PrintSafepointStatistics;
+
+    static {
+        VMOptions.addFieldOption("-XX:", "PrintSafepointStatistics", SafepointStatistics.class,
+            "Print a summary of the time taken to reach, run and leave VM operation safepoints at end of program.", MaxineVM.Phase.PRISTINE);
+    }
+
+    public static final SafepointLogger logger = new SafepointLogger();
+
+    private static long safepoints;
+    private static long totalTimeToSafepoint;
+    private static long maxTimeToSafepoint;
+    private static long totalOperationTime;
+    private static long totalThawTime;
+
+    /**
+     * The operation, the slowest thread and the method it was in for the safepoint that took longest to reach.
+     */
+    private static String worstOperation;
+    private static String worstThread;
+    private static TargetMethod worstMethod;
+
+    private SafepointStatistics() {
+    }
+
+    /**
+     * Records the timing of a VM operation safepoint. Called by the VM operation thread once it has thawed the threads.
+     *
+     * @param operation the operation that ran at the safepoint
+     * @param threads the number of threads that were frozen
+     * @param timeToSafepoint the time in nanoseconds taken to freeze all threads
+     * @param slowestThread the thread that took longest to freeze or {@code null}
+     * @param slowestIP the instruction pointer at which {@code slowestThread} was frozen
+     * @param slowestMethod the method containing {@code slowestIP}, resolved while the threads were frozen, or {@code null}
+     * @param operationTime the time in nanoseconds spent running the operation
+     * @param thawTime the time in nanoseconds taken to thaw all threads
+     */
+    static void record(VmOperation operation, int threads, long timeToSafepoint, VmThread slowestThread, Pointer slowestIP, TargetMethod slowestMethod, long operationTime, long thawTime) {
+        safepoints++;
+        totalTimeToSafepoint += timeToSafepoint;
+        totalOperationTime += operationTime;
+        totalThawTime += thawTime;
+        if (timeToSafepoint > maxTimeToSafepoint) {
+            maxTimeToSafepoint = timeToSafepoint;
+            worstOperation = operation.name;
+            worstThread = slowestThread == null ? null : slowestThread.getName();
+            worstMethod = slowestMethod;
+        }
+        if (logger.enabled() && slowestThread != null) {
+            logger.logSafepoint(operation.name, threads, timeToSafepoint, slowestThread, slowestIP, slowestMethod, operationTime, thawTime);
+        }
+    }
+
+    public static long safepoints() {
+        return safepoints;
+    }
+
+    public static long totalTimeToSafepoint() {
+        return totalTimeToSafepoint;
+    }
+
+    public static long maxTimeToSafepoint() {
+        return maxTimeToSafepoint;
+    }
+
+    public static long totalOperationTime() {
+        return totalOperationTime;
+    }
+
+    public static long totalThawTime() {
+        return totalThawTime;
+    }
+
+    public static String worstOperation() {
+        return worstOperation;
+    }
+
+    public static String worstThread() {
+        return worstThread;
+    }
+
+    public static TargetMethod worstMethod() {
+        return worstMethod;
+    }
+
+    static void printStatistics() {
+        if (!PrintSafepointStatistics) {
+            return;
+        }
+        final boolean lockDisabledSafepoints = Log.lock();
+        Log.println("Safepoint statistics:");
+        Log.print("  safepoints: ");
+        Log.println(safepoints);
+        if (safepoints != 0) {
+            Log.print("  average time to safepoint (us): ");
+            Log.println(totalTimeToSafepoint / safepoints / 1000);
+            Log.print("  maximum time to safepoint (us): ");
+            Log.print(maxTimeToSafepoint / 1000);
+            Log.print(" in ");
+            Log.print(worstOperation);
+            if (worstThread != null) {
+                Log.print(", slowest thread ");
+                Log.print(worstThread);
+            }
+            if (worstMethod != null) {
+                Log.print(" in ");
+                Log.printMethod(worstMethod, false);
+            }
+            Log.println();
+            Log.print("  average operation time (us): ");
+            Log.println(totalOperationTime / safepoints / 1000);
+            Log.print("  average thaw time (us): ");
+            Log.println(totalThawTime / safepoints / 1000);
+        }
+        Log.unlock(lockDisabledSafepoints);
+    }
+
+    @HOSTED_ONLY
+    @VMLoggerInterface(defaultConstructor = true)
+    private interface SafepointLoggerInterface {
+        void safepoint(
+            @VMLogParam(name = "operation") String operation,
+            @VMLogParam(name = "threads") int threads,
+            @VMLogParam(name = "timeToSafepoint") long timeToSafepoint,
+            @VMLogParam(name = "slowestThread") VmThread slowestThread,
+            @VMLogParam(name = "slowestIP") Pointer slowestIP,
+            @VMLogParam(name = "slowestMethod") TargetMethod slowestMethod,
+            @VMLogParam(name = "operationTime") long operationTime,
+            @VMLogParam(name = "thawTime") long thawTime);
+    }
+
+    public static final class SafepointLogger extends SafepointLoggerAuto {
+        SafepointLogger() {
+            super("Safepoint", "VM operation safepoint timings");
+        }
+
+        @Override
+        protected void traceSafepoint(String operation, int threads, long timeToSafepoint, VmThread slowestThread, Pointer slowestIP, TargetMethod slowestMethod,
+                        long operationTime, long thawTime) {
+            Log.print("Safepoint ");
+            Log.print(operation);
+            Log.print(": threads=");
+            Log.print(threads);
+            Log.print(" timeToSafepoint=");
+            Log.print(timeToSafepoint / 1000);
+            Log.print("us operation=");
+            Log.print(operationTime / 1000);
+            Log.print("us thaw=");
+            Log.print(thawTime / 1000);
+            Log.print("us");
+            if (slowestThread != null) {
+                Log.print(" slowest=");
+                Log.printThread(slowestThread, false);
+                Log.print(" ip=");
+                Log.print(slowestIP);
+                if (slowestMethod != null) {
+                    Log.print(" in ");
+                    Log.printMethod(slowestMethod, false);
+                }
+            }
+            Log.println();
+        }
+    }
+
+// START GENERATED CODE
+    private static abstract class SafepointLoggerAuto extends com.sun.max.vm.log.VMLogger {
+        public enum Operation {
+            Safepoint;
+
+            @SuppressWarnings("hiding")
+            public static final Operation[] VALUES = values();
+        }
+
+        private static final int[] REFMAPS = new int[] {0x21};
+
+        protected SafepointLoggerAuto(String name, String optionDescription) {
+            super(name, Operation.VALUES.length, optionDescription, REFMAPS);
+        }
+
+        protected SafepointLoggerAuto() {
+        }
+
+        @Override
+        public String operationName(int opCode) {
+            return Operation.VALUES[opCode].name();
+        }
+
+        @INLINE
+        public final void logSafepoint(String operation, int threads, long timeToSafepoint, VmThread slowestThread, Pointer slowestIP,
+                TargetMethod slowestMethod, long operationTime, long thawTime) {
+            log(Operation.Safepoint.ordinal(), objectArg(operation), intArg(threads), longArg(timeToSafepoint), vmThreadArg(slowestThread), slowestIP,
+                objectArg(slowestMethod), longArg(operationTime), longArg(thawTime));
+        }
+        protected abstract void traceSafepoint(String operation, int threads, long timeToSafepoint, VmThread slowestThread, Pointer slowestIP,
+                TargetMethod slowestMethod, long operationTime, long thawTime);
+
+        @Override
+        protected void trace(Record r) {
+            switch (r.getOperation()) {
+                case 0: { //Safepoint
+                    traceSafepoint(toString(r, 1), toInt(r, 2), toLong(r, 3), toVmThread(r, 4), toPointer(r, 5), toTargetMethod(r, 6), toLong(r, 7), toLong(r, 8));
+                    break;
+                }
+            }
+        }
+    }
+
+// END GENERATED CODE
+}
@@ -391,6 +391,8 @@ public abstract class Trap {
                  * mutator is null.
                  */
             }
+            Handshake.runPending(VmThread.current(), trapFrame);
+
             // The state of the safepoint latch was TRIGGERED when the trap happened. It must be reset back to ENABLED
             // here otherwise another trap will occur as soon as the trap stub returns and re-executes the
             // safepoint instruction.
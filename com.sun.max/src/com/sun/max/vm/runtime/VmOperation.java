@@ -30,6 +30,8 @@ import com.sun.max.unsafe.*;
 import com.sun.max.unsafe.Pointer.*;
 import com.sun.max.vm.*;
 import com.sun.max.vm.actor.holder.*;
+import com.sun.max.vm.code.*;
+import com.sun.max.vm.compiler.target.*;
 import com.sun.max.vm.heap.*;
 import com.sun.max.vm.object.*;
 import com.sun.max.vm.reference.*;
@@ -266,6 +268,7 @@ public class VmOperation {
         if (!VmThreadLocal.inJava(tla)) {
             FatalError.unexpected("Freezing thread trapped while in native code");
         }
+        VmThread.current().safepointTrapTime = System.nanoTime();
 
         // This thread must only transition to native code as a result of
         // the synchronization below.
@@ -549,6 +552,13 @@ public class VmOperation {
 
                 tracePhase("-- Begin --");
 
+                final long beginTime = System.nanoTime();
+                triggerTime = beginTime;
+                frozenThreads = 0;
+                slowestFreezeTime = -1;
+                slowestThread = null;
+                slowestIP = Pointer.zero();
+
                 freeze();
 
                 // Ensures updates to safepoint-related control variables are visible to all threads
@@ -557,6 +567,9 @@ public class VmOperation {
 
                 waitUntilFrozen();
 
+                final long frozenTime = System.nanoTime();
+                // Resolve the method while the thread is still frozen at the instruction pointer
+                final TargetMethod slowestMethod = slowestIP.isZero() ? null : Code.codePointerToTargetMethod(slowestIP);
                 boolean oldAtSafepoint = atSafepoint;
                 try {
                     if (singleThread == null) {
@@ -578,7 +591,9 @@ public class VmOperation {
                 }
                 atSafepoint = oldAtSafepoint;
 
+                final long doneTime = System.nanoTime();
                 thaw();
+                SafepointStatistics.record(this, frozenThreads, frozenTime - beginTime, slowestThread, slowestIP, slowestMethod, doneTime - frozenTime, System.nanoTime() - doneTime);
 
                 tracePhase("-- End --");
             }
@@ -729,6 +744,16 @@ public class VmOperation {
         return false;
     }
 
+    /*
+     * Time-to-safepoint bookkeeping for the current run of this operation, reported to SafepointStatistics.
+     * Only accessed by the VM operation thread.
+     */
+    private int frozenThreads;
+    private long triggerTime;
+    private long slowestFreezeTime;
+    private VmThread slowestThread;
+    private Pointer slowestIP = Pointer.zero();
+
     static int SafepointSpinBeforeYield = 2000;
     static {
         VMOptions.addFieldOption("-XX:", "SafepointSpinBeforeYield", VmOperation.class,
@@ -790,6 +815,31 @@ public class VmOperation {
             }
         }
 
+        frozenThreads++;
+        // Measure each thread from the moment safepoints were triggered, not from when this thread started waiting
+        // for it, so that the time spent waiting for the threads visited before does not count against it. A thread
+        // that trapped for this operation recorded when it did; one found in native code was frozen at the trigger.
+        final long trapTime = thread.safepointTrapTime;
+        final long freezeTime;
+        if (trapTime >= triggerTime) {
+            freezeTime = trapTime - triggerTime;
+        } else if (steps == 0) {
+            freezeTime = 0;
+        } else {
+            freezeTime = System.nanoTime() - triggerTime;
+        }
+        if (freezeTime > slowestFreezeTime) {
+            slowestFreezeTime = freezeTime;
+            slowestThread = thread;
+            slowestIP = TRAP_INSTRUCTION_POINTER.load(tla);
+            if (slowestIP.isZero()) {
+                final Pointer anchor = JavaFrameAnchor.from(tla);
+                if (!anchor.isZero()) {
+                    slowestIP = JavaFrameAnchor.PC.get(anchor);
+                }
+            }
+        }
+
         doAfterFrozen(thread);
 
         if (TraceVmOperations) {
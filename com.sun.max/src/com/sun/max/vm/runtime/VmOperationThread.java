@@ -59,6 +59,17 @@ public class VmOperationThread extends Thread implements UncaughtExceptionHandle
 
     static boolean TraceVmOperations;
     static boolean TraceRequestLock;
+    static boolean TraceHandshakes;
+    private static boolean PrintHandshakeStats;
+
+    /*
+     * Handshake statistics. These are updated by the requesting threads without synchronization
+     * and so may be slightly off under heavy contention.
+     */
+    private static int handshakes;
+    private static int handshakesByRequester;
+    private static long totalHandshakeLatency;
+    private static long maxHandshakeLatency;
 
     public static VmOperationThread instance() {
         return (VmOperationThread) VmThread.vmOperationThread.javaThread();
@@ -67,6 +78,8 @@ public class VmOperationThread extends Thread implements UncaughtExceptionHandle
     static {
         VMOptions.addFieldOption("-XX:", "TraceVmOperations", VmOperationThread.class, "Trace VM operations.");
         VMOptions.addFieldOption("-XX:", "TraceRequestLock", VmOperationThread.class, "Trace VM_OPERATION_REQUEST_LOCK.");
+        VMOptions.addFieldOption("-XX:", "TraceHandshakes", VmOperationThread.class, "Trace thread-local handshakes.");
+        VMOptions.addFieldOption("-XX:", "PrintHandshakeStats", VmOperationThread.class, "Print statistics about thread-local handshakes at end of program.");
     }
 
     @HOSTED_ONLY
@@ -352,11 +365,59 @@ public class VmOperationThread extends Thread implements UncaughtExceptionHandle
         }
     }
 
+    /**
+     * Records the completion of a {@linkplain Handshake handshake}.
+     *
+     * @param handshake the completed handshake
+     * @param latency the time in nanoseconds from the submission of the handshake until its completion
+     * @param performedByRequester specifies if the handshake was performed by the requesting thread on behalf of a
+     *            target thread in native code
+     */
+    static void recordHandshake(Handshake handshake, long latency, boolean performedByRequester) {
+        handshakes++;
+        if (performedByRequester) {
+            handshakesByRequester++;
+        }
+        totalHandshakeLatency += latency;
+        if (latency > maxHandshakeLatency) {
+            maxHandshakeLatency = latency;
+        }
+        if (TraceHandshakes) {
+            boolean lockDisabledSafepoints = Log.lock();
+            Log.print("Handshake ");
+            Log.print(handshake.name);
+            Log.print(performedByRequester ? " performed by requester " : " performed at safepoint, requested by ");
+            Log.printCurrentThread(false);
+            Log.print(" in ");
+            Log.print(latency / 1000);
+            Log.println(" us");
+            Log.unlock(lockDisabledSafepoints);
+        }
+    }
+
+    private static void printHandshakeStats() {
+        boolean lockDisabledSafepoints = Log.lock();
+        Log.println("Handshake statistics:");
+        Log.print("  handshakes: ");
+        Log.println(handshakes);
+        Log.print("  performed by requester: ");
+        Log.println(handshakesByRequester);
+        Log.print("  average latency (us): ");
+        Log.println(handshakes == 0 ? 0 : totalHandshakeLatency / handshakes / 1000);
+        Log.print("  maximum latency (us): ");
+        Log.println(maxHandshakeLatency / 1000);
+        Log.unlock(lockDisabledSafepoints);
+    }
+
     /**
      * Notifies the VM operation thread that it should stop. The current thread
      * is blocked until the VM thread stops.
      */
     public static void terminate() {
+        if (PrintHandshakeStats) {
+            printHandshakeStats();
+        }
+        SafepointStatistics.printStatistics();
         VmOperationThread vmOperationThread = instance();
         vmOperationThread.shouldTerminate = true;
 
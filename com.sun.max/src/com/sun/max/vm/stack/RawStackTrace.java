@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.sun.max.vm.stack;
+
+import static com.sun.max.vm.compiler.target.Stub.Type.*;
+
+import com.sun.max.vm.compiler.target.*;
+
+/**
+ * The frames of a thread's stack, recorded by a walk that does not allocate, so that it can be taken while the thread
+ * is stopped in a {@link com.sun.max.vm.runtime.Handshake}, and {@linkplain #replay(SourceFrameVisitor) visited} as
+ * source frames once the thread has moved on. A frame is recorded as a target method and a code position rather than
+ * an address, because code eviction may relocate baseline code in the meantime.
+ */
+public final class RawStackTrace extends RawStackFrameVisitor {
+
+    private final TargetMethod[] methods;
+    private final int[] positions;
+    private final boolean[] trapped;
+    private final long[] frameIds;
+    private int count;
+    private boolean overflowed;
+
+    /**
+     * Creates a trace that can record up to {@code capacity} frames.
+     */
+    public RawStackTrace(int capacity) {
+        methods = new TargetMethod[capacity];
+        positions = new int[capacity];
+        trapped = new boolean[capacity];
+        frameIds = new long[capacity];
+    }
+
+    /**
+     * Determines if the last walk stopped because the stack had more frames than this trace can record.
+     */
+    public boolean overflowed() {
+        return overflowed;
+    }
+
+    /**
+     * Gets the number of frames recorded by the last walk.
+     */
+    public int count() {
+        return count;
+    }
+
+    @Override
+    public boolean visitFrame(StackFrameCursor current, StackFrameCursor callee) {
+        final TargetMethod targetMethod = current.targetMethod();
+        if (targetMethod == null || targetMethod.classMethodActor == null) {
+            // native code, stubs, trampolines, adapters etc
+            return true;
+        }
+        if (count == methods.length) {
+            overflowed = true;
+            return false;
+        }
+        methods[count] = targetMethod;
+        positions[count] = targetMethod.posFor(current.vmIP());
+        trapped[count] = callee.targetMethod() != null && callee.targetMethod().is(TrapStub);
+        frameIds[count] = current.sp().toLong() << 16;
+        count++;
+        return true;
+    }
+
+    /**
+     * Passes the recorded frames to a given source frame visitor, from the top of the stack downwards.
+     */
+    public void replay(SourceFrameVisitor visitor) {
+        for (int i = 0; i < count; i++) {
+            final TargetMethod targetMethod = methods[i];
+            final int pos = positions[i];
+            final boolean proceed;
+            if (pos < 0 || pos >= targetMethod.codeLength() || targetMethod.isWiped()) {
+                // the code has been evicted since the walk, so only the method is known
+                proceed = visitor.visitSourceFrame(targetMethod.classMethodActor, -1, trapped[i], frameIds[i]);
+            } else {
+                proceed = visitor.visitFrame(targetMethod, targetMethod.codeAt(pos), trapped[i], frameIds[i]);
+            }
+            if (!proceed) {
+                return;
+            }
+        }
+    }
+}
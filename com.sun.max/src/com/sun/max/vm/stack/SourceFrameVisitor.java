@@ -76,17 +76,29 @@ public class SourceFrameVisitor extends RawStackFrameVisitor implements TargetMe
             visitNativeFrame(current.nativeIP().toLong());
             return true;
         }
+        // TODO this value is not stable in the face of deoptimzation as frames can move.
+        final long id = current.sp().toLong() << 16;
+        return visitFrame(targetMethod, current.vmIP(), callee.targetMethod() != null && callee.targetMethod().is(TrapStub), id);
+    }
+
+    /**
+     * Visits the source method frames of a single frame of a given target method.
+     *
+     * @param ip the execution point in {@code targetMethod}
+     * @param trapped specifies if execution is stopped in {@code targetMethod} at a trap
+     * @param frameId a unique identifier for the activation of {@code targetMethod}
+     * @return {@code true} if the stack walk should continue
+     */
+    public boolean visitFrame(TargetMethod targetMethod, CodePointer ip, boolean trapped, long frameId) {
         if (targetMethod.classMethodActor == null) {
             // ignore stubs, trampolines, adapters etc
             return true;
         }
 
-        // TODO this value is not stable in the face of deoptimzation as frames can move.
-        frameId = current.sp().toLong() << 16;
-
-        trapped = callee.targetMethod() != null && callee.targetMethod().is(TrapStub);
+        this.frameId = frameId;
+        this.trapped = trapped;
         stopped = false;
-        int count = targetMethod.forEachCodePos(this, current.vmIP());
+        int count = targetMethod.forEachCodePos(this, ip);
         if (count == 0 && !stopped) {
             return visitSourceFrame(targetMethod.classMethodActor, -1, trapped, frameId);
         }
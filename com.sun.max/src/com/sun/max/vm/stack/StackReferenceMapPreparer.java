@@ -224,6 +224,18 @@ public final class StackReferenceMapPreparer extends FrameReferenceMapVisitor {
         }
     }
 
+    /**
+     * Determines if the bit for a given stack slot is set in the prepared reference map of a thread.
+     *
+     * @param tla a pointer to the VM thread locals corresponding to the stack
+     * @param slot the address of a slot in the range covered by the reference map
+     */
+    public static boolean isReferenceMapBitSet(Pointer tla, Pointer slot) {
+        int bitIndex = referenceMapBitIndex(LOWEST_STACK_SLOT_ADDRESS.load(tla), slot);
+        int refMapByte = STACK_REFERENCE_MAP.load(tla).getByte(UnsignedMath.divide(bitIndex, Bytes.WIDTH));
+        return ((refMapByte >>> (bitIndex % Bytes.WIDTH)) & 1) != 0;
+    }
+
     @INLINE
     private static int referenceMapByteIndex(final Pointer lowestStackSlot, Pointer slot) {
         return UnsignedMath.divide(referenceMapBitIndex(lowestStackSlot, slot), Bytes.WIDTH);
@@ -0,0 +1,550 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.sun.max.vm.thread;
+
+import static com.sun.max.vm.intrinsics.Infopoints.*;
+import static com.sun.max.vm.runtime.VMRegister.*;
+
+import com.sun.max.annotate.*;
+import com.sun.max.lang.*;
+import com.sun.max.unsafe.*;
+import com.sun.max.vm.actor.member.*;
+import com.sun.max.vm.compiler.target.*;
+import com.sun.max.vm.monitor.*;
+import com.sun.max.vm.reference.*;
+import com.sun.max.vm.runtime.*;
+import com.sun.max.vm.stack.*;
+
+/**
+ * A one-shot delimited continuation. {@link #run()} executes a task on the current thread until the
+ * task either completes or calls {@link #yield()}. Yielding copies the frames between {@code yield()} and
+ * {@code run()} off the stack into this object and returns from {@code run()}. A later call to {@code run()}
+ * copies them back and execution continues by returning from {@code yield()}.
+ * <p>
+ * While a continuation is suspended, the references held in its frames are kept in an {@code Object[]}
+ * (found with the frame reference maps, as for GC root scanning) and the remaining words in a {@code long[]}.
+ * The collector therefore traces and updates the references of unmounted frames like those of any other
+ * object, and no frame is ever visible to it half copied because safepoints are disabled while frames move.
+ * The methods of the suspended frames and the slots holding return addresses and code pointers into them are
+ * recorded as well, and the continuation is linked into a list kept by its carrier thread. Code eviction and
+ * deoptimization {@linkplain #firstSuspendedOn(VmThread) visit} this list with the carrier's stack, so they
+ * keep those methods alive and patch the saved return addresses as they would on a real stack.
+ * <p>
+ * Frames are mounted back at the addresses they were copied from. This avoids relocating frame pointers
+ * and other stack addresses saved in the frames. It also means a continuation must always be resumed by
+ * the thread that first ran it, from a frame at the same stack depth, e.g. from a carrier thread's
+ * scheduling loop. A continuation is pinned, and {@code yield()} throws {@link IllegalStateException}, while
+ * a native frame is between {@code yield()} and {@code run()} or while any of its frames holds a monitor, since
+ * monitors are owned by the carrier thread.
+ */
+public class StackContinuation {
+
+    /**
+     * The stack space kept free below the frames of a continuation while they are being mounted.
+     */
+    private static final int MOUNT_STACK_MARGIN = 1024;
+
+    /**
+     * The method whose frame delimits a continuation on the stack.
+     */
+    private static final ClassMethodActor RUN = ClassMethodActor.fromJava(Classes.getDeclaredMethod(StackContinuation.class, "run"));
+
+    private final Runnable task;
+
+    private boolean started;
+
+    private boolean done;
+
+    /**
+     * The thread on whose stack this continuation's frames live.
+     */
+    private VmThread carrier;
+
+    /**
+     * The continuation that was mounted when this one was.
+     */
+    private StackContinuation parent;
+
+    /**
+     * The neighbours of this continuation in the list of continuations suspended on {@link #carrier}.
+     */
+    private StackContinuation nextSuspended;
+    private StackContinuation previousSuspended;
+
+    /**
+     * The point in {@link #run()} to which control is transferred when this continuation yields. The frames of
+     * this continuation occupy the stack below {@link #returnSP}.
+     */
+    private Pointer returnIP = Pointer.zero();
+    private Pointer returnSP = Pointer.zero();
+    private Pointer returnFP = Pointer.zero();
+
+    /**
+     * The point in {@link #suspend()} at which execution continues when this continuation is resumed.
+     */
+    private Pointer resumeIP = Pointer.zero();
+    private Pointer resumeSP = Pointer.zero();
+    private Pointer resumeFP = Pointer.zero();
+
+    /**
+     * The non-reference words of the suspended frames, with zero in the reference slots.
+     */
+    private long[] frameWords;
+
+    /**
+     * The references in the suspended frames, indexed by slot.
+     */
+    private Object[] frameReferences;
+
+    /**
+     * One bit per slot, set for the slots of {@link #frameWords} holding tagged code pointers.
+     */
+    private long[] codePointerSlots;
+
+    private int frameLength;
+
+    /**
+     * The methods of the suspended frames, innermost first. Entry 0 is the frame of {@link #suspend()}.
+     */
+    private TargetMethod[] frameMethods;
+
+    /**
+     * The slot in {@link #frameWords} at which each suspended frame starts.
+     */
+    private int[] frameSPSlots;
+
+    /**
+     * The slot in {@link #frameWords} holding the return address into each suspended frame, or -1 for entry 0
+     * whose return address is {@link #resumeIP}.
+     */
+    private int[] returnAddressSlots;
+
+    private int frameCount;
+
+    private final FrameFinder frameFinder = new FrameFinder();
+
+    public StackContinuation(Runnable task) {
+        this.task = task;
+    }
+
+    /**
+     * Gets the innermost continuation mounted on the current thread.
+     *
+     * @return {@code null} if no continuation is mounted
+     */
+    public static StackContinuation current() {
+        return VmThread.current().mountedContinuation;
+    }
+
+    /**
+     * Determines if the task of this continuation has finished, either normally or by throwing an exception.
+     */
+    public final boolean isDone() {
+        return done;
+    }
+
+    /**
+     * Determines if this continuation has yielded and not been resumed.
+     */
+    public final boolean isSuspended() {
+        return started && !done && carrier.mountedContinuation != this && frameLength != 0;
+    }
+
+    /**
+     * Runs the task of this continuation until it completes or {@linkplain #yield() yields}.
+     * Must be called with safepoints enabled.
+     *
+     * @throws IllegalStateException if the continuation is done or mounted, or if it is being resumed by
+     *             a thread other than the one that started it or at a different stack depth
+     */
+    @NEVER_INLINE
+    public final void run() {
+        final VmThread current = VmThread.current();
+        if (done) {
+            throw new IllegalStateException("StackContinuation has completed");
+        }
+        for (StackContinuation c = current.mountedContinuation; c != null; c = c.parent) {
+            if (c == this) {
+                throw new IllegalStateException("StackContinuation is already mounted");
+            }
+        }
+        if (!started) {
+            carrier = current;
+        } else if (carrier != current) {
+            throw new IllegalStateException("StackContinuation must be resumed by the thread that started it");
+        }
+        parent = current.mountedContinuation;
+        current.mountedContinuation = this;
+        try {
+            // Returns when the task completes, or by an unwind from unmount() when it yields
+            mount();
+        } finally {
+            SafepointPoll.enable();
+            current.mountedContinuation = parent;
+            parent = null;
+        }
+    }
+
+    /**
+     * Suspends the innermost continuation mounted on the current thread, returning from its {@link #run()}.
+     *
+     * @throws IllegalStateException if no continuation is mounted or it is pinned by a native frame or a monitor
+     */
+    public static void yield() {
+        final StackContinuation continuation = VmThread.current().mountedContinuation;
+        if (continuation == null) {
+            throw new IllegalStateException("No continuation is mounted on the current thread");
+        }
+        continuation.suspend();
+    }
+
+    /**
+     * Calls the task on the first run or copies the suspended frames back on the stack on later runs.
+     * The frame of this method lies below the frame of {@link #run()} and so is itself part of the continuation.
+     */
+    @NEVER_INLINE
+    private void mount() {
+        if (started) {
+            // The run() frame is located by walking the stack rather than by reading the stack pointer in run(),
+            // since a baseline-compiled run() pushes operands and so has no fixed stack pointer
+            if (!findFrames().returnSP.equals(returnSP)) {
+                throw new IllegalStateException("StackContinuation must be resumed at the stack depth it was started at");
+            }
+            SafepointPoll.disable();
+            remount();
+            FatalError.unexpected("remounting a continuation returned");
+        }
+        started = true;
+        try {
+            task.run();
+        } finally {
+            done = true;
+            frameWords = null;
+            frameReferences = null;
+            codePointerSlots = null;
+            frameMethods = null;
+            frameSPSlots = null;
+            returnAddressSlots = null;
+        }
+    }
+
+    @NEVER_INLINE
+    private void suspend() {
+        // All frames from this one up to the run() frame are saved
+        final FrameFinder finder = findFrames();
+        if (finder.pinned || finder.returnSP.isZero()) {
+            throw new IllegalStateException("StackContinuation is pinned by a native frame or a monitor");
+        }
+        final int length = finder.returnSP.minus(finder.resumeSP).toInt() / Word.size();
+        if (frameWords == null || frameWords.length < length) {
+            // Allocate while safepoints are still enabled
+            frameWords = new long[length];
+            frameReferences = new Object[length];
+            codePointerSlots = new long[(length + 63) >> 6];
+        }
+        if (frameMethods == null || frameMethods.length < finder.frames) {
+            frameMethods = new TargetMethod[finder.frames];
+            frameSPSlots = new int[finder.frames];
+            returnAddressSlots = new int[finder.frames];
+        }
+        SafepointPoll.disable();
+        if (!unmount()) {
+            SafepointPoll.enable();
+            throw new IllegalStateException("StackContinuation is pinned by a native frame or a monitor");
+        }
+        // Execution resumes here once remount() has copied the frames back
+        SafepointPoll.enable();
+    }
+
+    /**
+     * Walks the frames of the caller up to the innermost {@link #run()} frame without recording them.
+     */
+    @NEVER_INLINE
+    private FrameFinder findFrames() {
+        final FrameFinder finder = frameFinder;
+        finder.reset(null, null, null);
+        VmThread.current().stackDumpStackFrameWalker().inspect(Pointer.fromLong(here()), getCpuStackPointer(), getCpuFramePointer(), finder);
+        return finder;
+    }
+
+    /**
+     * Copies the frames of this continuation into {@link #frameWords} and {@link #frameReferences} and then
+     * transfers control to {@link #run()}. Must be called with safepoints disabled.
+     *
+     * @return {@code false} if the continuation cannot be unmounted, otherwise this method does not return
+     */
+    @NEVER_INLINE
+    private boolean unmount() {
+        final VmThread thread = VmThread.current();
+        final Pointer tla = VmThread.currentTLA();
+        final FrameFinder finder = frameFinder;
+        finder.reset(frameMethods, frameSPSlots, returnAddressSlots);
+        thread.stackDumpStackFrameWalker().inspect(Pointer.fromLong(here()), getCpuStackPointer(), getCpuFramePointer(), finder);
+        if (finder.pinned || finder.returnSP.isZero()) {
+            return false;
+        }
+        FatalError.check(finder.frames <= frameMethods.length, "more continuation frames than when suspend started");
+
+        // The reference map covers the whole stack, but only the bits for this continuation's frames are used
+        thread.stackReferenceMapPreparer().prepareStackReferenceMap(tla, CodePointer.from(here()), getCpuStackPointer(), getCpuFramePointer(), true);
+
+        final Pointer base = finder.resumeSP;
+        final int length = finder.returnSP.minus(base).toInt() / Word.size();
+        FatalError.check(length <= frameWords.length, "continuation frames larger than when suspend started");
+        for (int i = 0; i < length; i++) {
+            final Pointer slot = base.plusWords(i);
+            if (StackReferenceMapPreparer.isReferenceMapBitSet(tla, slot)) {
+                final Reference ref = slot.getReference();
+                if (ref.isTagged()) {
+                    setCodePointerSlot(i, true);
+                    frameReferences[i] = null;
+                    frameWords[i] = slot.getLong(0);
+                    continue;
+                }
+                if (!ref.isZero() && Monitor.threadHoldsMonitor(ref.toJava(), thread)) {
+                    // Another virtual thread on this carrier could enter the monitor while it is suspended
+                    clearFrames(i + 1);
+                    return false;
+                }
+                frameReferences[i] = ref.toJava();
+                frameWords[i] = 0L;
+            } else {
+                frameReferences[i] = null;
+                frameWords[i] = slot.getLong(0);
+            }
+            setCodePointerSlot(i, false);
+        }
+        frameLength = length;
+        frameCount = finder.frames;
+        resumeIP = finder.resumeIP;
+        resumeSP = finder.resumeSP;
+        resumeFP = finder.resumeFP;
+        returnIP = finder.returnIP;
+        returnSP = finder.returnSP;
+        returnFP = finder.returnFP;
+
+        nextSuspended = thread.suspendedContinuations;
+        if (nextSuspended != null) {
+            nextSuspended.previousSuspended = this;
+        }
+        thread.suspendedContinuations = this;
+
+        Stubs.unwind(returnIP, returnSP, returnFP);
+        return true;
+    }
+
+    /**
+     * Copies the suspended frames back to where they were copied from and transfers control to {@link #suspend()}.
+     * Recurses first until this frame is below the frames being restored, so that they do not overwrite it.
+     * Must be called with safepoints disabled.
+     */
+    @NEVER_INLINE
+    private void remount() {
+        if (getCpuStackPointer().greaterThan(resumeSP.minus(MOUNT_STACK_MARGIN))) {
+            remount();
+            return;
+        }
+        if (previousSuspended != null) {
+            previousSuspended.nextSuspended = nextSuspended;
+        } else {
+            carrier.suspendedContinuations = nextSuspended;
+        }
+        if (nextSuspended != null) {
+            nextSuspended.previousSuspended = previousSuspended;
+        }
+        nextSuspended = null;
+        previousSuspended = null;
+
+        final Pointer base = resumeSP;
+        for (int i = 0; i < frameLength; i++) {
+            final Object ref = frameReferences[i];
+            if (ref != null) {
+                base.setReference(i, Reference.fromJava(ref));
+            } else {
+                base.setLong(i, frameWords[i]);
+            }
+        }
+        clearFrames(frameLength);
+        for (int i = 0; i < frameCount; i++) {
+            frameMethods[i] = null;
+        }
+        frameLength = 0;
+        frameCount = 0;
+        // suspend() sees this as unmount() returning true
+        Stubs.unwindInt(resumeIP, resumeSP, resumeFP, 1);
+    }
+
+    private void clearFrames(int length) {
+        for (int i = 0; i < length; i++) {
+            frameReferences[i] = null;
+        }
+    }
+
+    private void setCodePointerSlot(int slot, boolean isCodePointer) {
+        if (isCodePointer) {
+            codePointerSlots[slot >> 6] |= 1L << slot;
+        } else {
+            codePointerSlots[slot >> 6] &= ~(1L << slot);
+        }
+    }
+
+    /**
+     * Gets the most recently suspended continuation whose frames belong on the stack of a given thread. Must only be
+     * called while the thread is stopped at a safepoint, e.g. from {@link VmOperation#doThread}.
+     *
+     * @return {@code null} if there are no continuations suspended on {@code carrier}
+     */
+    public static StackContinuation firstSuspendedOn(VmThread carrier) {
+        return carrier.suspendedContinuations;
+    }
+
+    /**
+     * Gets the continuation suspended on the same carrier before this one.
+     */
+    public final StackContinuation nextSuspended() {
+        return nextSuspended;
+    }
+
+    /**
+     * Gets the number of suspended frames. Frame 0 is the innermost, and the caller of frame {@code i} is frame
+     * {@code i + 1}.
+     */
+    public final int suspendedFrameCount() {
+        return frameCount;
+    }
+
+    public final TargetMethod suspendedFrameMethodAt(int frame) {
+        return frameMethods[frame];
+    }
+
+    /**
+     * Gets the address a suspended frame's callee returns to.
+     *
+     * @param frame a frame number greater than 0
+     */
+    public final CodePointer returnAddressAt(int frame) {
+        return CodePointer.from(frameWords[returnAddressSlots[frame]]);
+    }
+
+    /**
+     * Changes the address a suspended frame's callee returns to.
+     *
+     * @param frame a frame number greater than 0
+     * @param saveOffset if not negative, the offset (in bytes) from the stack pointer of {@code frame} to a slot
+     *            in which the original return address is saved
+     */
+    public final void patchReturnAddressAt(int frame, CodePointer returnAddress, int saveOffset) {
+        final int slot = returnAddressSlots[frame];
+        if (saveOffset >= 0) {
+            final int saveSlot = frameSPSlots[frame] + saveOffset / Word.size();
+            frameReferences[saveSlot] = null;
+            frameWords[saveSlot] = frameWords[slot];
+        }
+        frameWords[slot] = returnAddress.toLong();
+    }
+
+    /**
+     * Gets the next slot of the suspended frames, at or after {@code slot}, that holds a tagged code pointer.
+     *
+     * @return -1 if there is no such slot
+     */
+    public final int nextCodePointerSlot(int slot) {
+        for (int i = slot; i < frameLength; i++) {
+            if ((codePointerSlots[i >> 6] & (1L << i)) != 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public final long frameWordAt(int slot) {
+        return frameWords[slot];
+    }
+
+    public final void setFrameWordAt(int slot, long value) {
+        frameWords[slot] = value;
+    }
+
+    /**
+     * Finds the frame of {@link #suspend()} (the caller of the walking method) and the innermost frame of
+     * {@link #run()} during an allocation free walk of the current stack, and optionally records the frames
+     * in between.
+     */
+    private static final class FrameFinder extends RawStackFrameVisitor {
+        private int depth;
+        private TargetMethod[] methods;
+        private int[] spSlots;
+        private int[] returnAddressSlots;
+        boolean pinned;
+        int frames;
+        Pointer resumeIP = Pointer.zero();
+        Pointer resumeSP = Pointer.zero();
+        Pointer resumeFP = Pointer.zero();
+        Pointer returnIP = Pointer.zero();
+        Pointer returnSP = Pointer.zero();
+        Pointer returnFP = Pointer.zero();
+
+        void reset(TargetMethod[] methods, int[] spSlots, int[] returnAddressSlots) {
+            this.methods = methods;
+            this.spSlots = spSlots;
+            this.returnAddressSlots = returnAddressSlots;
+            depth = 0;
+            frames = 0;
+            pinned = false;
+            returnSP = Pointer.zero();
+        }
+
+        @Override
+        public boolean visitFrame(StackFrameCursor current, StackFrameCursor callee) {
+            final TargetMethod tm = current.targetMethod();
+            if (tm == null) {
+                pinned = true;
+                return false;
+            }
+            final ClassMethodActor method = tm.classMethodActor();
+            if (method == RUN) {
+                returnIP = current.ipAsPointer();
+                returnSP = current.sp();
+                returnFP = current.fp();
+                return false;
+            }
+            depth++;
+            if (depth == 1) {
+                // the frame walking the stack
+                return true;
+            }
+            if (depth == 2) {
+                resumeIP = current.ipAsPointer();
+                resumeSP = current.sp();
+                resumeFP = current.fp();
+            }
+            if (method != null && method.isSynchronized()) {
+                pinned = true;
+            }
+            if (methods != null && frames < methods.length) {
+                methods[frames] = tm;
+                spSlots[frames] = current.sp().minus(resumeSP).toInt() / Word.size();
+                returnAddressSlots[frames] = depth == 2 ? -1 : callee.targetMethod().returnAddressPointer(callee).minus(resumeSP).toInt() / Word.size();
+            }
+            frames++;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,372 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.sun.max.vm.thread;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.*;
+
+import com.sun.max.vm.*;
+
+/**
+ * A thread whose code runs in a {@link StackContinuation} on one of a small, fixed set of carrier threads.
+ * When a virtual thread parks, its frames are copied off the carrier's stack and the carrier goes on to run
+ * the next virtual thread in its queue. Unparking a virtual thread puts it back on the queue of its carrier.
+ * <p>
+ * Since continuations are mounted at the addresses they were copied from, a virtual thread stays on the
+ * carrier it was first assigned to and carriers never steal work from each other. A virtual thread that
+ * parks while {@linkplain StackContinuation pinned}, i.e. while it holds a monitor or has a native frame on
+ * its stack, blocks its carrier until unparked, as HotSpot does. So does {@link Object#wait()} and blocking
+ * I/O. {@link Thread#join()} of a virtual thread parks instead of waiting on the thread's monitor, so that
+ * joining a virtual thread queued on the joiner's own carrier does not deadlock.
+ */
+public class VirtualThread extends Thread {
+
+    /**
+     * The number of carrier threads, created when the first virtual thread is started.
+     */
+    static int VirtualThreadCarriers = 0;
+    static {
+        VMOptions.addFieldOption("-XX:", "VirtualThreadCarriers", VirtualThread.class,
+            "Number of carrier threads running virtual threads (0 means one per available processor).", MaxineVM.Phase.PRISTINE);
+    }
+
+    private static Carrier[] carriers;
+
+    private static int nextCarrier;
+
+    private static Timer timer;
+
+    private final StackContinuation continuation;
+
+    private final Object parkLock = new Object();
+
+    private Carrier carrier;
+
+    private volatile Thread.State state = Thread.State.NEW;
+
+    private volatile boolean interrupted;
+
+    /**
+     * Guarded by {@link #parkLock}.
+     */
+    private boolean permit;
+
+    /**
+     * Guarded by {@link #parkLock}.
+     */
+    private boolean parked;
+
+    /**
+     * The threads {@linkplain #joinVirtual(long) joining} this virtual thread.
+     */
+    private final ConcurrentLinkedQueue<Thread> joiners = new ConcurrentLinkedQueue<Thread>();
+
+    public VirtualThread(Runnable target) {
+        super(target);
+        continuation = new StackContinuation(new Runnable() {
+            public void run() {
+                VirtualThread.this.run();
+            }
+        });
+    }
+
+    public VirtualThread(Runnable target, String name) {
+        this(target);
+        setName(name);
+    }
+
+    /**
+     * Gets the virtual thread running on the current thread.
+     *
+     * @return {@code null} if the current thread is not running a virtual thread
+     */
+    public static VirtualThread current() {
+        return VmThread.current().mountedVirtualThread;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (state != Thread.State.NEW) {
+            throw new IllegalThreadStateException();
+        }
+        state = Thread.State.RUNNABLE;
+        carrier = nextCarrier();
+        carrier.submit(this);
+    }
+
+    public final boolean isVirtualAlive() {
+        final Thread.State s = state;
+        return s != Thread.State.NEW && s != Thread.State.TERMINATED;
+    }
+
+    public final Thread.State virtualState() {
+        return state;
+    }
+
+    public final boolean isInterrupted(boolean clearInterrupted) {
+        final boolean result = interrupted;
+        if (clearInterrupted && result) {
+            interrupted = false;
+        }
+        return result;
+    }
+
+    public final void interrupt0() {
+        interrupted = true;
+        unpark();
+    }
+
+    private static synchronized Carrier nextCarrier() {
+        if (carriers == null) {
+            int n = VirtualThreadCarriers;
+            if (n <= 0) {
+                n = Runtime.getRuntime().availableProcessors();
+            }
+            final Carrier[] newCarriers = new Carrier[n];
+            for (int i = 0; i < n; i++) {
+                newCarriers[i] = new Carrier(i);
+                newCarriers[i].start();
+            }
+            carriers = newCarriers;
+        }
+        final Carrier result = carriers[nextCarrier];
+        nextCarrier = (nextCarrier + 1) % carriers.length;
+        return result;
+    }
+
+    private static synchronized Timer timer() {
+        if (timer == null) {
+            timer = new Timer("VirtualThread-Unparker", true);
+        }
+        return timer;
+    }
+
+    /**
+     * Runs this virtual thread on the current carrier until it parks or terminates.
+     * Always called from the same frame of {@link Carrier#run()} so that the continuation is resumed at the depth it was started.
+     */
+    private void runContinuation() {
+        if (continuation.isDone() || (continuation.isSuspended() && isParked())) {
+            // A stale resubmission, e.g. by an unpark that raced with a pinned park
+            return;
+        }
+        final VmThread vmThread = VmThread.current();
+        vmThread.mountedVirtualThread = this;
+        try {
+            continuation.run();
+        } catch (Throwable throwable) {
+            final UncaughtExceptionHandler handler = getUncaughtExceptionHandler();
+            if (handler != null) {
+                handler.uncaughtException(this, throwable);
+            }
+        } finally {
+            vmThread.mountedVirtualThread = null;
+        }
+        if (continuation.isDone()) {
+            synchronized (this) {
+                state = Thread.State.TERMINATED;
+                notifyAll();
+            }
+            for (Thread joiner : joiners) {
+                LockSupport.unpark(joiner);
+            }
+        }
+    }
+
+    /**
+     * Waits for this virtual thread to terminate according to the semantics of {@link Thread#join(long)}, parking
+     * the calling thread rather than waiting on this thread's monitor. A virtual thread joining another one on the
+     * same carrier thus lets the carrier run it.
+     */
+    public final void joinVirtual(long millis) throws InterruptedException {
+        if (millis < 0) {
+            throw new IllegalArgumentException("timeout value is negative");
+        }
+        final Thread joiner = Thread.currentThread();
+        final long deadline = System.currentTimeMillis() + millis;
+        joiners.add(joiner);
+        try {
+            while (isVirtualAlive()) {
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                if (millis == 0) {
+                    LockSupport.park(this);
+                } else {
+                    final long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(remaining));
+                }
+            }
+        } finally {
+            joiners.remove(joiner);
+        }
+    }
+
+    private boolean isParked() {
+        synchronized (parkLock) {
+            return parked;
+        }
+    }
+
+    /**
+     * Parks this virtual thread according to the semantics of {@link sun.misc.Unsafe#park(boolean, long)}.
+     * Must be called by this virtual thread.
+     */
+    public final void park(boolean isAbsolute, long time) {
+        if (interrupted) {
+            return;
+        }
+        long waitMillis = 0;
+        if (isAbsolute) {
+            waitMillis = time - System.currentTimeMillis();
+            if (waitMillis <= 0) {
+                return;
+            }
+        } else if (time < 0) {
+            return;
+        } else if (time > 0) {
+            waitMillis = Math.max(1L, TimeUnit.NANOSECONDS.toMillis(time));
+        }
+        synchronized (parkLock) {
+            if (permit) {
+                permit = false;
+                return;
+            }
+            parked = true;
+        }
+        TimerTask unparker = null;
+        if (waitMillis > 0) {
+            unparker = new TimerTask() {
+                @Override
+                public void run() {
+                    unpark();
+                }
+            };
+            timer().schedule(unparker, waitMillis);
+        }
+        state = waitMillis > 0 ? Thread.State.TIMED_WAITING : Thread.State.WAITING;
+        try {
+            StackContinuation.yield();
+        } catch (IllegalStateException pinned) {
+            parkPinned(waitMillis);
+        } finally {
+            state = Thread.State.RUNNABLE;
+            if (unparker != null) {
+                unparker.cancel();
+            }
+        }
+    }
+
+    /**
+     * Parks by blocking the carrier when the continuation cannot be unmounted.
+     */
+    private void parkPinned(long waitMillis) {
+        synchronized (parkLock) {
+            try {
+                if (parked) {
+                    parkLock.wait(waitMillis);
+                }
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+            parked = false;
+        }
+    }
+
+    /**
+     * Unparks this virtual thread according to the semantics of {@link sun.misc.Unsafe#unpark(Object)}.
+     */
+    public final void unpark() {
+        final Carrier c;
+        synchronized (parkLock) {
+            if (!parked) {
+                permit = true;
+                return;
+            }
+            parked = false;
+            parkLock.notifyAll();
+            c = carrier;
+        }
+        c.submit(this);
+    }
+
+    /**
+     * Sleeps by parking this virtual thread.
+     */
+    public final void sleepMillis(long millis) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + millis;
+        long remaining = millis;
+        while (remaining > 0) {
+            if (isInterrupted(true)) {
+                throw new InterruptedException();
+            }
+            park(true, deadline);
+            remaining = deadline - System.currentTimeMillis();
+        }
+        if (isInterrupted(true)) {
+            throw new InterruptedException();
+        }
+    }
+
+    /**
+     * Lets the other virtual threads queued on this thread's carrier run.
+     */
+    public final void yieldNow() {
+        carrier.submit(this);
+        try {
+            StackContinuation.yield();
+        } catch (IllegalStateException pinned) {
+            // The resubmission is discarded by runContinuation() as this continuation is not suspended
+        }
+    }
+
+    /**
+     * A platform thread that runs the virtual threads assigned to it, in submission order.
+     */
+    private static final class Carrier extends Thread {
+        private final LinkedBlockingQueue<VirtualThread> queue = new LinkedBlockingQueue<VirtualThread>();
+
+        Carrier(int id) {
+            super("VirtualThread-Carrier-" + id);
+            setDaemon(true);
+        }
+
+        void submit(VirtualThread virtualThread) {
+            queue.add(virtualThread);
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                final VirtualThread next;
+                try {
+                    next = queue.take();
+                } catch (InterruptedException e) {
+                    continue;
+                }
+                next.runContinuation();
+            }
+        }
+    }
+}
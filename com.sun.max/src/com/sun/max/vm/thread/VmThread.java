@@ -102,6 +102,16 @@ public class VmThread {
 
     private static final VMSizeOption STACK_SIZE_OPTION = register(new VMSizeOption("-Xss", DEFAULT_STACK_SIZE, "Stack size of new threads."), MaxineVM.Phase.PRISTINE);
 
+    /**
+     * The maximum number of native stacks and thread locals blocks of terminated threads retained for
+     * reuse by new threads, with their guard pages still in place.
+     */
+    static int ThreadStackPoolSize = 16;
+    static {
+        VMOptions.addFieldOption("-XX:", "ThreadStackPoolSize", VmThread.class,
+            "Number of terminated threads' native stacks kept for reuse by new threads (0 disables pooling).", MaxineVM.Phase.PRISTINE);
+    }
+
     @HOSTED_ONLY
     private static final ThreadLocal<CompactReferenceMapInterpreter> HOSTED_COMPACT_REFERENCE_MAP_INTERPRETER = new ThreadLocal<CompactReferenceMapInterpreter>() {
         @Override
@@ -281,6 +291,42 @@ public class VmThread {
 
     public JavaMonitor protectedMonitor;
 
+    /**
+     * Unbound monitors reserved for this thread by {@link JavaMonitorManager}, so that inflating a lock
+     * does not need to take the manager's global lock. Only accessed by this thread, or at a global safepoint.
+     */
+    public JavaMonitor freeMonitors;
+
+    /**
+     * The number of monitors in {@link #freeMonitors}.
+     */
+    public int numberOfFreeMonitors;
+
+    /**
+     * The innermost {@link StackContinuation} whose frames are currently mounted on this thread's stack, if any.
+     */
+    StackContinuation mountedContinuation;
+
+    /**
+     * The most recently suspended {@link StackContinuation} whose frames belong on this thread's stack, if any.
+     */
+    StackContinuation suspendedContinuations;
+
+    /**
+     * The {@link VirtualThread} currently running on this (carrier) thread, if any.
+     */
+    VirtualThread mountedVirtualThread;
+
+    /**
+     * The {@link Handshake} waiting to be performed by this thread at its next safepoint, if any.
+     */
+    public volatile Handshake pendingHandshake;
+
+    /**
+     * The {@link System#nanoTime()} at which this thread last trapped at a safepoint triggered by a VM operation.
+     */
+    public volatile long safepointTrapTime;
+
     private ConditionVariable waitingCondition = ConditionVariableFactory.create();
 
     public final HeapScheme.GCRequest gcRequest = VMConfiguration.vmConfig().heapScheme().createThreadLocalGCRequest(this);
@@ -457,7 +503,13 @@ public class VmThread {
     }
 
     @C_FUNCTION
-    protected static native Word nativeThreadCreate(int id, Size stackSize, int priority);
+    protected static native Word nativeThreadCreate(int id, Size stackSize, int priority, int stackPoolSize);
+
+    /**
+     * Joins the native threads whose stacks are in the pool of reusable stacks and trims the pool to a given size.
+     * This can block, so it must be called before taking the {@linkplain VmThreadMap#THREAD_LOCK thread lock}.
+     */
+    static native void nativeReclaimThreadResources(int stackPoolSize);
 
     /**
      * Gets the current {@linkplain VmThreadLocal TLA}.
@@ -806,9 +858,18 @@ public class VmThread {
 
         thread.traceThreadAfterTermination();
 
+        // Hand back any monitors reserved for this thread.
+        JavaMonitorManager.releaseFreeMonitors(thread);
+
         // GC may now reclaim or prepare any of its resources before the thread vanishes forever.
         vmConfig().heapScheme().notifyCurrentThreadDetach();
 
+        // Leave the yellow zone armed in case the native stack is recycled for another thread.
+        if (thread.yellowZoneUnprotected) {
+            VirtualMemory.protectPages(thread.yellowZone, YELLOW_ZONE_PAGES);
+            thread.yellowZoneUnprotected = false;
+        }
+
         synchronized (VmThreadMap.THREAD_LOCK) {
             // It is the monitor scheme's responsibility to ensure that this thread isn't
             // reset to RUNNABLE if it blocks here.
@@ -1071,6 +1132,15 @@ public class VmThread {
         return javaThread;
     }
 
+    /**
+     * Gets the thread that Java code running on this thread sees as {@linkplain Thread#currentThread() current}.
+     * This is the mounted {@link VirtualThread} if there is one, otherwise {@link #javaThread()}.
+     */
+    public final Thread currentJavaThread() {
+        final VirtualThread virtualThread = mountedVirtualThread;
+        return virtualThread != null ? virtualThread : javaThread;
+    }
+
     public final Word nativeThread() {
         return nativeThread;
     }
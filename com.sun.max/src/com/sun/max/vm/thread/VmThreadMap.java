@@ -49,13 +49,25 @@ public final class VmThreadMap {
      * In addition, it is
      * {@linkplain VmThreadMap#nativeSetGlobalThreadLock(Pointer) exposed}
      * to the native code so that it can be locked when attaching a thread to the VM.
+     * Since native code uses it as a pthread mutex, its mutex is always a {@link NativeMutex}, whatever the
+     * configured {@link MutexFactory}.
      *
      */
     static final class VMThreadMapJavaMonitor extends StandardJavaMonitor {
+        private final NativeMutex nativeMutex;
+
+        VMThreadMapJavaMonitor() {
+            this(NativeMutexFactory.createNativeMutex());
+        }
+
+        private VMThreadMapJavaMonitor(NativeMutex nativeMutex) {
+            super(nativeMutex);
+            this.nativeMutex = nativeMutex;
+        }
+
         @Override
         public void allocate() {
             super.allocate();
-            NativeMutex nativeMutex = (NativeMutex) mutex;
             nativeSetGlobalThreadLock(nativeMutex.asPointer());
         }
 
@@ -349,6 +361,10 @@ public final class VmThreadMap {
      * @param priority the initial priority of the thread
      */
     public void startThread(VmThread thread, Size stackSize, int priority) {
+        if (VmThread.ThreadStackPoolSize > 0) {
+            // Joining the previous owners of pooled stacks can block, which must not happen under THREAD_LOCK
+            VmThread.nativeReclaimThreadResources(VmThread.ThreadStackPoolSize);
+        }
         synchronized (THREAD_LOCK) {
             final int id = idMap.acquire(thread);
             thread.daemon = thread.javaThread().isDaemon();
@@ -358,7 +374,7 @@ public final class VmThreadMap {
                 }
             }
 
-            final Word nativeThread = VmThread.nativeThreadCreate(id, stackSize, priority);
+            final Word nativeThread = VmThread.nativeThreadCreate(id, stackSize, priority, VmThread.ThreadStackPoolSize);
             if (nativeThread.isZero()) {
                 /* This means that we did not create the native thread at all so there is nothing to
                  * terminate. Most likely we ran out of memory allocating the stack, so we throw
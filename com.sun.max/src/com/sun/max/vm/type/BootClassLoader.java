@@ -29,6 +29,8 @@ import static com.sun.max.vm.intrinsics.MaxineIntrinsicIDs.*;
 import java.io.*;
 import java.lang.reflect.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 
 import com.sun.max.annotate.*;
 import com.sun.max.platform.*;
@@ -56,7 +58,7 @@ public final class BootClassLoader extends ClassLoader {
      */
     public static final BootClassLoader BOOT_CLASS_LOADER = new BootClassLoader();
 
-    private Classpath classpath;
+    private volatile Classpath classpath;
 
     /**
      * Map from a package name (in "/" separated format) to the file system path from it was loaded.
@@ -64,12 +66,19 @@ public final class BootClassLoader extends ClassLoader {
     private final HashMap<String, String> packages = new HashMap<String, String>();
 
     public Classpath classpath() {
+        Classpath classpath = this.classpath;
         if (classpath == null) {
-            String extraPath = null;
-            if (!MaxineVM.isHosted()) {
-                extraPath = VMTI.handler().bootclassPathExtension();
+            synchronized (this) {
+                classpath = this.classpath;
+                if (classpath == null) {
+                    String extraPath = null;
+                    if (!MaxineVM.isHosted()) {
+                        extraPath = VMTI.handler().bootclassPathExtension();
+                    }
+                    classpath = Classpath.bootClassPath(extraPath);
+                    this.classpath = classpath;
+                }
             }
-            classpath = Classpath.bootClassPath(extraPath);
         }
         return classpath;
     }
@@ -116,12 +125,65 @@ public final class BootClassLoader extends ClassLoader {
         return classActor.toJava();
     }
 
-    public synchronized Class<?> findBootstrapClass(String name) {
-        final Class c = findLoadedClass(name);
+    /**
+     * A lock for a class being loaded by {@link #findBootstrapClass(String)}.
+     */
+    private static final class LoadingLock {
+        /**
+         * The number of threads holding or waiting for this lock. Once this drops to 0, the lock is being removed
+         * from {@link BootClassLoader#loadingLocks} and can no longer be acquired.
+         */
+        final AtomicInteger users = new AtomicInteger(1);
+    }
+
+    /**
+     * Locks for the classes currently being loaded by {@link #findBootstrapClass(String)}, keyed by class name.
+     * Loading distinct classes proceeds in parallel while each class is still read and parsed only once.
+     * A lock is removed once no thread holds or waits for it.
+     */
+    private final ConcurrentHashMap<String, LoadingLock> loadingLocks = new ConcurrentHashMap<String, LoadingLock>();
+
+    private LoadingLock acquireLoadingLock(String name) {
+        while (true) {
+            LoadingLock lock = loadingLocks.get(name);
+            if (lock == null) {
+                final LoadingLock newLock = new LoadingLock();
+                lock = loadingLocks.putIfAbsent(name, newLock);
+                if (lock == null) {
+                    return newLock;
+                }
+            }
+            final int users = lock.users.get();
+            if (users > 0 && lock.users.compareAndSet(users, users + 1)) {
+                return lock;
+            }
+            // The lock is being removed: retry with a new one
+        }
+    }
+
+    private void releaseLoadingLock(String name, LoadingLock lock) {
+        if (lock.users.decrementAndGet() == 0) {
+            loadingLocks.remove(name, lock);
+        }
+    }
+
+    public Class<?> findBootstrapClass(String name) {
+        Class c = findLoadedClass(name);
         if (c != null) {
             return c;
         }
-        return resolveClassOrNull(classpath(), name);
+        final LoadingLock lock = acquireLoadingLock(name);
+        try {
+            synchronized (lock) {
+                c = findLoadedClass(name);
+                if (c != null) {
+                    return c;
+                }
+                return resolveClassOrNull(classpath(), name);
+            }
+        } finally {
+            releaseLoadingLock(name, lock);
+        }
     }
 
     private static class VMResolveState extends ThreadLocal<Boolean> {
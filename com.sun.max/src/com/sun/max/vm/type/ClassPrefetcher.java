@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.sun.max.vm.type;
+
+import static com.sun.max.vm.VMOptions.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.*;
+
+import com.sun.max.vm.*;
+import com.sun.max.vm.MaxineVM.Phase;
+
+/**
+ * Loads the classes of an application jar file in the background during startup. The classes are loaded (but not
+ * initialized) with the system class loader by a fork-join pool, so that they are read, parsed and defined in
+ * parallel with each other and with the main thread. When the main thread later needs one of these classes, it
+ * either finds it already loaded or waits on the per-class lock of the loader for the prefetching thread to finish.
+ */
+public final class ClassPrefetcher {
+
+    private ClassPrefetcher() {
+    }
+
+    private static String PrefetchClasses;
+    static {
+        VMOptions.addFieldOption("-XX:", "PrefetchClasses", ClassPrefetcher.class,
+            "Load the classes in the given jar file with the system class loader in a background thread pool at startup.", Phase.STARTING);
+    }
+
+    /**
+     * The number of classes loaded by a single fork-join task without further splitting.
+     */
+    private static final int BATCH_SIZE = 32;
+
+    /**
+     * Starts prefetching the classes in the jar file specified by {@code -XX:PrefetchClasses}, if any.
+     * This returns without waiting for the prefetching to complete.
+     */
+    public static void initialize() {
+        if (PrefetchClasses == null) {
+            return;
+        }
+        final List<String> names = new ArrayList<String>();
+        try {
+            final ZipFile zipFile = new ZipFile(PrefetchClasses);
+            try {
+                final Enumeration<? extends ZipEntry> entries = zipFile.entries();
+                while (entries.hasMoreElements()) {
+                    final String path = entries.nextElement().getName();
+                    if (path.endsWith(".class") && !path.startsWith("META-INF/")) {
+                        names.add(path.substring(0, path.length() - ".class".length()).replace('/', '.'));
+                    }
+                }
+            } finally {
+                zipFile.close();
+            }
+        } catch (IOException e) {
+            Log.println("[Error reading classes to prefetch from " + PrefetchClasses + ": " + e + "]");
+            return;
+        }
+        if (verboseOption.verboseClass) {
+            Log.println("[Prefetching " + names.size() + " classes from " + PrefetchClasses + "]");
+        }
+        final ForkJoinPool pool = new ForkJoinPool();
+        pool.execute(new Prefetch(names.toArray(new String[names.size()]), 0, names.size(), ClassLoader.getSystemClassLoader()));
+        pool.shutdown();
+    }
+
+    static final class Prefetch extends RecursiveAction {
+        private static final long serialVersionUID = -3372105538374218547L;
+
+        private final String[] names;
+        private final int from;
+        private final int to;
+        private final ClassLoader classLoader;
+
+        Prefetch(String[] names, int from, int to, ClassLoader classLoader) {
+            this.names = names;
+            this.from = from;
+            this.to = to;
+            this.classLoader = classLoader;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > BATCH_SIZE) {
+                final int middle = (from + to) >>> 1;
+                invokeAll(new Prefetch(names, from, middle, classLoader), new Prefetch(names, middle, to, classLoader));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                try {
+                    Class.forName(names[i], false, classLoader);
+                } catch (ClassNotFoundException | LinkageError e) {
+                    // The class will fail to load in the same way if the application actually uses it
+                }
+            }
+        }
+    }
+}
@@ -20,9 +20,9 @@
  */
 package com.sun.max.vm.type;
 
+import java.util.concurrent.*;
+
 import com.sun.max.annotate.*;
-import com.sun.max.collect.*;
-import com.sun.max.collect.ChainedHashMapping.Entry;
 import com.sun.max.lang.*;
 import com.sun.max.program.*;
 import com.sun.max.unsafe.*;
@@ -47,44 +47,23 @@ public abstract class TypeDescriptor extends Descriptor {
 
     /**
      * The only concrete subclass of {@link TypeDescriptor}.
-     * Using a subclass hides the details of storing TypeDescriptors in a {@link ChainedHashMapping}.
+     * Creating an instance of this class registers it in the canonical type descriptor map.
      */
-    static class TypeDescriptorEntry extends TypeDescriptor implements ChainedHashMapping.Entry<String, TypeDescriptorEntry> {
+    static class TypeDescriptorEntry extends TypeDescriptor {
         TypeDescriptorEntry(String value) {
             super(value);
             ProgramError.check(value.length() > 0);
             assert !canonicalTypeDescriptors.containsKey(value);
             canonicalTypeDescriptors.put(value, this);
         }
-
-        public String key() {
-            return toString();
-        }
-
-        private Entry<String, TypeDescriptorEntry> next;
-
-        public Entry<String, TypeDescriptorEntry> next() {
-            return next;
-        }
-
-        public void setNext(Entry<String, TypeDescriptorEntry> next) {
-            this.next = next;
-        }
-
-        public void setValue(TypeDescriptorEntry value) {
-            assert value == this;
-        }
-
-        public TypeDescriptorEntry value() {
-            return this;
-        }
     }
 
     /**
-     * Searching and adding entries to this map is only performed by
-     * {@linkplain #makeTypeDescriptor(String) one method} which synchronizes on the map before using it.
+     * The canonical type descriptors. Lookups do not lock the map. Adding entries is only performed by
+     * {@linkplain #makeTypeDescriptor(String) one method} which synchronizes on the map so that exactly one
+     * descriptor is created for a given string.
      */
-    private static final Mapping<String, TypeDescriptorEntry> canonicalTypeDescriptors = new ChainingValueChainedHashMapping<String, TypeDescriptorEntry>();
+    private static final ConcurrentHashMap<String, TypeDescriptorEntry> canonicalTypeDescriptors = new ConcurrentHashMap<String, TypeDescriptorEntry>();
 
     static {
         for (Class c : Word.getSubclasses()) {
@@ -101,12 +80,14 @@ public abstract class TypeDescriptor extends Descriptor {
     }
 
     public static TypeDescriptor lookup(String string) {
-        synchronized (canonicalTypeDescriptors) {
-            return canonicalTypeDescriptors.get(string);
-        }
+        return canonicalTypeDescriptors.get(string);
     }
 
     static TypeDescriptor makeTypeDescriptor(String string) {
+        final TypeDescriptorEntry existing = canonicalTypeDescriptors.get(string);
+        if (existing != null) {
+            return existing;
+        }
         synchronized (canonicalTypeDescriptors) {
             TypeDescriptorEntry typeDescriptorEntry = canonicalTypeDescriptors.get(string);
             if (typeDescriptorEntry == null) {
@@ -118,7 +99,7 @@ public abstract class TypeDescriptor extends Descriptor {
     }
 
     public static int numberOfDescriptors() {
-        return canonicalTypeDescriptors.length();
+        return canonicalTypeDescriptors.size();
     }
 
     /**
@@ -22,10 +22,15 @@
  */
 package com.sun.max.vm.verifier;
 
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
 import com.sun.max.vm.*;
 import com.sun.max.vm.actor.holder.*;
 import com.sun.max.vm.actor.member.*;
 import com.sun.max.vm.classfile.*;
+import com.sun.max.vm.type.*;
 
 /**
  * An instance of {@code ClassVerifier} is created to verify the methods in a given class.
@@ -38,6 +43,30 @@ public abstract class ClassVerifier extends Verifier {
         this.classActor = classActor;
     }
 
+    /**
+     * The minimum number of methods a class must have for its methods to be verified in parallel,
+     * or 0 to always verify on the calling thread.
+     */
+    private static int ParallelVerificationThreshold = 64;
+    static {
+        VMOptions.addFieldOption("-XX:", "ParallelVerificationThreshold", ClassVerifier.class,
+            "Verify the methods of classes with at least this many methods in parallel (0 disables parallel verification).");
+    }
+
+    /**
+     * The number of methods verified by a single task of a parallel verification.
+     */
+    private static final int METHODS_PER_TASK = 16;
+
+    private static ForkJoinPool verificationPool;
+
+    private static synchronized ForkJoinPool verificationPool() {
+        if (verificationPool == null) {
+            verificationPool = new ForkJoinPool();
+        }
+        return verificationPool;
+    }
+
     /**
      * Performs bytecode verification for all methods in {@linkplain #classActor the given class} that have a non-null
      * {@link ClassMethodActor#codeAttribute() code attribute}.
@@ -46,20 +75,28 @@ public abstract class ClassVerifier extends Verifier {
         if (TraceVerifierLevel >= TRACE_CLASS) {
             Log.println("[Verifying class " + classActor.name + "]");
         }
-        verifyMethods(classActor.localVirtualMethodActors());
-        verifyMethods(classActor.localStaticMethodActors());
-        verifyMethods(classActor.localInterfaceMethodActors());
+        final List<ClassMethodActor> methods = new ArrayList<ClassMethodActor>();
+        gatherMethods(classActor.localVirtualMethodActors(), methods);
+        gatherMethods(classActor.localStaticMethodActors(), methods);
+        gatherMethods(classActor.localInterfaceMethodActors(), methods);
+        if (canVerifyInParallel(methods.size())) {
+            verifyInParallel(methods);
+        } else {
+            for (ClassMethodActor classMethodActor : methods) {
+                verifyMethod(classMethodActor);
+            }
+        }
         if (TraceVerifierLevel >= TRACE_CLASS) {
             Log.println("[Verified class " + classActor.name + "]");
         }
     }
 
-    private void verifyMethods(MethodActor[] methodActors) {
+    private static void gatherMethods(MethodActor[] methodActors, List<ClassMethodActor> methods) {
         for (MethodActor methodActor : methodActors) {
             if (methodActor instanceof ClassMethodActor && !methodActor.isProxyToDefault()) {
                 final ClassMethodActor classMethodActor = (ClassMethodActor) methodActor;
                 if (classMethodActor.compilee() == classMethodActor) {
-                    verifyMethod(classMethodActor);
+                    methods.add(classMethodActor);
                 } else {
                     // Cannot verify substituted methods as the receiver and holder type will not match
                 }
@@ -67,6 +104,88 @@ public abstract class ClassVerifier extends Verifier {
         }
     }
 
+    /**
+     * Determines if the methods of this verifier's class can be verified by a pool of worker threads.
+     * <p>
+     * The workers may need to load the classes referred to by the methods. The thread requesting verification
+     * blocks until the workers are done, so it must not hold a lock a worker may need for loading. Such locks
+     * include the loader itself for loaders that are not parallel capable, the per-name locks of
+     * {@link ClassLoader#getClassLoadingLock(String)} and those of {@link BootClassLoader}, and arbitrary locks
+     * taken by loaders overriding {@link ClassLoader#loadClass(String)}. As these cannot all be enumerated, the
+     * methods are verified on the calling thread whenever the verification is reached from inside a class load.
+     * Only the type checking verifier is run in parallel as the type inferencing verifier may rewrite methods.
+     */
+    private boolean canVerifyInParallel(int numberOfMethods) {
+        if (MaxineVM.isHosted() || ParallelVerificationThreshold <= 0 || numberOfMethods < ParallelVerificationThreshold) {
+            return false;
+        }
+        if (!(this instanceof TypeCheckingVerifier)) {
+            return false;
+        }
+        return !isInsideClassLoading();
+    }
+
+    /**
+     * Names of the methods that may hold a class loading lock while running on the current thread.
+     */
+    private static final Set<String> CLASS_LOADING_METHODS = new HashSet<String>(Arrays.asList(
+        "loadClass", "loadClassInternal", "findClass", "findBootstrapClass", "findBootstrapClassOrNull",
+        "defineClass", "defineClass0", "defineClass1", "defineClass2", "defineClassActor"));
+
+    /**
+     * Determines if the current thread is inside a class load, erring on the side of {@code true}.
+     * The cost of the stack walk is small compared to verifying a class with enough methods to
+     * be {@linkplain #ParallelVerificationThreshold verified in parallel}.
+     */
+    private static boolean isInsideClassLoading() {
+        for (StackTraceElement element : new Throwable().getStackTrace()) {
+            if (CLASS_LOADING_METHODS.contains(element.getMethodName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Verifies a list of methods with a pool of worker threads. Each task uses its own {@link ClassVerifier} as the
+     * type caches of a verifier are not thread safe. The first verification error raised by a task is rethrown on
+     * the calling thread.
+     */
+    private void verifyInParallel(final List<ClassMethodActor> methods) {
+        final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+        final List<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>();
+        for (int i = 0; i < methods.size(); i += METHODS_PER_TASK) {
+            final List<ClassMethodActor> batch = methods.subList(i, Math.min(i + METHODS_PER_TASK, methods.size()));
+            tasks.add(verificationPool().submit(new Runnable() {
+                public void run() {
+                    final ClassVerifier verifier = verifierFor(classActor);
+                    verifier.recordResolvedClasses(resolvedClasses);
+                    for (ClassMethodActor classMethodActor : batch) {
+                        if (error.get() != null) {
+                            return;
+                        }
+                        try {
+                            verifier.verifyMethod(classMethodActor);
+                        } catch (Throwable t) {
+                            error.compareAndSet(null, t);
+                        }
+                    }
+                }
+            }));
+        }
+        for (ForkJoinTask<?> task : tasks) {
+            task.join();
+        }
+        final Throwable t = error.get();
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        } else if (t instanceof Error) {
+            throw (Error) t;
+        } else if (t != null) {
+            throw new VerifyError(t.toString());
+        }
+    }
+
     protected void verifyMethod(final ClassMethodActor classMethodActor) {
         classMethodActor.verify(this);
     }
@@ -162,6 +162,12 @@ public class Verifier implements VerificationRegistry {
     private IntHashMap<Subroutine> subroutines;
     public boolean verbose;
 
+    /**
+     * The classes {@linkplain #resolve(TypeDescriptor) resolved} by this verifier, or {@code null} if they are not
+     * being recorded.
+     */
+    protected Set<ClassActor> resolvedClasses;
+
     public Verifier(ConstantPool constantPool) {
         this.constantPool = constantPool;
         this.objectTypes = new HashMap<TypeDescriptor, ObjectType>();
@@ -233,10 +239,24 @@ public class Verifier implements VerificationRegistry {
         return new TypeInferencingVerifier(classActor);
     }
 
+    /**
+     * Records the classes resolved by this verifier in a given set. The set must be thread safe if it is
+     * shared by verifiers running in parallel.
+     *
+     * @param set the set to which resolved classes are added or {@code null} to stop recording them
+     */
+    public void recordResolvedClasses(Set<ClassActor> set) {
+        resolvedClasses = set;
+    }
+
     /**
      * Resolves a given TypeDescriptor to a class actor.
      */
     public ClassActor resolve(TypeDescriptor type) {
-        return ClassActor.fromJava(type.resolveType(constantPool().classLoader()));
+        final ClassActor classActor = ClassActor.fromJava(type.resolveType(constantPool().classLoader()));
+        if (resolvedClasses != null) {
+            resolvedClasses.add(classActor);
+        }
+        return classActor;
     }
 }
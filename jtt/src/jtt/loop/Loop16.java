@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2012, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package jtt.loop;
+
+
+/*
+ * Nested and sibling loops with constant bounds. The inner loops together stay within the unpolled limit, the
+ * outer loop multiplies them past it.
+ * @Harness: java
+ * @Runs: 0=0; 1=2100; 3=6300; (-2)=-4200
+ */
+public class Loop16 {
+
+    public static int test(int arg) {
+        int result = 0;
+        for (int i = 0; i < 10; i++) {
+            for (int j = 10; j > 0; j--) {
+                for (int k = 0; k < 10; k += 1) {
+                    result += arg;
+                }
+                result += arg;
+            }
+            for (int j = 0; j < 100; j++) {
+                result += arg;
+            }
+        }
+        return result;
+    }
+}
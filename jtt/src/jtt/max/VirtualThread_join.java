@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package jtt.max;
+
+import com.sun.max.vm.thread.*;
+
+/*
+ * Virtual threads that join all the virtual threads started before them. With more virtual threads than
+ * carriers, some join a virtual thread queued behind them on their own carrier.
+ * @Harness: java
+ * @Runs: 0=true; 1=true; 5=true
+ */
+public class VirtualThread_join {
+
+    public static boolean test(final int arg) throws InterruptedException {
+        final int count = 2 * Runtime.getRuntime().availableProcessors() + 1;
+        final VirtualThread[] threads = new VirtualThread[count];
+        final int[] results = new int[count];
+        final boolean[] joined = new boolean[count];
+        for (int i = 0; i < count; i++) {
+            final int index = i;
+            threads[i] = new VirtualThread(new Runnable() {
+                public void run() {
+                    Thread.yield();
+                    results[index] = index * arg;
+                    try {
+                        for (int j = 0; j < index; j++) {
+                            threads[j].join();
+                            if (threads[j].isAlive() || results[j] != j * arg) {
+                                return;
+                            }
+                        }
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    joined[index] = true;
+                }
+            });
+        }
+        for (VirtualThread thread : threads) {
+            thread.start();
+        }
+        for (VirtualThread thread : threads) {
+            thread.join();
+        }
+        for (int i = 0; i < count; i++) {
+            if (!joined[i] || threads[i].getState() != Thread.State.TERMINATED) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package jtt.max;
+
+import java.util.concurrent.locks.*;
+
+import com.sun.max.vm.thread.*;
+
+/*
+ * Two virtual threads that alternately park and unpark each other, handing a counter back and forth.
+ * @Harness: java
+ * @Runs: 0=0; 1=2; 10=20; 100=200
+ */
+public class VirtualThread_park {
+
+    static volatile int counter;
+    static volatile int turn;
+
+    static final class PingPong implements Runnable {
+        final int id;
+        final int rounds;
+        Thread other;
+
+        PingPong(int id, int rounds) {
+            this.id = id;
+            this.rounds = rounds;
+        }
+
+        public void run() {
+            for (int i = 0; i < rounds; i++) {
+                while (turn != id) {
+                    LockSupport.park(this);
+                }
+                counter++;
+                turn = 1 - id;
+                LockSupport.unpark(other);
+            }
+        }
+    }
+
+    public static int test(int rounds) throws InterruptedException {
+        counter = 0;
+        turn = 0;
+        final PingPong ping = new PingPong(0, rounds);
+        final PingPong pong = new PingPong(1, rounds);
+        final VirtualThread t0 = new VirtualThread(ping, "ping");
+        final VirtualThread t1 = new VirtualThread(pong, "pong");
+        ping.other = t1;
+        pong.other = t0;
+        t0.start();
+        t1.start();
+        t0.join();
+        t1.join();
+        return counter;
+    }
+}
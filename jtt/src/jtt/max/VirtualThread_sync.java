@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package jtt.max;
+
+import com.sun.max.vm.thread.*;
+
+/*
+ * Virtual threads that sleep, and therefore park, inside a synchronized block. The monitor pins each of them
+ * to its carrier while it sleeps, so no other virtual thread on that carrier can enter the block and no
+ * update to the counter is lost.
+ * @Harness: java
+ * @Runs: 1=true; 3=true
+ */
+public class VirtualThread_sync {
+
+    static final Object lock = new Object();
+    static int counter;
+
+    public static boolean test(final int rounds) throws InterruptedException {
+        final int count = 2 * Runtime.getRuntime().availableProcessors() + 1;
+        counter = 0;
+        final VirtualThread[] threads = new VirtualThread[count];
+        for (int i = 0; i < count; i++) {
+            threads[i] = new VirtualThread(new Runnable() {
+                public void run() {
+                    for (int r = 0; r < rounds; r++) {
+                        synchronized (lock) {
+                            final int value = counter;
+                            try {
+                                Thread.sleep(1);
+                            } catch (InterruptedException e) {
+                                return;
+                            }
+                            counter = value + 1;
+                        }
+                        synchronized (VirtualThread_sync.class) {
+                            Thread.yield();
+                        }
+                    }
+                }
+            });
+        }
+        for (VirtualThread thread : threads) {
+            thread.start();
+        }
+        for (VirtualThread thread : threads) {
+            thread.join();
+        }
+        return counter == count * rounds;
+    }
+}
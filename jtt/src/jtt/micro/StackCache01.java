@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package jtt.micro;
+
+/*
+ * Exercises the T1X operand stack cache with integer and long arithmetic, conversions and local variable stores.
+ * @Harness: java
+ * @Runs: 0=-1048576007; 1=1115684452; (-1)=-1082130839; 1000=696226209; 2147483647=-1082130839; (-2147483648)=-1048576007
+ */
+public class StackCache01 {
+
+    public static int test(int a) {
+        int b = a + 1;
+        int c = b * 3 - a;
+        long d = (long) c << 33;
+        long e = d ^ (d >>> 7);
+        int f = (int) (e >> 40) & 0xffff;
+        int g = -f + (byte) c + (char) b + (short) (a * 1000);
+        long h = -(long) g * 5L + (e | 3L) - (e & 12L);
+        return g ^ (int) (h >>> 3);
+    }
+}
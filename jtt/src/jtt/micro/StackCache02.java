@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package jtt.micro;
+
+/*
+ * Exercises the T1X operand stack cache with forward branches, backward branches and merge points.
+ * @Harness: java
+ * @Runs: 0=0; 1=85; 5=81; 10=105; 100=7493
+ */
+public class StackCache02 {
+
+    public static int test(int n) {
+        int sum = 0;
+        for (int i = 0; i < n; i++) {
+            int x = (i & 1) == 0 ? i : -i;
+            if (x > 3) {
+                sum += x;
+            } else if (x < -3) {
+                sum -= x * 2;
+            }
+            if (i == n - 1) {
+                sum ^= 0x55;
+            }
+        }
+        return sum;
+    }
+}
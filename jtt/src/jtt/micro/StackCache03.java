@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package jtt.micro;
+
+/*
+ * Exercises the T1X operand stack cache with references that are loaded and stored across allocations and garbage
+ * collections.
+ * @Harness: java
+ * @Runs: 0=200; 1=201; 5=205; 100=500
+ */
+public class StackCache03 {
+
+    public static int test(int n) {
+        Object a = new int[n];
+        Object b = "x" + n;
+        Object c = a;
+        for (int i = 0; i < 3; i++) {
+            Object t = new Object[] {b};
+            System.gc();
+            b = c;
+            c = ((Object[]) t)[0];
+        }
+        return ((int[]) b).length + ((String) c).length() * 100;
+    }
+}
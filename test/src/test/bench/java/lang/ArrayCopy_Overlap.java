@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+/*
+ * @Harness: java
+ * @Runs: 0 = true
+ */
+package test.bench.java.lang;
+
+import test.bench.util.*;
+
+/**
+ * Measures {@link System#arraycopy} of a primitive array onto an overlapping range of itself.
+ */
+public class ArrayCopy_Overlap extends RunBench {
+
+    protected ArrayCopy_Overlap() {
+        super(new Bench());
+    }
+
+    public static boolean test(int i) {
+        return new ArrayCopy_Overlap().runBench();
+    }
+
+    public static class Bench extends MicroBenchmark {
+        private static final int LENGTH = 1024;
+        private int[] buf;
+
+        @Override
+        public void prerun() {
+            buf = new int[LENGTH + 1];
+        }
+
+        @Override
+        public long run() {
+            System.arraycopy(buf, 0, buf, 1, LENGTH);
+            System.arraycopy(buf, 1, buf, 0, LENGTH);
+            return defaultResult;
+        }
+    }
+
+    public static void main(String[] args) {
+        test(0);
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+/*
+ * @Harness: java
+ * @Runs: 0 = true
+ */
+package test.bench.java.lang;
+
+import java.util.*;
+
+import test.bench.util.*;
+
+/**
+ * Measures {@link Arrays#equals(byte[], byte[])} and {@link Arrays#fill(byte[], byte)} on buffer-sized arrays.
+ */
+public class Arrays_equals01 extends RunBench {
+
+    protected Arrays_equals01() {
+        super(new Bench());
+    }
+
+    public static boolean test(int i) {
+        return new Arrays_equals01().runBench();
+    }
+
+    public static class Bench extends MicroBenchmark {
+        private static final int LENGTH = 4096;
+        private byte[] a;
+        private byte[] b;
+
+        @Override
+        public void prerun() {
+            a = new byte[LENGTH];
+            b = new byte[LENGTH];
+        }
+
+        @Override
+        public long run() {
+            Arrays.fill(a, (byte) 42);
+            Arrays.fill(b, (byte) 42);
+            return Arrays.equals(a, b) ? defaultResult : 0;
+        }
+    }
+
+    public static void main(String[] args) {
+        test(0);
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+/*
+ * @Harness: java
+ * @Runs: 0 = true
+ */
+package test.bench.java.lang;
+
+import test.bench.util.*;
+
+/**
+ * Measures {@link String#equals(Object)} on distinct strings with equal contents
+ * and {@link String#indexOf(int)} of a character near the end of a string.
+ */
+public class String_equals01 extends RunBench {
+
+    protected String_equals01() {
+        super(new Bench());
+    }
+
+    public static boolean test(int i) {
+        return new String_equals01().runBench();
+    }
+
+    public static class Bench extends MicroBenchmark {
+        private String s1;
+        private String s2;
+
+        @Override
+        public void prerun() {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < 256; i++) {
+                sb.append((char) ('a' + (i % 26)));
+            }
+            sb.append(':');
+            s1 = sb.toString();
+            s2 = new String(s1.toCharArray());
+        }
+
+        @Override
+        public long run() {
+            if (s1.equals(s2) && s1.indexOf(':') == s2.length() - 1) {
+                return defaultResult;
+            }
+            return 0;
+        }
+    }
+
+    public static void main(String[] args) {
+        test(0);
+    }
+}
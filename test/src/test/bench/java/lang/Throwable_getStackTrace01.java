@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+/*
+ * @Harness: java
+ * @Runs: 0 = true; 16 = true; 64 = true; 256 = true
+ */
+package test.bench.java.lang;
+
+import test.bench.util.*;
+
+/**
+ * Measures the latency of walking the stack, by taking the stack trace of a {@link Throwable}
+ * created at the bottom of a recursion of a given depth. Each frame walked requires the
+ * code manager to map an instruction pointer to its target method.
+ */
+public class Throwable_getStackTrace01 extends RunBench {
+
+    protected Throwable_getStackTrace01(int depth) {
+        super(new Bench(depth));
+    }
+
+    public static boolean test(int depth) {
+        return new Throwable_getStackTrace01(depth).runBench();
+    }
+
+    public static class Bench extends MicroBenchmark {
+        private final int depth;
+
+        Bench(int depth) {
+            this.depth = depth;
+        }
+
+        @Override
+        public long run() {
+            if (recurse(depth) > depth) {
+                return defaultResult;
+            }
+            return 0;
+        }
+
+        private static int recurse(int n) {
+            if (n == 0) {
+                return new Throwable().getStackTrace().length;
+            }
+            return recurse(n - 1);
+        }
+    }
+
+    public static void main(String[] args) {
+        test(args.length == 0 ? 64 : Integer.parseInt(args[0]));
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+/*
+ * @Harness: java
+ * @Runs: 0 = true
+ */
+package test.bench.threads;
+
+import java.io.*;
+import java.util.*;
+
+import test.bench.util.*;
+
+/**
+ * This benchmark is intended to be run in multi-threaded mode. Each iteration creates a new class loader
+ * and defines a fixed set of classes with it. Parsing the class files interns every name and descriptor
+ * in their constant pools, so with several threads this measures contention in the VM's symbol table
+ * as well as in the rest of the class definition path.
+ *
+ * On an SMP the time per iteration should stay roughly constant as the number of threads grows.
+ */
+public class ClassLoader_define01 extends RunBench {
+
+    protected ClassLoader_define01() {
+        super(new Bench());
+    }
+
+    public static boolean test(int i) {
+        return new ClassLoader_define01().runBench();
+    }
+
+    static final Class<?>[] CLASSES = {
+        RunBench.class, RunBench.MicroBenchmark.class, RunBench.SubArray.class, Barrier.class,
+        Thread_counter01.class, Thread_counter01.Counter.class, Thread_counter01.Bench.class
+    };
+
+    /**
+     * A class loader that defines the classes in {@link #classfiles} itself instead of delegating to its parent.
+     */
+    static class DefiningLoader extends ClassLoader {
+        final Map<String, byte[]> classfiles;
+
+        DefiningLoader(Map<String, byte[]> classfiles) {
+            super(DefiningLoader.class.getClassLoader());
+            this.classfiles = classfiles;
+        }
+
+        @Override
+        protected synchronized Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            Class<?> c = findLoadedClass(name);
+            if (c == null) {
+                byte[] bytes = classfiles.get(name);
+                if (bytes == null) {
+                    return super.loadClass(name, resolve);
+                }
+                c = defineClass(name, bytes, 0, bytes.length);
+            }
+            return c;
+        }
+    }
+
+    static class Bench extends MicroBenchmark {
+        private Map<String, byte[]> classfiles;
+
+        @Override
+        public void prerun() throws Exception {
+            classfiles = new HashMap<String, byte[]>();
+            for (Class<?> c : CLASSES) {
+                classfiles.put(c.getName(), readClassfile(c));
+            }
+        }
+
+        private static byte[] readClassfile(Class<?> c) throws IOException {
+            String resource = c.getName().replace('.', '/') + ".class";
+            InputStream in = c.getClassLoader().getResourceAsStream(resource);
+            if (in == null) {
+                throw new IOException("cannot find " + resource);
+            }
+            try {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] buffer = new byte[4096];
+                int n;
+                while ((n = in.read(buffer)) > 0) {
+                    out.write(buffer, 0, n);
+                }
+                return out.toByteArray();
+            } finally {
+                in.close();
+            }
+        }
+
+        @Override
+        public long run() throws Exception {
+            DefiningLoader loader = new DefiningLoader(classfiles);
+            long result = 0;
+            for (Class<?> c : CLASSES) {
+                result += loader.loadClass(c.getName()).getName().length();
+            }
+            return result;
+        }
+    }
+
+    // for running stand-alone
+    public static void main(String[] args) {
+        RunBench.runTest(ClassLoader_define01.class, args);
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+/*
+ * @Harness: java
+ * @Runs: 0 = true;
+ */
+package test.bench.threads;
+
+import test.bench.util.*;
+
+/**
+ * Measures the cost of starting a short-lived thread and waiting for it to terminate.
+ * Each iteration creates, starts and joins one thread that does no work, so the time is
+ * dominated by native stack and thread locals set up and tear down.
+ *
+ * Run with {@code -XX:ThreadStackPoolSize=0} to compare against threads whose stacks are not recycled.
+ */
+public class Thread_start01 extends RunBench {
+
+    protected Thread_start01() {
+        super(new Bench());
+    }
+
+    public static boolean test(int i) {
+        return new Thread_start01().runBench();
+    }
+
+    static class Bench extends MicroBenchmark {
+        private static final Runnable EMPTY = new Runnable() {
+            public void run() {
+            }
+        };
+
+        @Override
+        public long run() throws InterruptedException {
+            Thread thread = new Thread(EMPTY);
+            thread.start();
+            thread.join();
+            return defaultResult;
+        }
+    }
+
+    // for running stand-alone
+    public static void main(String[] args) {
+        RunBench.runTest(Thread_start01.class, args);
+    }
+}